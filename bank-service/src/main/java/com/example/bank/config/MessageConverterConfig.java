@@ -1,36 +1,75 @@
 package com.example.bank.config;
 
+import com.example.contracts.codec.ContractMessageConverter;
+import com.example.contracts.codec.MessageFormat;
+import com.example.contracts.tracing.TracingListenerAdvice;
+import com.example.contracts.transport.InMemoryAmqpAdmin;
+import com.example.contracts.transport.InMemoryBroker;
+import com.example.contracts.transport.InMemoryListenerContainerFactory;
+import com.example.contracts.transport.InMemoryRabbitTemplate;
+import com.example.contracts.transport.MessageTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.listener.RabbitListenerContainerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class MessageConverterConfig {
 
+    @Value("${messaging.transport:rabbit}")
+    private String transport;
+
     @Bean
-    public Jackson2JsonMessageConverter jackson2JsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public ContractMessageConverter contractMessageConverter(@Value("${messaging.format:json}") String format) {
+        return new ContractMessageConverter(MessageFormat.fromName(format));
     }
 
     @Bean
-    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+    public TracingListenerAdvice tracingListenerAdvice(MeterRegistry meterRegistry) {
+        return new TracingListenerAdvice(meterRegistry);
+    }
+
+    @Bean
+    public RabbitListenerContainerFactory<?> rabbitListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            Jackson2JsonMessageConverter messageConverter) {
+            ContractMessageConverter messageConverter,
+            TracingListenerAdvice tracingListenerAdvice) {
+        if (isInMemory()) {
+            InMemoryListenerContainerFactory factory = new InMemoryListenerContainerFactory(InMemoryBroker.shared());
+            factory.setMessageConverter(messageConverter);
+            factory.setAdviceChain(tracingListenerAdvice);
+            return factory;
+        }
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
         factory.setMessageConverter(messageConverter);
+        factory.setAdviceChain(tracingListenerAdvice);
         return factory;
     }
 
     @Bean
     public RabbitTemplate rabbitTemplate(
             ConnectionFactory connectionFactory,
-            Jackson2JsonMessageConverter messageConverter) {
-        RabbitTemplate template = new RabbitTemplate(connectionFactory);
+            ContractMessageConverter messageConverter) {
+        RabbitTemplate template = isInMemory()
+                ? new InMemoryRabbitTemplate(connectionFactory, InMemoryBroker.shared())
+                : new RabbitTemplate(connectionFactory);
         template.setMessageConverter(messageConverter);
         return template;
     }
+
+    @Bean
+    public AmqpAdmin amqpAdmin(ConnectionFactory connectionFactory) {
+        return isInMemory() ? new InMemoryAmqpAdmin(InMemoryBroker.shared()) : new RabbitAdmin(connectionFactory);
+    }
+
+    private boolean isInMemory() {
+        return MessageTransport.fromName(transport) == MessageTransport.IN_MEMORY;
+    }
 }
@@ -1,9 +1,13 @@
 package com.example.bank.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
@@ -17,6 +21,16 @@ public class RabbitMQConfig {
         return new Queue("payment-result", true);
     }
 
+    // Declared with the same arguments as the store, which consumes them with single active consumer.
+    @Bean
+    public Declarables paymentResultPartitionQueues(@Value("${queues.payment-result-partitions:0}") int partitions) {
+        List<Declarable> queues = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            queues.add(QueueBuilder.durable("payment-result." + p).singleActiveConsumer().build());
+        }
+        return new Declarables(queues);
+    }
+
     @Bean
     public Queue paymentRefundQueue() {
         return new Queue("payment-refund", true);
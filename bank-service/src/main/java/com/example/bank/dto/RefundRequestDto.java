@@ -12,6 +12,14 @@ public class RefundRequestDto {
     private String status;
     private String correlationId;
 
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Integer customerId) {
+        this.customerId = customerId;
+    }
+
     public Integer getOrderId() {
         return orderId;
     }
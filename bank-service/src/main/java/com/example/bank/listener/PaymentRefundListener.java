@@ -1,7 +1,7 @@
 package com.example.bank.listener;
 
-import com.example.bank.model.PaymentRefundMessage;
-import com.example.bank.model.PaymentRefundResultMessage;
+import com.example.contracts.messaging.PaymentRefundMessage;
+import com.example.contracts.messaging.PaymentRefundResultMessage;
 import com.example.bank.service.BankProcessingService;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
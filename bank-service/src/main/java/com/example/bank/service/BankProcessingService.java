@@ -4,15 +4,17 @@ import com.example.bank.dto.PaymentRequestDto;
 import com.example.bank.dto.PaymentResponseDto;
 import com.example.bank.dto.RefundRequestDto;
 import com.example.bank.dto.RefundResponseDto;
-import com.example.bank.model.PaymentRequestedMessage;
-import com.example.bank.model.PaymentRefundMessage;
-import com.example.bank.model.PaymentRefundResultMessage;
-import com.example.bank.model.PaymentResultMessage;
+import com.example.contracts.messaging.PaymentRequestedMessage;
+import com.example.contracts.messaging.PaymentRefundMessage;
+import com.example.contracts.messaging.PaymentRefundResultMessage;
+import com.example.contracts.messaging.PaymentResultMessage;
+import com.example.contracts.tracing.MessageTrace;
 import com.example.bank.entity.CustomerBalance;
 import com.example.bank.repository.CustomerBalanceRepository;
 
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,88 +30,80 @@ public class BankProcessingService {
     @Autowired
     private CustomerBalanceRepository balanceRepository;
 
+    @Value("${queues.payment-result-partitions:0}")
+    private int paymentResultPartitions;
+
     @Transactional
     public PaymentResultMessage processPayment(PaymentRequestedMessage msg) {
-        PaymentResultMessage result = new PaymentResultMessage();
-        result.setOrderId(msg.getOrderId());
-        result.setPaymentId(msg.getPaymentId());
-
         // Optional<CustomerBalance> opt =
-        // balanceRepository.findById(msg.getCustomerId().intValue());
-        if (msg.getCustomerId() == null) {
-            result.setStatus("FAILED");
-            result.setFailureReason("Customer ID is missing");
-            return result;
+        // balanceRepository.findById(msg.customerId().intValue());
+        if (msg.customerId() == null) {
+            return paymentFailed(msg, "Customer ID is missing");
         }
 
-        Optional<CustomerBalance> opt = balanceRepository.findById(msg.getCustomerId());
+        Optional<CustomerBalance> opt = balanceRepository.findById(msg.customerId());
         if (opt.isEmpty()) {
-            result.setStatus("FAILED");
-            result.setFailureReason("User not found");
-            return result;
+            return paymentFailed(msg, "User not found");
         }
 
         CustomerBalance customer = opt.get();
-        BigDecimal amount = msg.getAmount();
+        BigDecimal amount = msg.amount();
         if (amount == null) {
-            result.setStatus("FAILED");
-            result.setFailureReason("Payment amount is missing");
-            return result;
+            return paymentFailed(msg, "Payment amount is missing");
         }
 
         if (customer.getBalance().compareTo(amount) < 0) {
-            result.setStatus("FAILED");
-            result.setFailureReason("Insufficient funds");
-            return result;
+            return paymentFailed(msg, "Insufficient funds");
         }
 
         customer.setBalance(customer.getBalance().subtract(amount));
         balanceRepository.save(customer);
 
-        result.setStatus("SUCCESS");
-        result.setBankTransactionReference("BANKREF-" + msg.getPaymentId());
-        return result;
+        return new PaymentResultMessage(
+                msg.orderId(), msg.paymentId(), "SUCCESS", "BANKREF-" + msg.paymentId(), null);
     }
 
-    public PaymentRefundResultMessage processRefund(PaymentRefundMessage msg) {
-        PaymentRefundResultMessage result = new PaymentRefundResultMessage();
-        result.setOrderId(msg.getOrderId().intValue());
-        result.setPaymentId(msg.getPaymentId().intValue());
-        result.setRefundId(msg.getRefundId().intValue());
-        result.setCorrelationId(msg.getCorrelationId());
+    private PaymentResultMessage paymentFailed(PaymentRequestedMessage msg, String reason) {
+        return new PaymentResultMessage(msg.orderId(), msg.paymentId(), "FAILED", null, reason);
+    }
 
-        Optional<CustomerBalance> opt = balanceRepository.findById(msg.getCustomerId().intValue());
+    public PaymentRefundResultMessage processRefund(PaymentRefundMessage msg) {
+        Optional<CustomerBalance> opt = msg.customerId() == null
+                ? Optional.empty()
+                : balanceRepository.findById(msg.customerId());
         if (opt.isEmpty()) {
-            result.setStatus("FAILED");
-            result.setFailureReason("User not found");
-            return result;
+            return new PaymentRefundResultMessage(
+                    msg.orderId(), msg.paymentId(), msg.refundId(), "FAILED", null, "User not found",
+                    msg.correlationId());
         }
 
         CustomerBalance customer = opt.get();
-        BigDecimal amount = BigDecimal.valueOf(msg.getAmount());
+        BigDecimal amount = msg.amount();
 
         customer.setBalance(customer.getBalance().add(amount));
         balanceRepository.save(customer);
 
-        result.setStatus("COMPLETED");
-        result.setBankRefundReference("BANKREF-REFUND-" + msg.getRefundId());
-        return result;
+        return new PaymentRefundResultMessage(
+                msg.orderId(), msg.paymentId(), msg.refundId(), "COMPLETED", "BANKREF-REFUND-" + msg.refundId(),
+                null, msg.correlationId());
     }
 
     public void sendPaymentResult(PaymentResultMessage result) {
+        String queue = paymentResultQueue(result.orderId());
         System.out.println("==========================================");
-        System.out.println("[BankService] Sending PaymentResultMessage to queue: payment-result");
+        System.out.println("[BankService] Sending PaymentResultMessage to queue: " + queue);
         System.out.println("[BankService] Message details:");
-        System.out.println("  - orderId: " + result.getOrderId());
-        System.out.println("  - paymentId: " + result.getPaymentId());
-        System.out.println("  - status: " + result.getStatus());
-        System.out.println("  - bankTransactionReference: " + result.getBankTransactionReference());
-        System.out.println("  - failureReason: " + result.getFailureReason());
+        System.out.println("  - orderId: " + result.orderId());
+        System.out.println("  - paymentId: " + result.paymentId());
+        System.out.println("  - status: " + result.status());
+        System.out.println("  - bankTransactionReference: " + result.bankTransactionReference());
+        System.out.println("  - failureReason: " + result.failureReason());
         System.out.println("[BankService] Using RabbitTemplate to send message...");
 
         try {
-            rabbitTemplate.convertAndSend("payment-result", result);
-            System.out.println("[BankService] ✓ Message sent successfully to queue: payment-result");
+            rabbitTemplate.convertAndSend(queue, result, MessageTrace.stampDirect(
+                    null, "bank-payment-result-" + result.paymentId() + "-" + result.status()));
+            System.out.println("[BankService] ✓ Message sent successfully to queue: " + queue);
             System.out.println("[BankService] Full message object: " + result);
         } catch (Exception e) {
             System.out.println("[BankService] ✗✗✗ ERROR: Failed to send message ✗✗✗");
@@ -120,22 +114,31 @@ public class BankProcessingService {
         System.out.println("==========================================");
     }
 
+    // Must match the store's store.partition.count: payment-result.<orderId mod partitions>.
+    private String paymentResultQueue(Integer orderId) {
+        if (paymentResultPartitions <= 0 || orderId == null) {
+            return "payment-result";
+        }
+        return "payment-result." + Math.floorMod(orderId, paymentResultPartitions);
+    }
+
     public void sendRefundResult(PaymentRefundResultMessage result) {
-        rabbitTemplate.convertAndSend("payment-refund-result", result);
+        rabbitTemplate.convertAndSend("payment-refund-result", result, MessageTrace.stampDirect(
+                result.correlationId(), "bank-refund-result-" + result.refundId() + "-" + result.status()));
         System.out.println("Sent refund result: " + result);
     }
 
     public PaymentResponseDto sendPaymentRequest(PaymentRequestDto dto) {
-        PaymentRequestedMessage msg = new PaymentRequestedMessage();
-        msg.setOrderId(dto.getOrderId());
-        msg.setPaymentId(dto.getPaymentId());
-        msg.setCustomerId(dto.getCustomerId());
-        msg.setAmount(dto.getAmount());
-        msg.setPaymentStatus(dto.getPaymentStatus());
-        msg.setCorrelationId(dto.getCorrelationId());
-        msg.setIdempotencyKey(dto.getIdempotencyKey());
+        PaymentRequestedMessage msg = new PaymentRequestedMessage(
+                dto.getOrderId(),
+                dto.getPaymentId(),
+                dto.getCustomerId(),
+                dto.getAmount(),
+                dto.getPaymentStatus(),
+                dto.getCorrelationId(),
+                dto.getIdempotencyKey());
 
-        rabbitTemplate.convertAndSend("payment-requested", msg);
+        rabbitTemplate.convertAndSend("payment-requested", msg, MessageTrace.stampDirect(msg.correlationId()));
 
         PaymentResponseDto response = new PaymentResponseDto();
         response.setOrderId(dto.getOrderId());
@@ -146,15 +149,16 @@ public class BankProcessingService {
     }
 
     public RefundResponseDto sendRefundRequest(RefundRequestDto dto) {
-        PaymentRefundMessage msg = new PaymentRefundMessage();
-        msg.setOrderId(dto.getOrderId().longValue());
-        msg.setPaymentId(dto.getPaymentId().longValue());
-        msg.setRefundId(dto.getRefundId().longValue());
-        msg.setAmount(dto.getAmount().doubleValue());
-        msg.setStatus(dto.getStatus());
-        msg.setCorrelationId(dto.getCorrelationId());
-
-        rabbitTemplate.convertAndSend("payment-refund", msg);
+        PaymentRefundMessage msg = new PaymentRefundMessage(
+                dto.getOrderId(),
+                dto.getPaymentId(),
+                dto.getRefundId(),
+                dto.getCustomerId(),
+                dto.getAmount(),
+                dto.getStatus(),
+                dto.getCorrelationId());
+
+        rabbitTemplate.convertAndSend("payment-refund", msg, MessageTrace.stampDirect(msg.correlationId()));
 
         RefundResponseDto response = new RefundResponseDto();
         response.setOrderId(dto.getOrderId());
@@ -0,0 +1,67 @@
+package com.example.deliveryco_service.config;
+
+import com.example.contracts.transport.MessageTransport;
+import com.rabbitmq.stream.Environment;
+import com.rabbitmq.stream.compression.Compression;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.rabbit.stream.producer.RabbitStreamTemplate;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * With {@code store.delivery-status.stream.enabled=true} the pickup, in-transit, delivered and lost
+ * events are appended to one RabbitMQ stream instead of their classic queues (see
+ * {@link OutboxRouteConfig}). The producer packs up to {@code sub-entry-size} messages into one
+ * compressed sub-entry and sends frames of up to {@code batch-size} entries, flushed at least every
+ * {@code batch-publishing-delay-ms}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "store.delivery-status.stream.enabled", havingValue = "true")
+public class DeliveryStatusStreamConfig {
+
+    @Value("${store.stream.delivery-status:delivery-status}")
+    private String deliveryStatusStreamName;
+
+    public DeliveryStatusStreamConfig(@Value("${store.messaging.transport:rabbit}") String transport) {
+        if (MessageTransport.fromName(transport) != MessageTransport.RABBIT) {
+            throw new IllegalStateException("The delivery status stream needs store.messaging.transport=rabbit");
+        }
+    }
+
+    /**
+     * Declared over AMQP like the other queues. store-system declares it too, so both services must
+     * agree on {@code max-age}.
+     */
+    @Bean
+    public Queue deliveryStatusStream(@Value("${store.delivery-status.stream.max-age:7D}") String maxAge) {
+        return QueueBuilder.durable(deliveryStatusStreamName)
+                .stream()
+                .withArgument("x-max-age", maxAge)
+                .build();
+    }
+
+    @Bean
+    public RabbitStreamTemplate deliveryStatusStreamTemplate(
+            Environment streamEnvironment,
+            MessageConverter messageConverter,
+            @Value("${store.delivery-status.stream.sub-entry-size:100}") int subEntrySize,
+            @Value("${store.delivery-status.stream.compression:gzip}") String compression,
+            @Value("${store.delivery-status.stream.batch-size:100}") int batchSize,
+            @Value("${store.delivery-status.stream.batch-publishing-delay-ms:50}") long batchPublishingDelayMs) {
+        RabbitStreamTemplate template = new RabbitStreamTemplate(streamEnvironment, deliveryStatusStreamName);
+        template.setMessageConverter(messageConverter);
+        template.setProducerCustomizer((name, builder) -> builder
+                .subEntrySize(Math.max(1, subEntrySize))
+                .compression(Compression.valueOf(compression.trim().toUpperCase(Locale.ROOT)))
+                .batchSize(Math.max(1, batchSize))
+                .batchPublishingDelay(Duration.ofMillis(batchPublishingDelayMs)));
+        return template;
+    }
+}
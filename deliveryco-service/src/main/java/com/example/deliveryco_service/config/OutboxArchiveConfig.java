@@ -0,0 +1,27 @@
+package com.example.deliveryco_service.config;
+
+import com.example.contracts.outbox.OutboxArchiveMaintenance;
+import com.example.deliveryco_service.messaging.OutboxRelay;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Maintains the daily partitions of {@code delivery_outbox_archive}, where {@link OutboxRelay} moves
+ * published rows in archive mode.
+ */
+@Configuration
+@ConditionalOnProperty(name = "store.outbox.archive.enabled", havingValue = "true")
+public class OutboxArchiveConfig {
+
+    // Partitions are in place before scheduling starts, so the relay never archives into the default one.
+    @Bean(initMethod = "maintainPartitions")
+    public OutboxArchiveMaintenance outboxArchiveMaintenance(
+            JdbcTemplate jdbcTemplate,
+            @Value("${store.outbox.archive.retention-days:7}") int retentionDays,
+            @Value("${store.outbox.archive.days-ahead:2}") int daysAhead) {
+        return new OutboxArchiveMaintenance(jdbcTemplate, "delivery_outbox_archive", retentionDays, daysAhead);
+    }
+}
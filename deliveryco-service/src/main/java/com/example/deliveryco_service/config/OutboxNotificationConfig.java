@@ -0,0 +1,38 @@
+package com.example.deliveryco_service.config;
+
+import com.example.contracts.outbox.OutboxNotificationListener;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.deliveryco_service.messaging.OutboxRelay;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs {@link OutboxRelay} when the {@code outbox_notify} trigger announces a new DELIVERY row on the
+ * {@code outbox} channel, so the scheduled poll only has to run as a slow fallback.
+ */
+@Configuration
+@ConditionalOnProperty(name = "store.outbox.notify.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxNotificationConfig {
+
+    @Bean
+    public OutboxNotificationListener outboxNotificationListener(
+            OutboxRelay outboxRelay,
+            DataSourceProperties dataSourceProperties,
+            OutboxRouteRegistry routeRegistry,
+            @Value("${store.outbox.notify.channel:outbox}") String channel,
+            @Value("${store.outbox.notify.wait-ms:10000}") int waitMs,
+            @Value("${store.outbox.notify.reconnect-delay-ms:5000}") long reconnectDelayMs) {
+        return new OutboxNotificationListener(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword(),
+                routeRegistry.aggregateTypes(),
+                channel,
+                waitMs,
+                reconnectDelayMs,
+                outboxRelay::publishOutboxEvents);
+    }
+}
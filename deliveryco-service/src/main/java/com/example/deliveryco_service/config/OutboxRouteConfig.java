@@ -0,0 +1,62 @@
+package com.example.deliveryco_service.config;
+
+import com.example.contracts.messaging.DeliveryAcknowledgementMessage;
+import com.example.contracts.messaging.DeliveryDeliveredMessage;
+import com.example.contracts.messaging.DeliveryInTransitMessage;
+import com.example.contracts.messaging.DeliveryItemLostMessage;
+import com.example.contracts.messaging.DeliveryPickupMessage;
+import com.example.contracts.outbox.OutboxRoute;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class OutboxRouteConfig {
+
+    @Value("${store.queue.delivery-ack:delivery-ack}")
+    private String deliveryAckQueueName;
+
+    @Value("${store.queue.delivery-picked:delivery-picked}")
+    private String deliveryPickedQueueName;
+
+    @Value("${store.queue.delivery-in-transit:delivery-in-transit}")
+    private String deliveryInTransitQueueName;
+
+    @Value("${store.queue.delivery-delivered:delivery-delivered}")
+    private String deliveryDeliveredQueueName;
+
+    @Value("${store.queue.delivery-lost:delivery-lost}")
+    private String deliveryLostQueueName;
+
+    @Value("${store.stream.delivery-status:delivery-status}")
+    private String deliveryStatusStreamName;
+
+    @Value("${store.delivery-status.stream.enabled:false}")
+    private boolean deliveryStatusStream;
+
+    @Bean
+    public OutboxRouteRegistry outboxRouteRegistry() {
+        return new OutboxRouteRegistry()
+                .register("DELIVERY", "DeliveryAcknowledged",
+                        OutboxRoute.toQueue(deliveryAckQueueName, DeliveryAcknowledgementMessage.class))
+                .register("DELIVERY", "DeliveryPicked",
+                        statusRoute(deliveryPickedQueueName, DeliveryPickupMessage.class))
+                .register("DELIVERY", "DeliveryInTransit",
+                        statusRoute(deliveryInTransitQueueName, DeliveryInTransitMessage.class))
+                .register("DELIVERY", "DeliveryDelivered",
+                        statusRoute(deliveryDeliveredQueueName, DeliveryDeliveredMessage.class))
+                .register("DELIVERY", "DeliveryItemLost",
+                        statusRoute(deliveryLostQueueName, DeliveryItemLostMessage.class));
+    }
+
+    /**
+     * Status events share one stream when it is enabled, so every reader sees a delivery's updates
+     * in the order they happened; otherwise each goes to its own queue.
+     */
+    private OutboxRoute statusRoute(String queueName, Class<?> messageType) {
+        return deliveryStatusStream
+                ? OutboxRoute.toStream(deliveryStatusStreamName, messageType)
+                : OutboxRoute.toQueue(queueName, messageType);
+    }
+}
@@ -1,12 +1,25 @@
 package com.example.deliveryco_service.config;
 
+import com.example.contracts.codec.ContractMessageConverter;
+import com.example.contracts.codec.MessageFormat;
+import com.example.contracts.tracing.TracingListenerAdvice;
+import com.example.contracts.transport.InMemoryAmqpAdmin;
+import com.example.contracts.transport.InMemoryBroker;
+import com.example.contracts.transport.InMemoryListenerContainerFactory;
+import com.example.contracts.transport.InMemoryRabbitTemplate;
+import com.example.contracts.transport.MessageTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.listener.RabbitListenerContainerFactory;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -14,6 +27,9 @@ import org.springframework.context.annotation.Configuration;
 @EnableRabbit
 public class RabbitConfig {
 
+    @Value("${store.messaging.transport:rabbit}")
+    private String transport;
+
     @Value("${store.queue.order-placed:order-placed}")
     private String orderPlacedQueueName;
 
@@ -63,16 +79,54 @@ public class RabbitConfig {
     }
 
     @Bean
-    public MessageConverter jacksonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter contractMessageConverter(@Value("${store.messaging.format:json}") String format) {
+        return new ContractMessageConverter(MessageFormat.fromName(format));
+    }
+
+    @Bean
+    public TracingListenerAdvice tracingListenerAdvice(MeterRegistry meterRegistry) {
+        return new TracingListenerAdvice(meterRegistry);
+    }
+
+    /**
+     * The Boot-configured listener factory, or with {@code store.messaging.transport=in-memory} one
+     * whose containers consume from the JVM-wide {@link InMemoryBroker}.
+     */
+    @Bean
+    public RabbitListenerContainerFactory<?> rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            MessageConverter messageConverter,
+            TracingListenerAdvice tracingListenerAdvice) {
+        if (isInMemory()) {
+            InMemoryListenerContainerFactory factory = new InMemoryListenerContainerFactory(InMemoryBroker.shared());
+            factory.setMessageConverter(messageConverter);
+            factory.setAdviceChain(tracingListenerAdvice);
+            return factory;
+        }
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAdviceChain(tracingListenerAdvice);
+        return factory;
     }
 
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
-        RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
+        RabbitTemplate rabbitTemplate = isInMemory()
+                ? new InMemoryRabbitTemplate(connectionFactory, InMemoryBroker.shared())
+                : new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(messageConverter);
+        // Unroutable outbox messages come back as returns and are not treated as confirmed.
+        rabbitTemplate.setMandatory(true);
         return rabbitTemplate;
     }
-}
 
+    @Bean
+    public AmqpAdmin amqpAdmin(ConnectionFactory connectionFactory) {
+        return isInMemory() ? new InMemoryAmqpAdmin(InMemoryBroker.shared()) : new RabbitAdmin(connectionFactory);
+    }
 
+    private boolean isInMemory() {
+        return MessageTransport.fromName(transport) == MessageTransport.IN_MEMORY;
+    }
+}
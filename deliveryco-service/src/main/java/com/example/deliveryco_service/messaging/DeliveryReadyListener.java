@@ -1,6 +1,6 @@
 package com.example.deliveryco_service.messaging;
 
-import com.example.deliveryco_service.dto.DeliveryReadyMessage;
+import com.example.contracts.messaging.OrderReadyForPickupMessage;
 import com.example.deliveryco_service.service.DeliveryService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -23,7 +23,7 @@ public class DeliveryReadyListener {
     
 
     @RabbitListener(queues = "delivery-ready")
-    public void handleDeliveryReady(DeliveryReadyMessage message) {
+    public void handleDeliveryReady(OrderReadyForPickupMessage message) {
         log.info("Received Order from DeliveryReady QUEUE message: orderId={}, status={}, correlationId={}, warehouses={}", 
                 message.orderId(), message.orderStatus(), message.correlationId(), 
                 message.warehouses() != null ? message.warehouses().size() : 0);
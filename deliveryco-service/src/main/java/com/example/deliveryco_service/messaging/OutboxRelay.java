@@ -1,178 +1,141 @@
 package com.example.deliveryco_service.messaging;
 
+import com.example.contracts.outbox.ConfirmWindow;
+import com.example.contracts.outbox.OutboxNotificationListener;
+import com.example.contracts.outbox.OutboxRoute;
+import com.example.contracts.outbox.OutboxRouteRegistry;
 import com.example.deliveryco_service.model.OutboxEvent;
 import com.example.deliveryco_service.repository.OutboxEventRepo;
-import com.example.deliveryco_service.dto.DeliveryAcknowledgementMessage;
-import com.example.deliveryco_service.dto.DeliveryPickupMessage;
-import com.example.deliveryco_service.dto.DeliveryInTransitMessage;
-import com.example.deliveryco_service.dto.DeliveryDeliveredMessage;
-import com.example.deliveryco_service.dto.DeliveryItemLostMessage;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.rabbit.stream.producer.RabbitStreamOperations;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class OutboxRelay {
 
+    /** Message ids of delivery outbox events are this prefix followed by the event id. */
+    public static final String MESSAGE_ID_PREFIX = "deliveryco-outbox-";
+
     private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
 
     private final OutboxEventRepo outboxEventRepo;
     private final RabbitTemplate rabbitTemplate;
-    private final ObjectMapper objectMapper;
-    private final String deliveryAckQueueName;
-    private final String deliveryPickedQueueName;
-    private final String deliveryInTransitQueueName;
-    private final String deliveryDeliveredQueueName;
-    private final String deliveryLostQueueName;
+    private final RabbitStreamOperations streamOperations;
+    private final OutboxRouteRegistry routeRegistry;
+    private final int maxInFlight;
+    private final long confirmTimeoutMs;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean archive;
+    private final int batchSize;
 
     public OutboxRelay(
             OutboxEventRepo outboxEventRepo,
             RabbitTemplate rabbitTemplate,
-            ObjectMapper objectMapper,
-            @Value("${store.queue.delivery-ack:delivery-ack}") String deliveryAckQueueName,
-            @Value("${store.queue.delivery-picked:delivery-picked}") String deliveryPickedQueueName,
-            @Value("${store.queue.delivery-in-transit:delivery-in-transit}") String deliveryInTransitQueueName,
-            @Value("${store.queue.delivery-delivered:delivery-delivered}") String deliveryDeliveredQueueName,
-            @Value("${store.queue.delivery-lost:delivery-lost}") String deliveryLostQueueName) {
+            ObjectProvider<RabbitStreamOperations> streamOperations,
+            OutboxRouteRegistry routeRegistry,
+            @Value("${store.outbox.confirm.max-in-flight:256}") int maxInFlight,
+            @Value("${store.outbox.confirm.timeout-ms:5000}") long confirmTimeoutMs,
+            PlatformTransactionManager transactionManager,
+            @Value("${store.outbox.archive.enabled:false}") boolean archive,
+            @Value("${store.outbox.claim.batch-size:100}") int batchSize) {
         this.outboxEventRepo = outboxEventRepo;
         this.rabbitTemplate = rabbitTemplate;
-        this.objectMapper = objectMapper;
-        this.deliveryAckQueueName = deliveryAckQueueName;
-        this.deliveryPickedQueueName = deliveryPickedQueueName;
-        this.deliveryInTransitQueueName = deliveryInTransitQueueName;
-        this.deliveryDeliveredQueueName = deliveryDeliveredQueueName;
-        this.deliveryLostQueueName = deliveryLostQueueName;
+        this.streamOperations = streamOperations.getIfAvailable();
+        this.routeRegistry = routeRegistry;
+        this.maxInFlight = maxInFlight;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archive = archive;
+        this.batchSize = Math.max(1, batchSize);
     }
 
     /**
-     * Polls the outbox table every second and publishes ready events
+     * Publishes ready events, one claimed page per transaction, until a page comes back short or
+     * none of it was confirmed or marked failed. Runs on every notification from {@link OutboxNotificationListener}
+     * and on the fallback poll. Synchronized, so a second run only claims after the first one's
+     * deletes have committed.
      */
     @Scheduled(fixedDelayString = "${store.outbox.publisher.delay-ms:1000}")
-    @Transactional
-    public void publishOutboxEvents() {
-        // Only fetch DELIVERY events to avoid processing ORDER events from store-system
-        List<OutboxEvent> events = outboxEventRepo.findByAggregateTypeOrderByCreatedAtAsc("DELIVERY");
-        
-        if (!events.isEmpty()) {
-            log.info("--------[publish]-------- OutboxRelay: Found {} DELIVERY events to process", events.size());
-        }
-        
-        for (OutboxEvent event : events) {
-            try {
-                log.debug("Processing event {}: type={}, aggregate={}", event.getId(), event.getEventType(), event.getAggregateType());
-                
-                if (isDeliveryAcknowledged(event)) {
-                    handleDeliveryAcknowledgedEvent(event);
-                } else if (isDeliveryPicked(event)) {
-                    handleDeliveryPickedEvent(event);
-                } else if (isDeliveryInTransit(event)) {
-                    handleDeliveryInTransitEvent(event);
-                } else if (isDeliveryDelivered(event)) {
-                    handleDeliveryDeliveredEvent(event);
-                } else if (isDeliveryItemLost(event)) {
-                    handleDeliveryItemLostEvent(event);
-                } else {
-                    log.warn("Unexpected event type: {} for aggregate: {} (event {})", 
-                            event.getEventType(), event.getAggregateType(), event.getId());
-                }
-            } catch (Exception e) {
-                log.error("Failed to process outbox event {}: {}", event.getId(), e.getMessage(), e);
-            }
-        }
-    }
-
-    private boolean isDeliveryAcknowledged(OutboxEvent event) {
-        return "DELIVERY".equalsIgnoreCase(event.getAggregateType())
-                && "DeliveryAcknowledged".equalsIgnoreCase(event.getEventType());
-    }
-
-    private boolean isDeliveryPicked(OutboxEvent event) {
-        return "DELIVERY".equalsIgnoreCase(event.getAggregateType())
-                && "DeliveryPicked".equalsIgnoreCase(event.getEventType());
-    }
-
-    private boolean isDeliveryInTransit(OutboxEvent event) {
-        return "DELIVERY".equalsIgnoreCase(event.getAggregateType())
-                && "DeliveryInTransit".equalsIgnoreCase(event.getEventType());
-    }
-
-    private boolean isDeliveryDelivered(OutboxEvent event) {
-        return "DELIVERY".equalsIgnoreCase(event.getAggregateType())
-                && "DeliveryDelivered".equalsIgnoreCase(event.getEventType());
-    }
-
-    private boolean isDeliveryItemLost(OutboxEvent event) {
-        return "DELIVERY".equalsIgnoreCase(event.getAggregateType())
-                && "DeliveryItemLost".equalsIgnoreCase(event.getEventType());
+    public synchronized void publishOutboxEvents() {
+        boolean more;
+        do {
+            more = Boolean.TRUE.equals(transactionTemplate.execute(status -> publishPage()));
+        } while (more);
     }
 
-    private void handleDeliveryAcknowledgedEvent(OutboxEvent event) {
-        try {
-            DeliveryAcknowledgementMessage message = objectMapper.readValue(event.getPayload(), DeliveryAcknowledgementMessage.class);
-            rabbitTemplate.convertAndSend(deliveryAckQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info("--------[publish]-------- Published delivery acknowledgement for order {} to queue '{}'", message.orderId(), deliveryAckQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse DeliveryAcknowledgement payload for event {}: {}", event.getId(), ex.getMessage());
-            throw new RuntimeException("Failed to parse DeliveryAcknowledgement message", ex);
+    /**
+     * Returns whether another page may be waiting.
+     */
+    private boolean publishPage() {
+        List<OutboxEvent> events = outboxEventRepo.claimBatch(batchSize);
+        if (events.isEmpty()) {
+            return false;
         }
-    }
 
-    private void handleDeliveryPickedEvent(OutboxEvent event) {
-        try {
-            DeliveryPickupMessage message = objectMapper.readValue(event.getPayload(), DeliveryPickupMessage.class);
-            rabbitTemplate.convertAndSend(deliveryPickedQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info("--------[publish]-------- Published delivery picked for order {} to queue '{}'", message.orderId(), deliveryPickedQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse DeliveryPickup payload for event {}: {}", event.getId(), ex.getMessage());
-            throw new RuntimeException("Failed to parse DeliveryPickup message", ex);
-        }
-    }
+        // Publish on one channel so each delivery's events reach the broker in created_at order
+        List<Integer> failedEventIds = new ArrayList<>();
+        List<Integer> confirmedEventIds = rabbitTemplate.invoke(operations -> sendAll(events, failedEventIds));
 
-    private void handleDeliveryInTransitEvent(OutboxEvent event) {
-        try {
-            DeliveryInTransitMessage message = objectMapper.readValue(event.getPayload(), DeliveryInTransitMessage.class);
-            rabbitTemplate.convertAndSend(deliveryInTransitQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info("--------[publish]-------- Published delivery in transit for order {} to queue '{}'", message.orderId(), deliveryInTransitQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse DeliveryInTransit payload for event {}: {}", event.getId(), ex.getMessage());
-            throw new RuntimeException("Failed to parse DeliveryInTransit message", ex);
+        // Only rows the broker confirmed are removed; everything else is retried on the next poll
+        LocalDateTime now = LocalDateTime.now();
+        if (!failedEventIds.isEmpty()) {
+            outboxEventRepo.markFailed(failedEventIds, now);
         }
-    }
-
-    private void handleDeliveryDeliveredEvent(OutboxEvent event) {
-        try {
-            DeliveryDeliveredMessage message = objectMapper.readValue(event.getPayload(), DeliveryDeliveredMessage.class);
-            rabbitTemplate.convertAndSend(deliveryDeliveredQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info("--------[publish]-------- Published delivery delivered for order {} to queue '{}'", message.orderId(), deliveryDeliveredQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse DeliveryDelivered payload for event {}: {}", event.getId(), ex.getMessage());
-            throw new RuntimeException("Failed to parse DeliveryDelivered message", ex);
+        if (!confirmedEventIds.isEmpty()) {
+            if (archive) {
+                outboxEventRepo.archiveAllById(confirmedEventIds, now);
+            } else {
+                outboxEventRepo.deleteAllByIdInBatch(confirmedEventIds);
+            }
         }
+        // Unconfirmed rows head the next claim; if none of the page was handled, stop rather than spin on them
+        return events.size() == batchSize && confirmedEventIds.size() + failedEventIds.size() > 0;
     }
 
-    private void handleDeliveryItemLostEvent(OutboxEvent event) {
-        try {
-            DeliveryItemLostMessage message = objectMapper.readValue(event.getPayload(), DeliveryItemLostMessage.class);
-            rabbitTemplate.convertAndSend(deliveryLostQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info("--------[lost]-------- Published delivery item lost for order {} (productId={}, quantity={}) to queue '{}'", 
-                    message.orderId(), message.productId(), message.quantityLost(), deliveryLostQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse DeliveryItemLost payload for event {}: {}", event.getId(), ex.getMessage());
-            throw new RuntimeException("Failed to parse DeliveryItemLost message", ex);
+    /**
+     * Sends the page and returns the ids the broker confirmed. Rows that can never be published are
+     * added to {@code failedEventIds}. Sending stops at the first row known to be unconfirmed, so no
+     * later event of the same delivery overtakes it; it heads the next claim. A send that throws aborts
+     * the page, so it rolls back and is claimed again, in order, on the next run.
+     */
+    private List<Integer> sendAll(List<OutboxEvent> events, List<Integer> failedEventIds) {
+        ConfirmWindow window = new StreamConfirmWindow(
+                rabbitTemplate, streamOperations, MESSAGE_ID_PREFIX, maxInFlight, confirmTimeoutMs);
+        for (OutboxEvent event : events) {
+            if (!window.allConfirmed()) {
+                break;
+            }
+            if (event.getPayload() == null) {
+                log.error(
+                        "Outbox event {} ({}) has no payload; marking it failed", event.getId(), event.getEventType());
+                failedEventIds.add(event.getId());
+                continue;
+            }
+            OutboxRoute route = routeRegistry.find(event.getAggregateType(), event.getEventType());
+            if (route == null) {
+                log.error(
+                        "No route for outbox event {} ({} {}); marking it failed",
+                        event.getId(),
+                        event.getAggregateType(),
+                        event.getEventType());
+                failedEventIds.add(event.getId());
+                continue;
+            }
+            window.send(event, route);
+            log.debug(
+                    "Sent {} for {} to {}", event.getEventType(), event.getCorrelationId(), route.routingKey(event));
         }
+        return window.awaitConfirmed();
     }
 }
@@ -0,0 +1,42 @@
+package com.example.deliveryco_service.messaging;
+
+import com.example.contracts.outbox.ConfirmWindow;
+import com.example.contracts.outbox.OutboxRoute;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.rabbit.stream.producer.RabbitStreamOperations;
+
+/**
+ * {@link ConfirmWindow} that also sends stream routes, through the stream producer. The producer's
+ * confirm completes the event's correlation, so stream events are settled like queue events.
+ */
+public class StreamConfirmWindow extends ConfirmWindow {
+
+    private final RabbitStreamOperations streamOperations;
+
+    /**
+     * {@code streamOperations} publishes the events of stream routes; null when no stream is
+     * configured.
+     */
+    public StreamConfirmWindow(
+            RabbitTemplate rabbitTemplate,
+            RabbitStreamOperations streamOperations,
+            String messageIdPrefix,
+            int maxInFlight,
+            long confirmTimeoutMs) {
+        super(rabbitTemplate, messageIdPrefix, maxInFlight, confirmTimeoutMs);
+        this.streamOperations = streamOperations;
+    }
+
+    @Override
+    protected void publish(OutboxRoute route, String routingKey, Message message, CorrelationData correlation) {
+        if (!route.stream() || streamOperations == null) {
+            super.publish(route, routingKey, message, correlation);
+            return;
+        }
+        streamOperations.send(message).whenComplete((confirmed, ex) -> correlation.getFuture().complete(
+                new CorrelationData.Confirm(ex == null && Boolean.TRUE.equals(confirmed),
+                        ex == null ? null : ex.getMessage())));
+    }
+}
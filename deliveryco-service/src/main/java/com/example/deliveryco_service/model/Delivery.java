@@ -27,6 +27,11 @@ public class Delivery {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // The store saga writes the same row; both sides check this column before overwriting it.
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // Constructors
     public Delivery() {}
 
@@ -86,5 +91,8 @@ public class Delivery {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
-}
 
+    public Long getVersion() {
+        return version;
+    }
+}
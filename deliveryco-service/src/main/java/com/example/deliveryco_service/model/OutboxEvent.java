@@ -1,11 +1,14 @@
 package com.example.deliveryco_service.model;
 
+import com.example.contracts.outbox.OutboxRecord;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.contracts.tracing.MessageTrace;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "outbox")
-public class OutboxEvent {
+@Table(name = "delivery_outbox", indexes = @Index(name = "idx_delivery_outbox_created_at", columnList = "created_at"))
+public class OutboxEvent implements OutboxRecord {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -30,11 +33,19 @@ public class OutboxEvent {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Messages the saga passed through before this one; see MessageTrace.
+    @Column(name = "hop_count")
+    private Integer hopCount;
+
+    // Set when the relay gave up on the row; failed rows are never claimed.
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+
     // Constructors
     public OutboxEvent() {}
 
     public OutboxEvent(String aggregateType, Integer aggregateId, String eventType, String payload, String correlationId) {
-        this.aggregateType = aggregateType;
+        setAggregateType(aggregateType);
         this.aggregateId = aggregateId;
         this.eventType = eventType;
         this.payload = payload;
@@ -42,6 +53,13 @@ public class OutboxEvent {
         this.createdAt = LocalDateTime.now();
     }
 
+    @PrePersist
+    void assignHopCount() {
+        if (hopCount == null) {
+            hopCount = MessageTrace.nextHopCount();
+        }
+    }
+
     // Getters and Setters
     public Integer getId() {
         return id;
@@ -55,8 +73,9 @@ public class OutboxEvent {
         return aggregateType;
     }
 
+    // Stored in the registry's form, so the relay's aggregate_type IN (...) claim matches it exactly.
     public void setAggregateType(String aggregateType) {
-        this.aggregateType = aggregateType;
+        this.aggregateType = aggregateType != null ? OutboxRouteRegistry.normalise(aggregateType) : null;
     }
 
     public Integer getAggregateId() {
@@ -98,4 +117,20 @@ public class OutboxEvent {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Integer getHopCount() {
+        return hopCount;
+    }
+
+    public void setHopCount(Integer hopCount) {
+        this.hopCount = hopCount;
+    }
+
+    public LocalDateTime getFailedAt() {
+        return failedAt;
+    }
+
+    public void setFailedAt(LocalDateTime failedAt) {
+        this.failedAt = failedAt;
+    }
 }
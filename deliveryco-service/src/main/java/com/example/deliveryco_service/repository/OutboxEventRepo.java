@@ -2,22 +2,54 @@ package com.example.deliveryco_service.repository;
 
 import com.example.deliveryco_service.model.OutboxEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OutboxEventRepo extends JpaRepository<OutboxEvent, Integer> {
 
     /**
-     * Find all outbox events that are ready to be published
-     * (created_at <= current time - since we don't have publish_at column)
+     * Claims up to {@code limit} events not marked failed, oldest first (delivery_outbox only holds
+     * this service's rows and has no publish_at column). Rows stay locked until the surrounding
+     * transaction ends and rows locked by another replica are skipped.
      */
-    @Query("SELECT e FROM OutboxEvent e ORDER BY e.createdAt ASC")
-    List<OutboxEvent> findReadyToPublish();
+    @Query(
+            value = "SELECT * FROM delivery_outbox "
+                    + "WHERE failed_at IS NULL "
+                    + "ORDER BY created_at, event_id "
+                    + "LIMIT :limit "
+                    + "FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> claimBatch(@Param("limit") int limit);
+
+    /**
+     * Marks events the relay can never publish (no payload, no route) as failed, so the claim skips
+     * them instead of returning them at the head of every page. Clearing {@code failed_at} retries them.
+     */
+    @Modifying
+    @Query(
+            value = "UPDATE delivery_outbox SET failed_at = :failedAt WHERE event_id IN (:eventIds)",
+            nativeQuery = true)
+    int markFailed(@Param("eventIds") Collection<Integer> eventIds, @Param("failedAt") LocalDateTime failedAt);
+
+    /**
+     * Move published events to delivery_outbox_archive in one statement
+     */
+    @Modifying
+    @Query(
+            value = "WITH moved AS (DELETE FROM delivery_outbox WHERE event_id IN (:eventIds) RETURNING *) "
+                    + "INSERT INTO delivery_outbox_archive (event_id, aggregate_type, aggregate_id, event_type, payload, "
+                    + "correlation_id, created_at, hop_count, published_at) "
+                    + "SELECT event_id, aggregate_type, aggregate_id, event_type, payload, "
+                    + "correlation_id, created_at, hop_count, :publishedAt FROM moved",
+            nativeQuery = true)
+    int archiveAllById(@Param("eventIds") Collection<Integer> eventIds, @Param("publishedAt") LocalDateTime publishedAt);
 
     /**
      * Find outbox events by aggregate type, ordered by creation time
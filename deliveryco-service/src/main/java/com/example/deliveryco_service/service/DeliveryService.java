@@ -1,13 +1,17 @@
 package com.example.deliveryco_service.service;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-import com.example.deliveryco_service.dto.DeliveryAcknowledgementMessage;
-import com.example.deliveryco_service.dto.DeliveryPickupMessage;
-import com.example.deliveryco_service.dto.DeliveryInTransitMessage;
-import com.example.deliveryco_service.dto.DeliveryDeliveredMessage;
-import com.example.deliveryco_service.dto.DeliveryReadyMessage;
-import com.example.deliveryco_service.dto.DeliveryItemLostMessage;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.example.contracts.messaging.DeliveryAcknowledgementMessage;
+import com.example.contracts.messaging.DeliveryPickupMessage;
+import com.example.contracts.messaging.DeliveryInTransitMessage;
+import com.example.contracts.messaging.DeliveryDeliveredMessage;
+import com.example.contracts.messaging.OrderReadyForPickupMessage;
+import com.example.contracts.messaging.DeliveryItemLostMessage;
 import com.example.deliveryco_service.repository.DeliveryRepo;
 import com.example.deliveryco_service.repository.DeliveryEventRepo;
 import com.example.deliveryco_service.repository.OutboxEventRepo;
@@ -25,31 +29,38 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class DeliveryService {
 
     private static final Logger log = LoggerFactory.getLogger(DeliveryService.class);
 
+    private static final int MAX_STATUS_SAVE_ATTEMPTS = 3;
+    private static final long STATUS_RETRY_BASE_DELAY_MS = 10;
+
     private final DeliveryRepo deliveryRepo;
     private final DeliveryEventRepo deliveryEventRepo;
     private final OutboxEventRepo outboxEventRepo;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
     private final Random random = new Random();
 
     public DeliveryService(DeliveryRepo deliveryRepo, DeliveryEventRepo deliveryEventRepo, 
-                         OutboxEventRepo outboxEventRepo, ObjectMapper objectMapper) {
+                         OutboxEventRepo outboxEventRepo, ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager) {
         this.deliveryRepo = deliveryRepo;
         this.deliveryEventRepo = deliveryEventRepo;
         this.outboxEventRepo = outboxEventRepo;
         this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     //Simulates the entire delivery 
      //Creates delivery, then progresses through: PICKED_UP (for all warehouses) -> IN_TRANSIT -> DELIVERED
      //Simulates warehouse pickups with 5 seconds per warehouse
      
-    public void simulateDelivery(Integer orderId, List<DeliveryReadyMessage.WarehouseAssignment> warehouses) {
+    public void simulateDelivery(Integer orderId, List<OrderReadyForPickupMessage.WarehouseAssignment> warehouses) {
         // Run simulation asynchronously to not block the message listener
         CompletableFuture.runAsync(() -> {
             try {
@@ -61,7 +72,7 @@ public class DeliveryService {
                 
                 // Step 2: Simulate warehouse pickups sequentially
                 // Track which warehouses have been visited/picked up
-                List<DeliveryReadyMessage.WarehouseAssignment> visitedWarehouses = new ArrayList<>();
+                List<OrderReadyForPickupMessage.WarehouseAssignment> visitedWarehouses = new ArrayList<>();
                 // Track lost items to prevent losing the same item multiple times
                 // Key format: "warehouseId-productId"
                 Set<String> lostItems = new HashSet<>();
@@ -70,7 +81,7 @@ public class DeliveryService {
                     log.info("--------[simulation]-------- Starting warehouse pickup simulation for delivery {} ({} warehouse(s))", deliveryId, warehouses.size());
                     
                     for (int i = 0; i < warehouses.size(); i++) {
-                        DeliveryReadyMessage.WarehouseAssignment warehouse = warehouses.get(i);
+                        OrderReadyForPickupMessage.WarehouseAssignment warehouse = warehouses.get(i);
                         int itemCount = warehouse.items() != null ? warehouse.items().stream()
                             .mapToInt(item -> item.quantity() != null ? item.quantity() : 0)
                             .sum() : 0;
@@ -174,11 +185,34 @@ public class DeliveryService {
         return delivery;
     }
 
-    @Transactional
+    // The store saga updates the same delivery row. The status, its delivery event and its outbox row are
+    // written in one transaction; on a version conflict that transaction is rolled back and rerun from a
+    // fresh read, with jitter, so no outbox row is ever committed for a status that was not written.
+    // Must be called outside any transaction, so each attempt gets a fresh persistence context.
     public void updateDeliveryStatus(Integer deliveryId, String status) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Delivery status update started inside a transaction");
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(tx -> applyDeliveryStatus(deliveryId, status));
+                return;
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= MAX_STATUS_SAVE_ATTEMPTS) {
+                    throw ex;
+                }
+                log.debug("Delivery {} changed concurrently, retrying status {}", deliveryId, status);
+                sleepBeforeRetry(attempt, ex);
+            }
+        }
+    }
+
+    private void applyDeliveryStatus(Integer deliveryId, String status) {
         Delivery delivery = deliveryRepo.findById(deliveryId)
             .orElseThrow(() -> new RuntimeException("Delivery not found"));
         delivery.setStatus(status);
+        // Flushed first, so a version conflict surfaces here rather than at commit.
+        deliveryRepo.saveAndFlush(delivery);
         
         LocalDateTime now = LocalDateTime.now();
         
@@ -250,8 +284,16 @@ public class DeliveryService {
         } catch (Exception e) {
             throw new RuntimeException("Failed to create outbox event for delivery update", e);
         }
-        
-        deliveryRepo.save(delivery);
+    }
+
+    // Full jitter on an exponential backoff, so racing writers do not collide again in lockstep.
+    private static void sleepBeforeRetry(int attempt, OptimisticLockingFailureException cause) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong((STATUS_RETRY_BASE_DELAY_MS << attempt) + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
     }
 
     public String getDeliveryStatus(Integer deliveryId) {
@@ -266,7 +308,7 @@ public class DeliveryService {
     // Uses lostItems set to track already-lost items and prevent losing the same item multiple times
     @Transactional
     public void checkForLostItems(Integer orderId, Integer deliveryId, String trackingCode, 
-                                  String carrier, List<DeliveryReadyMessage.WarehouseAssignment> warehouses, 
+                                  String carrier, List<OrderReadyForPickupMessage.WarehouseAssignment> warehouses, 
                                   String correlationId, Set<String> lostItems) {
         if (warehouses == null || warehouses.isEmpty()) {
             return;
@@ -274,12 +316,12 @@ public class DeliveryService {
 
         LocalDateTime now = LocalDateTime.now();
 
-        for (DeliveryReadyMessage.WarehouseAssignment warehouse : warehouses) {
+        for (OrderReadyForPickupMessage.WarehouseAssignment warehouse : warehouses) {
             if (warehouse.items() == null || warehouse.items().isEmpty()) {
                 continue;
             }
 
-            for (DeliveryReadyMessage.Item item : warehouse.items()) {
+            for (OrderReadyForPickupMessage.Item item : warehouse.items()) {
                 // Create a unique key for this item (warehouseId-productId)
                 String itemKey = warehouse.warehouseId() + "-" + item.productId();
                 
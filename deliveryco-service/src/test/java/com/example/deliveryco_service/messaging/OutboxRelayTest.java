@@ -0,0 +1,148 @@
+package com.example.deliveryco_service.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.contracts.outbox.OutboxRoute;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.deliveryco_service.model.OutboxEvent;
+import com.example.deliveryco_service.repository.OutboxEventRepo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class OutboxRelayTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    private OutboxEventRepo outboxEventRepo;
+    private RabbitTemplate rabbitTemplate;
+    private OutboxRouteRegistry routeRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        outboxEventRepo = mock(OutboxEventRepo.class);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        routeRegistry = new OutboxRouteRegistry();
+        relay = new OutboxRelay(outboxEventRepo, rabbitTemplate, mock(ObjectProvider.class),
+                routeRegistry, 256, 5000, mock(PlatformTransactionManager.class), false, BATCH_SIZE);
+    }
+
+    @Test
+    void claimsPagesUntilOneComesBackShort() {
+        when(outboxEventRepo.claimBatch(BATCH_SIZE)).thenReturn(events(1, 2, 3), events(4));
+        confirm(List.of(1, 2, 3), List.of(4));
+
+        relay.publishOutboxEvents();
+
+        verify(outboxEventRepo, times(2)).claimBatch(BATCH_SIZE);
+        verify(outboxEventRepo).deleteAllByIdInBatch(List.of(1, 2, 3));
+        verify(outboxEventRepo).deleteAllByIdInBatch(List.of(4));
+    }
+
+    @Test
+    void stopsWhenNothingInAPageWasConfirmed() {
+        when(outboxEventRepo.claimBatch(BATCH_SIZE)).thenReturn(events(1, 2, 3));
+        confirm(List.of());
+
+        relay.publishOutboxEvents();
+
+        verify(outboxEventRepo).claimBatch(BATCH_SIZE);
+        verify(outboxEventRepo, never()).deleteAllByIdInBatch(anyCollection());
+    }
+
+    @Test
+    void doesNotPublishAnEmptyPage() {
+        when(outboxEventRepo.claimBatch(BATCH_SIZE)).thenReturn(List.of());
+
+        relay.publishOutboxEvents();
+
+        verify(rabbitTemplate, never()).invoke(any());
+    }
+
+    @Test
+    void marksRowsWithoutRouteOrPayloadFailedAndMovesOn() {
+        OutboxEvent noPayload = new OutboxEvent("DELIVERY", 3, "DeliveryPicked", null, "ORDER-3");
+        noPayload.setId(3);
+        List<OutboxEvent> page = new ArrayList<>(events(1, 2));
+        page.add(noPayload);
+        when(outboxEventRepo.claimBatch(BATCH_SIZE)).thenReturn(page, List.of());
+        sendThroughTheWindow();
+
+        relay.publishOutboxEvents();
+
+        verify(outboxEventRepo).markFailed(eq(List.of(1, 2, 3)), any());
+        verify(outboxEventRepo, times(2)).claimBatch(BATCH_SIZE);
+        verify(rabbitTemplate, never()).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void abortsThePageWhenASendFails() {
+        routeRegistry.register("DELIVERY", "DeliveryPicked", OutboxRoute.toQueue("delivery-picked", Object.class));
+        when(outboxEventRepo.claimBatch(BATCH_SIZE)).thenReturn(events(1, 2));
+        sendThroughTheWindow();
+        doThrow(new AmqpConnectException(new RuntimeException("connection refused")))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        assertThrows(AmqpConnectException.class, relay::publishOutboxEvents);
+
+        verify(outboxEventRepo, never()).markFailed(anyCollection(), any());
+        verify(outboxEventRepo, never()).deleteAllByIdInBatch(anyCollection());
+    }
+
+    @Test
+    void stopsSendingThePageAtANackedRow() {
+        routeRegistry.register("DELIVERY", "DeliveryPicked", OutboxRoute.toQueue("delivery-picked", Object.class));
+        when(outboxEventRepo.claimBatch(BATCH_SIZE)).thenReturn(events(1, 2, 3));
+        sendThroughTheWindow();
+        doAnswer(invocation -> invocation.<CorrelationData>getArgument(3).getFuture()
+                .complete(new CorrelationData.Confirm(false, "nack")))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        relay.publishOutboxEvents();
+
+        verify(rabbitTemplate, times(1)).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        verify(outboxEventRepo, never()).deleteAllByIdInBatch(anyCollection());
+        verify(outboxEventRepo).claimBatch(BATCH_SIZE);
+    }
+
+    private void sendThroughTheWindow() {
+        when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class))).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitTemplate));
+    }
+
+    @SafeVarargs
+    private void confirm(List<Integer> first, List<Integer>... rest) {
+        when(rabbitTemplate.<List<Integer>>invoke(any(RabbitOperations.OperationsCallback.class)))
+                .thenReturn(first, rest);
+    }
+
+    private static List<OutboxEvent> events(int... ids) {
+        return IntStream.of(ids).mapToObj(id -> {
+            OutboxEvent event = new OutboxEvent("DELIVERY", id, "DeliveryPicked", "{}", "ORDER-" + id);
+            event.setId(id);
+            return event;
+        }).toList();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.deliveryco_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.deliveryco_service.model.Delivery;
+import com.example.deliveryco_service.model.OutboxEvent;
+import com.example.deliveryco_service.repository.DeliveryEventRepo;
+import com.example.deliveryco_service.repository.DeliveryRepo;
+import com.example.deliveryco_service.repository.OutboxEventRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+class DeliveryServiceTest {
+
+    private DeliveryRepo deliveryRepo;
+    private OutboxEventRepo outboxEventRepo;
+    private PlatformTransactionManager transactionManager;
+    private DeliveryService deliveryService;
+
+    @BeforeEach
+    void setUp() {
+        deliveryRepo = mock(DeliveryRepo.class);
+        outboxEventRepo = mock(OutboxEventRepo.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        deliveryService = new DeliveryService(deliveryRepo, mock(DeliveryEventRepo.class), outboxEventRepo,
+                new ObjectMapper().findAndRegisterModules(), transactionManager);
+    }
+
+    @Test
+    void rerunsTheWholeTransactionOnAFreshCopyAfterAVersionConflict() {
+        Delivery stale = delivery();
+        Delivery fresh = delivery();
+        fresh.setStatus("PICKED_UP");
+        when(deliveryRepo.findById(4)).thenReturn(Optional.of(stale), Optional.of(fresh));
+        when(deliveryRepo.saveAndFlush(any(Delivery.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Delivery.class, 4))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        deliveryService.updateDeliveryStatus(4, "IN_TRANSIT");
+
+        verify(deliveryRepo).saveAndFlush(fresh);
+        assertEquals("IN_TRANSIT", fresh.getStatus());
+        verify(outboxEventRepo, times(1)).save(any(OutboxEvent.class));
+        verify(transactionManager, times(1)).rollback(any(TransactionStatus.class));
+        verify(transactionManager, times(1)).commit(any(TransactionStatus.class));
+    }
+
+    @Test
+    void givesUpAfterRepeatedConflictsWithoutWritingTheOutboxRow() {
+        when(deliveryRepo.findById(4)).thenAnswer(invocation -> Optional.of(delivery()));
+        when(deliveryRepo.saveAndFlush(any(Delivery.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Delivery.class, 4));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> deliveryService.updateDeliveryStatus(4, "DELIVERED"));
+        verify(deliveryRepo, times(3)).saveAndFlush(any(Delivery.class));
+        verify(outboxEventRepo, never()).save(any(OutboxEvent.class));
+        verify(transactionManager, never()).commit(any(TransactionStatus.class));
+    }
+
+    private static Delivery delivery() {
+        Delivery delivery = new Delivery(12, "Carrier", "TRACK-12");
+        delivery.setId(4);
+        return delivery;
+    }
+}
@@ -1,15 +1,29 @@
 package com.example.email_service.config;
 
+import com.example.contracts.codec.ContractMessageConverter;
+import com.example.contracts.codec.MessageFormat;
+import com.example.contracts.tracing.TracingListenerAdvice;
+import com.example.contracts.transport.InMemoryAmqpAdmin;
+import com.example.contracts.transport.InMemoryBroker;
+import com.example.contracts.transport.InMemoryListenerContainerFactory;
+import com.example.contracts.transport.InMemoryRabbitTemplate;
+import com.example.contracts.transport.MessageTransport;
+import com.example.email_service.listener.EmailNotificationListener;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.RabbitListenerContainerFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
-import org.springframework.amqp.support.converter.SimpleMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -17,6 +31,9 @@ import org.springframework.context.annotation.Configuration;
 @EnableRabbit
 public class RabbitConfig {
 
+    @Value("${store.messaging.transport:rabbit}")
+    private String transport;
+
     @Value("${store.queue.notification-email:notification-email}")
     private String notificationEmailQueueName;
 
@@ -25,6 +42,11 @@ public class RabbitConfig {
         return new Queue(notificationEmailQueueName, true);
     }
 
+    @Bean
+    public Queue notificationEmailParkingLotQueue() {
+        return new Queue(EmailNotificationListener.parkingLotQueue(notificationEmailQueueName), true);
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -32,16 +54,60 @@ public class RabbitConfig {
         return mapper;
     }
 
+    // The listener takes raw Messages and decodes them by content type; email-service sends nothing
     @Bean
-    public MessageConverter jacksonMessageConverter(ObjectMapper objectMapper) {
-        // Use SimpleMessageConverter so listener receives raw byte[] and ignores type headers
-        return new SimpleMessageConverter();
+    public MessageConverter contractMessageConverter() {
+        return new ContractMessageConverter(MessageFormat.JSON);
+    }
+
+    @Bean
+    public TracingListenerAdvice tracingListenerAdvice(MeterRegistry meterRegistry) {
+        return new TracingListenerAdvice(meterRegistry);
+    }
+
+    /**
+     * The Boot-configured batch listener factory (see {@code spring.rabbitmq.listener.simple.*}), or
+     * with {@code store.messaging.transport=in-memory} one consuming from the JVM-wide
+     * {@link InMemoryBroker} with the same concurrency and batch size.
+     */
+    @Bean
+    public RabbitListenerContainerFactory<?> rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            MessageConverter messageConverter,
+            TracingListenerAdvice tracingListenerAdvice,
+            @Value("${store.listener.notification-email.concurrency:1}") int concurrency,
+            @Value("${store.listener.notification-email.batch-size:50}") int batchSize) {
+        if (isInMemory()) {
+            InMemoryListenerContainerFactory factory = new InMemoryListenerContainerFactory(InMemoryBroker.shared());
+            factory.setMessageConverter(messageConverter);
+            factory.setAdviceChain(tracingListenerAdvice);
+            factory.setBatchListener(true);
+            factory.setConcurrency(concurrency);
+            factory.setBatchSize(batchSize);
+            return factory;
+        }
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAdviceChain(tracingListenerAdvice);
+        return factory;
     }
 
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
-        RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
+        RabbitTemplate rabbitTemplate = isInMemory()
+                ? new InMemoryRabbitTemplate(connectionFactory, InMemoryBroker.shared())
+                : new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(messageConverter);
         return rabbitTemplate;
     }
+
+    @Bean
+    public AmqpAdmin amqpAdmin(ConnectionFactory connectionFactory) {
+        return isInMemory() ? new InMemoryAmqpAdmin(InMemoryBroker.shared()) : new RabbitAdmin(connectionFactory);
+    }
+
+    private boolean isInMemory() {
+        return MessageTransport.fromName(transport) == MessageTransport.IN_MEMORY;
+    }
 }
@@ -1,11 +1,17 @@
 package com.example.email_service.listener;
 
-import com.example.email_service.messaging.*;
+import com.example.contracts.codec.ContractMessageConverter;
+import com.example.contracts.codec.MessageTypes;
+import com.example.contracts.messaging.*;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -14,79 +20,128 @@ public class EmailNotificationListener {
 
     private static final Logger log = LoggerFactory.getLogger(EmailNotificationListener.class);
 
+    private static final Map<String, String> MESSAGE_TYPES_BY_HEADER = Map.of(
+            MessageTypes.nameOf(PaymentResultEmailMessage.class), "PAYMENT_RESULT",
+            MessageTypes.nameOf(RefundStatusEmailMessage.class), "REFUND_STATUS",
+            MessageTypes.nameOf(DeliveryPickupEmailMessage.class), "DELIVERY_PICKUP",
+            MessageTypes.nameOf(DeliveryInTransitEmailMessage.class), "DELIVERY_IN_TRANSIT",
+            MessageTypes.nameOf(DeliveryDeliveredEmailMessage.class), "DELIVERY_DELIVERED",
+            MessageTypes.nameOf(DeliveryLostEmailMessage.class), "LOST_ITEM",
+            MessageTypes.nameOf(NotificationDigestEmailMessage.class), "DIGEST");
+
+    // Digest elements name the store outbox event type they were written as.
+    private static final Map<String, String> MESSAGE_TYPES_BY_EVENT_TYPE = Map.of(
+            "PaymentResultNotification", "PAYMENT_RESULT",
+            "RefundStatusNotification", "REFUND_STATUS",
+            "DeliveryPickupNotification", "DELIVERY_PICKUP",
+            "DeliveryInTransitNotification", "DELIVERY_IN_TRANSIT",
+            "DeliveryDeliveredNotification", "DELIVERY_DELIVERED",
+            "DeliveryLostNotification", "LOST_ITEM");
+
     private final ObjectMapper objectMapper;
+    private final RabbitTemplate rabbitTemplate;
     private final String queueName;
 
     public EmailNotificationListener(
             ObjectMapper objectMapper,
+            RabbitTemplate rabbitTemplate,
             @Value("${store.queue.notification-email:notification-email}") String queueName) {
         this.objectMapper = objectMapper;
+        this.rabbitTemplate = rabbitTemplate;
         this.queueName = queueName;
     }
 
+    public static String parkingLotQueue(String queue) {
+        return queue + ".parking-lot";
+    }
+
     @RabbitListener(queues = "${store.queue.notification-email:notification-email}")
-    public void handleEmailNotification(byte[] payload) {
-        log.info("--------[email]-------- Received email notification on queue '{}'", queueName);
-        
-        try {
-            String jsonPayload = new String(payload);
-            JsonNode jsonNode = objectMapper.readTree(jsonPayload);
-            
-            // Determine message type based on jsonNode
-
-            //print the jsonnode as a string for debugging
-            log.info("JSON Node: {}", jsonNode.toString());
-            String messageType = determineMessageType(jsonNode);
-            
-            switch (messageType) {
-                case "PAYMENT_RESULT":
-                    PaymentResultEmailMessage paymentResult = objectMapper.treeToValue(
-                        jsonNode, PaymentResultEmailMessage.class);
-                    handlePaymentResult(paymentResult);
-                    break;
-                    
-                case "REFUND_STATUS":
-                    RefundStatusEmailMessage refundStatus = objectMapper.treeToValue(
-                        jsonNode, RefundStatusEmailMessage.class);
-                    handleRefundStatus(refundStatus);
-                    break;
-                    
-                case "DELIVERY_PICKUP":
-                    DeliveryPickupEmailMessage deliveryPickup = objectMapper.treeToValue(
-                        jsonNode, DeliveryPickupEmailMessage.class);
-                    handleDeliveryPickup(deliveryPickup);
-                    break;
-                    
-                case "DELIVERY_IN_TRANSIT":
-                    DeliveryInTransitEmailMessage deliveryInTransit = objectMapper.treeToValue(
-                        jsonNode, DeliveryInTransitEmailMessage.class);
-                    handleDeliveryInTransit(deliveryInTransit);
-                    break;
-                    
-                case "DELIVERY_DELIVERED":
-                    DeliveryDeliveredEmailMessage deliveryDelivered = objectMapper.treeToValue(
-                        jsonNode, DeliveryDeliveredEmailMessage.class);
-                    handleDeliveryDelivered(deliveryDelivered);
-                    break;
-                    
-                case "LOST_ITEM":
-                    DeliveryItemLostEmailMessage lostItem = objectMapper.treeToValue(
-                        jsonNode, DeliveryItemLostEmailMessage.class);
-                    handleLostItem(lostItem);
-                    break;
-                    
-                default:
-                    log.warn("--------[email]-------- Unknown email notification type. Raw payload: {}", jsonPayload);
-                    break;
-            }
+    public void handleEmailNotifications(List<Message> messages) {
+        log.info("--------[email]-------- Received {} email notifications on queue '{}'", messages.size(), queueName);
+        for (Message message : messages) {
+            handleEmailNotification(message);
+        }
+    }
 
+    /**
+     * A message that cannot be decoded or handled is moved to the parking lot on its own, so the
+     * rest of the batch is not redelivered and emailed twice. If that move fails the exception
+     * propagates and the whole batch is requeued.
+     */
+    private void handleEmailNotification(Message message) {
+        try {
+            // Decoded according to the content type, so JSON and CBOR senders both work
+            JsonNode jsonNode = ContractMessageConverter.readTree(message);
+            Object typeName = message.getMessageProperties().getHeaders().get(MessageTypes.TYPE_HEADER);
+            dispatch(jsonNode, typeName == null ? null : typeName.toString());
         } catch (Exception e) {
-            log.error("--------[email]-------- Error processing email notification: {}", e.getMessage(), e);
+            log.error("--------[email]-------- Parking email notification {}: {}",
+                    message.getMessageProperties().getMessageId(), e.getMessage(), e);
+            rabbitTemplate.send("", parkingLotQueue(queueName), message);
         }
     }
-    
+
+    private void dispatch(JsonNode jsonNode, String typeName) throws Exception {
+        // Prefer the explicit type header; older senders without one fall back to the shape
+        String messageType = typeName != null && MESSAGE_TYPES_BY_HEADER.containsKey(typeName)
+                ? MESSAGE_TYPES_BY_HEADER.get(typeName)
+                : determineMessageType(jsonNode);
+        dispatchAs(messageType, jsonNode);
+    }
+
+    private void dispatchAs(String messageType, JsonNode jsonNode) throws Exception {
+        switch (messageType) {
+            case "PAYMENT_RESULT":
+                PaymentResultEmailMessage paymentResult = objectMapper.treeToValue(
+                    jsonNode, PaymentResultEmailMessage.class);
+                handlePaymentResult(paymentResult);
+                break;
+                
+            case "REFUND_STATUS":
+                RefundStatusEmailMessage refundStatus = objectMapper.treeToValue(
+                    jsonNode, RefundStatusEmailMessage.class);
+                handleRefundStatus(refundStatus);
+                break;
+                
+            case "DELIVERY_PICKUP":
+                DeliveryPickupEmailMessage deliveryPickup = objectMapper.treeToValue(
+                    jsonNode, DeliveryPickupEmailMessage.class);
+                handleDeliveryPickup(deliveryPickup);
+                break;
+                
+            case "DELIVERY_IN_TRANSIT":
+                DeliveryInTransitEmailMessage deliveryInTransit = objectMapper.treeToValue(
+                    jsonNode, DeliveryInTransitEmailMessage.class);
+                handleDeliveryInTransit(deliveryInTransit);
+                break;
+                
+            case "DELIVERY_DELIVERED":
+                DeliveryDeliveredEmailMessage deliveryDelivered = objectMapper.treeToValue(
+                    jsonNode, DeliveryDeliveredEmailMessage.class);
+                handleDeliveryDelivered(deliveryDelivered);
+                break;
+                
+            case "LOST_ITEM":
+                DeliveryLostEmailMessage lostItem = objectMapper.treeToValue(
+                    jsonNode, DeliveryLostEmailMessage.class);
+                handleLostItem(lostItem);
+                break;
+                
+            case "DIGEST":
+                handleDigest(jsonNode);
+                break;
+
+            default:
+                log.warn("--------[email]-------- Unknown email notification type. Raw payload: {}", jsonNode);
+                break;
+        }
+    }
+
     private String determineMessageType(JsonNode jsonNode) {
         // Check for unique distinguishing fields for each message type
+        if (jsonNode.has("notifications") && jsonNode.get("notifications").isArray()) {
+            return "DIGEST";
+        }
         if (jsonNode.has("paymentId") && jsonNode.has("bankTransactionReference")) {
             return "PAYMENT_RESULT";
         }
@@ -108,6 +163,16 @@ public class EmailNotificationListener {
         return "UNKNOWN";
     }
 
+    private void handleDigest(JsonNode digest) throws Exception {
+        JsonNode notifications = digest.get("notifications");
+        log.info("--------[email]-------- Digest of {} notifications for order {} ({})",
+                notifications.size(), digest.path("orderId").asText(), digest.path("correlationId").asText());
+        for (JsonNode notification : notifications) {
+            String eventType = notification.path("type").asText();
+            dispatchAs(MESSAGE_TYPES_BY_EVENT_TYPE.getOrDefault(eventType, "UNKNOWN"), notification.path("payload"));
+        }
+    }
+
     private void handlePaymentResult(PaymentResultEmailMessage message) {
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
         System.out.println("--------[email]-------- EMAIL NOTIFICATION: Payment Result");
@@ -184,7 +249,7 @@ public class EmailNotificationListener {
         System.out.println();
     }
 
-    private void handleLostItem(DeliveryItemLostEmailMessage message) {
+    private void handleLostItem(DeliveryLostEmailMessage message) {
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
         System.out.println("--------[email]-------- EMAIL NOTIFICATION: Lost Item");
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
@@ -1,13 +0,0 @@
-package com.example.email_service.messaging;
-
-import java.time.LocalDateTime;
-
-public record DeliveryInTransitEmailMessage(
-        Integer orderId,
-        String customerEmail,
-        String carrier,
-        String trackingCode,
-        String eta,
-        String status,
-        LocalDateTime updatedAt,
-        String correlationId) {}
@@ -1,10 +0,0 @@
-package com.example.email_service.messaging;
-
-public record PaymentResultEmailMessage(
-        Integer orderId,
-        Integer paymentId,
-        String customerEmail,
-        String status,
-        String bankTransactionReference,
-        String failureReason,
-        String correlationId) {}
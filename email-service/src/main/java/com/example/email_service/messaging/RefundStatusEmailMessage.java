@@ -1,12 +0,0 @@
-package com.example.email_service.messaging;
-
-import java.math.BigDecimal;
-
-public record RefundStatusEmailMessage(
-        Integer orderId,
-        Integer refundId,
-        String customerEmail,
-        BigDecimal amount,
-        String status,
-        String failureReason,
-        String correlationId) {}
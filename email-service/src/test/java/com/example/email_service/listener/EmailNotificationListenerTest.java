@@ -0,0 +1,61 @@
+package com.example.email_service.listener;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+class EmailNotificationListenerTest {
+
+    private static final String QUEUE = "notification-email";
+
+    private RabbitTemplate rabbitTemplate;
+    private EmailNotificationListener listener;
+
+    @BeforeEach
+    void setUp() {
+        rabbitTemplate = mock(RabbitTemplate.class);
+        listener = new EmailNotificationListener(new ObjectMapper(), rabbitTemplate, QUEUE);
+    }
+
+    @Test
+    void parksOnlyTheMessageThatFails() {
+        Message refund = message("refund", "{\"refundId\": 7, \"amount\": 12.50, \"orderId\": 42}");
+        Message broken = message("broken", "{not json");
+
+        listener.handleEmailNotifications(List.of(refund, broken));
+
+        verify(rabbitTemplate).send("", "notification-email.parking-lot", broken);
+        verify(rabbitTemplate, never()).send(anyString(), anyString(), eq(refund));
+    }
+
+    @Test
+    void failsTheBatchWhenAMessageCannotBeParked() {
+        doThrow(new AmqpException("connection closed")).when(rabbitTemplate)
+                .send(anyString(), anyString(), any(Message.class));
+
+        assertThrows(AmqpException.class,
+                () -> listener.handleEmailNotifications(List.of(message("broken", "{not json"))));
+    }
+
+    private static Message message(String messageId, String body) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(messageId);
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        return new Message(body.getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
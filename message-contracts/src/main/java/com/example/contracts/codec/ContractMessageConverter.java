@@ -0,0 +1,116 @@
+package com.example.contracts.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+/**
+ * Converts the contract records to and from AMQP messages. Outgoing messages are written in the
+ * configured {@link MessageFormat} and carry the logical type in {@link MessageTypes#TYPE_HEADER}
+ * (plus {@code __TypeId__} for consumers still on {@code Jackson2JsonMessageConverter}). Incoming
+ * messages are read in whatever format their content type names, so producers can switch format
+ * independently of their consumers. The target type is the listener's parameter type when it is
+ * known, otherwise the one named by the type header; with neither the raw body is returned.
+ */
+public class ContractMessageConverter extends AbstractMessageConverter {
+
+    private final MessageFormat format;
+
+    public ContractMessageConverter(MessageFormat format) {
+        this.format = format;
+    }
+
+    public MessageFormat format() {
+        return format;
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties properties) {
+        try {
+            setTypeHeaders(properties, object.getClass());
+            return new Message(format.mapper().writeValueAsBytes(object), properties);
+        } catch (IOException ex) {
+            throw new MessageConversionException("Failed to encode " + object.getClass().getName(), ex);
+        }
+    }
+
+    /**
+     * Builds a message from an already serialised JSON payload (as stored in an outbox) without
+     * binding it to {@code type}: JSON is sent unchanged and CBOR is produced by a streaming copy.
+     */
+    public Message fromJson(byte[] json, Class<?> type) {
+        MessageProperties properties = new MessageProperties();
+        setTypeHeaders(properties, type);
+        return new Message(format == MessageFormat.JSON ? json : transcode(json, format), properties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        Class<?> type = targetType(properties);
+        if (type == null || type == byte[].class) {
+            return message.getBody();
+        }
+        ObjectMapper mapper = MessageFormat.forContentType(properties.getContentType()).mapper();
+        try {
+            return mapper.readValue(message.getBody(), type);
+        } catch (IOException ex) {
+            throw new MessageConversionException("Failed to decode message as " + type.getName(), ex);
+        }
+    }
+
+    /** Reads the body as a tree, for consumers that dispatch on the payload's shape. */
+    public static JsonNode readTree(Message message) {
+        try {
+            return MessageFormat.forContentType(message.getMessageProperties().getContentType())
+                    .mapper()
+                    .readTree(message.getBody());
+        } catch (IOException ex) {
+            throw new MessageConversionException("Failed to decode message body", ex);
+        }
+    }
+
+    private void setTypeHeaders(MessageProperties properties, Class<?> type) {
+        properties.setContentType(format.contentType());
+        if (format == MessageFormat.JSON) {
+            properties.setContentEncoding("UTF-8");
+        }
+        properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, type.getName());
+        String name = MessageTypes.nameOf(type);
+        if (name != null) {
+            properties.setHeader(MessageTypes.TYPE_HEADER, name);
+        }
+    }
+
+    private static Class<?> targetType(MessageProperties properties) {
+        Type inferred = properties.getInferredArgumentType();
+        if (inferred instanceof Class<?> inferredClass
+                && inferredClass != Object.class
+                && !inferredClass.isInterface()) {
+            return inferredClass;
+        }
+        Object name = properties.getHeaders().get(MessageTypes.TYPE_HEADER);
+        return MessageTypes.typeOf(name == null ? null : name.toString());
+    }
+
+    private static byte[] transcode(byte[] json, MessageFormat target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = MessageFormat.JSON.mapper().getFactory().createParser(json);
+                JsonGenerator generator = target.mapper().getFactory().createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        } catch (IOException ex) {
+            throw new MessageConversionException("Failed to transcode payload to " + target, ex);
+        }
+        return out.toByteArray();
+    }
+}
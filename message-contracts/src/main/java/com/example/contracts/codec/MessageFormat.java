@@ -0,0 +1,66 @@
+package com.example.contracts.codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Wire formats a {@link ContractMessageConverter} can write. Both encode the same records with the
+ * same field names; CBOR is the compact binary form (no quoting or escaping, binary numbers), and
+ * is what high-volume queues should use once every consumer runs a converter that can read it.
+ */
+public enum MessageFormat {
+
+    JSON("application/json") {
+        @Override
+        ObjectMapper newMapper() {
+            return configure(JsonMapper.builder().build());
+        }
+    },
+
+    CBOR("application/cbor") {
+        @Override
+        ObjectMapper newMapper() {
+            return configure(CBORMapper.builder().build());
+        }
+    };
+
+    private final String contentType;
+    private final ObjectMapper mapper;
+
+    MessageFormat(String contentType) {
+        this.contentType = contentType;
+        this.mapper = newMapper();
+    }
+
+    abstract ObjectMapper newMapper();
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+
+    /** The format of a received message; anything that is not CBOR is read as JSON. */
+    public static MessageFormat forContentType(String contentType) {
+        if (contentType != null && contentType.startsWith(CBOR.contentType)) {
+            return CBOR;
+        }
+        return JSON;
+    }
+
+    public static MessageFormat fromName(String name) {
+        return name == null || name.isBlank() ? JSON : valueOf(name.trim().toUpperCase());
+    }
+
+    private static ObjectMapper configure(ObjectMapper mapper) {
+        return mapper.registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+}
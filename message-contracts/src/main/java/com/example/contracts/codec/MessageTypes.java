@@ -0,0 +1,76 @@
+package com.example.contracts.codec;
+
+import com.example.contracts.messaging.DeliveryAcknowledgementMessage;
+import com.example.contracts.messaging.DeliveryDeliveredEmailMessage;
+import com.example.contracts.messaging.DeliveryDeliveredMessage;
+import com.example.contracts.messaging.DeliveryInTransitEmailMessage;
+import com.example.contracts.messaging.DeliveryInTransitMessage;
+import com.example.contracts.messaging.DeliveryItemLostMessage;
+import com.example.contracts.messaging.DeliveryLostEmailMessage;
+import com.example.contracts.messaging.DeliveryPickupEmailMessage;
+import com.example.contracts.messaging.DeliveryPickupMessage;
+import com.example.contracts.messaging.NotificationDigestEmailMessage;
+import com.example.contracts.messaging.OrderAllocatedMessage;
+import com.example.contracts.messaging.OrderPlacedMessage;
+import com.example.contracts.messaging.OrderReadyForPickupMessage;
+import com.example.contracts.messaging.PaymentRefundMessage;
+import com.example.contracts.messaging.PaymentRefundResultMessage;
+import com.example.contracts.messaging.PaymentRequestedMessage;
+import com.example.contracts.messaging.PaymentResultEmailMessage;
+import com.example.contracts.messaging.PaymentResultMessage;
+import com.example.contracts.messaging.RefundStatusEmailMessage;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logical names of the message records, sent in the {@link #TYPE_HEADER} header. Unlike the
+ * {@code __TypeId__} class name they do not depend on where a record lives in any one service.
+ */
+public final class MessageTypes {
+
+    public static final String TYPE_HEADER = "x-message-type";
+
+    private static final String SUFFIX = "Message";
+    private static final Map<String, Class<?>> TYPES_BY_NAME = new HashMap<>();
+    private static final Map<Class<?>, String> NAMES_BY_TYPE = new HashMap<>();
+
+    static {
+        for (Class<?> type : List.of(
+                OrderPlacedMessage.class,
+                OrderAllocatedMessage.class,
+                OrderReadyForPickupMessage.class,
+                PaymentRequestedMessage.class,
+                PaymentResultMessage.class,
+                PaymentRefundMessage.class,
+                PaymentRefundResultMessage.class,
+                DeliveryAcknowledgementMessage.class,
+                DeliveryPickupMessage.class,
+                DeliveryInTransitMessage.class,
+                DeliveryDeliveredMessage.class,
+                DeliveryItemLostMessage.class,
+                PaymentResultEmailMessage.class,
+                RefundStatusEmailMessage.class,
+                DeliveryPickupEmailMessage.class,
+                DeliveryInTransitEmailMessage.class,
+                DeliveryDeliveredEmailMessage.class,
+                DeliveryLostEmailMessage.class,
+                NotificationDigestEmailMessage.class)) {
+            String name = type.getSimpleName().substring(0, type.getSimpleName().length() - SUFFIX.length());
+            TYPES_BY_NAME.put(name, type);
+            NAMES_BY_TYPE.put(type, name);
+        }
+    }
+
+    private MessageTypes() {
+    }
+
+    /** The logical name of {@code type}, e.g. {@code PaymentResult}, or null if it is not a contract. */
+    public static String nameOf(Class<?> type) {
+        return NAMES_BY_TYPE.get(type);
+    }
+
+    public static Class<?> typeOf(String name) {
+        return name == null ? null : TYPES_BY_NAME.get(name);
+    }
+}
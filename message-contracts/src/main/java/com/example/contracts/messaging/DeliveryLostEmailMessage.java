@@ -1,4 +1,4 @@
-package com.example.store.messaging;
+package com.example.contracts.messaging;
 
 import java.time.LocalDateTime;
 
@@ -7,6 +7,7 @@ public record DeliveryLostEmailMessage(
         String customerEmail,
         String carrier,
         String trackingCode,
+        Integer warehouseId,
         Integer productId,
         Integer quantityLost,
         LocalDateTime reportedAt,
@@ -0,0 +1,17 @@
+package com.example.contracts.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.List;
+
+/**
+ * Several notification emails for one order merged by the store's notification coalescer. Each
+ * element of {@code notifications} names its outbox event type (e.g. {@code PaymentResultNotification})
+ * and carries that event's {@code *EmailMessage} payload unchanged.
+ */
+public record NotificationDigestEmailMessage(
+        Integer orderId,
+        String correlationId,
+        List<Notification> notifications) {
+
+    public record Notification(String type, JsonNode payload) {}
+}
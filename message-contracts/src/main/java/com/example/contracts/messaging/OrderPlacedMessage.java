@@ -1,3 +1,3 @@
-package com.example.store.messaging;
+package com.example.contracts.messaging;
 
 public record OrderPlacedMessage(Integer orderId, String status, String correlationId) {}
@@ -1,4 +1,4 @@
-package com.example.store.messaging;
+package com.example.contracts.messaging;
 
 import java.math.BigDecimal;
 
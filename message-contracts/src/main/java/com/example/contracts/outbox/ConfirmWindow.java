@@ -0,0 +1,185 @@
+package com.example.contracts.outbox;
+
+import com.example.contracts.codec.ContractMessageConverter;
+import com.example.contracts.tracing.MessageTrace;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+
+/**
+ * Publishes outbox events with correlated publisher confirms while keeping at most
+ * {@code maxInFlight} of them unconfirmed. Once the window is full the oldest publish is settled
+ * before the next one is sent, so sends stay pipelined instead of waiting for each confirm in turn.
+ * Only events the broker acked (and did not return as unroutable) are reported as confirmed; callers
+ * delete exactly those rows and leave the rest in the outbox for the next attempt.
+ *
+ * <p>Stream routes are sent by {@link #publish}, which a service with a stream producer overrides;
+ * the stream's confirm completes the correlation and is settled the same way.
+ */
+public class ConfirmWindow {
+
+    private static final Logger log = LoggerFactory.getLogger(ConfirmWindow.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final String messageIdPrefix;
+    private final int maxInFlight;
+    private final long confirmTimeoutMs;
+    private final BiConsumer<String, Long> confirmLatencyListener;
+    private final Deque<InFlight> inFlight = new ArrayDeque<>();
+    private final List<Integer> confirmedEventIds = new ArrayList<>();
+    private boolean unconfirmed;
+
+    /**
+     * {@code messageIdPrefix} names the outbox, e.g. {@code store-outbox-}; each message gets the
+     * prefix followed by its row id as message id.
+     */
+    public ConfirmWindow(
+            RabbitTemplate rabbitTemplate, String messageIdPrefix, int maxInFlight, long confirmTimeoutMs) {
+        this(rabbitTemplate, messageIdPrefix, maxInFlight, confirmTimeoutMs, (routingKey, nanos) -> { });
+    }
+
+    /**
+     * Also reports, per routing key, the nanoseconds between each send and its confirm.
+     */
+    public ConfirmWindow(
+            RabbitTemplate rabbitTemplate,
+            String messageIdPrefix,
+            int maxInFlight,
+            long confirmTimeoutMs,
+            BiConsumer<String, Long> confirmLatencyListener) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.messageIdPrefix = messageIdPrefix;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.confirmLatencyListener = confirmLatencyListener;
+    }
+
+    /**
+     * Sends the stored JSON payload without binding it to the route's message type, to the route's
+     * destination with the content type and type headers the template's converter would have set and
+     * the row's {@link MessageTrace}, after applying the route's enricher. JSON goes out as-is;
+     * another wire format is transcoded.
+     */
+    public void send(OutboxRecord event, OutboxRoute route) {
+        if (inFlight.size() >= maxInFlight) {
+            settle(inFlight.poll());
+        }
+        Message message = toMessage(event, route.messageType());
+        MessageTrace.stamp(
+                message.getMessageProperties(), event.getCorrelationId(), enqueuedAt(event), event.getHopCount());
+        // Stable across re-publishes of the row, so consumers can deduplicate on it. A replay that
+        // must be handled again sets its own id in the route's enricher.
+        message.getMessageProperties().setMessageId(messageIdPrefix + event.getId());
+        message = route.enricher().enrich(event, message);
+        CorrelationData correlation = new CorrelationData(String.valueOf(event.getId()));
+        String routingKey = route.routingKey(event);
+        long sentAt = System.nanoTime();
+        correlation.getFuture().thenRun(
+                () -> confirmLatencyListener.accept(routingKey, System.nanoTime() - sentAt));
+        publish(route, routingKey, message, correlation);
+        inFlight.add(new InFlight(event.getId(), correlation));
+    }
+
+    /**
+     * Waits for every outstanding confirm and returns the ids of the events the broker acknowledged.
+     */
+    public List<Integer> awaitConfirmed() {
+        while (!inFlight.isEmpty()) {
+            settle(inFlight.poll());
+        }
+        return confirmedEventIds;
+    }
+
+    /**
+     * Whether every publish so far was confirmed, as far as is known without waiting: publishes still
+     * awaiting their confirm count as confirmed. A caller that must keep its events in order stops
+     * sending once this turns {@code false}, so nothing more overtakes the unconfirmed event.
+     */
+    public boolean allConfirmed() {
+        if (unconfirmed) {
+            return false;
+        }
+        for (InFlight pending : inFlight) {
+            CompletableFuture<CorrelationData.Confirm> future = pending.correlation().getFuture();
+            if (future.isDone()
+                    && (future.isCompletedExceptionally()
+                            || !future.join().isAck()
+                            || pending.correlation().getReturned() != null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hands one message to the broker; {@code correlation} must be completed by its confirm. Sends
+     * through the template, so stream routes need an override that can reach the stream.
+     */
+    protected void publish(OutboxRoute route, String routingKey, Message message, CorrelationData correlation) {
+        if (route.stream()) {
+            throw new IllegalStateException("No stream producer configured for stream " + routingKey);
+        }
+        rabbitTemplate.send(route.exchange(), routingKey, message, correlation);
+    }
+
+    private Message toMessage(OutboxRecord event, Class<?> messageType) {
+        byte[] payload = event.getPayload().getBytes(StandardCharsets.UTF_8);
+        if (rabbitTemplate.getMessageConverter() instanceof ContractMessageConverter converter) {
+            return converter.fromJson(payload, messageType);
+        }
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, messageType.getName());
+        return new Message(payload, properties);
+    }
+
+    private static Instant enqueuedAt(OutboxRecord event) {
+        // created_at is a zoneless timestamp written in the service's local time.
+        return event.getCreatedAt() == null ? null : event.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private void settle(InFlight pending) {
+        CorrelationData correlation = pending.correlation();
+        try {
+            CorrelationData.Confirm confirm = correlation.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!confirm.isAck()) {
+                log.warn("Broker nacked outbox event {}: {}", pending.eventId(), confirm.getReason());
+            } else if (correlation.getReturned() != null) {
+                log.warn(
+                        "Outbox event {} was returned as unroutable: {}",
+                        pending.eventId(),
+                        correlation.getReturned().getReplyText());
+            } else {
+                confirmedEventIds.add(pending.eventId());
+                return;
+            }
+        } catch (TimeoutException ex) {
+            log.warn("No publisher confirm for outbox event {} within {} ms", pending.eventId(), confirmTimeoutMs);
+        } catch (ExecutionException ex) {
+            log.warn("Publisher confirm failed for outbox event {}: {}", pending.eventId(), ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        unconfirmed = true;
+    }
+
+    private record InFlight(Integer eventId, CorrelationData correlation) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.contracts.outbox;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Keeps the daily partitions of an outbox archive table, where a relay in archive mode moves
+ * published rows. Partitions for the next few days are created ahead of time, and partitions older
+ * than the retention period are dropped whole instead of deleting rows. The table and its default
+ * partition come from the SQL scripts; the default partition catches rows if a day's partition is
+ * ever missing, so archiving never fails a publish.
+ *
+ * <p>Each service registers one for its own archive table and runs {@link #maintainPartitions()}
+ * once on startup, before its relay is scheduled.
+ */
+public class OutboxArchiveMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxArchiveMaintenance.class);
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String archiveTable;
+    private final int retentionDays;
+    private final int daysAhead;
+
+    public OutboxArchiveMaintenance(JdbcTemplate jdbcTemplate, String archiveTable, int retentionDays, int daysAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveTable = archiveTable;
+        this.retentionDays = Math.max(1, retentionDays);
+        this.daysAhead = Math.max(1, daysAhead);
+    }
+
+    @Scheduled(cron = "${store.outbox.archive.maintenance-cron:0 15 0 * * *}")
+    public void maintainPartitions() {
+        LocalDate today = LocalDate.now();
+        for (int day = 0; day <= daysAhead; day++) {
+            createPartition(today.plusDays(day));
+        }
+        dropPartitionsBefore(today.minusDays(retentionDays));
+    }
+
+    private void createPartition(LocalDate day) {
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(day) + " PARTITION OF "
+                    + archiveTable + " FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+        } catch (DataAccessException ex) {
+            // Fails if the default partition already holds rows for that day; they stay there until expired.
+            log.warn("Could not create {} partition for {}: {}", archiveTable, day, ex.getMessage());
+        }
+    }
+
+    private void dropPartitionsBefore(LocalDate cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent "
+                        + "WHERE p.relname = ?",
+                String.class,
+                archiveTable);
+        String prefix = archiveTable + "_";
+        for (String partition : partitions) {
+            LocalDate day;
+            try {
+                day = LocalDate.parse(partition.substring(prefix.length()), PARTITION_SUFFIX);
+            } catch (DateTimeParseException | StringIndexOutOfBoundsException ex) {
+                continue; // the default partition
+            }
+            if (day.isBefore(cutoff)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                log.info("Dropped outbox archive partition {}", partition);
+            }
+        }
+        jdbcTemplate.update("DELETE FROM " + archiveTable + "_default WHERE published_at < ?", cutoff.atStartOfDay());
+    }
+
+    private String partitionName(LocalDate day) {
+        return archiveTable + "_" + PARTITION_SUFFIX.format(day);
+    }
+}
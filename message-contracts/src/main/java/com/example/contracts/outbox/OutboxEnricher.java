@@ -0,0 +1,15 @@
+package com.example.contracts.outbox;
+
+import org.springframework.amqp.core.Message;
+
+/**
+ * Optional per-route hook that can add headers to, or replace, the AMQP message built from an outbox
+ * row just before it is published.
+ */
+@FunctionalInterface
+public interface OutboxEnricher {
+
+    OutboxEnricher NONE = (event, message) -> message;
+
+    Message enrich(OutboxRecord event, Message message);
+}
@@ -0,0 +1,134 @@
+package com.example.contracts.outbox;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Runs an outbox relay as soon as Postgres signals a new due outbox row, so the relay's scheduled
+ * poll can run rarely as a fallback. The {@code outbox_notify} trigger sends the row's aggregate type
+ * on the channel; notifications for aggregate types outside {@code aggregateTypes} (usually the
+ * route registry's) are ignored. Listens on its own connection rather than one borrowed from the
+ * pool, since it is held for the life of the service. Each service declares it as a bean that wakes
+ * its own relay.
+ */
+public class OutboxNotificationListener implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxNotificationListener.class);
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final Set<String> aggregateTypes;
+    private final String channel;
+    private final int waitMs;
+    private final long reconnectDelayMs;
+    private final Runnable relay;
+    private Thread thread;
+    private volatile boolean running;
+
+    public OutboxNotificationListener(
+            String url,
+            String username,
+            String password,
+            Set<String> aggregateTypes,
+            String channel,
+            int waitMs,
+            long reconnectDelayMs,
+            Runnable relay) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.aggregateTypes = Set.copyOf(aggregateTypes);
+        this.channel = channel;
+        this.waitMs = Math.max(1, waitMs);
+        this.reconnectDelayMs = reconnectDelayMs;
+        this.relay = relay;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "outbox-listen");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN \"" + channel + "\"");
+                }
+                log.info("Listening for outbox notifications on channel '{}'", channel);
+                // Rows inserted while no listener was connected were never announced.
+                wakeRelay();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(waitMs);
+                    if (isRelevant(notifications)) {
+                        // One drain covers every notification received so far.
+                        wakeRelay();
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn(
+                        "Outbox notification listener failed, reconnecting in {} ms: {}",
+                        reconnectDelayMs,
+                        ex.getMessage());
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void wakeRelay() {
+        try {
+            relay.run();
+        } catch (RuntimeException ex) {
+            // The rows stay in the outbox; the next notification or poll picks them up.
+            log.warn("Outbox publish after notification failed: {}", ex.getMessage());
+        }
+    }
+
+    private boolean isRelevant(PGNotification[] notifications) {
+        if (notifications == null) {
+            return false;
+        }
+        for (PGNotification notification : notifications) {
+            if (aggregateTypes.contains(notification.getParameter())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.contracts.outbox;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of an outbox row the shared relay pieces read. Each service's outbox entity implements
+ * it, so {@link ConfirmWindow} and the routes work on rows of any service's outbox table.
+ */
+public interface OutboxRecord {
+
+    Integer getId();
+
+    String getAggregateType();
+
+    Integer getAggregateId();
+
+    String getEventType();
+
+    String getPayload();
+
+    String getCorrelationId();
+
+    LocalDateTime getCreatedAt();
+
+    Integer getHopCount();
+}
@@ -0,0 +1,68 @@
+package com.example.contracts.outbox;
+
+/**
+ * Where an outbox event is published: the exchange and routing key, the message record its payload
+ * was serialised from (sent as the {@code __TypeId__} header) and an optional enrichment hook. A
+ * route with {@code partitions > 0} publishes to partition queue {@code <routingKey>.<p>} chosen by
+ * the event's aggregate id. A {@code stream} route appends to the RabbitMQ stream named by
+ * {@code routingKey} over the stream protocol, which needs a {@link ConfirmWindow} that can send to
+ * streams.
+ */
+public record OutboxRoute(
+        String exchange,
+        String routingKey,
+        Class<?> messageType,
+        OutboxEnricher enricher,
+        int partitions,
+        boolean stream) {
+
+    public OutboxRoute {
+        if (enricher == null) {
+            enricher = OutboxEnricher.NONE;
+        }
+    }
+
+    /**
+     * Publishes to the queue named {@code queueName} through the default exchange.
+     */
+    public static OutboxRoute toQueue(String queueName, Class<?> messageType) {
+        return new OutboxRoute("", queueName, messageType, OutboxEnricher.NONE, 0, false);
+    }
+
+    /**
+     * Publishes to one of {@code partitions} partition queues of {@code queueName}; 0 partitions is
+     * the same as {@link #toQueue}.
+     */
+    public static OutboxRoute toPartitionedQueue(String queueName, Class<?> messageType, int partitions) {
+        return new OutboxRoute("", queueName, messageType, OutboxEnricher.NONE, partitions, false);
+    }
+
+    /**
+     * Appends to the stream named {@code streamName}.
+     */
+    public static OutboxRoute toStream(String streamName, Class<?> messageType) {
+        return new OutboxRoute("", streamName, messageType, OutboxEnricher.NONE, 0, true);
+    }
+
+    public OutboxRoute withEnricher(OutboxEnricher enricher) {
+        return new OutboxRoute(exchange, routingKey, messageType, enricher, partitions, stream);
+    }
+
+    public String routingKey(OutboxRecord event) {
+        if (partitions <= 0 || event.getAggregateId() == null) {
+            return routingKey;
+        }
+        return partitionQueue(routingKey, partitionOf(event.getAggregateId(), partitions));
+    }
+
+    /**
+     * The partition, out of {@code count}, that aggregate {@code aggregateId} belongs to.
+     */
+    public static int partitionOf(int aggregateId, int count) {
+        return Math.floorMod(aggregateId, count);
+    }
+
+    public static String partitionQueue(String queue, int partition) {
+        return queue + "." + partition;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.contracts.outbox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps an outbox row's (aggregateType, eventType) pair to its {@link OutboxRoute}. Lookups are two
+ * hash probes on the values as written; only a miss falls back to a case-insensitive match, so the
+ * relay does no string comparison chains per event. Supporting a new event type means registering a
+ * route, not adding a branch to the relay.
+ *
+ * <p>Aggregate types are kept in upper case, as the outbox entities store them, so the relays can
+ * match {@link #aggregateTypes()} against the table exactly.
+ */
+public class OutboxRouteRegistry {
+
+    private final Map<String, Map<String, OutboxRoute>> routes = new HashMap<>();
+    private final Map<String, Map<String, OutboxRoute>> normalisedRoutes = new HashMap<>();
+
+    public OutboxRouteRegistry register(String aggregateType, String eventType, OutboxRoute route) {
+        routes.computeIfAbsent(normalise(aggregateType), key -> new HashMap<>()).put(eventType, route);
+        normalisedRoutes.computeIfAbsent(normalise(aggregateType), key -> new HashMap<>())
+                .put(normalise(eventType), route);
+        return this;
+    }
+
+    /**
+     * Returns the route for the given pair, or {@code null} if none is registered.
+     */
+    public OutboxRoute find(String aggregateType, String eventType) {
+        if (aggregateType == null || eventType == null) {
+            return null;
+        }
+        Map<String, OutboxRoute> byEventType = routes.get(aggregateType);
+        OutboxRoute route = byEventType != null ? byEventType.get(eventType) : null;
+        if (route != null) {
+            return route;
+        }
+        byEventType = normalisedRoutes.get(normalise(aggregateType));
+        return byEventType != null ? byEventType.get(normalise(eventType)) : null;
+    }
+
+    /**
+     * Aggregate types with at least one registered route, in upper case.
+     */
+    public Set<String> aggregateTypes() {
+        return Set.copyOf(routes.keySet());
+    }
+
+    /**
+     * Every registered route with the pair it is registered under.
+     */
+    public List<Registration> registrations() {
+        List<Registration> registrations = new ArrayList<>();
+        routes.forEach((aggregateType, byEventType) -> byEventType.forEach(
+                (eventType, route) -> registrations.add(new Registration(aggregateType, eventType, route))));
+        return registrations;
+    }
+
+    /**
+     * The form aggregate types are stored and registered in.
+     */
+    public static String normalise(String value) {
+        return value.toUpperCase(Locale.ROOT);
+    }
+
+    public record Registration(String aggregateType, String eventType, OutboxRoute route) {
+    }
+}
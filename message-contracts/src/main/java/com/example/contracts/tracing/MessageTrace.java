@@ -0,0 +1,153 @@
+package com.example.contracts.tracing;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * Trace information carried by every message: the saga's correlation id in the AMQP
+ * {@code correlation_id} property, plus headers for when the message was enqueued (the outbox row's
+ * {@code created_at}), when it was published, and how many messages the saga has passed through to
+ * get here. Timestamps are epoch milliseconds, so latencies between services are only as accurate
+ * as their clocks are in sync.
+ *
+ * <p>While a listener handles a message, {@link TracingListenerAdvice} makes its trace the
+ * {@linkplain #current() current trace} of the thread, so anything sent (or written to an outbox)
+ * as a result carries the same correlation id and the next hop count.
+ */
+public record MessageTrace(String correlationId, Long enqueuedAt, Long publishedAt, Integer hopCount) {
+
+    public static final String ENQUEUED_AT_HEADER = "x-enqueued-at";
+    public static final String PUBLISHED_AT_HEADER = "x-published-at";
+    public static final String HOP_COUNT_HEADER = "x-hop-count";
+
+    private static final ThreadLocal<MessageTrace> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Stamps a message about to be published. {@code enqueuedAt} is when the producer decided to send
+     * it (null for "now") and {@code hopCount} may be null when it is not known, e.g. for a replay of
+     * a row archived without one.
+     */
+    public static void stamp(MessageProperties properties, String correlationId, Instant enqueuedAt, Integer hopCount) {
+        long now = System.currentTimeMillis();
+        if (correlationId != null) {
+            properties.setCorrelationId(correlationId);
+        }
+        properties.setHeader(ENQUEUED_AT_HEADER, enqueuedAt == null ? now : enqueuedAt.toEpochMilli());
+        properties.setHeader(PUBLISHED_AT_HEADER, now);
+        if (hopCount != null) {
+            properties.setHeader(HOP_COUNT_HEADER, hopCount);
+        }
+    }
+
+    /**
+     * For services that publish directly rather than through an outbox: stamps the message with
+     * {@code correlationId}, or the current trace's when that is null, and the next hop, enqueued now.
+     */
+    public static MessagePostProcessor stampDirect(String correlationId) {
+        return stampDirect(correlationId, null);
+    }
+
+    /**
+     * {@link #stampDirect(String)}, also setting the AMQP {@code message_id} that consumers
+     * deduplicate on. It should be derived from what the message reports (e.g. a payment and its
+     * outcome), so that sending the same result again carries the same id.
+     */
+    public static MessagePostProcessor stampDirect(String correlationId, String messageId) {
+        return message -> {
+            if (messageId != null) {
+                message.getMessageProperties().setMessageId(messageId);
+            }
+            MessageTrace current = current();
+            String effectiveCorrelationId = correlationId != null
+                    ? correlationId
+                    : current != null ? current.correlationId() : null;
+            stamp(message.getMessageProperties(), effectiveCorrelationId, null, nextHopCount());
+            return message;
+        };
+    }
+
+    public static MessageTrace read(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        Map<String, Object> headers = properties.getHeaders();
+        Long hopCount = asLong(headers.get(HOP_COUNT_HEADER));
+        return new MessageTrace(
+                properties.getCorrelationId(),
+                asLong(headers.get(ENQUEUED_AT_HEADER)),
+                asLong(headers.get(PUBLISHED_AT_HEADER)),
+                hopCount == null ? null : hopCount.intValue());
+    }
+
+    /**
+     * The trace of a batch: its highest hop count; the correlation id only if every message shares it.
+     */
+    public static MessageTrace ofBatch(List<MessageTrace> traces) {
+        String correlationId = traces.isEmpty() ? null : traces.get(0).correlationId();
+        Integer hopCount = null;
+        for (MessageTrace trace : traces) {
+            if (correlationId != null && !correlationId.equals(trace.correlationId())) {
+                correlationId = null;
+            }
+            if (trace.hopCount() != null && (hopCount == null || trace.hopCount() > hopCount)) {
+                hopCount = trace.hopCount();
+            }
+        }
+        return new MessageTrace(correlationId, null, null, hopCount);
+    }
+
+    /** The trace of the message the current thread is handling, or null outside a listener. */
+    public static MessageTrace current() {
+        return CURRENT.get();
+    }
+
+    /** Hop count for a message caused by the one being handled: 1 when nothing is being handled. */
+    public static int nextHopCount() {
+        MessageTrace current = CURRENT.get();
+        return current == null || current.hopCount() == null ? 1 : current.hopCount() + 1;
+    }
+
+    /** Wraps {@code task} to run under the calling thread's current trace, for handing work to another thread. */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        MessageTrace trace = CURRENT.get();
+        return () -> {
+            MessageTrace previous = enter(trace);
+            try {
+                return task.get();
+            } finally {
+                exit(previous);
+            }
+        };
+    }
+
+    static MessageTrace enter(MessageTrace trace) {
+        MessageTrace previous = CURRENT.get();
+        CURRENT.set(trace);
+        return previous;
+    }
+
+    static void exit(MessageTrace previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    private static Long asLong(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value != null) {
+            try {
+                return Long.parseLong(value.toString());
+            } catch (NumberFormatException ignored) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
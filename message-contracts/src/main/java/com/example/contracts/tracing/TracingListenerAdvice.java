@@ -0,0 +1,101 @@
+package com.example.contracts.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.amqp.core.Message;
+
+/**
+ * Listener container advice that reads the {@link MessageTrace} of every delivered message (the
+ * message or list of messages is the second argument of the Rabbit containers and the first of
+ * stream containers), records how long it waited
+ * between enqueue and publish and between publish and this delivery, and makes its trace current
+ * while the listener runs. Latencies go to the {@value #ENQUEUE_PUBLISH_TIMER} and
+ * {@value #PUBLISH_CONSUME_TIMER} timers, tagged with the consuming queue and published with
+ * histogram buckets and p50/p95/p99. Messages without trace headers are delivered untouched.
+ */
+public class TracingListenerAdvice implements MethodInterceptor {
+
+    public static final String ENQUEUE_PUBLISH_TIMER = "messaging.enqueue.publish.latency";
+    public static final String PUBLISH_CONSUME_TIMER = "messaging.publish.consume.latency";
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(10);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> enqueuePublishTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> publishConsumeTimers = new ConcurrentHashMap<>();
+
+    public TracingListenerAdvice(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object data = deliveredData(invocation.getArguments());
+        List<MessageTrace> traces = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        if (data instanceof Message message) {
+            traces.add(record(message, now));
+        } else if (data instanceof List<?> list) {
+            for (Object item : list) {
+                if (item instanceof Message message) {
+                    traces.add(record(message, now));
+                }
+            }
+        }
+        if (traces.isEmpty()) {
+            return invocation.proceed();
+        }
+        MessageTrace previous = MessageTrace.enter(traces.size() == 1 ? traces.get(0) : MessageTrace.ofBatch(traces));
+        try {
+            return invocation.proceed();
+        } finally {
+            MessageTrace.exit(previous);
+        }
+    }
+
+    private static Object deliveredData(Object[] arguments) {
+        for (Object argument : arguments) {
+            if (argument instanceof Message || argument instanceof List<?>) {
+                return argument;
+            }
+        }
+        return null;
+    }
+
+    private MessageTrace record(Message message, long now) {
+        MessageTrace trace = MessageTrace.read(message);
+        String queue = message.getMessageProperties().getConsumerQueue();
+        if (queue == null || trace.publishedAt() == null) {
+            return trace;
+        }
+        if (trace.enqueuedAt() != null) {
+            timer(enqueuePublishTimers, ENQUEUE_PUBLISH_TIMER, queue,
+                    "Time from enqueue (outbox insert) to publish of messages consumed from this queue")
+                    .record(Math.max(0, trace.publishedAt() - trace.enqueuedAt()), TimeUnit.MILLISECONDS);
+        }
+        timer(publishConsumeTimers, PUBLISH_CONSUME_TIMER, queue,
+                "Time from publish to delivery to a listener of messages consumed from this queue")
+                .record(Math.max(0, now - trace.publishedAt()), TimeUnit.MILLISECONDS);
+        return trace;
+    }
+
+    private Timer timer(Map<String, Timer> timers, String name, String queue, String description) {
+        return timers.computeIfAbsent(queue, key -> Timer.builder(name)
+                .tag("queue", key)
+                .description(description)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.contracts.transport;
+
+import java.util.Properties;
+import java.util.UUID;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+/**
+ * {@link AmqpAdmin} for the {@link InMemoryBroker}. Like {@link RabbitAdmin} it declares every
+ * {@link Queue} bean and every queue in a {@link Declarables} bean, here once the singletons are
+ * created and before the listener containers start. Exchanges and bindings are accepted and ignored.
+ */
+public class InMemoryAmqpAdmin implements AmqpAdmin, ApplicationContextAware, SmartInitializingSingleton {
+
+    private final InMemoryBroker broker;
+    private ApplicationContext applicationContext;
+
+    public InMemoryAmqpAdmin(InMemoryBroker broker) {
+        this.broker = broker;
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        initialize();
+    }
+
+    @Override
+    public void initialize() {
+        if (applicationContext == null) {
+            return;
+        }
+        applicationContext.getBeansOfType(Queue.class).values().forEach(broker::declareQueue);
+        for (Declarables declarables : applicationContext.getBeansOfType(Declarables.class).values()) {
+            declarables.getDeclarablesByType(Queue.class).forEach(broker::declareQueue);
+        }
+    }
+
+    @Override
+    public void declareExchange(Exchange exchange) {
+    }
+
+    @Override
+    public boolean deleteExchange(String exchangeName) {
+        return false;
+    }
+
+    @Override
+    public Queue declareQueue() {
+        Queue queue = new Queue("amq.gen-" + UUID.randomUUID(), false, true, true);
+        broker.declareQueue(queue);
+        return queue;
+    }
+
+    @Override
+    public String declareQueue(Queue queue) {
+        broker.declareQueue(queue);
+        return queue.getName();
+    }
+
+    @Override
+    public boolean deleteQueue(String queueName) {
+        return broker.deleteQueue(queueName);
+    }
+
+    @Override
+    public void deleteQueue(String queueName, boolean unused, boolean empty) {
+        if ((unused && broker.consumerCount(queueName) > 0) || (empty && broker.messageCount(queueName) > 0)) {
+            return;
+        }
+        broker.deleteQueue(queueName);
+    }
+
+    @Override
+    public void purgeQueue(String queueName, boolean noWait) {
+        broker.purgeQueue(queueName);
+    }
+
+    @Override
+    public int purgeQueue(String queueName) {
+        return broker.purgeQueue(queueName);
+    }
+
+    @Override
+    public void declareBinding(Binding binding) {
+    }
+
+    @Override
+    public void removeBinding(Binding binding) {
+    }
+
+    @Override
+    public Properties getQueueProperties(String queueName) {
+        QueueInformation info = getQueueInfo(queueName);
+        if (info == null) {
+            return null;
+        }
+        Properties properties = new Properties();
+        properties.put(RabbitAdmin.QUEUE_NAME, info.getName());
+        properties.put(RabbitAdmin.QUEUE_MESSAGE_COUNT, info.getMessageCount());
+        properties.put(RabbitAdmin.QUEUE_CONSUMER_COUNT, info.getConsumerCount());
+        return properties;
+    }
+
+    @Override
+    public QueueInformation getQueueInfo(String queueName) {
+        if (!broker.exists(queueName)) {
+            return null;
+        }
+        return new QueueInformation(queueName, broker.messageCount(queueName), broker.consumerCount(queueName));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.contracts.transport;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+
+/**
+ * A lock-free, in-process stand-in for the parts of RabbitMQ the services use: durable queues
+ * bound to the default exchange, per-queue TTL with dead-lettering to another queue (the listener
+ * retry tiers), and single active consumer (the order partitions). Named exchanges and bindings
+ * are not modelled; a publish to one is unroutable. Queues hold messages only for the life of the
+ * JVM. {@link #shared()} is the instance every service in the JVM publishes to and consumes from.
+ */
+public final class InMemoryBroker {
+
+    private static final InMemoryBroker SHARED = new InMemoryBroker();
+
+    private final Map<String, InMemoryQueue> queues = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService expiry;
+
+    public InMemoryBroker() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "in-memory-broker-ttl");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.expiry = executor;
+    }
+
+    public static InMemoryBroker shared() {
+        return SHARED;
+    }
+
+    /** Declares the queue, or re-applies its arguments when it already exists. */
+    public void declareQueue(Queue queue) {
+        queue(queue.getName()).configure(queue.getArguments());
+    }
+
+    public boolean deleteQueue(String name) {
+        return queues.remove(name) != null;
+    }
+
+    public int purgeQueue(String name) {
+        InMemoryQueue queue = queues.get(name);
+        return queue == null ? 0 : queue.purge();
+    }
+
+    public boolean exists(String name) {
+        return queues.containsKey(name);
+    }
+
+    public int messageCount(String name) {
+        InMemoryQueue queue = queues.get(name);
+        return queue == null ? 0 : queue.depth();
+    }
+
+    public int consumerCount(String name) {
+        InMemoryQueue queue = queues.get(name);
+        return queue == null ? 0 : queue.consumerCount();
+    }
+
+    /**
+     * Routes a copy of {@code message} to the queue named by {@code routingKey} when
+     * {@code exchange} is the default exchange. Returns false, dropping the message, when it is
+     * unroutable. The copy keeps the sender free to reuse or mutate its message, as it could after
+     * a real publish.
+     */
+    public boolean publish(String exchange, String routingKey, Message message) {
+        if ((exchange != null && !exchange.isEmpty()) || routingKey == null) {
+            return false;
+        }
+        InMemoryQueue queue = queues.get(routingKey);
+        if (queue == null) {
+            return false;
+        }
+        Message copy = MessageBuilder.fromClonedMessage(message).build();
+        MessageProperties properties = copy.getMessageProperties();
+        properties.setReceivedExchange("");
+        properties.setReceivedRoutingKey(routingKey);
+        properties.setConsumerQueue(null);
+        enqueue(queue, copy);
+        return true;
+    }
+
+    Message receive(String name, long timeoutMs) {
+        InMemoryQueue queue = queues.get(name);
+        return queue == null ? null : queue.poll(timeoutMs);
+    }
+
+    /** Puts a received but unacked message back on its queue, marked redelivered. */
+    void requeue(String name, Message message) {
+        InMemoryQueue queue = queues.get(name);
+        if (queue != null) {
+            message.getMessageProperties().setRedelivered(true);
+            enqueue(queue, message);
+        }
+    }
+
+    InMemoryQueue queue(String name) {
+        return queues.computeIfAbsent(name, InMemoryQueue::new);
+    }
+
+    private void enqueue(InMemoryQueue queue, Message message) {
+        queue.offer(message);
+        long ttlMs = queue.ttlMs();
+        String deadLetterRoutingKey = queue.deadLetterRoutingKey();
+        if (ttlMs > 0) {
+            // Every message in a queue shares the queue TTL, so expiry keeps FIFO order.
+            expiry.schedule(() -> expire(queue, message, deadLetterRoutingKey), ttlMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void expire(InMemoryQueue queue, Message message, String deadLetterRoutingKey) {
+        if (!queue.remove(message) || deadLetterRoutingKey == null) {
+            return;
+        }
+        InMemoryQueue target = queues.get(deadLetterRoutingKey);
+        if (target != null) {
+            message.getMessageProperties().setHeader("x-first-death-queue", queue.name());
+            message.getMessageProperties().setHeader("x-first-death-reason", "expired");
+            message.getMessageProperties().setReceivedRoutingKey(deadLetterRoutingKey);
+            enqueue(target, message);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.contracts.transport;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+
+/**
+ * The {@link Channel} that {@link InMemoryRabbitTemplate#execute} hands to its callbacks. It covers
+ * the channel operations the services use: {@code basicGet} with automatic or manual ack,
+ * {@code basicAck} / {@code basicNack} / {@code basicReject}, {@code basicPublish} to the default
+ * exchange, and publisher confirms, which hold at once because a publish is applied before it
+ * returns. Messages still unacked when the channel is closed go back to their queue, as on the
+ * broker. Any other method throws {@link UnsupportedOperationException}.
+ */
+final class InMemoryChannel implements InvocationHandler {
+
+    private static final String CHARSET = StandardCharsets.UTF_8.name();
+
+    private final InMemoryBroker broker;
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+    private final Map<Long, Unacked> unacked = new LinkedHashMap<>();
+    private final Channel proxy;
+    private long nextDeliveryTag = 1;
+    private long nextPublishSeqNo = 1;
+    private boolean confirms;
+    private boolean open = true;
+
+    InMemoryChannel(InMemoryBroker broker) {
+        this.broker = broker;
+        this.proxy = (Channel) Proxy.newProxyInstance(
+                Channel.class.getClassLoader(), new Class<?>[] {Channel.class}, this);
+    }
+
+    Channel channel() {
+        return proxy;
+    }
+
+    /** Closes the channel, putting every unacked message back on its queue. */
+    void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        for (Unacked delivery : unacked.values()) {
+            broker.requeue(delivery.queue(), delivery.message());
+        }
+        unacked.clear();
+    }
+
+    @Override
+    public Object invoke(Object target, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return target == args[0];
+            case "hashCode":
+                return System.identityHashCode(target);
+            case "toString":
+                return "InMemoryChannel@" + Integer.toHexString(System.identityHashCode(target));
+            case "isOpen":
+                return open;
+            case "close":
+            case "abort":
+                close();
+                return null;
+            case "getChannelNumber":
+                return 1;
+            default:
+                break;
+        }
+        if (!open) {
+            throw new IllegalStateException("Channel is closed");
+        }
+        switch (method.getName()) {
+            case "basicGet":
+                return basicGet((String) args[0], (Boolean) args[1]);
+            case "basicPublish":
+                // (exchange, routingKey[, mandatory[, immediate]], props, body)
+                basicPublish((String) args[0], (String) args[1],
+                        (AMQP.BasicProperties) args[args.length - 2], (byte[]) args[args.length - 1]);
+                return null;
+            case "basicAck":
+                settle((Long) args[0], (Boolean) args[1], false);
+                return null;
+            case "basicNack":
+                settle((Long) args[0], (Boolean) args[1], (Boolean) args[2]);
+                return null;
+            case "basicReject":
+                settle((Long) args[0], false, (Boolean) args[1]);
+                return null;
+            case "confirmSelect":
+                confirms = true;
+                return null;
+            case "getNextPublishSeqNo":
+                return confirms ? nextPublishSeqNo : 0L;
+            case "waitForConfirms":
+                return true;
+            case "waitForConfirmsOrDie":
+                return null;
+            default:
+                throw new UnsupportedOperationException(
+                        "Channel." + method.getName() + " is not available on the in-memory transport");
+        }
+    }
+
+    private GetResponse basicGet(String queue, boolean autoAck) {
+        Message message = broker.receive(queue, 0);
+        if (message == null) {
+            return null;
+        }
+        long deliveryTag = nextDeliveryTag++;
+        if (!autoAck) {
+            unacked.put(deliveryTag, new Unacked(queue, message));
+        }
+        MessageProperties properties = message.getMessageProperties();
+        Envelope envelope = new Envelope(
+                deliveryTag,
+                Boolean.TRUE.equals(properties.getRedelivered()),
+                properties.getReceivedExchange() == null ? "" : properties.getReceivedExchange(),
+                properties.getReceivedRoutingKey() == null ? queue : properties.getReceivedRoutingKey());
+        return new GetResponse(
+                envelope,
+                propertiesConverter.fromMessageProperties(properties, CHARSET),
+                message.getBody(),
+                broker.messageCount(queue));
+    }
+
+    private void basicPublish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) {
+        MessageProperties properties = propertiesConverter.toMessageProperties(props, null, CHARSET);
+        // An unroutable publish is dropped, as a non-mandatory publish is on the broker.
+        broker.publish(exchange, routingKey, new Message(body, properties));
+        if (confirms) {
+            nextPublishSeqNo++;
+        }
+    }
+
+    private void settle(long deliveryTag, boolean multiple, boolean requeue) {
+        List<Unacked> settled = new ArrayList<>();
+        if (multiple) {
+            Iterator<Map.Entry<Long, Unacked>> entries = unacked.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Long, Unacked> entry = entries.next();
+                if (entry.getKey() <= deliveryTag) {
+                    settled.add(entry.getValue());
+                    entries.remove();
+                }
+            }
+        } else {
+            Unacked delivery = unacked.remove(deliveryTag);
+            if (delivery == null) {
+                throw new IllegalStateException("Unknown delivery tag " + deliveryTag);
+            }
+            settled.add(delivery);
+        }
+        if (requeue) {
+            settled.forEach(delivery -> broker.requeue(delivery.queue(), delivery.message()));
+        }
+    }
+
+    private record Unacked(String queue, Message message) {
+    }
+}
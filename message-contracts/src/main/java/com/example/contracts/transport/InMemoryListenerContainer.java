@@ -0,0 +1,301 @@
+package com.example.contracts.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.aopalliance.aop.Advice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareBatchMessageListener;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.aop.framework.ProxyFactory;
+
+/**
+ * Listener container that consumes from {@link InMemoryBroker} queues. Each queue gets
+ * {@code concurrency} consumer threads; a batch container hands its listener up to
+ * {@code batchSize} messages gathered within {@code receiveTimeoutMs}. The advice chain wraps the
+ * listener call exactly as in {@code SimpleMessageListenerContainer} (the message, or list of
+ * messages, is the second argument), so the same retry advice works on both transports. A failure
+ * that escapes the advice is requeued or dropped following the usual rules: requeue unless the
+ * container rejects by default or the exception says not to.
+ */
+public class InMemoryListenerContainer implements MessageListenerContainer {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryListenerContainer.class);
+
+    private static final long STANDBY_POLL_MS = 100;
+
+    private final InMemoryBroker broker;
+    private final List<String> queueNames = new CopyOnWriteArrayList<>();
+    private final List<Thread> consumers = new CopyOnWriteArrayList<>();
+
+    private MessageListener messageListener;
+    private Invoker invoker;
+    private Advice[] adviceChain = new Advice[0];
+    private String listenerId;
+    private boolean autoStartup = true;
+    private boolean consumerBatchEnabled;
+    private int concurrency = 1;
+    private int batchSize = 1;
+    private long receiveTimeoutMs = 1000;
+    private boolean defaultRequeueRejected = true;
+    private volatile boolean running;
+
+    public InMemoryListenerContainer(InMemoryBroker broker) {
+        this.broker = broker;
+    }
+
+    @Override
+    public void setupMessageListener(MessageListener messageListener) {
+        this.messageListener = messageListener;
+    }
+
+    @Override
+    public Object getMessageListener() {
+        return messageListener;
+    }
+
+    @Override
+    public void setQueueNames(String... queueNames) {
+        this.queueNames.clear();
+        this.queueNames.addAll(Arrays.asList(queueNames));
+    }
+
+    public String[] getQueueNames() {
+        return queueNames.toArray(String[]::new);
+    }
+
+    /** Starts consuming from more queues, at once if the container is running. */
+    public synchronized void addQueueNames(String... queueNames) {
+        for (String queueName : queueNames) {
+            if (!this.queueNames.contains(queueName)) {
+                this.queueNames.add(queueName);
+                if (running) {
+                    startConsumers(queueName);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setListenerId(String listenerId) {
+        this.listenerId = listenerId;
+    }
+
+    public String getListenerId() {
+        return listenerId;
+    }
+
+    @Override
+    public void setAutoStartup(boolean autoStartup) {
+        this.autoStartup = autoStartup;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return autoStartup;
+    }
+
+    public void setAdviceChain(Advice... adviceChain) {
+        this.adviceChain = adviceChain.clone();
+    }
+
+    public void setConsumerBatchEnabled(boolean consumerBatchEnabled) {
+        this.consumerBatchEnabled = consumerBatchEnabled;
+    }
+
+    @Override
+    public boolean isConsumerBatchEnabled() {
+        return consumerBatchEnabled;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public void setReceiveTimeout(long receiveTimeoutMs) {
+        this.receiveTimeoutMs = Math.max(1, receiveTimeoutMs);
+    }
+
+    public void setDefaultRequeueRejected(boolean defaultRequeueRejected) {
+        this.defaultRequeueRejected = defaultRequeueRejected;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (messageListener == null) {
+            throw new IllegalStateException("No message listener set on in-memory container " + listenerId);
+        }
+        invoker = adviseInvoker();
+        running = true;
+        for (String queueName : queueNames) {
+            startConsumers(queueName);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        for (Thread consumer : consumers) {
+            LockSupport.unpark(consumer);
+        }
+        for (Thread consumer : consumers) {
+            try {
+                consumer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        consumers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void startConsumers(String queueName) {
+        InMemoryQueue queue = broker.queue(queueName);
+        for (int i = 0; i < concurrency; i++) {
+            String threadName = "in-memory-" + queueName + "-" + (i + 1);
+            Thread consumer = new Thread(() -> consume(queue), threadName);
+            consumer.setDaemon(true);
+            consumers.add(consumer);
+            consumer.start();
+        }
+    }
+
+    private void consume(InMemoryQueue queue) {
+        Object consumerTag = new Object();
+        queue.addConsumer();
+        try {
+            while (running) {
+                if (!queue.isActive(consumerTag)) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(STANDBY_POLL_MS));
+                    continue;
+                }
+                Message first = queue.poll(receiveTimeoutMs);
+                if (first == null) {
+                    continue;
+                }
+                if (consumerBatchEnabled) {
+                    deliver(queue, nextBatch(queue, first));
+                } else {
+                    deliver(queue, List.of(first));
+                }
+            }
+        } finally {
+            queue.removeConsumer(consumerTag);
+        }
+    }
+
+    private List<Message> nextBatch(InMemoryQueue queue, Message first) {
+        List<Message> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(receiveTimeoutMs);
+        while (batch.size() < batchSize && running) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            Message next = remainingMs > 0 ? queue.poll(remainingMs) : queue.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void deliver(InMemoryQueue queue, List<Message> messages) {
+        for (Message message : messages) {
+            message.getMessageProperties().setConsumerQueue(queue.name());
+        }
+        try {
+            invoker.invokeListener(null, consumerBatchEnabled ? messages : messages.get(0));
+        } catch (RuntimeException ex) {
+            if (requeue(ex)) {
+                log.warn("Listener {} failed on queue {}; requeueing {} message(s)",
+                        listenerId, queue.name(), messages.size(), ex);
+                for (Message message : messages) {
+                    message.getMessageProperties().setRedelivered(true);
+                    queue.offer(message);
+                }
+            } else {
+                log.warn("Listener {} failed on queue {}; discarding {} message(s)",
+                        listenerId, queue.name(), messages.size(), ex);
+            }
+        }
+    }
+
+    private boolean requeue(Throwable ex) {
+        for (Throwable current = ex; current != null; current = current.getCause()) {
+            if (current instanceof ImmediateRequeueAmqpException) {
+                return true;
+            }
+            if (current instanceof AmqpRejectAndDontRequeueException) {
+                return false;
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return defaultRequeueRejected;
+    }
+
+    private Invoker adviseInvoker() {
+        Invoker target = this::invokeListener;
+        if (adviceChain.length == 0) {
+            return target;
+        }
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.addInterface(Invoker.class);
+        for (Advice advice : adviceChain) {
+            factory.addAdvice(advice);
+        }
+        return (Invoker) factory.getProxy(getClass().getClassLoader());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invokeListener(Object channel, Object data) {
+        try {
+            if (data instanceof List<?> messages) {
+                if (messageListener instanceof ChannelAwareBatchMessageListener batchListener) {
+                    batchListener.onMessageBatch((List<Message>) messages, null);
+                } else {
+                    messageListener.onMessageBatch((List<Message>) messages);
+                }
+            } else if (messageListener instanceof ChannelAwareMessageListener channelAwareListener) {
+                channelAwareListener.onMessage((Message) data, null);
+            } else {
+                messageListener.onMessage((Message) data);
+            }
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new ListenerExecutionFailedException("Listener threw exception", ex,
+                    data instanceof Message message ? new Message[] {message} : new Message[0]);
+        }
+    }
+
+    /** Same shape as the container delegate the Rabbit containers advise: (channel, data). */
+    @FunctionalInterface
+    interface Invoker {
+
+        void invokeListener(Object channel, Object data);
+    }
+}
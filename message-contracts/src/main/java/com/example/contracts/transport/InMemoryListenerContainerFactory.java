@@ -0,0 +1,99 @@
+package com.example.contracts.transport;
+
+import org.aopalliance.aop.Advice;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
+import org.springframework.amqp.rabbit.listener.AbstractRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpoint;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * Creates {@link InMemoryListenerContainer}s for {@code @RabbitListener} endpoints, so listeners
+ * are declared the same way on either transport; configure it like a
+ * {@code SimpleRabbitListenerContainerFactory}. Prefetch has no in-memory equivalent.
+ */
+public class InMemoryListenerContainerFactory implements RabbitListenerContainerFactory<InMemoryListenerContainer> {
+
+    private final InMemoryBroker broker;
+    private MessageConverter messageConverter;
+    private Advice[] adviceChain = new Advice[0];
+    private boolean batchListener;
+    private int concurrency = 1;
+    private int batchSize = 1;
+    private long receiveTimeoutMs = 1000;
+    private boolean defaultRequeueRejected = true;
+    private ContainerCustomizer<InMemoryListenerContainer> containerCustomizer;
+
+    public InMemoryListenerContainerFactory(InMemoryBroker broker) {
+        this.broker = broker;
+    }
+
+    public void setMessageConverter(MessageConverter messageConverter) {
+        this.messageConverter = messageConverter;
+    }
+
+    public void setAdviceChain(Advice... adviceChain) {
+        this.adviceChain = adviceChain.clone();
+    }
+
+    /** Batch listeners take a {@code List}; as with {@code consumerBatchEnabled} the container gathers it. */
+    public void setBatchListener(boolean batchListener) {
+        this.batchListener = batchListener;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setReceiveTimeout(long receiveTimeoutMs) {
+        this.receiveTimeoutMs = receiveTimeoutMs;
+    }
+
+    public void setDefaultRequeueRejected(boolean defaultRequeueRejected) {
+        this.defaultRequeueRejected = defaultRequeueRejected;
+    }
+
+    public void setContainerCustomizer(ContainerCustomizer<InMemoryListenerContainer> containerCustomizer) {
+        this.containerCustomizer = containerCustomizer;
+    }
+
+    @Override
+    public InMemoryListenerContainer createListenerContainer(RabbitListenerEndpoint endpoint) {
+        InMemoryListenerContainer container = new InMemoryListenerContainer(broker);
+        container.setAdviceChain(adviceChain);
+        container.setConsumerBatchEnabled(batchListener);
+        container.setConcurrency(concurrency);
+        container.setBatchSize(batchSize);
+        container.setReceiveTimeout(receiveTimeoutMs);
+        container.setDefaultRequeueRejected(defaultRequeueRejected);
+        if (endpoint != null) {
+            if (endpoint.getMessageConverter() == null && messageConverter != null) {
+                endpoint.setMessageConverter(messageConverter);
+            }
+            if (endpoint.getBatchListener() == null) {
+                endpoint.setBatchListener(batchListener);
+            }
+            if (endpoint instanceof AbstractRabbitListenerEndpoint abstractEndpoint) {
+                container.setQueueNames(abstractEndpoint.getQueueNames().toArray(String[]::new));
+            }
+            if (endpoint.getConcurrency() != null) {
+                String concurrency = endpoint.getConcurrency();
+                int dash = concurrency.indexOf('-');
+                container.setConcurrency(Integer.parseInt((dash < 0 ? concurrency : concurrency.substring(0, dash)).trim()));
+            }
+            if (endpoint.getAutoStartup() != null) {
+                container.setAutoStartup(endpoint.getAutoStartup());
+            }
+            container.setListenerId(endpoint.getId());
+            endpoint.setupListenerContainer(container);
+        }
+        if (containerCustomizer != null) {
+            containerCustomizer.configure(container);
+        }
+        return container;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.contracts.transport;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.amqp.core.Message;
+
+/**
+ * One queue of the {@link InMemoryBroker}. Messages sit in a {@link ConcurrentLinkedQueue}, so
+ * producers and consumers never take a lock; a consumer that finds the queue empty registers
+ * itself as a waiter and parks until a producer unparks it or its receive timeout passes.
+ */
+final class InMemoryQueue {
+
+    private final String name;
+    private final ConcurrentLinkedQueue<Message> messages = new ConcurrentLinkedQueue<>();
+    // ConcurrentLinkedQueue.size() walks the whole queue; depth is read on every backpressure probe.
+    private final AtomicInteger depth = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Object> activeConsumer = new AtomicReference<>();
+    private final AtomicInteger consumers = new AtomicInteger();
+
+    private volatile long ttlMs;
+    private volatile String deadLetterRoutingKey;
+    private volatile boolean singleActiveConsumer;
+
+    InMemoryQueue(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /** Applies the arguments the broker honours: TTL, dead-lettering to a queue, single active consumer. */
+    void configure(Map<String, Object> arguments) {
+        Object ttl = arguments.get("x-message-ttl");
+        ttlMs = ttl instanceof Number number ? number.longValue() : 0;
+        Object routingKey = arguments.get("x-dead-letter-routing-key");
+        deadLetterRoutingKey = routingKey == null ? null : routingKey.toString();
+        singleActiveConsumer = Boolean.TRUE.equals(arguments.get("x-single-active-consumer"));
+    }
+
+    long ttlMs() {
+        return ttlMs;
+    }
+
+    String deadLetterRoutingKey() {
+        return deadLetterRoutingKey;
+    }
+
+    void offer(Message message) {
+        messages.offer(message);
+        depth.incrementAndGet();
+        Thread waiter = waiters.poll();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    Message poll() {
+        Message message = messages.poll();
+        if (message != null) {
+            depth.decrementAndGet();
+        }
+        return message;
+    }
+
+    Message poll(long timeoutMs) {
+        Message message = poll();
+        if (message != null || timeoutMs <= 0) {
+            return message;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Thread current = Thread.currentThread();
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || current.isInterrupted()) {
+                return null;
+            }
+            waiters.offer(current);
+            // Re-check after registering so an offer between the poll and the park is not missed.
+            message = poll();
+            if (message != null) {
+                waiters.remove(current);
+                return message;
+            }
+            LockSupport.parkNanos(this, remaining);
+            waiters.remove(current);
+            message = poll();
+            if (message != null) {
+                return message;
+            }
+        }
+    }
+
+    /** Removes a specific message, e.g. when its TTL expires; false if it was already consumed. */
+    boolean remove(Message message) {
+        if (messages.remove(message)) {
+            depth.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    int purge() {
+        int purged = 0;
+        while (poll() != null) {
+            purged++;
+        }
+        return purged;
+    }
+
+    int depth() {
+        return depth.get();
+    }
+
+    int consumerCount() {
+        return consumers.get();
+    }
+
+    void addConsumer() {
+        consumers.incrementAndGet();
+    }
+
+    void removeConsumer(Object consumer) {
+        consumers.decrementAndGet();
+        activeConsumer.compareAndSet(consumer, null);
+    }
+
+    /**
+     * Whether {@code consumer} may take messages now. On a single-active-consumer queue the first
+     * consumer to ask becomes the active one until it is removed; every other consumer stands by.
+     */
+    boolean isActive(Object consumer) {
+        if (!singleActiveConsumer) {
+            return true;
+        }
+        Object active = activeConsumer.get();
+        return active == consumer || (active == null && activeConsumer.compareAndSet(null, consumer));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.contracts.transport;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.RabbitExceptionTranslator;
+
+/**
+ * A {@link RabbitTemplate} that publishes to an {@link InMemoryBroker}. Every {@code send} and
+ * {@code convertAndSend} overload ends up here, as do {@code invoke} and {@code receive}; a
+ * correlated publish is confirmed at once, with an unroutable one reported as returned when the
+ * template is mandatory, as the broker would. {@code execute} runs its callback on an
+ * {@link InMemoryChannel}, which supports get, publish, ack and confirms.
+ */
+public class InMemoryRabbitTemplate extends RabbitTemplate {
+
+    private static final int NO_ROUTE = 312;
+
+    private final InMemoryBroker broker;
+
+    public InMemoryRabbitTemplate(ConnectionFactory connectionFactory, InMemoryBroker broker) {
+        super(connectionFactory);
+        this.broker = broker;
+    }
+
+    public InMemoryBroker broker() {
+        return broker;
+    }
+
+    @Override
+    public void send(String exchange, String routingKey, Message message, CorrelationData correlationData)
+            throws AmqpException {
+        boolean routed = broker.publish(exchange, routingKey, message);
+        if (correlationData == null) {
+            return;
+        }
+        if (!routed && Boolean.TRUE.equals(isMandatoryFor(message))) {
+            correlationData.setReturned(new ReturnedMessage(message, NO_ROUTE, "NO_ROUTE", exchange, routingKey));
+        }
+        correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+    }
+
+    @Override
+    public <T> T invoke(
+            OperationsCallback<T> action,
+            com.rabbitmq.client.ConfirmCallback acks,
+            com.rabbitmq.client.ConfirmCallback nacks) {
+        // There is no channel to pin; publishes are already applied in the order they are made.
+        return action.doInRabbit(this);
+    }
+
+    @Override
+    public Message receive(String queueName, long timeoutMillis) {
+        return broker.receive(queueName, timeoutMillis < 0 ? Long.MAX_VALUE : timeoutMillis);
+    }
+
+    @Override
+    public <T> T execute(ChannelCallback<T> action) {
+        InMemoryChannel channel = new InMemoryChannel(broker);
+        try {
+            return action.doInRabbit(channel.channel());
+        } catch (Exception ex) {
+            throw RabbitExceptionTranslator.convertRabbitAccessException(ex);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.contracts.transport;
+
+/**
+ * How a service moves messages. {@code RABBIT} is the broker from the compose file;
+ * {@code IN_MEMORY} routes through the JVM-wide {@link InMemoryBroker}, so services started in the
+ * same JVM (or one service on its own, e.g. for a benchmark) run their listeners without RabbitMQ.
+ */
+public enum MessageTransport {
+
+    RABBIT,
+
+    IN_MEMORY;
+
+    public static MessageTransport fromName(String name) {
+        return name == null || name.isBlank()
+                ? RABBIT
+                : valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
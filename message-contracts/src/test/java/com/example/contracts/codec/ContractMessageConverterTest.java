@@ -0,0 +1,78 @@
+package com.example.contracts.codec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.contracts.messaging.OrderPlacedMessage;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+class ContractMessageConverterTest {
+
+    private static final OrderPlacedMessage PLACED = new OrderPlacedMessage(42, "NEW", "ORDER-42");
+    private static final byte[] PLACED_JSON =
+            "{\"orderId\":42,\"status\":\"NEW\",\"correlationId\":\"ORDER-42\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void roundTripsInEitherFormatWithTheLogicalTypeHeader() {
+        for (MessageFormat format : MessageFormat.values()) {
+            ContractMessageConverter converter = new ContractMessageConverter(format);
+
+            Message message = converter.toMessage(PLACED, new MessageProperties());
+
+            assertEquals(format.contentType(), message.getMessageProperties().getContentType());
+            assertEquals("OrderPlaced", message.getMessageProperties().getHeader(MessageTypes.TYPE_HEADER));
+            assertEquals(PLACED, converter.fromMessage(message));
+        }
+    }
+
+    @Test
+    void readsWhateverFormatTheContentTypeNames() {
+        Message cbor = new ContractMessageConverter(MessageFormat.CBOR).toMessage(PLACED, new MessageProperties());
+
+        assertEquals(PLACED, new ContractMessageConverter(MessageFormat.JSON).fromMessage(cbor));
+    }
+
+    @Test
+    void cborIsSmallerThanJson() {
+        byte[] json = new ContractMessageConverter(MessageFormat.JSON).toMessage(PLACED, new MessageProperties())
+                .getBody();
+        byte[] cbor = new ContractMessageConverter(MessageFormat.CBOR).toMessage(PLACED, new MessageProperties())
+                .getBody();
+
+        assertTrue(cbor.length < json.length);
+    }
+
+    @Test
+    void passesStoredJsonThroughUnchanged() {
+        Message message = new ContractMessageConverter(MessageFormat.JSON).fromJson(PLACED_JSON,
+                OrderPlacedMessage.class);
+
+        assertArrayEquals(PLACED_JSON, message.getBody());
+        assertEquals("OrderPlaced", message.getMessageProperties().getHeader(MessageTypes.TYPE_HEADER));
+    }
+
+    @Test
+    void transcodesStoredJsonToCbor() {
+        ContractMessageConverter converter = new ContractMessageConverter(MessageFormat.CBOR);
+
+        Message message = converter.fromJson(PLACED_JSON, OrderPlacedMessage.class);
+
+        assertEquals(MessageFormat.CBOR.contentType(), message.getMessageProperties().getContentType());
+        assertEquals(PLACED, converter.fromMessage(message));
+    }
+
+    @Test
+    void returnsTheRawBodyWithoutATargetType() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageFormat.JSON.contentType());
+
+        Object body = new ContractMessageConverter(MessageFormat.JSON)
+                .fromMessage(new Message(PLACED_JSON, properties));
+
+        assertArrayEquals(PLACED_JSON, (byte[]) body);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.contracts.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+class ConfirmWindowTest {
+
+    private static final OutboxRoute ROUTE = OutboxRoute.toQueue("delivery-picked", Object.class);
+
+    private RabbitTemplate rabbitTemplate;
+    private List<CorrelationData> sent;
+
+    @BeforeEach
+    void setUp() {
+        rabbitTemplate = mock(RabbitTemplate.class);
+        sent = new ArrayList<>();
+        doAnswer(invocation -> sent.add(invocation.getArgument(3)))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void reportsOnlyAckedEventsAsConfirmed() {
+        ConfirmWindow window = new ConfirmWindow(rabbitTemplate, "store-outbox-", 10, 100);
+        window.send(event(1), ROUTE);
+        window.send(event(2), ROUTE);
+        window.send(event(3), ROUTE);
+        window.send(event(4), ROUTE);
+        ack(0);
+        nack(1);
+        ack(2);
+        sent.get(2).setReturned(new ReturnedMessage(null, 312, "NO_ROUTE", "", "delivery-picked"));
+        // event 4 is never confirmed and times out
+
+        assertEquals(List.of(1), window.awaitConfirmed());
+    }
+
+    @Test
+    void stampsMessageIdFromThePrefixAndRowId() {
+        ConfirmWindow window = new ConfirmWindow(rabbitTemplate, "deliveryco-outbox-", 10, 100);
+
+        window.send(event(7), ROUTE);
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(""), eq("delivery-picked"), message.capture(), any(CorrelationData.class));
+        assertEquals("deliveryco-outbox-7", message.getValue().getMessageProperties().getMessageId());
+    }
+
+    @Test
+    void settlesTheOldestPublishOnceTheWindowIsFull() {
+        ConfirmWindow window = new ConfirmWindow(rabbitTemplate, "store-outbox-", 2, 100);
+        window.send(event(1), ROUTE);
+        window.send(event(2), ROUTE);
+        ack(0);
+
+        window.send(event(3), ROUTE);
+
+        verify(rabbitTemplate, times(3)).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        ack(1);
+        ack(2);
+        assertEquals(List.of(1, 2, 3), window.awaitConfirmed());
+    }
+
+    @Test
+    void allConfirmedTurnsFalseOnceAConfirmIsNackedWithoutWaitingForTheRest() {
+        ConfirmWindow window = new ConfirmWindow(rabbitTemplate, "store-outbox-", 10, 100);
+        window.send(event(1), ROUTE);
+        window.send(event(2), ROUTE);
+        assertTrue(window.allConfirmed());
+
+        nack(1);
+
+        assertFalse(window.allConfirmed());
+    }
+
+    @Test
+    void allConfirmedStaysFalseAfterTheUnconfirmedPublishIsSettled() {
+        ConfirmWindow window = new ConfirmWindow(rabbitTemplate, "store-outbox-", 1, 100);
+        window.send(event(1), ROUTE);
+        nack(0);
+        window.send(event(2), ROUTE);
+        ack(1);
+
+        assertFalse(window.allConfirmed());
+        assertEquals(List.of(2), window.awaitConfirmed());
+    }
+
+    private void ack(int index) {
+        sent.get(index).getFuture().complete(new CorrelationData.Confirm(true, null));
+    }
+
+    private void nack(int index) {
+        sent.get(index).getFuture().complete(new CorrelationData.Confirm(false, "internal error"));
+    }
+
+    private static OutboxRecord event(int id) {
+        return new OutboxRecord() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public String getAggregateType() {
+                return "DELIVERY";
+            }
+
+            @Override
+            public Integer getAggregateId() {
+                return id;
+            }
+
+            @Override
+            public String getEventType() {
+                return "DeliveryPicked";
+            }
+
+            @Override
+            public String getPayload() {
+                return "{}";
+            }
+
+            @Override
+            public String getCorrelationId() {
+                return "ORDER-" + id;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return null;
+            }
+
+            @Override
+            public Integer getHopCount() {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.contracts.outbox;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class OutboxArchiveMaintenanceTest {
+
+    private static final String TABLE = "delivery_outbox_archive";
+
+    private JdbcTemplate jdbcTemplate;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        today = LocalDate.now();
+    }
+
+    @Test
+    void createsTodaysAndUpcomingPartitions() {
+        existingPartitions();
+
+        new OutboxArchiveMaintenance(jdbcTemplate, TABLE, 7, 2).maintainPartitions();
+
+        for (int day = 0; day <= 2; day++) {
+            LocalDate date = today.plusDays(day);
+            verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS " + partition(date) + " PARTITION OF " + TABLE
+                    + " FOR VALUES FROM ('" + date + "') TO ('" + date.plusDays(1) + "')");
+        }
+    }
+
+    @Test
+    void dropsOnlyPartitionsOlderThanTheRetention() {
+        String expired = partition(today.minusDays(8));
+        String kept = partition(today.minusDays(7));
+        existingPartitions(expired, kept, TABLE + "_default");
+
+        new OutboxArchiveMaintenance(jdbcTemplate, TABLE, 7, 2).maintainPartitions();
+
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS " + expired);
+        verify(jdbcTemplate, never()).execute("DROP TABLE IF EXISTS " + kept);
+        verify(jdbcTemplate, never()).execute("DROP TABLE IF EXISTS " + TABLE + "_default");
+        verify(jdbcTemplate).update("DELETE FROM " + TABLE + "_default WHERE published_at < ?",
+                today.minusDays(7).atStartOfDay());
+    }
+
+    private void existingPartitions(String... partitions) {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq(TABLE))).thenReturn(List.of(partitions));
+    }
+
+    private static String partition(LocalDate day) {
+        return TABLE + "_" + DateTimeFormatter.BASIC_ISO_DATE.format(day);
+    }
+}
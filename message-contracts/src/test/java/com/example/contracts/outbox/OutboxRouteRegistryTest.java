@@ -0,0 +1,48 @@
+package com.example.contracts.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class OutboxRouteRegistryTest {
+
+    private static final OutboxRoute PLACED = OutboxRoute.toQueue("order-placed", String.class);
+    private static final OutboxRoute REQUESTED = OutboxRoute.toQueue("payment-requested", String.class);
+
+    private final OutboxRouteRegistry registry = new OutboxRouteRegistry()
+            .register("Order", "OrderPlaced", PLACED)
+            .register("PAYMENT", "PaymentRequested", REQUESTED);
+
+    @Test
+    void findsRouteForThePairAsRegistered() {
+        assertSame(PLACED, registry.find("ORDER", "OrderPlaced"));
+        assertSame(REQUESTED, registry.find("PAYMENT", "PaymentRequested"));
+    }
+
+    @Test
+    void fallsBackToCaseInsensitiveMatch() {
+        assertSame(PLACED, registry.find("order", "ORDERPLACED"));
+        assertSame(REQUESTED, registry.find("Payment", "paymentrequested"));
+    }
+
+    @Test
+    void returnsNullForUnknownOrMissingPair() {
+        assertNull(registry.find("ORDER", "OrderShipped"));
+        assertNull(registry.find("DELIVERY", "OrderPlaced"));
+        assertNull(registry.find(null, "OrderPlaced"));
+        assertNull(registry.find("ORDER", null));
+    }
+
+    @Test
+    void reportsAggregateTypesInUpperCase() {
+        assertEquals(Set.of("ORDER", "PAYMENT"), registry.aggregateTypes());
+        assertEquals(List.of("ORDER"), registry.registrations().stream()
+                .filter(registration -> registration.route() == PLACED)
+                .map(OutboxRouteRegistry.Registration::aggregateType)
+                .toList());
+    }
+}
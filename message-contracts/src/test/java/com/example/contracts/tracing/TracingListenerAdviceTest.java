@@ -0,0 +1,113 @@
+package com.example.contracts.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+class TracingListenerAdviceTest {
+
+    private static final String QUEUE = "payment-result";
+
+    private SimpleMeterRegistry meterRegistry;
+    private TracingListenerAdvice advice;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        advice = new TracingListenerAdvice(meterRegistry);
+    }
+
+    @Test
+    void recordsLatenciesPerQueueAndMakesTheTraceCurrentWhileTheListenerRuns() throws Throwable {
+        long now = System.currentTimeMillis();
+        Message message = tracedMessage("ORDER-42", Instant.ofEpochMilli(now - 300), 2);
+        message.getMessageProperties().setHeader(MessageTrace.PUBLISHED_AT_HEADER, now - 100);
+        AtomicReference<MessageTrace> seen = new AtomicReference<>();
+        AtomicReference<Integer> nextHop = new AtomicReference<>();
+
+        advice.invoke(invocation(message, () -> {
+            seen.set(MessageTrace.current());
+            nextHop.set(MessageTrace.nextHopCount());
+        }));
+
+        assertEquals("ORDER-42", seen.get().correlationId());
+        assertEquals(3, nextHop.get());
+        assertNull(MessageTrace.current());
+        assertEquals(200, timerMax(TracingListenerAdvice.ENQUEUE_PUBLISH_TIMER), 1);
+        assertEquals(1, meterRegistry.get(TracingListenerAdvice.PUBLISH_CONSUME_TIMER)
+                .tag("queue", QUEUE).timer().count());
+    }
+
+    @Test
+    void batchTraceKeepsTheSharedCorrelationIdAndTheHighestHop() throws Throwable {
+        AtomicReference<MessageTrace> seen = new AtomicReference<>();
+
+        advice.invoke(invocation(List.of(tracedMessage("ORDER-1", null, 1), tracedMessage("ORDER-2", null, 4)),
+                () -> seen.set(MessageTrace.current())));
+
+        assertNull(seen.get().correlationId());
+        assertEquals(4, seen.get().hopCount());
+    }
+
+    @Test
+    void directSendsCarryTheCurrentTraceOnToTheNextHop() throws Throwable {
+        Message outgoing = new Message(new byte[0], new MessageProperties());
+
+        advice.invoke(invocation(tracedMessage("ORDER-42", null, 2),
+                () -> MessageTrace.stampDirect(null, "bank-payment-result-7-CONFIRMED").postProcessMessage(outgoing)));
+
+        MessageTrace trace = MessageTrace.read(outgoing);
+        assertEquals("ORDER-42", trace.correlationId());
+        assertEquals(3, trace.hopCount());
+        assertEquals("bank-payment-result-7-CONFIRMED", outgoing.getMessageProperties().getMessageId());
+    }
+
+    @Test
+    void leavesUntracedMessagesAlone() throws Throwable {
+        Message message = new Message(new byte[0], new MessageProperties());
+        message.getMessageProperties().setConsumerQueue(QUEUE);
+
+        advice.invoke(invocation(message, () -> { }));
+
+        assertEquals(0, meterRegistry.getMeters().size());
+    }
+
+    private double timerMax(String name) {
+        return meterRegistry.get(name).tag("queue", QUEUE).timer().max(TimeUnit.MILLISECONDS);
+    }
+
+    private static Message tracedMessage(String correlationId, Instant enqueuedAt, int hopCount) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(QUEUE);
+        MessageTrace.stamp(properties, correlationId, enqueuedAt, hopCount);
+        return new Message(new byte[0], properties);
+    }
+
+    private static MethodInvocation invocation(Object data, ThrowingRunnable listener) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getArguments()).thenReturn(new Object[] {null, data});
+        when(invocation.proceed()).thenAnswer(call -> {
+            listener.run();
+            return null;
+        });
+        return invocation;
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+
+        void run() throws Exception;
+    }
+}
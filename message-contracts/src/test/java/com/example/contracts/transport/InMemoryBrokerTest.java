@@ -0,0 +1,81 @@
+package com.example.contracts.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueBuilder;
+
+class InMemoryBrokerTest {
+
+    private final InMemoryBroker broker = new InMemoryBroker();
+
+    @Test
+    void routesACopyToTheQueueNamedByTheRoutingKey() {
+        broker.declareQueue(QueueBuilder.durable("order-placed").build());
+        Message sent = message("1");
+
+        assertTrue(broker.publish("", "order-placed", sent));
+
+        Message received = broker.receive("order-placed", 0);
+        assertNotSame(sent, received);
+        assertEquals("1", received.getMessageProperties().getMessageId());
+        assertEquals("order-placed", received.getMessageProperties().getReceivedRoutingKey());
+        assertEquals(0, broker.messageCount("order-placed"));
+    }
+
+    @Test
+    void dropsUnroutableMessages() {
+        broker.declareQueue(QueueBuilder.durable("order-placed").build());
+
+        assertFalse(broker.publish("", "missing", message("1")));
+        assertFalse(broker.publish("store.events", "order-placed", message("2")));
+        assertEquals(0, broker.messageCount("order-placed"));
+    }
+
+    @Test
+    void deadLettersExpiredMessagesToTheConfiguredQueue() {
+        broker.declareQueue(QueueBuilder.durable("payment-result").build());
+        broker.declareQueue(QueueBuilder.durable("payment-result.retry.50ms")
+                .ttl(50)
+                .deadLetterExchange("")
+                .deadLetterRoutingKey("payment-result")
+                .build());
+
+        broker.publish("", "payment-result.retry.50ms", message("1"));
+
+        assertNull(broker.receive("payment-result", 0));
+        Message redelivered = broker.receive("payment-result", 2000);
+        assertEquals("1", redelivered.getMessageProperties().getMessageId());
+        assertEquals("payment-result.retry.50ms",
+                redelivered.getMessageProperties().getHeader("x-first-death-queue"));
+        assertEquals(0, broker.messageCount("payment-result.retry.50ms"));
+    }
+
+    @Test
+    void grantsASingleActiveConsumerUntilItLeaves() {
+        broker.declareQueue(QueueBuilder.durable("order-placed.0").singleActiveConsumer().build());
+        InMemoryQueue queue = broker.queue("order-placed.0");
+        Object first = new Object();
+        Object second = new Object();
+
+        assertTrue(queue.isActive(first));
+        assertFalse(queue.isActive(second));
+
+        queue.removeConsumer(first);
+
+        assertTrue(queue.isActive(second));
+    }
+
+    private static Message message(String messageId) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(messageId);
+        return new Message("{}".getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.contracts.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueBuilder;
+
+class InMemoryListenerContainerTest {
+
+    private static final String QUEUE = "notification-email";
+
+    private InMemoryBroker broker;
+    private InMemoryListenerContainer container;
+
+    @BeforeEach
+    void setUp() {
+        broker = new InMemoryBroker();
+        broker.declareQueue(QueueBuilder.durable(QUEUE).build());
+        container = new InMemoryListenerContainer(broker);
+        container.setQueueNames(QUEUE);
+        container.setReceiveTimeout(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        container.stop();
+    }
+
+    @Test
+    void handsABatchListenerEveryQueuedMessageInOneCall() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            broker.publish("", QUEUE, message(String.valueOf(i)));
+        }
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        container.setConsumerBatchEnabled(true);
+        container.setBatchSize(10);
+        container.setupMessageListener(new MessageListener() {
+            @Override
+            public void onMessage(Message message) {
+            }
+
+            @Override
+            public void onMessageBatch(List<Message> messages) {
+                batchSizes.add(messages.size());
+                delivered.countDown();
+            }
+        });
+
+        container.start();
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(5), batchSizes);
+    }
+
+    @Test
+    void requeuesAFailedMessageAsRedelivered() throws InterruptedException {
+        broker.publish("", QUEUE, message("1"));
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch redelivered = new CountDownLatch(1);
+        container.setupMessageListener(message -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("smtp down");
+            }
+            if (message.getMessageProperties().isRedelivered()) {
+                redelivered.countDown();
+            }
+        });
+
+        container.start();
+
+        assertTrue(redelivered.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void dropsAMessageRejectedWithoutRequeue() throws InterruptedException {
+        broker.publish("", QUEUE, message("1"));
+        AtomicInteger attempts = new AtomicInteger();
+        container.setupMessageListener(message -> {
+            attempts.incrementAndGet();
+            throw new AmqpRejectAndDontRequeueException("poison");
+        });
+
+        container.start();
+        // A requeue would be picked up again straight away
+        Thread.sleep(500);
+        container.stop();
+
+        assertEquals(1, attempts.get());
+        assertEquals(0, broker.messageCount(QUEUE));
+    }
+
+    private static Message message(String messageId) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(messageId);
+        return new Message("{}".getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.store.api.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.LocalDateTime;
+
+public record OutboxReplayRequest(
+        @NotNull LocalDateTime from,
+        @NotNull LocalDateTime to,
+        String eventType,
+        String correlationId,
+        @Positive Integer maxPerSecond) {
+}
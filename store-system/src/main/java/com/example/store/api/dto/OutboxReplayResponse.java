@@ -0,0 +1,17 @@
+package com.example.store.api.dto;
+
+import java.time.LocalDateTime;
+
+public record OutboxReplayResponse(
+        String replayId,
+        OutboxReplayStatus status,
+        LocalDateTime from,
+        LocalDateTime to,
+        String eventType,
+        String correlationId,
+        int maxPerSecond,
+        long published,
+        long failed,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        String error) {}
@@ -0,0 +1,9 @@
+package com.example.store.api.dto;
+
+public enum OutboxReplayStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    CANCELLED,
+    FAILED
+}
@@ -0,0 +1,3 @@
+package com.example.store.api.dto;
+
+public record ParkingLotRedriveResponse(String queue, String parkingLotQueue, int redriven, long remaining) {}
@@ -0,0 +1,3 @@
+package com.example.store.api.dto;
+
+public record ParkingLotResponse(String queue, String parkingLotQueue, long messageCount) {}
@@ -0,0 +1,91 @@
+package com.example.store.config;
+
+import com.example.contracts.tracing.TracingListenerAdvice;
+import com.example.contracts.transport.MessageTransport;
+import com.example.store.messaging.DeliveryStatusStreamListener;
+import com.rabbitmq.stream.Environment;
+import com.rabbitmq.stream.OffsetSpecification;
+import java.time.Duration;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.rabbit.stream.config.StreamRabbitListenerContainerFactory;
+import org.springframework.rabbit.stream.support.StreamMessageProperties;
+import org.springframework.rabbit.stream.support.converter.DefaultStreamMessageConverter;
+
+/**
+ * With {@code store.delivery-status.stream.enabled=true} deliveryco-service appends pickup,
+ * in-transit, delivered and lost events to one RabbitMQ stream, read by
+ * {@link DeliveryStatusStreamListener}. store-system reads it as the named consumer
+ * {@code store.delivery-status.stream.consumer-name}: the broker keeps its offset, so it resumes
+ * where it left off and other readers (e.g. analytics) can read the same history independently
+ * under their own names. Only one store-system node is the active consumer at a time.
+ */
+@Configuration
+@ConditionalOnProperty(name = "store.delivery-status.stream.enabled", havingValue = "true")
+public class DeliveryStatusStreamConfig {
+
+    /** The stream client does not flush tracked offsets more often than once a second. */
+    private static final long MIN_FLUSH_INTERVAL_MS = 1000;
+
+    @Value("${store.stream.delivery-status:delivery-status}")
+    private String deliveryStatusStreamName;
+
+    public DeliveryStatusStreamConfig(@Value("${store.messaging.transport:rabbit}") String transport) {
+        if (MessageTransport.fromName(transport) != MessageTransport.RABBIT) {
+            throw new IllegalStateException("The delivery status stream needs store.messaging.transport=rabbit");
+        }
+    }
+
+    /**
+     * Declared over AMQP like the other queues. deliveryco-service declares it too, so both services
+     * must agree on {@code max-age}.
+     */
+    @Bean
+    public Queue deliveryStatusStream(@Value("${store.delivery-status.stream.max-age:7D}") String maxAge) {
+        return QueueBuilder.durable(deliveryStatusStreamName)
+                .stream()
+                .withArgument("x-max-age", maxAge)
+                .build();
+    }
+
+    /**
+     * The offset is stored every {@code offset-store-every} messages or {@code offset-flush-interval-ms},
+     * whichever comes first, so after a restart at most that many messages are read again. A
+     * consumer name reading the stream for the first time starts from its beginning.
+     */
+    @Bean
+    public StreamRabbitListenerContainerFactory deliveryStatusStreamContainerFactory(
+            Environment streamEnvironment,
+            TracingListenerAdvice tracingListenerAdvice,
+            @Value("${store.delivery-status.stream.consumer-name:store-system}") String consumerName,
+            @Value("${store.delivery-status.stream.offset-store-every:1000}") int offsetStoreEvery,
+            @Value("${store.delivery-status.stream.offset-flush-interval-ms:1000}") long offsetFlushIntervalMs) {
+        StreamRabbitListenerContainerFactory factory = new StreamRabbitListenerContainerFactory(streamEnvironment);
+        factory.setNativeListener(false);
+        factory.setAdviceChain(tracingListenerAdvice);
+        factory.setConsumerCustomizer((id, builder) -> builder
+                .name(consumerName)
+                .singleActiveConsumer()
+                .offset(OffsetSpecification.first())
+                .autoTrackingStrategy()
+                .messageCountBeforeStorage(Math.max(1, offsetStoreEvery))
+                .flushInterval(Duration.ofMillis(Math.max(MIN_FLUSH_INTERVAL_MS, offsetFlushIntervalMs))));
+        factory.setContainerCustomizer(container -> container.setStreamConverter(new DefaultStreamMessageConverter() {
+
+            @Override
+            public Message toMessage(Object data, StreamMessageProperties properties) {
+                // Stream messages carry no consumer queue; per-queue tracing and retries need one.
+                if (properties.getContext() != null) {
+                    properties.setConsumerQueue(properties.getContext().stream());
+                }
+                return super.toMessage(data, properties);
+            }
+        }));
+        return factory;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.store.config;
+
+import com.example.contracts.transport.InMemoryListenerContainer;
+import com.example.store.messaging.OrderPartitioning;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies {@code store.listener.<queue>.concurrency}, {@code max-concurrency}, {@code prefetch} and
+ * {@code batch-size} to the listener container of each queue, falling back to the
+ * {@code store.listener.*} defaults. {@code <queue>} is the actual queue name, so it follows any
+ * {@code store.queue.*} override; partition queues use the settings of the queue they partition.
+ */
+@Component
+public class ListenerContainerCustomizer implements ContainerCustomizer<SimpleMessageListenerContainer> {
+
+    private static final Logger log = LoggerFactory.getLogger(ListenerContainerCustomizer.class);
+
+    private final Environment environment;
+    private final OrderPartitioning partitioning;
+    private final int defaultConcurrency;
+    private final int defaultMaxConcurrency;
+    private final int defaultPrefetch;
+    private final int defaultBatchSize;
+
+    public ListenerContainerCustomizer(
+            Environment environment,
+            OrderPartitioning partitioning,
+            @Value("${store.listener.concurrency:1}") int defaultConcurrency,
+            @Value("${store.listener.max-concurrency:1}") int defaultMaxConcurrency,
+            @Value("${store.listener.prefetch:250}") int defaultPrefetch,
+            @Value("${store.listener.batch-size:50}") int defaultBatchSize) {
+        this.environment = environment;
+        this.partitioning = partitioning;
+        this.defaultConcurrency = defaultConcurrency;
+        this.defaultMaxConcurrency = defaultMaxConcurrency;
+        this.defaultPrefetch = defaultPrefetch;
+        this.defaultBatchSize = defaultBatchSize;
+    }
+
+    @Override
+    public void configure(SimpleMessageListenerContainer container) {
+        Settings settings = settings(container.getQueueNames());
+        if (settings == null) {
+            return;
+        }
+        container.setConcurrentConsumers(settings.concurrency());
+        container.setMaxConcurrentConsumers(settings.maxConcurrency());
+        container.setPrefetchCount(settings.prefetch());
+        if (container.isConsumerBatchEnabled()) {
+            container.setBatchSize(settings.batchSize());
+        }
+        log.info("Listener for queue {}: concurrency {}-{}, prefetch {}{}", settings.queue(), settings.concurrency(),
+                settings.maxConcurrency(), settings.prefetch(),
+                container.isConsumerBatchEnabled() ? ", batch size " + settings.batchSize() : "");
+    }
+
+    /**
+     * The same settings for containers on the in-memory transport, which run a fixed
+     * {@code concurrency} consumers per queue and have no prefetch.
+     */
+    public ContainerCustomizer<InMemoryListenerContainer> inMemory() {
+        return container -> {
+            Settings settings = settings(container.getQueueNames());
+            if (settings == null) {
+                return;
+            }
+            container.setConcurrency(settings.concurrency());
+            if (container.isConsumerBatchEnabled()) {
+                container.setBatchSize(settings.batchSize());
+            }
+            log.info("In-memory listener for queue {}: concurrency {}{}", settings.queue(), settings.concurrency(),
+                    container.isConsumerBatchEnabled() ? ", batch size " + settings.batchSize() : "");
+        };
+    }
+
+    private Settings settings(String[] queueNames) {
+        if (queueNames.length == 0) {
+            return null;
+        }
+        // A partitioned listener consumes <queue> and <queue>.<p>; all of them share <queue>'s settings.
+        String queue = partitioning.baseQueue(queueNames[0]);
+        for (String queueName : queueNames) {
+            if (!partitioning.baseQueue(queueName).equals(queue)) {
+                return null;
+            }
+        }
+        int concurrency = Math.max(1, setting(queue, "concurrency", defaultConcurrency));
+        return new Settings(
+                queue,
+                concurrency,
+                Math.max(concurrency, setting(queue, "max-concurrency", defaultMaxConcurrency)),
+                Math.max(1, setting(queue, "prefetch", defaultPrefetch)),
+                Math.max(1, setting(queue, "batch-size", defaultBatchSize)));
+    }
+
+    private int setting(String queue, String name, int defaultValue) {
+        return environment.getProperty("store.listener." + queue + "." + name, Integer.class, defaultValue);
+    }
+
+    private record Settings(String queue, int concurrency, int maxConcurrency, int prefetch, int batchSize) {
+    }
+}
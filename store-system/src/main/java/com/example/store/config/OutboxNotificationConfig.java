@@ -0,0 +1,44 @@
+package com.example.store.config;
+
+import com.example.contracts.outbox.OutboxNotificationListener;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.store.messaging.OutboxRelay;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wakes {@link OutboxRelay} as soon as Postgres signals a new due outbox row, so the scheduled poll
+ * ({@code store.outbox.publisher.delay-ms}) can run rarely as a fallback. The {@code outbox_notify}
+ * trigger (see {@code version1.sql}) sends the row's aggregate type on the {@code outbox} channel;
+ * notifications for aggregate types this relay has no route for are ignored.
+ *
+ * <p>Only used with {@code store.outbox.immediate.enabled=false}: the immediate publisher already
+ * publishes every row right after its transaction commits, and a wake-up for the same commit would
+ * only send every relay worker on a claim that finds nothing.
+ */
+@Configuration
+@ConditionalOnExpression("${store.outbox.notify.enabled:true} and !${store.outbox.immediate.enabled:true}")
+public class OutboxNotificationConfig {
+
+    @Bean
+    public OutboxNotificationListener outboxNotificationListener(
+            OutboxRelay outboxRelay,
+            DataSourceProperties dataSourceProperties,
+            OutboxRouteRegistry routeRegistry,
+            @Value("${store.outbox.notify.channel:outbox}") String channel,
+            @Value("${store.outbox.notify.wait-ms:10000}") int waitMs,
+            @Value("${store.outbox.notify.reconnect-delay-ms:5000}") long reconnectDelayMs) {
+        return new OutboxNotificationListener(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword(),
+                routeRegistry.aggregateTypes(),
+                channel,
+                waitMs,
+                reconnectDelayMs,
+                outboxRelay::publishOutboxEvents);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.store.config;
+
+import com.example.contracts.messaging.DeliveryDeliveredEmailMessage;
+import com.example.contracts.messaging.DeliveryInTransitEmailMessage;
+import com.example.contracts.messaging.DeliveryLostEmailMessage;
+import com.example.contracts.messaging.DeliveryPickupEmailMessage;
+import com.example.contracts.messaging.NotificationDigestEmailMessage;
+import com.example.contracts.messaging.OrderAllocatedMessage;
+import com.example.contracts.messaging.OrderPlacedMessage;
+import com.example.contracts.messaging.OrderReadyForPickupMessage;
+import com.example.contracts.messaging.PaymentRefundMessage;
+import com.example.contracts.messaging.PaymentRequestedMessage;
+import com.example.contracts.messaging.PaymentResultEmailMessage;
+import com.example.contracts.messaging.RefundStatusEmailMessage;
+import com.example.contracts.outbox.OutboxRoute;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.store.messaging.NotificationCoalescer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class OutboxRouteConfig {
+
+    @Value("${store.queue.order-placed:order-placed}")
+    private String orderPlacedQueueName;
+
+    @Value("${store.partition.count:0}")
+    private int partitionCount;
+
+    @Value("${store.queue.order-allocated:order-allocated}")
+    private String orderAllocatedQueueName;
+
+    @Value("${store.queue.payment-requested:payment-requested}")
+    private String paymentRequestedQueueName;
+
+    @Value("${store.queue.delivery-ready:delivery-ready}")
+    private String deliveryReadyQueueName;
+
+    @Value("${store.queue.notification-email:notification-email}")
+    private String notificationEmailQueueName;
+
+    @Value("${store.queue.payment-refund:payment-refund}")
+    private String paymentRefundQueueName;
+
+    @Bean
+    public OutboxRouteRegistry outboxRouteRegistry() {
+        return new OutboxRouteRegistry()
+                .register("ORDER", "OrderPlaced",
+                        OutboxRoute.toPartitionedQueue(orderPlacedQueueName, OrderPlacedMessage.class, partitionCount))
+                .register("ORDER", "OrderAllocated",
+                        OutboxRoute.toQueue(orderAllocatedQueueName, OrderAllocatedMessage.class))
+                .register("ORDER", "OrderReadyForPickup",
+                        OutboxRoute.toQueue(deliveryReadyQueueName, OrderReadyForPickupMessage.class))
+                .register("PAYMENT", "PaymentRequested",
+                        OutboxRoute.toQueue(paymentRequestedQueueName, PaymentRequestedMessage.class))
+                .register("PAYMENT", "RefundRequested",
+                        OutboxRoute.toQueue(paymentRefundQueueName, PaymentRefundMessage.class))
+                .register("EMAIL", "PaymentResultNotification",
+                        OutboxRoute.toQueue(notificationEmailQueueName, PaymentResultEmailMessage.class))
+                .register("EMAIL", "RefundStatusNotification",
+                        OutboxRoute.toQueue(notificationEmailQueueName, RefundStatusEmailMessage.class))
+                .register("EMAIL", "DeliveryPickupNotification",
+                        OutboxRoute.toQueue(notificationEmailQueueName, DeliveryPickupEmailMessage.class))
+                .register("EMAIL", "DeliveryInTransitNotification",
+                        OutboxRoute.toQueue(notificationEmailQueueName, DeliveryInTransitEmailMessage.class))
+                .register("EMAIL", "DeliveryLostNotification",
+                        OutboxRoute.toQueue(notificationEmailQueueName, DeliveryLostEmailMessage.class))
+                .register("EMAIL", "DeliveryDeliveredNotification",
+                        OutboxRoute.toQueue(notificationEmailQueueName, DeliveryDeliveredEmailMessage.class))
+                .register("EMAIL", NotificationCoalescer.DIGEST_EVENT_TYPE,
+                        OutboxRoute.toQueue(notificationEmailQueueName, NotificationDigestEmailMessage.class));
+    }
+}
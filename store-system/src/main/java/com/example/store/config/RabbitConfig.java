@@ -1,11 +1,32 @@
 package com.example.store.config;
 
+import com.example.contracts.codec.ContractMessageConverter;
+import com.example.contracts.codec.MessageFormat;
+import com.example.contracts.transport.InMemoryAmqpAdmin;
+import com.example.contracts.transport.InMemoryBroker;
+import com.example.contracts.transport.InMemoryListenerContainerFactory;
+import com.example.contracts.transport.InMemoryRabbitTemplate;
+import com.example.contracts.tracing.TracingListenerAdvice;
+import com.example.contracts.transport.MessageTransport;
+import com.example.store.messaging.ListenerRetryAdvice;
+import com.example.store.messaging.ListenerRetryPolicy;
+import com.example.store.messaging.OrderPartitioning;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.listener.RabbitListenerContainerFactory;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -15,6 +36,9 @@ import org.springframework.context.annotation.Configuration;
 @EnableRabbit
 public class RabbitConfig {
 
+    @Value("${store.messaging.transport:rabbit}")
+    private String transport;
+
     @Value("${store.queue.order-placed:order-placed}")
     private String orderPlacedQueueName;
 
@@ -119,25 +143,157 @@ public class RabbitConfig {
         return new Queue(deliveryLostQueueName, true);
     }
 
+    /**
+     * Partition queues of {@code order-placed} and {@code payment-result} (see
+     * {@link OrderPartitioning}). Single active consumer lets every node subscribe to every partition
+     * while the broker delivers each partition to one of them.
+     */
+    @Bean
+    public Declarables orderPartitionQueues(OrderPartitioning partitioning) {
+        List<Declarable> queues = new ArrayList<>();
+        for (String queue : List.of(orderPlacedQueueName, paymentResultQueueName)) {
+            for (String partitionQueue : partitioning.partitionQueues(queue)) {
+                queues.add(QueueBuilder.durable(partitionQueue).singleActiveConsumer().build());
+            }
+        }
+        return new Declarables(queues);
+    }
+
+    /**
+     * Retry tiers and parking lot for every consumed queue. Each {@code <queue>.retry.<delay>ms}
+     * holds messages for its backoff and then dead-letters them back to {@code <queue>}; tiers whose
+     * delay hit the cap share one queue. The source queues keep their existing arguments so they
+     * can still be redeclared on running brokers.
+     */
+    @Bean
+    public Declarables listenerRetryQueues(ListenerRetryPolicy retryPolicy) {
+        List<Declarable> queues = new ArrayList<>();
+        for (String queue : retryPolicy.listenerQueues()) {
+            Set<String> retryQueues = new HashSet<>();
+            for (int tier = 1; tier <= retryPolicy.retryTiers(); tier++) {
+                String retryQueue = retryPolicy.retryQueue(queue, tier);
+                if (!retryQueues.add(retryQueue)) {
+                    continue;
+                }
+                queues.add(QueueBuilder.durable(retryQueue)
+                        .ttl((int) retryPolicy.delayMs(tier))
+                        .deadLetterExchange("")
+                        .deadLetterRoutingKey(queue)
+                        .build());
+            }
+            queues.add(QueueBuilder.durable(retryPolicy.parkingLotQueue(queue)).build());
+        }
+        return new Declarables(queues);
+    }
+
+    /**
+     * Shared contract converter; {@code store.messaging.format} picks what store-system sends
+     * (JSON or CBOR), and every format is accepted on receive.
+     */
     @Bean
-    public MessageConverter jacksonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter contractMessageConverter(@Value("${store.messaging.format:json}") String format) {
+        return new ContractMessageConverter(MessageFormat.fromName(format));
+    }
+
+    @Bean
+    public TracingListenerAdvice tracingListenerAdvice(MeterRegistry meterRegistry) {
+        return new TracingListenerAdvice(meterRegistry);
+    }
+
+    @Bean
+    public RabbitListenerContainerFactory<?> rabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter messageConverter,
+            TracingListenerAdvice tracingListenerAdvice,
+            ListenerRetryAdvice listenerRetryAdvice,
+            ListenerContainerCustomizer listenerContainerCustomizer) {
+        if (isInMemory()) {
+            return inMemoryListenerContainerFactory(
+                    messageConverter, tracingListenerAdvice, listenerRetryAdvice, listenerContainerCustomizer);
+        }
+        return listenerContainerFactory(connectionFactory, messageConverter, tracingListenerAdvice, listenerRetryAdvice,
+                listenerContainerCustomizer);
     }
 
+    /**
+     * For high-volume queues whose handlers take a {@code List} of messages. The container gathers up
+     * to {@code store.listener.<queue>.batch-size} messages, waiting at most
+     * {@code store.listener.batch.receive-timeout-ms} for a batch to fill.
+     */
     @Bean
-    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+    public RabbitListenerContainerFactory<?> batchRabbitListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            MessageConverter messageConverter) {
+            MessageConverter messageConverter,
+            TracingListenerAdvice tracingListenerAdvice,
+            ListenerRetryAdvice listenerRetryAdvice,
+            ListenerContainerCustomizer listenerContainerCustomizer,
+            @Value("${store.listener.batch.receive-timeout-ms:200}") long receiveTimeoutMs) {
+        if (isInMemory()) {
+            InMemoryListenerContainerFactory factory = inMemoryListenerContainerFactory(
+                    messageConverter, tracingListenerAdvice, listenerRetryAdvice, listenerContainerCustomizer);
+            factory.setBatchListener(true);
+            factory.setReceiveTimeout(receiveTimeoutMs);
+            return factory;
+        }
+        SimpleRabbitListenerContainerFactory factory = listenerContainerFactory(connectionFactory, messageConverter,
+                tracingListenerAdvice, listenerRetryAdvice, listenerContainerCustomizer);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        return factory;
+    }
+
+    private SimpleRabbitListenerContainerFactory listenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter messageConverter,
+            TracingListenerAdvice tracingListenerAdvice,
+            ListenerRetryAdvice listenerRetryAdvice,
+            ListenerContainerCustomizer listenerContainerCustomizer) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
         factory.setMessageConverter(messageConverter);
+        // Tracing wraps retry so it also times deliveries the retry advice moves on.
+        // Failures are moved to retry/parking-lot queues; anything left over must not hot-loop.
+        factory.setAdviceChain(tracingListenerAdvice, listenerRetryAdvice);
+        factory.setDefaultRequeueRejected(false);
+        factory.setContainerCustomizer(listenerContainerCustomizer);
+        return factory;
+    }
+
+    private InMemoryListenerContainerFactory inMemoryListenerContainerFactory(
+            MessageConverter messageConverter,
+            TracingListenerAdvice tracingListenerAdvice,
+            ListenerRetryAdvice listenerRetryAdvice,
+            ListenerContainerCustomizer listenerContainerCustomizer) {
+        InMemoryListenerContainerFactory factory = new InMemoryListenerContainerFactory(InMemoryBroker.shared());
+        factory.setMessageConverter(messageConverter);
+        factory.setAdviceChain(tracingListenerAdvice, listenerRetryAdvice);
+        factory.setDefaultRequeueRejected(false);
+        factory.setContainerCustomizer(listenerContainerCustomizer.inMemory());
         return factory;
     }
 
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
-        RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
+        RabbitTemplate rabbitTemplate = isInMemory()
+                ? new InMemoryRabbitTemplate(connectionFactory, InMemoryBroker.shared())
+                : new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(messageConverter);
+        // Unroutable outbox messages come back as returns and are not treated as confirmed.
+        rabbitTemplate.setMandatory(true);
         return rabbitTemplate;
     }
+
+    /**
+     * With {@code store.messaging.transport=in-memory} queues are declared on the JVM-wide
+     * {@link InMemoryBroker} and the connection factory is never opened.
+     */
+    @Bean
+    public AmqpAdmin amqpAdmin(ConnectionFactory connectionFactory) {
+        return isInMemory() ? new InMemoryAmqpAdmin(InMemoryBroker.shared()) : new RabbitAdmin(connectionFactory);
+    }
+
+    private boolean isInMemory() {
+        return MessageTransport.fromName(transport) == MessageTransport.IN_MEMORY;
+    }
 }
@@ -9,9 +9,12 @@ import com.example.store.api.dto.RequestPaymentResponse;
 import com.example.store.api.dto.ReserveStockResponse;
 import com.example.store.api.dto.ReduceOrderItemRequest;
 import com.example.store.api.dto.ReduceOrderItemResponse;
+import com.example.store.service.OptimisticRetryExecutor;
+import com.example.store.service.OrderMailbox;
 import com.example.store.service.OrderSaga;
 import com.example.store.service.OrderService;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -19,6 +22,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -26,10 +30,18 @@ public class OrderController {
 
     private final OrderService orderService;
     private final OrderSaga orderSaga;
+    private final OrderMailbox mailbox;
+    private final OptimisticRetryExecutor optimisticRetry;
 
-    public OrderController(OrderService orderService, OrderSaga orderSaga) {
+    public OrderController(
+            OrderService orderService,
+            OrderSaga orderSaga,
+            OrderMailbox mailbox,
+            OptimisticRetryExecutor optimisticRetry) {
         this.orderService = orderService;
         this.orderSaga = orderSaga;
+        this.mailbox = mailbox;
+        this.optimisticRetry = optimisticRetry;
     }
 
     @PostMapping
@@ -56,25 +68,32 @@ public class OrderController {
 
     @PostMapping("/{orderId}/reserve")
     public ResponseEntity<ReserveStockResponse> reserveStock(@PathVariable Integer orderId) {
-        ReserveStockResponse response = orderSaga.reserveStock(orderId);
+        ReserveStockResponse response = mailbox.call(orderId, () -> orderSaga.reserveStock(orderId));
         return ResponseEntity.ok(response);
     }
 
     @PostMapping("/{orderId}/payment")
     public ResponseEntity<RequestPaymentResponse> requestPayment(@PathVariable Integer orderId) {
-        RequestPaymentResponse response = orderSaga.requestPayment(orderId);
+        RequestPaymentResponse response = mailbox.call(orderId, () -> orderSaga.requestPayment(orderId));
         return ResponseEntity.ok(response);
     }
 
     @PostMapping("/{orderId}/payment/bypass-success")
     public ResponseEntity<Void> bypassPaymentSuccess(@PathVariable Integer orderId) {
-        orderSaga.bypassPaymentAndSendDelivery(orderId);
+        mailbox.run(orderId, () -> orderSaga.bypassPaymentAndSendDelivery(orderId));
         return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/{orderId}/cancel")
     public ResponseEntity<CancelOrderResponse> cancelOrder(@PathVariable Integer orderId) {
-        CancelOrderResponse response = orderSaga.cancelOrder(orderId);
+        CancelOrderResponse response;
+        try {
+            response = mailbox.call(orderId,
+                    () -> optimisticRetry.call("Cancel order", orderId, () -> orderSaga.cancelOrder(orderId)));
+        } catch (OptimisticLockingFailureException ex) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT, "Order is being updated concurrently. Please retry.", ex);
+        }
         return ResponseEntity.ok(response);
     }
 }
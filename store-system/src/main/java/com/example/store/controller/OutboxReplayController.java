@@ -0,0 +1,37 @@
+package com.example.store.controller;
+
+import com.example.store.api.dto.OutboxReplayRequest;
+import com.example.store.api.dto.OutboxReplayResponse;
+import com.example.store.service.OutboxReplayService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/outbox/replays")
+public class OutboxReplayController {
+
+    private final OutboxReplayService outboxReplayService;
+
+    public OutboxReplayController(OutboxReplayService outboxReplayService) {
+        this.outboxReplayService = outboxReplayService;
+    }
+
+    @PostMapping
+    public ResponseEntity<OutboxReplayResponse> startReplay(@Valid @RequestBody OutboxReplayRequest request) {
+        OutboxReplayResponse response = outboxReplayService.startReplay(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/{replayId}")
+    public ResponseEntity<OutboxReplayResponse> getReplay(@PathVariable String replayId) {
+        OutboxReplayResponse response = outboxReplayService.getReplay(replayId);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.store.controller;
+
+import com.example.store.api.dto.ParkingLotRedriveResponse;
+import com.example.store.api.dto.ParkingLotResponse;
+import com.example.store.service.ParkingLotService;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/parking-lot")
+public class ParkingLotController {
+
+    private final ParkingLotService parkingLotService;
+
+    public ParkingLotController(ParkingLotService parkingLotService) {
+        this.parkingLotService = parkingLotService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ParkingLotResponse>> listParkingLots() {
+        return ResponseEntity.ok(parkingLotService.listParkingLots());
+    }
+
+    @PostMapping("/{queue}/redrive")
+    public ResponseEntity<ParkingLotRedriveResponse> redrive(
+            @PathVariable String queue, @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(parkingLotService.redrive(queue, limit));
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.store.messaging;
 
+import com.example.contracts.messaging.DeliveryAcknowledgementMessage;
+import com.example.store.service.OptimisticRetryExecutor;
+import com.example.store.service.OrderMailbox;
 import com.example.store.service.OrderSaga;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
 
 @Component
 public class DeliveryAcknowledgementListener {
@@ -14,24 +18,30 @@ public class DeliveryAcknowledgementListener {
     private static final Logger log = LoggerFactory.getLogger(DeliveryAcknowledgementListener.class);
 
     private final OrderSaga orderSaga;
+    private final OrderMailbox mailbox;
+    private final OptimisticRetryExecutor optimisticRetry;
+    private final MessageInbox inbox;
     private final String queueName;
 
     public DeliveryAcknowledgementListener(
-            OrderSaga orderSaga, @Value("${store.queue.delivery-ack:delivery-ack}") String queueName) {
+            OrderSaga orderSaga,
+            OrderMailbox mailbox,
+            OptimisticRetryExecutor optimisticRetry,
+            MessageInbox inbox,
+            @Value("${store.queue.delivery-ack:delivery-ack}") String queueName) {
         this.orderSaga = orderSaga;
+        this.mailbox = mailbox;
+        this.optimisticRetry = optimisticRetry;
+        this.inbox = inbox;
         this.queueName = queueName;
     }
 
     @RabbitListener(queues = "${store.queue.delivery-ack:delivery-ack}")
-    public void handleDeliveryAcknowledgement(DeliveryAcknowledgementMessage message) {
+    public void handleDeliveryAcknowledgement(
+            DeliveryAcknowledgementMessage message,
+            @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId) {
         log.info("Received delivery acknowledgement for order {} on queue {}", message.orderId(), queueName);
-        try {
-            orderSaga.handleDeliveryAcknowledgement(message);
-        } catch (ResponseStatusException ex) {
-            log.warn(
-                    "Unable to process delivery acknowledgement for order {}: {}",
-                    message.orderId(),
-                    ex.getReason());
-        }
+        mailbox.run(message.orderId(), () -> optimisticRetry.run("Delivery acknowledgement", message.orderId(),
+                () -> inbox.process(queueName, messageId, () -> orderSaga.handleDeliveryAcknowledgement(message))));
     }
 }
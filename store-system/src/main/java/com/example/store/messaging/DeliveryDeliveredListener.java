@@ -1,12 +1,16 @@
 package com.example.store.messaging;
 
+import com.example.contracts.messaging.DeliveryDeliveredMessage;
+import com.example.store.service.OptimisticRetryExecutor;
+import com.example.store.service.OrderMailbox;
 import com.example.store.service.OrderSaga;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
 
 @Component
 public class DeliveryDeliveredListener {
@@ -14,21 +18,30 @@ public class DeliveryDeliveredListener {
     private static final Logger log = LoggerFactory.getLogger(DeliveryDeliveredListener.class);
 
     private final OrderSaga orderSaga;
+    private final OrderMailbox mailbox;
+    private final OptimisticRetryExecutor optimisticRetry;
+    private final MessageInbox inbox;
     private final String queueName;
 
     public DeliveryDeliveredListener(
-            OrderSaga orderSaga, @Value("${store.queue.delivery-delivered:delivery-delivered}") String queueName) {
+            OrderSaga orderSaga,
+            OrderMailbox mailbox,
+            OptimisticRetryExecutor optimisticRetry,
+            MessageInbox inbox,
+            @Value("${store.queue.delivery-delivered:delivery-delivered}") String queueName) {
         this.orderSaga = orderSaga;
+        this.mailbox = mailbox;
+        this.optimisticRetry = optimisticRetry;
+        this.inbox = inbox;
         this.queueName = queueName;
     }
 
     @RabbitListener(queues = "${store.queue.delivery-delivered:delivery-delivered}")
-    public void handleDeliveryDelivered(DeliveryDeliveredMessage message) {
+    public void handleDeliveryDelivered(
+            DeliveryDeliveredMessage message,
+            @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId) {
         log.info("Received delivery delivered notification for order {} on queue {}", message.orderId(), queueName);
-        try {
-            orderSaga.handleDeliveryDelivered(message);
-        } catch (ResponseStatusException ex) {
-            log.warn("Unable to process delivery delivered for order {}: {}", message.orderId(), ex.getReason());
-        }
+        mailbox.run(message.orderId(), () -> optimisticRetry.run("Delivery delivered", message.orderId(),
+                () -> inbox.process(queueName, messageId, () -> orderSaga.handleDeliveryDelivered(message))));
     }
 }
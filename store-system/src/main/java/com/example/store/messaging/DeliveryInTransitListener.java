@@ -1,12 +1,15 @@
 package com.example.store.messaging;
 
+import com.example.contracts.messaging.DeliveryInTransitMessage;
+import com.example.store.service.OptimisticRetryExecutor;
 import com.example.store.service.OrderSaga;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
 
 @Component
 public class DeliveryInTransitListener {
@@ -14,21 +17,35 @@ public class DeliveryInTransitListener {
     private static final Logger log = LoggerFactory.getLogger(DeliveryInTransitListener.class);
 
     private final OrderSaga orderSaga;
+    private final OptimisticRetryExecutor optimisticRetry;
+    private final MessageInbox inbox;
+    private final ListenerRetryAdvice retryAdvice;
     private final String queueName;
 
     public DeliveryInTransitListener(
-            OrderSaga orderSaga, @Value("${store.queue.delivery-in-transit:delivery-in-transit}") String queueName) {
+            OrderSaga orderSaga,
+            OptimisticRetryExecutor optimisticRetry,
+            MessageInbox inbox,
+            ListenerRetryAdvice retryAdvice,
+            @Value("${store.queue.delivery-in-transit:delivery-in-transit}") String queueName) {
         this.orderSaga = orderSaga;
+        this.optimisticRetry = optimisticRetry;
+        this.inbox = inbox;
+        this.retryAdvice = retryAdvice;
         this.queueName = queueName;
     }
 
-    @RabbitListener(queues = "${store.queue.delivery-in-transit:delivery-in-transit}")
-    public void handleDeliveryInTransit(DeliveryInTransitMessage message) {
-        log.info("Received delivery in-transit update for order {} on queue {}", message.orderId(), queueName);
-        try {
-            orderSaga.handleDeliveryInTransit(message);
-        } catch (ResponseStatusException ex) {
-            log.warn("Unable to process delivery in-transit for order {}: {}", message.orderId(), ex.getReason());
-        }
+    @RabbitListener(
+            queues = "${store.queue.delivery-in-transit:delivery-in-transit}",
+            containerFactory = "batchRabbitListenerContainerFactory")
+    public void handleDeliveryInTransitUpdates(List<Message<DeliveryInTransitMessage>> messages) {
+        log.info("Received {} delivery in-transit updates on queue {}", messages.size(), queueName);
+        // One transaction for the whole batch, outside the order mailbox (see OrderMailbox); a concurrent
+        // command on one of its orders surfaces as an optimistic-lock conflict and the batch is retried.
+        List<MessageInbox.Rejected<DeliveryInTransitMessage>> rejected = optimisticRetry.call(
+                "Delivery in-transit updates", queueName,
+                () -> inbox.processBatchRejecting(queueName, messages, orderSaga::handleDeliveryInTransitUpdates));
+        // After the commit, so a failed republish only requeues messages whose claims were released.
+        retryAdvice.recoverRejected(queueName, rejected);
     }
 }
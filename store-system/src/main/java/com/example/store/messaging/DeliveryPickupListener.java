@@ -1,12 +1,15 @@
 package com.example.store.messaging;
 
+import com.example.contracts.messaging.DeliveryPickupMessage;
+import com.example.store.service.OptimisticRetryExecutor;
 import com.example.store.service.OrderSaga;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
 
 @Component
 public class DeliveryPickupListener {
@@ -14,21 +17,35 @@ public class DeliveryPickupListener {
     private static final Logger log = LoggerFactory.getLogger(DeliveryPickupListener.class);
 
     private final OrderSaga orderSaga;
+    private final OptimisticRetryExecutor optimisticRetry;
+    private final MessageInbox inbox;
+    private final ListenerRetryAdvice retryAdvice;
     private final String queueName;
 
     public DeliveryPickupListener(
-            OrderSaga orderSaga, @Value("${store.queue.delivery-picked:delivery-picked}") String queueName) {
+            OrderSaga orderSaga,
+            OptimisticRetryExecutor optimisticRetry,
+            MessageInbox inbox,
+            ListenerRetryAdvice retryAdvice,
+            @Value("${store.queue.delivery-picked:delivery-picked}") String queueName) {
         this.orderSaga = orderSaga;
+        this.optimisticRetry = optimisticRetry;
+        this.inbox = inbox;
+        this.retryAdvice = retryAdvice;
         this.queueName = queueName;
     }
 
-    @RabbitListener(queues = "${store.queue.delivery-picked:delivery-picked}")
-    public void handleDeliveryPickup(DeliveryPickupMessage message) {
-        log.info("Received delivery pickup for order {} on queue {}", message.orderId(), queueName);
-        try {
-            orderSaga.handleDeliveryPickup(message);
-        } catch (ResponseStatusException ex) {
-            log.warn("Unable to process delivery pickup for order {}: {}", message.orderId(), ex.getReason());
-        }
+    @RabbitListener(
+            queues = "${store.queue.delivery-picked:delivery-picked}",
+            containerFactory = "batchRabbitListenerContainerFactory")
+    public void handleDeliveryPickups(List<Message<DeliveryPickupMessage>> messages) {
+        log.info("Received {} delivery pickups on queue {}", messages.size(), queueName);
+        // One transaction for the whole batch, outside the order mailbox (see OrderMailbox); a concurrent
+        // command on one of its orders surfaces as an optimistic-lock conflict and the batch is retried.
+        List<MessageInbox.Rejected<DeliveryPickupMessage>> rejected = optimisticRetry.call(
+                "Delivery pickups", queueName,
+                () -> inbox.processBatchRejecting(queueName, messages, orderSaga::handleDeliveryPickups));
+        // After the commit, so a failed republish only requeues messages whose claims were released.
+        retryAdvice.recoverRejected(queueName, rejected);
     }
 }
@@ -0,0 +1,132 @@
+package com.example.store.messaging;
+
+import com.example.contracts.codec.MessageTypes;
+import com.example.contracts.messaging.DeliveryDeliveredMessage;
+import com.example.contracts.messaging.DeliveryInTransitMessage;
+import com.example.contracts.messaging.DeliveryItemLostMessage;
+import com.example.contracts.messaging.DeliveryPickupMessage;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the delivery status stream and hands each event to the listener of the classic queue it
+ * replaces, so events are handled exactly as before, in the order deliveryco-service wrote them. A
+ * stream has no redelivery: an event whose handler fails is moved onto that classic queue's retry
+ * path (see {@link ListenerRetryAdvice#recover}) and the stream moves on. An event that cannot be
+ * converted is parked the same way, on the parking lot of the queue its type header names.
+ */
+@Component
+@ConditionalOnProperty(name = "store.delivery-status.stream.enabled", havingValue = "true")
+public class DeliveryStatusStreamListener {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryStatusStreamListener.class);
+
+    private final MessageConverter messageConverter;
+    private final ListenerRetryAdvice listenerRetryAdvice;
+    private final DeliveryPickupListener pickupListener;
+    private final DeliveryInTransitListener inTransitListener;
+    private final DeliveryDeliveredListener deliveredListener;
+    private final DeliveryItemLostListener itemLostListener;
+    private final String deliveryPickedQueueName;
+    private final String deliveryInTransitQueueName;
+    private final String deliveryDeliveredQueueName;
+    private final String deliveryLostQueueName;
+    private final Map<Class<?>, String> queuesByType;
+
+    public DeliveryStatusStreamListener(
+            MessageConverter messageConverter,
+            ListenerRetryAdvice listenerRetryAdvice,
+            DeliveryPickupListener pickupListener,
+            DeliveryInTransitListener inTransitListener,
+            DeliveryDeliveredListener deliveredListener,
+            DeliveryItemLostListener itemLostListener,
+            @Value("${store.queue.delivery-picked:delivery-picked}") String deliveryPickedQueueName,
+            @Value("${store.queue.delivery-in-transit:delivery-in-transit}") String deliveryInTransitQueueName,
+            @Value("${store.queue.delivery-delivered:delivery-delivered}") String deliveryDeliveredQueueName,
+            @Value("${store.queue.delivery-lost:delivery-lost}") String deliveryLostQueueName) {
+        this.messageConverter = messageConverter;
+        this.listenerRetryAdvice = listenerRetryAdvice;
+        this.pickupListener = pickupListener;
+        this.inTransitListener = inTransitListener;
+        this.deliveredListener = deliveredListener;
+        this.itemLostListener = itemLostListener;
+        this.deliveryPickedQueueName = deliveryPickedQueueName;
+        this.deliveryInTransitQueueName = deliveryInTransitQueueName;
+        this.deliveryDeliveredQueueName = deliveryDeliveredQueueName;
+        this.deliveryLostQueueName = deliveryLostQueueName;
+        this.queuesByType = Map.of(
+                DeliveryPickupMessage.class, deliveryPickedQueueName,
+                DeliveryInTransitMessage.class, deliveryInTransitQueueName,
+                DeliveryDeliveredMessage.class, deliveryDeliveredQueueName,
+                DeliveryItemLostMessage.class, deliveryLostQueueName);
+    }
+
+    @RabbitListener(
+            id = "delivery-status-stream",
+            queues = "${store.stream.delivery-status:delivery-status}",
+            containerFactory = "deliveryStatusStreamContainerFactory")
+    public void handleDeliveryStatus(Message message) {
+        Object payload;
+        try {
+            payload = messageConverter.fromMessage(message);
+        } catch (MessageConversionException ex) {
+            listenerRetryAdvice.recover(queueFor(message), message, ex);
+            return;
+        }
+        String messageId = message.getMessageProperties().getMessageId();
+        if (payload instanceof DeliveryPickupMessage pickup) {
+            handle(deliveryPickedQueueName, message,
+                    () -> pickupListener.handleDeliveryPickups(List.of(withMessageId(pickup, messageId))));
+        } else if (payload instanceof DeliveryInTransitMessage inTransit) {
+            handle(deliveryInTransitQueueName, message, () -> inTransitListener.handleDeliveryInTransitUpdates(
+                    List.of(withMessageId(inTransit, messageId))));
+        } else if (payload instanceof DeliveryDeliveredMessage delivered) {
+            handle(deliveryDeliveredQueueName, message,
+                    () -> deliveredListener.handleDeliveryDelivered(delivered, messageId));
+        } else if (payload instanceof DeliveryItemLostMessage itemLost) {
+            handle(deliveryLostQueueName, message, () -> itemLostListener.handleDeliveryItemLost(itemLost, messageId));
+        } else {
+            listenerRetryAdvice.recover(queueFor(message), message, new MessageConversionException(
+                    "Unexpected " + payload.getClass().getSimpleName() + " on the delivery status stream"));
+        }
+    }
+
+    /**
+     * The classic queue whose retry path takes {@code message}, going by its type header. A message
+     * of unknown type goes with the pickups, so it is parked rather than lost.
+     */
+    private String queueFor(Message message) {
+        Object typeName = message.getMessageProperties().getHeaders().get(MessageTypes.TYPE_HEADER);
+        Class<?> type = typeName instanceof String name ? MessageTypes.typeOf(name) : null;
+        String queue = type == null ? null : queuesByType.get(type);
+        if (queue == null) {
+            log.warn("No delivery status queue for message {} of type {}; using {}",
+                    message.getMessageProperties().getMessageId(), typeName, deliveryPickedQueueName);
+            return deliveryPickedQueueName;
+        }
+        return queue;
+    }
+
+    private static <T> org.springframework.messaging.Message<T> withMessageId(T payload, String messageId) {
+        return MessageBuilder.withPayload(payload).setHeader(AmqpHeaders.MESSAGE_ID, messageId).build();
+    }
+
+    private void handle(String queue, Message message, Runnable handler) {
+        try {
+            handler.run();
+        } catch (RuntimeException ex) {
+            listenerRetryAdvice.recover(queue, message, ex);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.store.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.amqp.support.SimpleAmqpHeaderMapper;
+import org.springframework.amqp.support.converter.MessagingMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.invocation.MethodArgumentResolutionException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Listener container advice that replaces broker requeue with delayed retries. When a listener
+ * throws, the message is republished to the next retry tier of its queue (see
+ * {@link ListenerRetryPolicy}) and the original delivery is acked, so a failing message waits out
+ * its backoff in the broker instead of spinning through immediate redeliveries. The delivery is only
+ * acked once the broker has confirmed the republish; otherwise it is requeued. Failures that can
+ * never succeed on retry (4xx {@link ResponseStatusException}s such as CONFLICT on a cancelled
+ * order, payload conversion errors) and messages out of attempts go to the parking-lot queue.
+ */
+@Component
+public class ListenerRetryAdvice implements MethodInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(ListenerRetryAdvice.class);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final ListenerRetryPolicy policy;
+    private final RabbitTemplate rabbitTemplate;
+    private final long confirmTimeoutMs;
+
+    public ListenerRetryAdvice(
+            ListenerRetryPolicy policy,
+            RabbitTemplate rabbitTemplate,
+            @Value("${store.listener.retry.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.policy = policy;
+        this.rabbitTemplate = rabbitTemplate;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        try {
+            return invocation.proceed();
+        } catch (Throwable ex) {
+            Object data = invocation.getArguments().length > 1 ? invocation.getArguments()[1] : null;
+            List<Message> messages = messages(data);
+            if (messages.isEmpty()) {
+                throw ex;
+            }
+            for (Message message : messages) {
+                if (!policy.isListenerQueue(message.getMessageProperties().getConsumerQueue())) {
+                    throw ex;
+                }
+            }
+            // A failed batch is retried as a whole; each message keeps its own attempt count.
+            List<Republish> republishes = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                republishes.add(republish(message.getMessageProperties().getConsumerQueue(), message, ex));
+            }
+            for (Republish republish : republishes) {
+                awaitConfirm(republish);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Moves a failed message onto the retry path of {@code queue}: its next retry tier, or the
+     * parking lot when the failure is not retryable or the message is out of attempts. Also used for
+     * messages consumed outside a listener container's advice chain, such as the delivery status
+     * stream's. Returns once the broker has confirmed the republish, so the caller may then ack the
+     * original delivery; throws {@link ImmediateRequeueAmqpException} if it was not confirmed.
+     */
+    public void recover(String queue, Message message, Throwable ex) {
+        awaitConfirm(republish(queue, message, ex));
+    }
+
+    /**
+     * {@link #recover(String, Message, Throwable)} for a message the listener received converted, such
+     * as one member of a batch it handled partly: the payload is converted back with the template's
+     * converter and sent with the message's AMQP headers.
+     */
+    public void recover(String queue, org.springframework.messaging.Message<?> message, Throwable ex) {
+        MessagingMessageConverter converter =
+                new MessagingMessageConverter(rabbitTemplate.getMessageConverter(), new SimpleAmqpHeaderMapper());
+        recover(queue, converter.toMessage(message, new MessageProperties()), ex);
+    }
+
+    /**
+     * Recovers the messages a batch handler turned down (see {@link MessageInbox#processBatchRejecting})
+     * with the reasons it gave, each on the queue it was consumed from, or {@code queue} if that is
+     * not known.
+     */
+    public <T> void recoverRejected(String queue, List<MessageInbox.Rejected<T>> rejected) {
+        for (MessageInbox.Rejected<T> rejection : rejected) {
+            String consumerQueue = rejection.message().getHeaders().get(AmqpHeaders.CONSUMER_QUEUE, String.class);
+            recover(consumerQueue != null ? consumerQueue : queue, rejection.message(), rejection.reason());
+        }
+    }
+
+    private Republish republish(String queue, Message message, Throwable ex) {
+        MessageProperties properties = message.getMessageProperties();
+        int attempts = attempts(properties) + 1;
+        Throwable cause = rootCause(ex);
+        properties.setHeader(ListenerRetryPolicy.ATTEMPTS_HEADER, attempts);
+        properties.setHeader(ListenerRetryPolicy.ERROR_HEADER, describe(cause));
+
+        String target;
+        if (!isRetryable(ex)) {
+            target = policy.parkingLotQueue(queue);
+            log.warn("Parking message from queue {} after non-retryable failure: {}", queue, describe(cause));
+        } else if (attempts >= policy.maxAttempts()) {
+            target = policy.parkingLotQueue(queue);
+            log.warn("Parking message from queue {} after {} attempts: {}", queue, attempts, describe(cause));
+        } else {
+            target = policy.retryQueue(queue, attempts);
+            log.info("Retrying message from queue {} in {} ms (attempt {} of {}): {}",
+                    queue, policy.delayMs(attempts), attempts, policy.maxAttempts(), describe(cause));
+        }
+
+        CorrelationData correlation = new CorrelationData();
+        try {
+            // The retry and parking-lot queues are bound to the default exchange by name.
+            rabbitTemplate.send("", target, message, correlation);
+        } catch (RuntimeException sendEx) {
+            log.error("Unable to move message from queue {} to {}; requeueing", queue, target, sendEx);
+            throw new ImmediateRequeueAmqpException("Retry republish failed", sendEx);
+        }
+        return new Republish(queue, target, correlation);
+    }
+
+    private void awaitConfirm(Republish republish) {
+        String failure;
+        try {
+            CorrelationData.Confirm confirm = republish.correlation().getFuture()
+                    .get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!confirm.isAck()) {
+                failure = "nacked: " + confirm.getReason();
+            } else if (republish.correlation().getReturned() != null) {
+                failure = "returned: " + republish.correlation().getReturned().getReplyText();
+            } else {
+                return;
+            }
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            failure = "interrupted";
+        } catch (ExecutionException | TimeoutException confirmEx) {
+            failure = "not confirmed within " + confirmTimeoutMs + " ms";
+        }
+        log.error("Republish from queue {} to {} {}; requeueing", republish.queue(), republish.target(), failure);
+        throw new ImmediateRequeueAmqpException("Retry republish " + failure);
+    }
+
+    private static List<Message> messages(Object data) {
+        if (data instanceof Message message) {
+            return List.of(message);
+        }
+        List<Message> messages = new ArrayList<>();
+        if (data instanceof List<?> list) {
+            for (Object item : list) {
+                if (!(item instanceof Message message)) {
+                    return List.of();
+                }
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    private static int attempts(MessageProperties properties) {
+        Object value = properties.getHeaders().get(ListenerRetryPolicy.ATTEMPTS_HEADER);
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString());
+            } catch (NumberFormatException ignored) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isRetryable(Throwable ex) {
+        for (Throwable current = ex; current != null; current = current.getCause()) {
+            if (current instanceof AmqpRejectAndDontRequeueException
+                    || current instanceof org.springframework.amqp.support.converter.MessageConversionException
+                    || current instanceof org.springframework.messaging.converter.MessageConversionException
+                    || current instanceof MethodArgumentResolutionException) {
+                return false;
+            }
+            if (current instanceof ResponseStatusException statusEx) {
+                return !statusEx.getStatusCode().is4xxClientError();
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private static Throwable rootCause(Throwable ex) {
+        Throwable current = ex;
+        while (current.getCause() != null && current.getCause() != current) {
+            if (current instanceof ResponseStatusException) {
+                return current;
+            }
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    private static String describe(Throwable ex) {
+        String text = ex.getClass().getSimpleName() + ": "
+                + (ex instanceof ResponseStatusException statusEx ? statusEx.getReason() : ex.getMessage());
+        return text.length() > MAX_ERROR_LENGTH ? text.substring(0, MAX_ERROR_LENGTH) : text;
+    }
+
+    private record Republish(String queue, String target, CorrelationData correlation) {
+    }
+}
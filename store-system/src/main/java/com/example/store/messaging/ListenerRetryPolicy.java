@@ -0,0 +1,108 @@
+package com.example.store.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retry topology for the queues store-system consumes. A failed message is republished to
+ * {@code <queue>.retry.<delay>ms}, whose queue TTL dead-letters it back to {@code <queue>} through
+ * the default exchange once the backoff for its attempt has elapsed. After {@code max-attempts}
+ * deliveries, or straight away for a non-retryable failure, it goes to {@code <queue>.parking-lot}.
+ */
+@Component
+public class ListenerRetryPolicy {
+
+    public static final String ATTEMPTS_HEADER = "x-retry-attempts";
+    public static final String ERROR_HEADER = "x-retry-last-error";
+
+    private final List<String> listenerQueues;
+    private final int maxAttempts;
+    private final long initialDelayMs;
+    private final double multiplier;
+    private final long maxDelayMs;
+
+    public ListenerRetryPolicy(
+            OrderPartitioning partitioning,
+            @Value("${store.queue.order-placed:order-placed}") String orderPlacedQueueName,
+            @Value("${store.queue.order-allocated:order-allocated}") String orderAllocatedQueueName,
+            @Value("${store.queue.payment-result:payment-result}") String paymentResultQueueName,
+            @Value("${store.queue.payment-refund-result:payment-refund-result}") String paymentRefundResultQueueName,
+            @Value("${store.queue.delivery-ack:delivery-ack}") String deliveryAckQueueName,
+            @Value("${store.queue.delivery-picked:delivery-picked}") String deliveryPickedQueueName,
+            @Value("${store.queue.delivery-in-transit:delivery-in-transit}") String deliveryInTransitQueueName,
+            @Value("${store.queue.delivery-delivered:delivery-delivered}") String deliveryDeliveredQueueName,
+            @Value("${store.queue.delivery-lost:delivery-lost}") String deliveryLostQueueName,
+            @Value("${store.listener.retry.max-attempts:4}") int maxAttempts,
+            @Value("${store.listener.retry.initial-delay-ms:1000}") long initialDelayMs,
+            @Value("${store.listener.retry.multiplier:4.0}") double multiplier,
+            @Value("${store.listener.retry.max-delay-ms:60000}") long maxDelayMs) {
+        List<String> queues = new ArrayList<>(List.of(
+                orderPlacedQueueName,
+                orderAllocatedQueueName,
+                paymentResultQueueName,
+                paymentRefundResultQueueName,
+                deliveryAckQueueName,
+                deliveryPickedQueueName,
+                deliveryInTransitQueueName,
+                deliveryDeliveredQueueName,
+                deliveryLostQueueName));
+        // Partition queues retry back to themselves, so each gets its own retry tiers.
+        queues.addAll(partitioning.partitionQueues(orderPlacedQueueName));
+        queues.addAll(partitioning.partitionQueues(paymentResultQueueName));
+        this.listenerQueues = List.copyOf(queues);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialDelayMs = Math.max(1, initialDelayMs);
+        this.multiplier = Math.max(1.0, multiplier);
+        this.maxDelayMs = Math.max(this.initialDelayMs, maxDelayMs);
+    }
+
+    public List<String> listenerQueues() {
+        return listenerQueues;
+    }
+
+    public boolean isListenerQueue(String queue) {
+        return queue != null && listenerQueues.contains(queue);
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /** Number of retry tiers per queue; the first delivery is not a retry. */
+    public int retryTiers() {
+        return maxAttempts - 1;
+    }
+
+    public long delayMs(int tier) {
+        double delay = initialDelayMs * Math.pow(multiplier, tier - 1);
+        return (long) Math.min(delay, maxDelayMs);
+    }
+
+    /**
+     * Names the tier by its delay: the broker refuses to redeclare a queue with a different TTL, so a
+     * changed backoff declares new tiers instead of failing on the existing ones.
+     */
+    public String retryQueue(String queue, int tier) {
+        return queue + ".retry." + delayMs(tier) + "ms";
+    }
+
+    public String parkingLotQueue(String queue) {
+        return queue + ".parking-lot";
+    }
+
+    /** Strips retry bookkeeping so a re-driven message starts over with a full set of attempts. */
+    public void clearRetryHeaders(Map<String, Object> headers) {
+        headers.remove(ATTEMPTS_HEADER);
+        headers.remove(ERROR_HEADER);
+        headers.remove("x-death");
+        headers.remove("x-first-death-exchange");
+        headers.remove("x-first-death-queue");
+        headers.remove("x-first-death-reason");
+        headers.remove("x-last-death-exchange");
+        headers.remove("x-last-death-queue");
+        headers.remove("x-last-death-reason");
+    }
+}
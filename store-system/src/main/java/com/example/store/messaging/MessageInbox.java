@@ -0,0 +1,253 @@
+package com.example.store.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Idempotent consumer for store-system's listeners. A message is handled in a transaction that
+ * first claims its AMQP {@code message_id} for the consumer in the {@code inbox} table, so the
+ * handler's effects commit exactly once per message: a redelivered or republished duplicate finds
+ * the row and is skipped. Producers set ids that are stable across re-sends (see
+ * {@code ConfirmWindow} and bank-service); messages without one are handled without deduplication.
+ *
+ * <p>In front of the table, ids committed on this node are kept in a recent-id LRU
+ * ({@code store.inbox.recent-ids}); a hit there is skipped without touching the database, anything
+ * else goes to the claim. The LRU is filled after commit, so a rolled-back claim is never taken for
+ * a duplicate, and it is not needed for correctness: the claim decides.
+ */
+@Component
+public class MessageInbox {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageInbox.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Boolean> recent;
+    private final int retentionDays;
+    private final Counter recentHits;
+    private final Counter claimConflicts;
+
+    public MessageInbox(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${store.inbox.recent-ids:10000}") int recentIds,
+            @Value("${store.inbox.retention-days:7}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        int capacity = Math.max(1, recentIds);
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        });
+        this.retentionDays = Math.max(1, retentionDays);
+        this.recentHits = duplicates(meterRegistry, "recent");
+        this.claimConflicts = duplicates(meterRegistry, "claim");
+    }
+
+    /**
+     * Runs {@code handler} in a transaction with the claim of {@code messageId} for {@code consumer},
+     * unless the message was already handled. An exception from the handler rolls back both.
+     */
+    public void process(String consumer, String messageId, Runnable handler) {
+        if (messageId == null) {
+            handler.run();
+            return;
+        }
+        String key = key(consumer, messageId);
+        if (recent.get(key) != null) {
+            recentHits.increment();
+            log.info("Skipping duplicate message {} for {}", messageId, consumer);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!claim(consumer, messageId)) {
+                claimConflicts.increment();
+                remember(key);
+                log.info("Skipping duplicate message {} for {}", messageId, consumer);
+                return;
+            }
+            rememberAfterCommit(List.of(key));
+            handler.run();
+        });
+    }
+
+    /**
+     * Batch counterpart of {@link #process}: claims every message in one transaction and passes the
+     * payloads of those not handled before to {@code handler}, in their original order.
+     */
+    public <T> void processBatch(String consumer, List<Message<T>> messages, Consumer<List<T>> handler) {
+        processBatchRejecting(consumer, messages, payloads -> {
+            handler.accept(payloads);
+            return Map.of();
+        });
+    }
+
+    /**
+     * {@link #processBatch} for handlers that turn down some payloads without failing the batch:
+     * {@code handler} returns the reason for each payload it rejected, keyed by the payload's
+     * position in the list it was given. Their claims are dropped again before the transaction
+     * commits, so a redelivery of those messages (or a redrive from the parking lot) is handled
+     * rather than skipped, and the rejected messages are returned for the caller to route.
+     */
+    public <T> List<Rejected<T>> processBatchRejecting(
+            String consumer,
+            List<Message<T>> messages,
+            Function<List<T>, ? extends Map<Integer, ? extends RuntimeException>> handler) {
+        return transactionTemplate.execute(status -> {
+            List<String> candidates = new ArrayList<>();
+            for (Message<T> message : messages) {
+                String messageId = messageId(message);
+                if (messageId != null && recent.get(key(consumer, messageId)) == null) {
+                    candidates.add(messageId);
+                }
+            }
+            Set<String> claimed = claimAll(consumer, candidates);
+            List<Message<T>> accepted = new ArrayList<>(messages.size());
+            for (Message<T> message : messages) {
+                String messageId = messageId(message);
+                if (messageId == null || claimed.remove(messageId)) {
+                    accepted.add(message);
+                } else {
+                    log.info("Skipping duplicate message {} for {}", messageId, consumer);
+                }
+            }
+            if (accepted.size() < messages.size()) {
+                claimConflicts.increment(messages.size() - accepted.size());
+            }
+            if (accepted.isEmpty()) {
+                return List.of();
+            }
+            Map<Integer, ? extends RuntimeException> reasons =
+                    handler.apply(accepted.stream().map(Message::getPayload).toList());
+            List<Rejected<T>> rejected = new ArrayList<>();
+            List<String> released = new ArrayList<>();
+            List<String> keys = new ArrayList<>(accepted.size());
+            for (int i = 0; i < accepted.size(); i++) {
+                Message<T> message = accepted.get(i);
+                String messageId = messageId(message);
+                RuntimeException reason = reasons.get(i);
+                if (reason != null) {
+                    rejected.add(new Rejected<>(message, reason));
+                    if (messageId != null) {
+                        released.add(messageId);
+                    }
+                } else if (messageId != null) {
+                    keys.add(key(consumer, messageId));
+                }
+            }
+            release(consumer, released);
+            rememberAfterCommit(keys);
+            return rejected;
+        });
+    }
+
+    /**
+     * Drops inbox rows older than {@code store.inbox.retention-days}. A message redelivered after
+     * that (e.g. redriven from a parking lot much later) is handled again.
+     */
+    @Scheduled(cron = "${store.inbox.cleanup-cron:0 45 0 * * *}")
+    public void purgeExpired() {
+        int deleted = jdbcTemplate.update("DELETE FROM inbox WHERE received_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+        if (deleted > 0) {
+            log.info("Purged {} inbox rows older than {} days", deleted, retentionDays);
+        }
+    }
+
+    // Waits for an uncommitted claim of the same id by another transaction and fails if it commits.
+    private boolean claim(String consumer, String messageId) {
+        return jdbcTemplate.update(
+                "INSERT INTO inbox (consumer, message_id, received_at) VALUES (?, ?, ?) ON CONFLICT DO NOTHING",
+                consumer, messageId, Timestamp.valueOf(LocalDateTime.now())) == 1;
+    }
+
+    private Set<String> claimAll(String consumer, List<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<String> claimed = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO inbox (consumer, message_id, received_at) "
+                            + "SELECT ?, id, ? FROM unnest(?) AS id "
+                            + "ON CONFLICT DO NOTHING RETURNING message_id");
+            statement.setString(1, consumer);
+            statement.setTimestamp(2, now);
+            statement.setArray(3, connection.createArrayOf("varchar", messageIds.toArray()));
+            return statement;
+        }, (rs, rowNum) -> rs.getString(1));
+        return new HashSet<>(claimed);
+    }
+
+    private void release(String consumer, List<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM inbox WHERE consumer = ? AND message_id = ?",
+                messageIds.stream().map(messageId -> new Object[] {consumer, messageId}).toList());
+    }
+
+    private void rememberAfterCommit(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                keys.forEach(MessageInbox.this::remember);
+            }
+        });
+    }
+
+    private void remember(String key) {
+        recent.put(key, Boolean.TRUE);
+    }
+
+    private static String messageId(Message<?> message) {
+        return message.getHeaders().get(AmqpHeaders.MESSAGE_ID, String.class);
+    }
+
+    private static String key(String consumer, String messageId) {
+        return consumer + '\u0000' + messageId;
+    }
+
+    private static Counter duplicates(MeterRegistry meterRegistry, String detectedBy) {
+        return Counter.builder("store.inbox.duplicates")
+                .description("Duplicate messages skipped by the inbox")
+                .tag("detected_by", detectedBy)
+                .register(meterRegistry);
+    }
+
+    /** A message a batch handler turned down, with the reason it gave. */
+    public record Rejected<T>(Message<T> message, RuntimeException reason) {
+    }
+}
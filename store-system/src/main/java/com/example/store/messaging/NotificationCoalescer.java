@@ -0,0 +1,129 @@
+package com.example.store.messaging;
+
+import com.example.contracts.messaging.NotificationDigestEmailMessage;
+import com.example.store.model.OutboxEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional relay stage that merges the burst of EMAIL outbox events an order produces into one
+ * {@link NotificationDigestEmailMessage}. With {@code store.outbox.coalesce.enabled}, an EMAIL row is
+ * held back until it is {@code store.outbox.coalesce.window-ms} old; when it is published, every
+ * other due EMAIL row of the same order is published with it in one digest.
+ */
+@Component
+public class NotificationCoalescer {
+
+    public static final String AGGREGATE_TYPE = "EMAIL";
+    public static final String DIGEST_EVENT_TYPE = "NotificationDigest";
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long windowMs;
+
+    public NotificationCoalescer(
+            ObjectMapper objectMapper,
+            @Value("${store.outbox.coalesce.enabled:false}") boolean enabled,
+            @Value("${store.outbox.coalesce.window-ms:5000}") long windowMs) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Aggregate type whose rows are held back by the claim queries, or {@code ""} when disabled.
+     */
+    public String heldAggregateType() {
+        return enabled ? AGGREGATE_TYPE : "";
+    }
+
+    /**
+     * Rows of the held aggregate type created after this are not claimed yet.
+     */
+    public LocalDateTime holdCutoff(LocalDateTime now) {
+        return now.minusNanos(windowMs * 1_000_000);
+    }
+
+    /**
+     * When a saved event can first be published, taking the coalescing window into account.
+     */
+    public LocalDateTime dueAt(OutboxEventSaved saved) {
+        LocalDateTime dueAt = saved.publishAt();
+        if (enabled && AGGREGATE_TYPE.equals(saved.aggregateType()) && saved.createdAt() != null) {
+            LocalDateTime windowEnd = saved.createdAt().plusNanos(windowMs * 1_000_000);
+            if (dueAt == null || windowEnd.isAfter(dueAt)) {
+                dueAt = windowEnd;
+            }
+        }
+        return dueAt;
+    }
+
+    /**
+     * Replaces every group of two or more EMAIL events with the same aggregate id by a single digest
+     * event. The digest takes the id of the group's first event; {@code members} receives the ids
+     * each digest stands for so the caller can delete all of them once it is confirmed.
+     */
+    public List<OutboxEvent> coalesce(List<OutboxEvent> events, Map<Integer, List<Integer>> members) {
+        Map<Integer, List<OutboxEvent>> groups = new LinkedHashMap<>();
+        List<OutboxEvent> result = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            if (AGGREGATE_TYPE.equals(event.getAggregateType()) && event.getPayload() != null) {
+                groups.computeIfAbsent(event.getAggregateId(), key -> new ArrayList<>()).add(event);
+            } else {
+                result.add(event);
+            }
+        }
+        for (List<OutboxEvent> group : groups.values()) {
+            if (group.size() == 1) {
+                result.add(group.get(0));
+            } else {
+                OutboxEvent digest = toDigest(group);
+                members.put(digest.getId(), group.stream().map(OutboxEvent::getId).toList());
+                result.add(digest);
+            }
+        }
+        return result;
+    }
+
+    private OutboxEvent toDigest(List<OutboxEvent> group) {
+        OutboxEvent first = group.get(0);
+        ObjectNode digest = objectMapper.createObjectNode();
+        digest.put("orderId", first.getAggregateId());
+        digest.put("correlationId", first.getCorrelationId());
+        ArrayNode notifications = digest.putArray("notifications");
+        for (OutboxEvent event : group) {
+            ObjectNode notification = notifications.addObject();
+            notification.put("type", event.getEventType());
+            notification.putRawValue("payload", new RawValue(event.getPayload()));
+        }
+
+        OutboxEvent event = new OutboxEvent();
+        event.setId(first.getId());
+        event.setAggregateType(AGGREGATE_TYPE);
+        event.setAggregateId(first.getAggregateId());
+        event.setEventType(DIGEST_EVENT_TYPE);
+        event.setCorrelationId(first.getCorrelationId());
+        event.setCreatedAt(first.getCreatedAt());
+        event.setHopCount(first.getHopCount());
+        try {
+            event.setPayload(objectMapper.writeValueAsString(digest));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialise notification digest", ex);
+        }
+        return event;
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.store.messaging;
 
+import com.example.contracts.messaging.OrderAllocatedMessage;
+import com.example.store.service.OptimisticRetryExecutor;
+import com.example.store.service.OrderMailbox;
 import com.example.store.service.OrderSaga;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
 
 @Component
 public class OrderAllocationListener {
@@ -14,22 +18,31 @@ public class OrderAllocationListener {
     private static final Logger log = LoggerFactory.getLogger(OrderAllocationListener.class);
 
     private final OrderSaga orderSaga;
+    private final OrderMailbox mailbox;
+    private final OptimisticRetryExecutor optimisticRetry;
+    private final MessageInbox inbox;
     private final String queueName;
 
     public OrderAllocationListener(
-            OrderSaga orderSaga, @Value("${store.queue.order-allocated:order-allocated}") String queueName) {
+            OrderSaga orderSaga,
+            OrderMailbox mailbox,
+            OptimisticRetryExecutor optimisticRetry,
+            MessageInbox inbox,
+            @Value("${store.queue.order-allocated:order-allocated}") String queueName) {
         this.orderSaga = orderSaga;
+        this.mailbox = mailbox;
+        this.optimisticRetry = optimisticRetry;
+        this.inbox = inbox;
         this.queueName = queueName;
     }
 
     @RabbitListener(queues = "${store.queue.order-allocated:order-allocated}")
-    public void handleOrderAllocated(OrderAllocatedMessage message) {
+    public void handleOrderAllocated(
+            OrderAllocatedMessage message,
+            @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId) {
         Integer orderId = message.orderId();
         log.info("Received OrderAllocated message from queue {} for order {}", queueName, orderId);
-        try {
-            orderSaga.requestPayment(orderId);
-        } catch (ResponseStatusException ex) {
-            log.warn("Unable to request payment for order {}: {}", orderId, ex.getReason());
-        }
+        mailbox.run(orderId, () -> optimisticRetry.run("Order allocated", orderId,
+                () -> inbox.process(queueName, messageId, () -> orderSaga.requestPayment(orderId))));
     }
 }
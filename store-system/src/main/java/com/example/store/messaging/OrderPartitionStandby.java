@@ -0,0 +1,67 @@
+package com.example.store.messaging;
+
+import com.example.contracts.transport.InMemoryListenerContainer;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Subscribes the partitioned listeners to the partitions this node does not own, once
+ * {@code store.partition.standby-delay-ms} has passed. By then the owners have registered their
+ * consumers, so the single-active-consumer queues stay with them and this node only becomes active
+ * on a partition when its owner disconnects.
+ */
+@Component
+public class OrderPartitionStandby {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderPartitionStandby.class);
+
+    private final OrderPartitioning partitioning;
+    private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final Map<String, String> listenerQueues;
+    private volatile boolean subscribed;
+
+    public OrderPartitionStandby(
+            OrderPartitioning partitioning,
+            RabbitListenerEndpointRegistry listenerRegistry,
+            @Value("${store.queue.order-placed:order-placed}") String orderPlacedQueueName,
+            @Value("${store.queue.payment-result:payment-result}") String paymentResultQueueName) {
+        this.partitioning = partitioning;
+        this.listenerRegistry = listenerRegistry;
+        this.listenerQueues = Map.of(
+                OrderWorkflowListener.LISTENER_ID, orderPlacedQueueName,
+                PaymentResultListener.LISTENER_ID, paymentResultQueueName);
+    }
+
+    @Scheduled(
+            initialDelayString = "${store.partition.standby-delay-ms:30000}",
+            fixedDelayString = "${store.partition.standby-delay-ms:30000}")
+    public void subscribeStandbyPartitions() {
+        if (subscribed || !partitioning.isEnabled()) {
+            return;
+        }
+        listenerQueues.forEach((listenerId, queue) -> {
+            String[] standby = partitioning.standbyQueues(queue);
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+            if (standby.length == 0) {
+                return;
+            }
+            if (container instanceof AbstractMessageListenerContainer listener) {
+                listener.addQueueNames(standby);
+            } else if (container instanceof InMemoryListenerContainer listener) {
+                listener.addQueueNames(standby);
+            } else {
+                return;
+            }
+            log.info("Listener {} is standby for partitions {}", listenerId, List.of(standby));
+        });
+        subscribed = true;
+    }
+}
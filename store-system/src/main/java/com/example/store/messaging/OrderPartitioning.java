@@ -0,0 +1,105 @@
+package com.example.store.messaging;
+
+import com.example.contracts.outbox.OutboxRoute;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Splits the per-order queues ({@code order-placed}, {@code payment-result}) into
+ * {@code store.partition.count} partition queues {@code <queue>.<p>}, with
+ * {@code p = orderId mod count}, so every event of an order lands in the same partition of each
+ * queue. Partition queues are single-active-consumer: the broker delivers each to one consumer at
+ * a time, and {@code p} is owned by the node whose {@code store.partition.node-index} equals
+ * {@code p mod store.partition.nodes}. Each node also subscribes to the partitions it does not own
+ * once {@code store.partition.standby-delay-ms} has passed, as a standby that takes over when the
+ * owner goes away. A count of 0 keeps the plain queues.
+ */
+@Component("orderPartitioning")
+public class OrderPartitioning {
+
+    private final int count;
+    private final int nodes;
+    private final int nodeIndex;
+
+    public OrderPartitioning(
+            @Value("${store.partition.count:0}") int count,
+            @Value("${store.partition.nodes:1}") int nodes,
+            @Value("${store.partition.node-index:0}") int nodeIndex) {
+        if (nodes < 1 || nodeIndex < 0 || nodeIndex >= nodes) {
+            throw new IllegalArgumentException(
+                    "store.partition.node-index must be between 0 and store.partition.nodes - 1");
+        }
+        this.count = Math.max(0, count);
+        this.nodes = nodes;
+        this.nodeIndex = nodeIndex;
+    }
+
+    public boolean isEnabled() {
+        return count > 0;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public static int partitionOf(int orderId, int count) {
+        return OutboxRoute.partitionOf(orderId, count);
+    }
+
+    public static String partitionQueue(String queue, int partition) {
+        return OutboxRoute.partitionQueue(queue, partition);
+    }
+
+    public List<String> partitionQueues(String queue) {
+        List<String> queues = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            queues.add(partitionQueue(queue, p));
+        }
+        return queues;
+    }
+
+    /**
+     * Queues this node consumes from startup: its own partitions, plus the plain queue on node 0 so
+     * messages published before partitioning was switched on are still drained.
+     */
+    public String[] ownedQueues(String queue) {
+        if (!isEnabled()) {
+            return new String[] {queue};
+        }
+        List<String> queues = new ArrayList<>();
+        if (nodeIndex == 0) {
+            queues.add(queue);
+        }
+        for (int p = 0; p < count; p++) {
+            if (p % nodes == nodeIndex) {
+                queues.add(partitionQueue(queue, p));
+            }
+        }
+        return queues.toArray(String[]::new);
+    }
+
+    public String[] standbyQueues(String queue) {
+        if (!isEnabled()) {
+            return new String[0];
+        }
+        List<String> queues = new ArrayList<>();
+        for (int p = 0; p < count; p++) {
+            if (p % nodes != nodeIndex) {
+                queues.add(partitionQueue(queue, p));
+            }
+        }
+        return queues.toArray(String[]::new);
+    }
+
+    /** Maps a partition queue name back to the queue it partitions, e.g. for per-queue settings. */
+    public String baseQueue(String queue) {
+        int dot = queue.lastIndexOf('.');
+        if (!isEnabled() || dot < 0) {
+            return queue;
+        }
+        String suffix = queue.substring(dot + 1);
+        return !suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit) ? queue.substring(0, dot) : queue;
+    }
+}
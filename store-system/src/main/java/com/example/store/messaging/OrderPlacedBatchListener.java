@@ -0,0 +1,77 @@
+package com.example.store.messaging;
+
+import com.example.contracts.messaging.OrderPlacedMessage;
+import com.example.store.service.OptimisticRetryExecutor;
+import com.example.store.service.OrderSaga;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Batch allocation mode for flash sales: drains up to {@code store.listener.order-placed.batch-size}
+ * placed orders and allocates them in a single transaction (see {@link OrderSaga#reserveStockBatch}).
+ *
+ * <p>Unlike the other batch listeners the batch is not split across the order mailbox: every order
+ * competes for the same hot stock rows, so one transaction taking them once beats one per stripe
+ * queueing on each other's row locks. A concurrent command on one of the orders, such as a cancel,
+ * surfaces as an optimistic-lock conflict and the whole batch, inbox claims included, is retried.
+ *
+ * <p>An order the batch could not allocate (missing, in the wrong state or short of stock) goes to
+ * the parking lot through {@link ListenerRetryAdvice#recover}, as it would on the single-order path,
+ * and its inbox claim is released so the redriven message is handled again.
+ */
+@Component
+@ConditionalOnProperty(name = "store.allocation.batch.enabled", havingValue = "true")
+public class OrderPlacedBatchListener {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderPlacedBatchListener.class);
+
+    private final OrderSaga orderSaga;
+    private final OptimisticRetryExecutor optimisticRetry;
+    private final MessageInbox inbox;
+    private final ListenerRetryAdvice retryAdvice;
+    private final String queueName;
+
+    public OrderPlacedBatchListener(
+            OrderSaga orderSaga,
+            OptimisticRetryExecutor optimisticRetry,
+            MessageInbox inbox,
+            ListenerRetryAdvice retryAdvice,
+            @Value("${store.queue.order-placed:order-placed}") String queueName) {
+        this.orderSaga = orderSaga;
+        this.optimisticRetry = optimisticRetry;
+        this.inbox = inbox;
+        this.retryAdvice = retryAdvice;
+        this.queueName = queueName;
+    }
+
+    @RabbitListener(
+            id = OrderWorkflowListener.LISTENER_ID,
+            queues = "#{@orderPartitioning.ownedQueues('${store.queue.order-placed:order-placed}')}",
+            containerFactory = "batchRabbitListenerContainerFactory")
+    public void handleOrdersPlaced(List<Message<OrderPlacedMessage>> messages) {
+        log.info("Received {} OrderPlaced messages from queue {}", messages.size(), queueName);
+        List<MessageInbox.Rejected<OrderPlacedMessage>> rejected = optimisticRetry.call(
+                "Batch allocation", queueName, () -> inbox.processBatchRejecting(queueName, messages, payloads -> {
+                    Map<Integer, ResponseStatusException> errors = orderSaga.reserveStockBatch(payloads);
+                    Map<Integer, ResponseStatusException> rejectedPayloads = new HashMap<>();
+                    for (int i = 0; i < payloads.size(); i++) {
+                        ResponseStatusException error = errors.get(payloads.get(i).orderId());
+                        if (error != null) {
+                            rejectedPayloads.put(i, error);
+                        }
+                    }
+                    return rejectedPayloads;
+                }));
+        // After the commit, so a failed republish only requeues messages whose claims were released.
+        retryAdvice.recoverRejected(queueName, rejected);
+    }
+}
@@ -1,29 +1,58 @@
 package com.example.store.messaging;
 
+import com.example.contracts.messaging.OrderPlacedMessage;
+import com.example.store.service.OptimisticRetryExecutor;
+import com.example.store.service.OrderMailbox;
 import com.example.store.service.OrderSaga;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+/**
+ * Allocates placed orders one message at a time. With {@code store.allocation.batch.enabled} the
+ * {@link OrderPlacedBatchListener} consumes the queue instead, under the same listener id.
+ */
 @Component
+@ConditionalOnProperty(name = "store.allocation.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class OrderWorkflowListener {
 
+    public static final String LISTENER_ID = "order-placed-listener";
+
     private static final Logger log = LoggerFactory.getLogger(OrderWorkflowListener.class);
 
     private final OrderSaga orderSaga;
+    private final OrderMailbox mailbox;
+    private final OptimisticRetryExecutor optimisticRetry;
+    private final MessageInbox inbox;
     private final String queueName;
 
-    public OrderWorkflowListener(OrderSaga orderSaga, @Value("${store.queue.order-placed:order-placed}") String queueName) {
+    public OrderWorkflowListener(
+            OrderSaga orderSaga,
+            OrderMailbox mailbox,
+            OptimisticRetryExecutor optimisticRetry,
+            MessageInbox inbox,
+            @Value("${store.queue.order-placed:order-placed}") String queueName) {
         this.orderSaga = orderSaga;
+        this.mailbox = mailbox;
+        this.optimisticRetry = optimisticRetry;
+        this.inbox = inbox;
         this.queueName = queueName;
     }
 
-    @RabbitListener(queues = "${store.queue.order-placed:order-placed}")
-    public void handleOrderPlaced(OrderPlacedMessage message) {
+    @RabbitListener(
+            id = LISTENER_ID,
+            queues = "#{@orderPartitioning.ownedQueues('${store.queue.order-placed:order-placed}')}")
+    public void handleOrderPlaced(
+            OrderPlacedMessage message,
+            @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId) {
         Integer orderId = message.orderId();
         log.info("Received OrderPlaced message from queue {} for order {}", queueName, orderId);
-        orderSaga.reserveStock(orderId);
+        mailbox.run(orderId, () -> optimisticRetry.run("Order placed", orderId,
+                () -> inbox.process(queueName, messageId, () -> orderSaga.reserveStock(orderId))));
     }
 }
@@ -0,0 +1,116 @@
+package com.example.store.messaging;
+
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.store.repository.OutboxEventRepo;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Publishes outbox events whose {@code publishAt} lies in the future (e.g. the delayed
+ * OrderReadyForPickup) when they fall due, from an in-memory {@link TimingWheel}. The wheel is
+ * rebuilt from the table on startup and then fed by {@link OutboxEventSaved}, so the database is only
+ * touched when an event actually fires. A row deleted in the meantime (a cancelled order) is simply
+ * not found when its timer fires. EMAIL rows held back by {@link NotificationCoalescer} are fired the
+ * same way once their window closes. The poller remains the fallback for anything this misses.
+ */
+@Component
+@ConditionalOnProperty(name = "store.outbox.delay.wheel.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxDelayScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDelayScheduler.class);
+
+    private final OutboxEventRepo outboxEventRepo;
+    private final OutboxRelay outboxRelay;
+    private final OutboxRouteRegistry routeRegistry;
+    private final NotificationCoalescer coalescer;
+    private final long tickMs;
+    private final int batchSize;
+    private final TimingWheel<Integer> wheel;
+    private final List<Integer> overdueEventIds = new ArrayList<>();
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("outbox-delay-"));
+
+    public OutboxDelayScheduler(
+            OutboxEventRepo outboxEventRepo,
+            OutboxRelay outboxRelay,
+            OutboxRouteRegistry routeRegistry,
+            NotificationCoalescer coalescer,
+            @Value("${store.outbox.delay.wheel.tick-ms:1000}") long tickMs,
+            @Value("${store.outbox.delay.wheel.size:64}") int wheelSize,
+            @Value("${store.outbox.claim.batch-size:100}") int batchSize) {
+        this.outboxEventRepo = outboxEventRepo;
+        this.outboxRelay = outboxRelay;
+        this.routeRegistry = routeRegistry;
+        this.coalescer = coalescer;
+        this.tickMs = Math.max(1, tickMs);
+        this.batchSize = Math.max(1, batchSize);
+        this.wheel = new TimingWheel<>(this.tickMs, wheelSize, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEventSaved> delayed = outboxEventRepo.findDelayed(
+                routeRegistry.aggregateTypes(), now, coalescer.heldAggregateType(), coalescer.holdCutoff(now));
+        delayed.forEach(this::schedule);
+        log.info("Loaded {} delayed outbox events into the timing wheel", delayed.size());
+        executor.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOutboxEventSaved(OutboxEventSaved saved) {
+        LocalDateTime dueAt = coalescer.dueAt(saved);
+        if (saved.eventId() != null && dueAt != null && dueAt.isAfter(LocalDateTime.now())) {
+            schedule(saved);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(OutboxEventSaved saved) {
+        long deadlineMs = coalescer.dueAt(saved).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        synchronized (wheel) {
+            if (!wheel.add(saved.eventId(), deadlineMs)) {
+                // Already due by the time it got here; the next tick publishes it.
+                overdueEventIds.add(saved.eventId());
+            }
+        }
+    }
+
+    private void tick() {
+        List<Integer> dueEventIds;
+        synchronized (wheel) {
+            dueEventIds = new ArrayList<>(overdueEventIds);
+            overdueEventIds.clear();
+            wheel.advance(System.currentTimeMillis(), dueEventIds::add);
+        }
+        for (int from = 0; from < dueEventIds.size(); from += batchSize) {
+            List<Integer> eventIds = dueEventIds.subList(from, Math.min(from + batchSize, dueEventIds.size()));
+            try {
+                outboxRelay.publishEvents(eventIds);
+            } catch (Exception ex) {
+                // The rows are still in the outbox; the poller will pick them up.
+                log.warn("Publishing delayed outbox events {} failed: {}", eventIds, ex.getMessage());
+            }
+        }
+    }
+}
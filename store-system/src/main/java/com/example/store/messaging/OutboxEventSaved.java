@@ -0,0 +1,17 @@
+package com.example.store.messaging;
+
+import com.example.store.model.OutboxEvent;
+import java.time.LocalDateTime;
+
+/**
+ * Application event raised by outbox writers after saving an {@link OutboxEvent}. It is delivered to
+ * {@link OutboxImmediatePublisher} once the writing transaction commits.
+ */
+public record OutboxEventSaved(
+        Integer eventId, String aggregateType, LocalDateTime createdAt, LocalDateTime publishAt) {
+
+    public static OutboxEventSaved from(OutboxEvent event) {
+        return new OutboxEventSaved(
+                event.getId(), event.getAggregateType(), event.getCreatedAt(), event.getPublishAt());
+    }
+}
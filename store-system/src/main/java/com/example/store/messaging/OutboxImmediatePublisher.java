@@ -0,0 +1,97 @@
+package com.example.store.messaging;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Publishes outbox events as soon as the transaction that wrote them commits, instead of waiting for
+ * the next {@link OutboxRelay} poll. Events committed close together are drained in one claim. The
+ * poller still runs as the recovery sweep for anything missed here (e.g. a crash between commit and
+ * publish) and for events whose {@code publishAt} lies in the future.
+ */
+@Component
+@ConditionalOnProperty(name = "store.outbox.immediate.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxImmediatePublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxImmediatePublisher.class);
+
+    private final OutboxRelay outboxRelay;
+    private final NotificationCoalescer coalescer;
+    private final int batchSize;
+    private final Queue<Integer> pendingEventIds = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("outbox-immediate-"));
+
+    public OutboxImmediatePublisher(
+            OutboxRelay outboxRelay,
+            NotificationCoalescer coalescer,
+            @Value("${store.outbox.claim.batch-size:100}") int batchSize) {
+        this.outboxRelay = outboxRelay;
+        this.coalescer = coalescer;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOutboxEventSaved(OutboxEventSaved saved) {
+        LocalDateTime dueAt = coalescer.dueAt(saved);
+        if (saved.eventId() == null || (dueAt != null && dueAt.isAfter(LocalDateTime.now()))) {
+            return;
+        }
+        pendingEventIds.add(saved.eventId());
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void drain() {
+        try {
+            List<Integer> eventIds = new ArrayList<>(batchSize);
+            Integer eventId;
+            while ((eventId = pendingEventIds.poll()) != null) {
+                eventIds.add(eventId);
+                if (eventIds.size() == batchSize) {
+                    publish(eventIds);
+                    eventIds.clear();
+                }
+            }
+            if (!eventIds.isEmpty()) {
+                publish(eventIds);
+            }
+        } finally {
+            drainScheduled.set(false);
+            if (!pendingEventIds.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    private void publish(List<Integer> eventIds) {
+        try {
+            outboxRelay.publishEvents(eventIds);
+        } catch (Exception ex) {
+            // The rows are still in the outbox; the poller will pick them up.
+            log.warn("Immediate publish of outbox events {} failed: {}", eventIds, ex.getMessage());
+        }
+    }
+}
@@ -1,381 +1,365 @@
 package com.example.store.messaging;
 
+import com.example.contracts.outbox.ConfirmWindow;
+import com.example.contracts.outbox.OutboxRoute;
+import com.example.contracts.outbox.OutboxRouteRegistry;
 import com.example.store.model.OutboxEvent;
-import com.example.store.repository.OrderRepo;
 import com.example.store.repository.OutboxEventRepo;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Component
 public class OutboxRelay {
 
+    /** Message ids of store outbox events are this prefix followed by the event id. */
+    public static final String MESSAGE_ID_PREFIX = "store-outbox-";
+
     private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
 
+    // Stands in for an empty exclusion list, which SQL's NOT IN () does not allow.
+    private static final List<String> NO_EVENT_TYPES = List.of("");
+
     private final OutboxEventRepo outboxEventRepo;
-    private final OrderRepo orderRepo;
     private final RabbitTemplate rabbitTemplate;
-    private final ObjectMapper objectMapper;
-    private final String orderPlacedQueueName;
-    private final String orderAllocatedQueueName;
-    private final String paymentRequestedQueueName;
-    private final String deliveryReadyQueueName;
-    private final String notificationEmailQueueName;
-    private final String paymentRefundQueueName;
+    private final OutboxRouteRegistry routeRegistry;
+    private final NotificationCoalescer coalescer;
+    private final QueueBackpressure backpressure;
+    // Only claim rows this relay has a route for.
+    private final Set<String> aggregateTypes;
+    private final TransactionTemplate transactionTemplate;
+    private final int workers;
+    private final int lanes;
+    private final boolean archive;
+    private final int maxInFlight;
+    private final long confirmTimeoutMs;
+    private final ExecutorService workerPool;
+    private final AtomicBoolean deferred = new AtomicBoolean();
 
     public OutboxRelay(
             OutboxEventRepo outboxEventRepo,
-            OrderRepo orderRepo,
             RabbitTemplate rabbitTemplate,
-            ObjectMapper objectMapper,
-            @Value("${store.queue.order-placed:order-placed}") String orderPlacedQueueName,
-            @Value("${store.queue.order-allocated:order-allocated}") String orderAllocatedQueueName,
-            @Value("${store.queue.payment-requested:payment-requested}") String paymentRequestedQueueName,
-            @Value("${store.queue.delivery-ready:delivery-ready}") String deliveryReadyQueueName,
-            @Value("${store.queue.notification-email:notification-email}") String notificationEmailQueueName,
-            @Value("${store.queue.payment-refund:payment-refund}") String paymentRefundQueueName) {
+            OutboxRouteRegistry routeRegistry,
+            NotificationCoalescer coalescer,
+            QueueBackpressure backpressure,
+            PlatformTransactionManager transactionManager,
+            @Value("${store.outbox.claim.workers:1}") int workers,
+            @Value("${store.outbox.lanes:0}") int lanes,
+            @Value("${store.outbox.archive.enabled:false}") boolean archive,
+            @Value("${store.outbox.confirm.max-in-flight:256}") int maxInFlight,
+            @Value("${store.outbox.confirm.timeout-ms:5000}") long confirmTimeoutMs) {
         this.outboxEventRepo = outboxEventRepo;
-        this.orderRepo = orderRepo;
         this.rabbitTemplate = rabbitTemplate;
-        this.objectMapper = objectMapper;
-        this.orderPlacedQueueName = orderPlacedQueueName;
-        this.orderAllocatedQueueName = orderAllocatedQueueName;
-        this.paymentRequestedQueueName = paymentRequestedQueueName;
-        this.deliveryReadyQueueName = deliveryReadyQueueName;
-        this.notificationEmailQueueName = notificationEmailQueueName;
-        this.paymentRefundQueueName = paymentRefundQueueName;
+        this.routeRegistry = routeRegistry;
+        this.coalescer = coalescer;
+        this.backpressure = backpressure;
+        this.aggregateTypes = routeRegistry.aggregateTypes();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = Math.max(1, workers);
+        this.lanes = Math.max(0, lanes);
+        this.archive = archive;
+        this.maxInFlight = maxInFlight;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.workerPool = this.workers > 1
+                ? Executors.newFixedThreadPool(this.workers, new CustomizableThreadFactory("outbox-relay-"))
+                : null;
     }
 
+    /**
+     * Drains due outbox events with {@code workers} concurrent workers. Each worker claims pages of
+     * {@link QueueBackpressure#claimBatchSize()} rows with {@code FOR UPDATE SKIP LOCKED} and commits
+     * every page in its own transaction, so a backlog never turns into one long transaction and
+     * workers on this or other replicas never wait on each other's rows.
+     *
+     * <p>With {@code store.outbox.lanes} set, rows are instead split into that many lanes by a hash of
+     * their correlation id (the order for every saga event) and each lane is drained by one worker at
+     * a time in {@code event_id} order, so events of one order are never published out of order while
+     * different lanes still run in parallel.
+     */
     @Scheduled(fixedDelayString = "${store.outbox.publisher.delay-ms:1000}")
-    @Transactional
     public void publishOutboxEvents() {
-        List<OutboxEvent> events = outboxEventRepo.findByPublishAtIsNullOrPublishAtLessThanEqual(LocalDateTime.now());
-        for (OutboxEvent event : events) {
-            if (isOrderPlaced(event)) {
-                handleOrderPlacedEvent(event);
-            } else if (isOrderAllocated(event)) {
-                handleOrderAllocatedEvent(event);
-            } else if (isPaymentRequested(event)) {
-                handlePaymentRequestedEvent(event);
-            } else if (isOrderReadyForPickup(event)) {
-                handleOrderReadyForPickupEvent(event);
-            } else if (isPaymentResultNotification(event)) {
-                handlePaymentResultNotificationEvent(event);
-            } else if (isPaymentRefundRequested(event)) {
-                handlePaymentRefundRequestedEvent(event);
-            } else if (isRefundStatusNotification(event)) {
-                handleRefundStatusNotificationEvent(event);
-            } else if (isDeliveryPickupNotification(event)) {
-                handleDeliveryPickupNotificationEvent(event);
-            } else if (isDeliveryInTransitNotification(event)) {
-                handleDeliveryInTransitNotificationEvent(event);
-            } else if (isDeliveryLostNotification(event)) {
-                handleDeliveryLostNotificationEvent(event);
-            } else if (isDeliveryDeliveredNotification(event)) {
-                handleDeliveryDeliveredNotificationEvent(event);
+        List<Runnable> drains = new ArrayList<>();
+        if (lanes > 0) {
+            for (int lane = 0; lane < lanes; lane++) {
+                int current = lane;
+                drains.add(() -> drainLane(current));
+            }
+        } else {
+            for (int i = 0; i < workers; i++) {
+                drains.add(this::drain);
             }
         }
+        run(drains);
     }
 
-    private boolean isOrderPlaced(OutboxEvent event) {
-        return "ORDER".equalsIgnoreCase(event.getAggregateType())
-                && "OrderPlaced".equalsIgnoreCase(event.getEventType());
-    }
-
-    private boolean isOrderAllocated(OutboxEvent event) {
-        return "ORDER".equalsIgnoreCase(event.getAggregateType())
-                && "OrderAllocated".equalsIgnoreCase(event.getEventType());
+    /**
+     * Runs the relay again soon after {@link QueueBackpressure} made it leave rows behind, instead of
+     * waiting for the next notification or fallback poll.
+     */
+    @Scheduled(fixedDelayString = "${store.outbox.backpressure.sample-ms:2000}")
+    public void publishDeferredEvents() {
+        if (deferred.getAndSet(false)) {
+            publishOutboxEvents();
+        }
     }
 
-    private boolean isPaymentRequested(OutboxEvent event) {
-        return "PAYMENT".equalsIgnoreCase(event.getAggregateType())
-                && "PaymentRequested".equalsIgnoreCase(event.getEventType());
+    /**
+     * Publishes the given events right away if they are due and no other worker holds them. Used by
+     * {@link OutboxImmediatePublisher} once the writing transaction has committed. In lane mode a
+     * single event must not overtake older ones in its lane, so this drains the lanes the events
+     * belong to instead, and leaves the other lanes to the poller.
+     */
+    public void publishEvents(Collection<Integer> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        if (lanes > 0) {
+            List<Runnable> drains = new ArrayList<>();
+            for (int lane : outboxEventRepo.findLanes(eventIds, lanes)) {
+                drains.add(() -> drainLane(lane));
+            }
+            run(drains);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            publishAll(outboxEventRepo.claimDueByIds(
+                    eventIds, now, coalescer.heldAggregateType(), coalescer.holdCutoff(now)));
+        });
     }
 
-    private boolean isOrderReadyForPickup(OutboxEvent event) {
-        return "ORDER".equalsIgnoreCase(event.getAggregateType())
-                && "OrderReadyForPickup".equalsIgnoreCase(event.getEventType());
+    @PreDestroy
+    void shutdown() {
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+        }
     }
 
-    private boolean isPaymentResultNotification(OutboxEvent event) {
-        return "EMAIL".equalsIgnoreCase(event.getAggregateType())
-                && "PaymentResultNotification".equalsIgnoreCase(event.getEventType());
-    }
+    private void run(List<Runnable> drains) {
+        if (workerPool == null) {
+            drains.forEach(Runnable::run);
+            return;
+        }
 
-    private boolean isPaymentRefundRequested(OutboxEvent event) {
-        return "PAYMENT".equalsIgnoreCase(event.getAggregateType())
-                && "RefundRequested".equalsIgnoreCase(event.getEventType());
+        List<Callable<Void>> tasks = new ArrayList<>(drains.size());
+        for (Runnable drain : drains) {
+            tasks.add(() -> {
+                drain.run();
+                return null;
+            });
+        }
+        try {
+            workerPool.invokeAll(tasks);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    private boolean isRefundStatusNotification(OutboxEvent event) {
-        return "EMAIL".equalsIgnoreCase(event.getAggregateType())
-                && "RefundStatusNotification".equalsIgnoreCase(event.getEventType());
+    private void drain() {
+        BatchResult result;
+        do {
+            result = transactionTemplate.execute(status -> publishBatch());
+        } while (result != null && result.claimed() == result.limit() && result.handled() > 0);
     }
 
-    private boolean isDeliveryPickupNotification(OutboxEvent event) {
-        return "EMAIL".equalsIgnoreCase(event.getAggregateType())
-                && "DeliveryPickupNotification".equalsIgnoreCase(event.getEventType());
+    private void drainLane(int lane) {
+        BatchResult result;
+        do {
+            result = transactionTemplate.execute(status -> publishLaneBatch(lane));
+        } while (result != null && result.claimed() == result.limit() && result.handled() > 0);
     }
 
-    private boolean isDeliveryInTransitNotification(OutboxEvent event) {
-        return "EMAIL".equalsIgnoreCase(event.getAggregateType())
-                && "DeliveryInTransitNotification".equalsIgnoreCase(event.getEventType());
+    private BatchResult publishLaneBatch(int lane) {
+        // Another worker or replica is draining this lane; it will get to these rows in order.
+        if (!outboxEventRepo.tryLockLane(lane)) {
+            return new BatchResult(0, 0, 0);
+        }
+        int limit = backpressure.claimBatchSize();
+        LocalDateTime now = LocalDateTime.now();
+        Collection<String> throttledEventTypes = backpressure.exhaustedEventTypes();
+        List<OutboxEvent> events = outboxEventRepo.claimDueLaneBatch(
+                aggregateTypes,
+                now,
+                coalescer.heldAggregateType(),
+                coalescer.holdCutoff(now),
+                throttledEventTypes.isEmpty() ? NO_EVENT_TYPES : throttledEventTypes,
+                lanes,
+                lane,
+                limit);
+        if (!throttledEventTypes.isEmpty() && events.size() < limit) {
+            // The claim may have stopped at a throttled row; come back once its queue has permits.
+            deferred.set(true);
+        }
+        return new BatchResult(limit, events.size(), publishAll(events));
     }
 
-    private boolean isDeliveryLostNotification(OutboxEvent event) {
-        return "EMAIL".equalsIgnoreCase(event.getAggregateType())
-                && "DeliveryLostNotification".equalsIgnoreCase(event.getEventType());
+    private BatchResult publishBatch() {
+        int limit = backpressure.claimBatchSize();
+        LocalDateTime now = LocalDateTime.now();
+        Collection<String> excludedEventTypes = backpressure.exhaustedEventTypes();
+        List<OutboxEvent> events = outboxEventRepo.claimDueBatch(
+                aggregateTypes,
+                now,
+                coalescer.heldAggregateType(),
+                coalescer.holdCutoff(now),
+                excludedEventTypes.isEmpty() ? NO_EVENT_TYPES : excludedEventTypes,
+                limit);
+        return new BatchResult(limit, events.size(), publishAll(events));
     }
 
-    private boolean isDeliveryDeliveredNotification(OutboxEvent event) {
-        return "EMAIL".equalsIgnoreCase(event.getAggregateType())
-                && "DeliveryDeliveredNotification".equalsIgnoreCase(event.getEventType());
-    }
-    private void handleOrderPlacedEvent(OutboxEvent event) {
-        try {
-            OrderPlacedMessage message = objectMapper.readValue(event.getPayload(), OrderPlacedMessage.class);
-            rabbitTemplate.convertAndSend(orderPlacedQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info("Sent OrderPlaced message for order {} to queue {}", message.orderId(), orderPlacedQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse OrderPlaced payload for event {}: {}", event.getId(), ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish OrderPlaced event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
+    /**
+     * Publishes the claimed events through a {@link ConfirmWindow} and deletes, in one statement, only
+     * the rows whose publish the broker confirmed; in archive mode they are moved to
+     * {@code outbox_archive} instead (see {@link com.example.contracts.outbox.OutboxArchiveMaintenance}).
+     * Rows that can never be published are marked failed. Returns the number of confirmed and failed
+     * events.
+     */
+    private int publishAll(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
         }
-    }
-
-    private void handleOrderAllocatedEvent(OutboxEvent event) {
-        try {
-            OrderAllocatedMessage message = objectMapper.readValue(event.getPayload(), OrderAllocatedMessage.class);
-            rabbitTemplate.convertAndSend(orderAllocatedQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info(
-                    "Sent OrderAllocated message for order {} to queue {}", message.orderId(), orderAllocatedQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse OrderAllocated payload for event {}: {}", event.getId(), ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish OrderAllocated event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
+        List<OutboxEvent> toPublish = events;
+        Map<Integer, List<Integer>> digestMembers = new HashMap<>();
+        if (coalescer.isEnabled()) {
+            toPublish = coalescer.coalesce(withEmailSiblings(events), digestMembers);
         }
-    }
 
-    private void handlePaymentRequestedEvent(OutboxEvent event) {
-        try {
-            String rawPayload = event.getPayload();
-            PaymentRequestedMessage message = objectMapper.readValue(rawPayload, PaymentRequestedMessage.class);
-            
-            // BUG FIX: If customerId is missing, fetch it from the order database
-            PaymentRequestedMessage messageToSend = message;
-            if (message.customerId() == null) {
-                if (message.orderId() == null) {
-                    throw new IllegalStateException(
-                            "PaymentRequested message is missing both customerId and orderId. Cannot send to bank service.");
+        // One channel for the whole batch, so the broker receives the events in the order sent.
+        List<OutboxEvent> batch = toPublish;
+        List<Integer> failed = new ArrayList<>();
+        List<Integer> confirmed = rabbitTemplate.invoke(operations -> {
+            ConfirmWindow window = new ConfirmWindow(
+                    rabbitTemplate,
+                    MESSAGE_ID_PREFIX,
+                    maxInFlight,
+                    confirmTimeoutMs,
+                    backpressure::recordConfirmLatency);
+            for (OutboxEvent event : batch) {
+                if (lanes > 0 && !window.allConfirmed()) {
+                    // The unconfirmed row heads the lane's next claim; nothing behind it may overtake it.
+                    break;
                 }
-                
-                // Fetch customerId from order
-                Integer recoveredCustomerId = orderRepo.findByIdWithCustomer(message.orderId())
-                        .map(order -> {
-                            var customer = order.getCustomer();
-                            if (customer != null) {
-                                return customer.getId();
-                            }
-                            return null;
-                        })
-                        .orElse(null);
-                
-                if (recoveredCustomerId == null) {
-                    throw new IllegalStateException(
-                            "PaymentRequested message missing customerId and could not recover from order " + message.orderId());
+                Outcome outcome = publish(event, window);
+                if (outcome == Outcome.FAILED) {
+                    failed.add(event.getId());
+                } else if (outcome == Outcome.DEFERRED && lanes > 0) {
+                    // Sending later rows would let them overtake this one; the rest of the lane waits.
+                    break;
                 }
-                
-                // Reconstruct message with recovered customerId
-                messageToSend = new PaymentRequestedMessage(
-                        message.orderId(),
-                        message.paymentId(),
-                        recoveredCustomerId,  // Fixed customerId
-                        message.amount(),
-                        message.paymentStatus(),
-                        message.correlationId(),
-                        message.idempotencyKey());
             }
-            
-            String messageAsJson = objectMapper.writeValueAsString(messageToSend);
-            
-            // Verify customerId is in the final JSON
-            if (!messageAsJson.contains("\"customerId\":" + messageToSend.customerId())) {
-                throw new IllegalStateException("Final message JSON is missing customerId. Cannot send to bank service.");
+            return window.awaitConfirmed();
+        });
+        List<Integer> confirmedEventIds = withDigestMembers(confirmed, digestMembers);
+        List<Integer> failedEventIds = withDigestMembers(failed, digestMembers);
+        LocalDateTime now = LocalDateTime.now();
+        if (!failedEventIds.isEmpty()) {
+            outboxEventRepo.markFailed(failedEventIds, now);
+        }
+        if (!confirmedEventIds.isEmpty()) {
+            if (archive) {
+                outboxEventRepo.archiveAllById(confirmedEventIds, now);
+            } else {
+                outboxEventRepo.deleteAllByIdInBatch(confirmedEventIds);
             }
-            
-            rabbitTemplate.convertAndSend(paymentRequestedQueueName, messageToSend);
-            outboxEventRepo.delete(event);
-            
-            log.info(
-                    "Sent PaymentRequested message for order {} payment {} customer {} to queue {}",
-                    messageToSend.orderId(),
-                    messageToSend.paymentId(),
-                    messageToSend.customerId(),
-                    paymentRequestedQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse PaymentRequested payload for event {}: {}", event.getId(), ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish PaymentRequested event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
         }
+        return confirmedEventIds.size() + failedEventIds.size();
     }
 
-    private void handleOrderReadyForPickupEvent(OutboxEvent event) {
-        try {
-            OrderReadyForPickupMessage message =
-                    objectMapper.readValue(event.getPayload(), OrderReadyForPickupMessage.class);
-            rabbitTemplate.convertAndSend(deliveryReadyQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info("Sent OrderReadyForPickup message for order {} to queue {}", message.orderId(), deliveryReadyQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse OrderReadyForPickup payload for event {}: {}", event.getId(), ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish OrderReadyForPickup event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
+    private static List<Integer> withDigestMembers(List<Integer> eventIds, Map<Integer, List<Integer>> digestMembers) {
+        if (digestMembers.isEmpty()) {
+            return eventIds;
         }
-    }
-
-    private void handlePaymentResultNotificationEvent(OutboxEvent event) {
-        try {
-            PaymentResultEmailMessage message =
-                    objectMapper.readValue(event.getPayload(), PaymentResultEmailMessage.class);
-            rabbitTemplate.convertAndSend(notificationEmailQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info(
-                    "Sent PaymentResultNotification message for order {} to queue {} with status {}",
-                    message.orderId(),
-                    notificationEmailQueueName,
-                    message.status());
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse PaymentResultNotification payload for event {}: {}", event.getId(), ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish PaymentResultNotification event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
+        List<Integer> expanded = new ArrayList<>(eventIds.size());
+        for (Integer eventId : eventIds) {
+            expanded.addAll(digestMembers.getOrDefault(eventId, List.of(eventId)));
         }
+        return expanded;
     }
 
-    private void handlePaymentRefundRequestedEvent(OutboxEvent event) {
-        try {
-            PaymentRefundMessage message = objectMapper.readValue(event.getPayload(), PaymentRefundMessage.class);
-            rabbitTemplate.convertAndSend(paymentRefundQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info(
-                    "Sent RefundRequested message for order {} payment {} refund {} to queue {}",
-                    message.orderId(),
-                    message.paymentId(),
-                    message.refundId(),
-                    paymentRefundQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse RefundRequested payload for event {}: {}", event.getId(), ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish RefundRequested event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
+    /**
+     * Adds the not yet claimed due EMAIL rows of every order that has an EMAIL row in the batch, so
+     * the whole burst goes out in one digest.
+     */
+    private List<OutboxEvent> withEmailSiblings(List<OutboxEvent> events) {
+        Set<Integer> aggregateIds = new HashSet<>();
+        List<Integer> claimedEventIds = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            claimedEventIds.add(event.getId());
+            if (NotificationCoalescer.AGGREGATE_TYPE.equals(event.getAggregateType())) {
+                aggregateIds.add(event.getAggregateId());
+            }
         }
+        if (aggregateIds.isEmpty()) {
+            return events;
+        }
+        List<OutboxEvent> siblings = outboxEventRepo.claimDueSiblings(
+                NotificationCoalescer.AGGREGATE_TYPE, aggregateIds, claimedEventIds, LocalDateTime.now());
+        if (siblings.isEmpty()) {
+            return events;
+        }
+        List<OutboxEvent> all = new ArrayList<>(events);
+        all.addAll(siblings);
+        return all;
     }
 
-    private void handleRefundStatusNotificationEvent(OutboxEvent event) {
-        try {
-            RefundStatusEmailMessage message =
-                    objectMapper.readValue(event.getPayload(), RefundStatusEmailMessage.class);
-            rabbitTemplate.convertAndSend(notificationEmailQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info(
-                    "Sent RefundStatusNotification message for order {} refund {} to queue {}",
-                    message.orderId(),
-                    message.refundId(),
-                    notificationEmailQueueName);
-        } catch (JsonProcessingException ex) {
+    private Outcome publish(OutboxEvent event, ConfirmWindow window) {
+        if (event.getPayload() == null) {
+            log.error("Outbox event {} ({}) has no payload; marking it failed", event.getId(), event.getEventType());
+            return Outcome.FAILED;
+        }
+        OutboxRoute route = routeRegistry.find(event.getAggregateType(), event.getEventType());
+        if (route == null) {
             log.error(
-                    "Failed to parse RefundStatusNotification payload for event {}: {}",
+                    "No route for outbox event {} ({} {}); marking it failed",
                     event.getId(),
-                    ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish RefundStatusNotification event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
-        }
-    }
-
-    private void handleDeliveryPickupNotificationEvent(OutboxEvent event) {
-        try {
-            DeliveryPickupEmailMessage message =
-                    objectMapper.readValue(event.getPayload(), DeliveryPickupEmailMessage.class);
-            rabbitTemplate.convertAndSend(notificationEmailQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info(
-                    "Sent DeliveryPickupNotification message for order {} to queue {}",
-                    message.orderId(),
-                    notificationEmailQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse DeliveryPickupNotification payload for event {}: {}", event.getId(), ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish DeliveryPickupNotification event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
+                    event.getAggregateType(),
+                    event.getEventType());
+            return Outcome.FAILED;
         }
-    }
-
-    private void handleDeliveryInTransitNotificationEvent(OutboxEvent event) {
-        try {
-            DeliveryInTransitEmailMessage message =
-                    objectMapper.readValue(event.getPayload(), DeliveryInTransitEmailMessage.class);
-            rabbitTemplate.convertAndSend(notificationEmailQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info(
-                    "Sent DeliveryInTransitNotification message for order {} to queue {}",
-                    message.orderId(),
-                    notificationEmailQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse DeliveryInTransitNotification payload for event {}: {}", event.getId(), ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish DeliveryInTransitNotification event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
+        String queue = route.routingKey(event);
+        // Never wait for a permit here: the claim transaction, and in lane mode the lane lock, are held.
+        if (!backpressure.tryAcquire(queue)) {
+            deferred.set(true);
+            return Outcome.DEFERRED;
         }
+        window.send(event, route);
+        log.info(
+                "Sent {} message for {} {} ({}) to {}",
+                event.getEventType(),
+                event.getAggregateType(),
+                event.getAggregateId(),
+                event.getCorrelationId(),
+                queue);
+        return Outcome.SENT;
     }
 
-    private void handleDeliveryLostNotificationEvent(OutboxEvent event) {
-        try {
-            DeliveryLostEmailMessage message =
-                    objectMapper.readValue(event.getPayload(), DeliveryLostEmailMessage.class);
-            rabbitTemplate.convertAndSend(notificationEmailQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info(
-                    "Sent DeliveryLostNotification message for order {} to queue {}",
-                    message.orderId(),
-                    notificationEmailQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse DeliveryLostNotification payload for event {}: {}", event.getId(), ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish DeliveryLostNotification event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
-        }
+    private enum Outcome {
+        SENT,
+        DEFERRED,
+        FAILED
     }
 
-    private void handleDeliveryDeliveredNotificationEvent(OutboxEvent event) {
-        try {
-            DeliveryDeliveredEmailMessage message =
-                    objectMapper.readValue(event.getPayload(), DeliveryDeliveredEmailMessage.class);
-            rabbitTemplate.convertAndSend(notificationEmailQueueName, message);
-            outboxEventRepo.delete(event);
-            log.info(
-                    "Sent DeliveryDeliveredNotification message for order {} to queue {}",
-                    message.orderId(),
-                    notificationEmailQueueName);
-        } catch (JsonProcessingException ex) {
-            log.error("Failed to parse DeliveryDeliveredNotification payload for event {}: {}", event.getId(), ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Failed to publish DeliveryDeliveredNotification event {}: {}", event.getId(), ex.getMessage());
-            throw ex;
-        }
+    // limit: the page size claimed with; handled: rows confirmed or marked failed, i.e. rows the next
+    // claim will not return again.
+    private record BatchResult(int limit, int claimed, int handled) {
     }
 }
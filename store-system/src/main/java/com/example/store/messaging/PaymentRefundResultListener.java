@@ -1,12 +1,14 @@
 package com.example.store.messaging;
 
+import com.example.contracts.messaging.PaymentRefundResultMessage;
 import com.example.store.service.RefundService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
 
 @Component
 public class PaymentRefundResultListener {
@@ -14,22 +16,23 @@ public class PaymentRefundResultListener {
     private static final Logger log = LoggerFactory.getLogger(PaymentRefundResultListener.class);
 
     private final RefundService refundService;
+    private final MessageInbox inbox;
     private final String queueName;
 
     public PaymentRefundResultListener(
             RefundService refundService,
+            MessageInbox inbox,
             @Value("${store.queue.payment-refund-result:payment-refund-result}") String queueName) {
         this.refundService = refundService;
+        this.inbox = inbox;
         this.queueName = queueName;
     }
 
     @RabbitListener(queues = "${store.queue.payment-refund-result:payment-refund-result}")
-    public void handleRefundResult(PaymentRefundResultMessage message) {
+    public void handleRefundResult(
+            PaymentRefundResultMessage message,
+            @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId) {
         log.info("Received refund result for refund {} on queue {}", message.refundId(), queueName);
-        try {
-            refundService.handleRefundResult(message);
-        } catch (ResponseStatusException ex) {
-            log.warn("Unable to process refund result {}: {}", message.refundId(), ex.getReason());
-        }
+        inbox.process(queueName, messageId, () -> refundService.handleRefundResult(message));
     }
 }
@@ -1,35 +1,51 @@
 package com.example.store.messaging;
 
+import com.example.contracts.messaging.PaymentResultMessage;
+import com.example.store.service.OptimisticRetryExecutor;
+import com.example.store.service.OrderMailbox;
 import com.example.store.service.OrderSaga;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
 
 @Component
 public class PaymentResultListener {
 
+    public static final String LISTENER_ID = "payment-result-listener";
+
     private static final Logger log = LoggerFactory.getLogger(PaymentResultListener.class);
 
     private final OrderSaga orderSaga;
+    private final OrderMailbox mailbox;
+    private final OptimisticRetryExecutor optimisticRetry;
+    private final MessageInbox inbox;
     private final String queueName;
 
-    public PaymentResultListener(OrderSaga orderSaga, @Value("${store.queue.payment-result:payment-result}") String queueName) {
+    public PaymentResultListener(
+            OrderSaga orderSaga,
+            OrderMailbox mailbox,
+            OptimisticRetryExecutor optimisticRetry,
+            MessageInbox inbox,
+            @Value("${store.queue.payment-result:payment-result}") String queueName) {
         this.orderSaga = orderSaga;
+        this.mailbox = mailbox;
+        this.optimisticRetry = optimisticRetry;
+        this.inbox = inbox;
         this.queueName = queueName;
     }
 
-    @RabbitListener(queues = "${store.queue.payment-result:payment-result}")
-    public void handlePaymentResult(PaymentResultMessage message) {
+    @RabbitListener(
+            id = LISTENER_ID,
+            queues = "#{@orderPartitioning.ownedQueues('${store.queue.payment-result:payment-result}')}")
+    public void handlePaymentResult(
+            PaymentResultMessage message,
+            @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId) {
         log.info("Received payment result for order {} on queue {}", message.orderId(), queueName);
-        try {
-            orderSaga.handlePaymentResult(message);
-        } catch (ResponseStatusException ex) {
-            log.warn("Unable to process payment result for order {}: {}", message.orderId(), ex.getReason());
-        } catch (Exception ex) {
-            throw ex;
-        }
+        mailbox.run(message.orderId(), () -> optimisticRetry.run("Payment result", message.orderId(),
+                () -> inbox.process(queueName, messageId, () -> orderSaga.handlePaymentResult(message))));
     }
 }
@@ -0,0 +1,250 @@
+package com.example.store.messaging;
+
+import com.example.contracts.outbox.OutboxRoute;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per destination queue publish rate for {@link OutboxRelay}. Every sample interval the depth and
+ * consumer count of each queue the outbox routes to are read with a passive declare and combined
+ * with the mean publisher confirm latency since the previous sample (zero if none arrived, so a
+ * queue that has gone quiet is not held back by an old slow burst): a queue that is backing up (or
+ * slow to confirm) has its rate halved, down to {@code min-rate}; a queue that has drained gets it
+ * raised again step by step up to {@code max-rate}. The relay takes a permit per message, so a slow
+ * consumer holds back only its own queue's rows. The claim page size follows the same samples: it
+ * is halved, down to {@code min-batch-size}, while any queue is backing up and grown back to
+ * {@code store.outbox.claim.batch-size} once they have all drained, so a backlog is not claimed and
+ * locked faster than it can be sent. The current rate and depth are exposed as
+ * {@code outbox.publish.rate} and {@code outbox.queue.depth} gauges, tagged by queue, and the page
+ * size as {@code outbox.claim.batch-size}.
+ */
+@Component
+public class QueueBackpressure {
+
+    private static final Logger log = LoggerFactory.getLogger(QueueBackpressure.class);
+
+    private final AmqpAdmin amqpAdmin;
+    private final boolean enabled;
+    private final double minRate;
+    private final double maxRate;
+    private final long maxDepthPerConsumer;
+    private final double targetConfirmLatencyMs;
+    private final int maxBatchSize;
+    private final int minBatchSize;
+    private final Map<String, QueueState> queues = new HashMap<>();
+    private volatile int batchSize;
+
+    @Autowired
+    public QueueBackpressure(
+            AmqpAdmin amqpAdmin,
+            OutboxRouteRegistry routeRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${store.outbox.backpressure.enabled:true}") boolean enabled,
+            @Value("${store.outbox.backpressure.min-rate:10}") double minRate,
+            @Value("${store.outbox.backpressure.max-rate:5000}") double maxRate,
+            @Value("${store.outbox.backpressure.max-depth-per-consumer:1000}") long maxDepthPerConsumer,
+            @Value("${store.outbox.backpressure.target-confirm-latency-ms:250}") double targetConfirmLatencyMs,
+            @Value("${store.outbox.claim.batch-size:100}") int maxBatchSize,
+            @Value("${store.outbox.backpressure.min-batch-size:10}") int minBatchSize) {
+        this(amqpAdmin, routeRegistry, meterRegistry, enabled, minRate, maxRate, maxDepthPerConsumer,
+                targetConfirmLatencyMs, maxBatchSize, minBatchSize, System::nanoTime);
+    }
+
+    QueueBackpressure(
+            AmqpAdmin amqpAdmin,
+            OutboxRouteRegistry routeRegistry,
+            MeterRegistry meterRegistry,
+            boolean enabled,
+            double minRate,
+            double maxRate,
+            long maxDepthPerConsumer,
+            double targetConfirmLatencyMs,
+            int maxBatchSize,
+            int minBatchSize,
+            LongSupplier ticker) {
+        this.amqpAdmin = amqpAdmin;
+        this.enabled = enabled;
+        this.minRate = Math.max(0.1, minRate);
+        this.maxRate = Math.max(this.minRate, maxRate);
+        this.maxDepthPerConsumer = Math.max(1, maxDepthPerConsumer);
+        this.targetConfirmLatencyMs = targetConfirmLatencyMs;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.minBatchSize = Math.min(this.maxBatchSize, Math.max(1, minBatchSize));
+        this.batchSize = this.maxBatchSize;
+
+        for (OutboxRouteRegistry.Registration registration : routeRegistry.registrations()) {
+            OutboxRoute route = registration.route();
+            // Only the default exchange routes straight to a queue named by the routing key.
+            if (!route.exchange().isEmpty()) {
+                continue;
+            }
+            List<String> routeQueues = route.partitions() > 0
+                    ? IntStream.range(0, route.partitions())
+                            .mapToObj(p -> OutboxRoute.partitionQueue(route.routingKey(), p))
+                            .toList()
+                    : List.of(route.routingKey());
+            for (String routeQueue : routeQueues) {
+                QueueState state = queues.computeIfAbsent(routeQueue, queue -> new QueueState(this.maxRate, ticker));
+                state.eventTypes.add(registration.eventType());
+            }
+        }
+        queues.forEach((queue, state) -> {
+            Gauge.builder("outbox.publish.rate", state, s -> s.rate)
+                    .tag("queue", queue)
+                    .description("Messages per second the outbox relay currently allows for this queue")
+                    .register(meterRegistry);
+            Gauge.builder("outbox.queue.depth", state, s -> s.depth)
+                    .tag("queue", queue)
+                    .description("Ready messages in this queue at the last sample")
+                    .register(meterRegistry);
+        });
+        Gauge.builder("outbox.claim.batch-size", this, backpressure -> backpressure.batchSize)
+                .description("Rows the outbox relay currently claims per page")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rows the relay should claim per page right now.
+     */
+    public int claimBatchSize() {
+        return enabled ? batchSize : maxBatchSize;
+    }
+
+    /**
+     * Takes a permit for one message to {@code queue} if one is available now.
+     */
+    public boolean tryAcquire(String queue) {
+        QueueState state = enabled ? queues.get(queue) : null;
+        return state == null || state.limiter.tryAcquire();
+    }
+
+    /**
+     * Event types routed to throttled queues that have no permit left right now, so bulk claims can
+     * leave their rows in the outbox instead of claiming rows that cannot be sent yet.
+     */
+    public Collection<String> exhaustedEventTypes() {
+        Set<String> eventTypes = new HashSet<>();
+        if (enabled) {
+            queues.values().forEach(state -> {
+                if (state.rate < maxRate && !state.limiter.hasPermit()) {
+                    eventTypes.addAll(state.eventTypes);
+                }
+            });
+        }
+        return eventTypes;
+    }
+
+    public void recordConfirmLatency(String queue, long nanos) {
+        QueueState state = queues.get(queue);
+        if (state != null) {
+            state.recordConfirm(nanos);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${store.outbox.backpressure.sample-ms:2000}")
+    public void sample() {
+        if (!enabled) {
+            return;
+        }
+        boolean backingUp = false;
+        for (Map.Entry<String, QueueState> entry : queues.entrySet()) {
+            backingUp |= sample(entry.getKey(), entry.getValue());
+        }
+        int previous = batchSize;
+        batchSize = backingUp
+                ? Math.max(minBatchSize, previous / 2)
+                : Math.min(maxBatchSize, previous + Math.max(1, maxBatchSize / 10));
+        if (batchSize != previous) {
+            log.info("Outbox claim batch size {} -> {}", previous, batchSize);
+        }
+    }
+
+    /**
+     * Samples one queue and adapts its rate. Returns whether it is backing up.
+     */
+    private boolean sample(String queue, QueueState state) {
+        QueueInformation info;
+        try {
+            info = amqpAdmin.getQueueInfo(queue);
+        } catch (RuntimeException ex) {
+            log.debug("Could not sample queue {}: {}", queue, ex.getMessage());
+            return false;
+        }
+        if (info == null) {
+            return false;
+        }
+        state.depth = info.getMessageCount();
+        state.confirmLatencyMs = state.takeWindowConfirmLatencyMs();
+        long depthPerConsumer = state.depth / Math.max(1, info.getConsumerCount());
+        double previous = state.rate;
+        boolean backingUp = depthPerConsumer > maxDepthPerConsumer || state.confirmLatencyMs > targetConfirmLatencyMs;
+        if (backingUp) {
+            state.rate = Math.max(minRate, state.rate / 2);
+        } else if (depthPerConsumer < maxDepthPerConsumer / 2) {
+            state.rate = Math.min(maxRate, state.rate + maxRate / 10);
+        }
+        if (state.rate != previous) {
+            state.limiter.setRate(state.rate);
+            log.info("Outbox publish rate for {} {} -> {}/s (depth {}, consumers {}, confirm {} ms)",
+                    queue,
+                    (long) previous,
+                    (long) state.rate,
+                    state.depth,
+                    info.getConsumerCount(),
+                    (long) state.confirmLatencyMs);
+        }
+        return backingUp;
+    }
+
+    private static final class QueueState {
+
+        private final Set<String> eventTypes = new HashSet<>();
+        private final RateLimiter limiter;
+        private volatile double rate;
+        private volatile long depth;
+        private volatile double confirmLatencyMs;
+        private long windowConfirmNanos;
+        private long windowConfirms;
+
+        private QueueState(double rate, LongSupplier ticker) {
+            this.rate = rate;
+            this.limiter = new RateLimiter(rate, ticker);
+        }
+
+        private synchronized void recordConfirm(long nanos) {
+            windowConfirmNanos += nanos;
+            windowConfirms++;
+        }
+
+        /**
+         * Mean confirm latency since the last call, or zero if no confirm arrived, and starts a new
+         * window.
+         */
+        private synchronized double takeWindowConfirmLatencyMs() {
+            double ms = windowConfirms == 0
+                    ? 0
+                    : windowConfirmNanos / (double) windowConfirms / TimeUnit.MILLISECONDS.toNanos(1);
+            windowConfirmNanos = 0;
+            windowConfirms = 0;
+            return ms;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.store.messaging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces callers to at most {@code permitsPerSecond} by spacing permits evenly; a caller that is
+ * ahead of schedule sleeps until its slot. Idle time is not banked beyond one second's worth of
+ * permits, so a pause is not followed by an unbounded burst. Time is read from a nanosecond
+ * ticker, {@link System#nanoTime()} unless one is passed in.
+ */
+public class RateLimiter {
+
+    private final LongSupplier ticker;
+    private volatile long intervalNanos;
+    private long nextFreeNanos;
+
+    public RateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, System::nanoTime);
+    }
+
+    public RateLimiter(double permitsPerSecond, LongSupplier ticker) {
+        this.ticker = ticker;
+        this.nextFreeNanos = ticker.getAsLong();
+        setRate(permitsPerSecond);
+    }
+
+    public void setRate(double permitsPerSecond) {
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(0.001, permitsPerSecond));
+    }
+
+    public double getRate() {
+        return (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos;
+    }
+
+    /**
+     * Takes a permit if one is available right now, without waiting.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = ticker.getAsLong();
+        rebase(now);
+        if (nextFreeNanos > now) {
+            return false;
+        }
+        nextFreeNanos += intervalNanos;
+        return true;
+    }
+
+    /**
+     * Whether {@link #tryAcquire()} would succeed right now.
+     */
+    public synchronized boolean hasPermit() {
+        long now = ticker.getAsLong();
+        rebase(now);
+        return nextFreeNanos <= now;
+    }
+
+    public void acquire() {
+        long waitNanos;
+        synchronized (this) {
+            long now = ticker.getAsLong();
+            rebase(now);
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += intervalNanos;
+        }
+        if (waitNanos > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    private void rebase(long now) {
+        long earliest = now - TimeUnit.SECONDS.toNanos(1);
+        if (nextFreeNanos < earliest) {
+            nextFreeNanos = earliest;
+        }
+    }
+}
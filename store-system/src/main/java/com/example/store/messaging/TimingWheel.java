@@ -0,0 +1,82 @@
+package com.example.store.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Each level has {@code wheelSize} buckets of {@code tickMs}; deadlines
+ * beyond the current level's span go to a coarser overflow level that is created on demand and
+ * cascades its entries back down as time reaches them. Adding and expiring an entry are O(1)
+ * regardless of how many entries are pending. Not thread-safe: callers serialise access.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final List<List<Entry<T>>> buckets;
+    private long currentTick;
+    private TimingWheel<T> overflow;
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = Math.max(1, tickMs);
+        this.wheelSize = Math.max(2, wheelSize);
+        this.buckets = new ArrayList<>(this.wheelSize);
+        for (int i = 0; i < this.wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.currentTick = startMs / this.tickMs;
+    }
+
+    /**
+     * Schedules {@code item} for {@code deadlineMs}, rounded up to the next tick so it never fires
+     * early. Returns {@code false}, without scheduling it, if the deadline has already been reached.
+     */
+    public boolean add(T item, long deadlineMs) {
+        long roundedUp = Math.floorDiv(deadlineMs + tickMs - 1, tickMs) * tickMs;
+        return place(new Entry<>(item, roundedUp));
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowMs}, handing every entry whose deadline has been reached
+     * to {@code expired}.
+     */
+    public void advance(long nowMs, Consumer<T> expired) {
+        advanceEntries(nowMs, entry -> expired.accept(entry.item()));
+    }
+
+    private boolean place(Entry<T> entry) {
+        long tick = entry.deadlineMs() / tickMs;
+        if (tick <= currentTick) {
+            return false;
+        }
+        if (tick < currentTick + wheelSize) {
+            buckets.get((int) Math.floorMod(tick, wheelSize)).add(entry);
+            return true;
+        }
+        if (overflow == null) {
+            overflow = new TimingWheel<>(tickMs * wheelSize, wheelSize, currentTick * tickMs);
+        }
+        return overflow.place(entry);
+    }
+
+    private void advanceEntries(long nowMs, Consumer<Entry<T>> expired) {
+        long targetTick = nowMs / tickMs;
+        while (currentTick < targetTick) {
+            currentTick++;
+            if (overflow != null && Math.floorMod(currentTick, wheelSize) == 0) {
+                overflow.advanceEntries(currentTick * tickMs, entry -> {
+                    if (!place(entry)) {
+                        expired.accept(entry);
+                    }
+                });
+            }
+            List<Entry<T>> bucket = buckets.get((int) Math.floorMod(currentTick, wheelSize));
+            bucket.forEach(expired);
+            bucket.clear();
+        }
+    }
+
+    private record Entry<T>(T item, long deadlineMs) {
+    }
+}
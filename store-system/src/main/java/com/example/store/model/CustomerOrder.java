@@ -2,6 +2,7 @@ package com.example.store.model;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -12,6 +13,7 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -33,8 +35,9 @@ public class CustomerOrder {
     @Column(name = "order_total", nullable = false, precision = 10, scale = 2)
     private BigDecimal orderTotal;
 
-    @Column(name = "status", length = 20)
-    private String status;
+    @Convert(converter = OrderStatusConverter.class)
+    @Column(name = "status", nullable = false)
+    private OrderStatus status;
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -42,6 +45,11 @@ public class CustomerOrder {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /** Optimistic lock: concurrent saga handlers for one order conflict instead of overwriting each other. */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "order", orphanRemoval = true)
     private List<OrderItem> items = new ArrayList<>();
 
@@ -84,11 +92,12 @@ public class CustomerOrder {
         this.orderTotal = orderTotal;
     }
 
-    public String getStatus() {
+    public OrderStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    /** Set by {@code OrderStateMachine}, or to {@link OrderStatus#NEW} on creation. */
+    public void setStatus(OrderStatus status) {
         this.status = status;
     }
 
@@ -108,6 +117,10 @@ public class CustomerOrder {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public List<OrderItem> getItems() {
         return items;
     }
@@ -0,0 +1,52 @@
+package com.example.store.model;
+
+/**
+ * Status of a {@link CustomerOrder}, stored as its {@code code} in the SMALLINT {@code orders.status}
+ * column. Codes are persisted: never renumber them, only add new ones. Transitions between statuses
+ * are defined by {@code OrderStateMachine}.
+ */
+public enum OrderStatus {
+
+    NEW(0, false),
+    ALLOCATED(1, true),
+    PAYMENT_PENDING(2, true),
+    PAID(3, true),
+    PAYMENT_FAILED(4, false),
+    DELIVERY_CONFIRMED(5, true),
+    OUT_FOR_DELIVERY(6, true),
+    IN_TRANSIT(7, true),
+    DELIVERED(8, true),
+    CANCELLED(9, false);
+
+    private static final OrderStatus[] BY_CODE = new OrderStatus[values().length];
+
+    static {
+        for (OrderStatus status : values()) {
+            BY_CODE[status.code] = status;
+        }
+    }
+
+    private final short code;
+    private final boolean holdsStock;
+
+    OrderStatus(int code, boolean holdsStock) {
+        this.code = (short) code;
+        this.holdsStock = holdsStock;
+    }
+
+    public short code() {
+        return code;
+    }
+
+    /** Whether an order in this status has stock reserved for it. */
+    public boolean holdsStock() {
+        return holdsStock;
+    }
+
+    public static OrderStatus fromCode(short code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown order status code " + code);
+        }
+        return BY_CODE[code];
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.store.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class OrderStatusConverter implements AttributeConverter<OrderStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(OrderStatus status) {
+        return status == null ? null : status.code();
+    }
+
+    @Override
+    public OrderStatus convertToEntityAttribute(Short code) {
+        return code == null ? null : OrderStatus.fromCode(code);
+    }
+}
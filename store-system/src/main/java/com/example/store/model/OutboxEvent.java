@@ -1,16 +1,26 @@
 package com.example.store.model;
 
+import com.example.contracts.outbox.OutboxRecord;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.contracts.tracing.MessageTrace;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "outbox")
-public class OutboxEvent {
+@Table(
+        name = "outbox",
+        indexes = {
+            @Index(name = "idx_outbox_publish_at", columnList = "publish_at"),
+            @Index(name = "idx_outbox_aggregate", columnList = "aggregate_id, event_type")
+        })
+public class OutboxEvent implements OutboxRecord {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -38,6 +48,21 @@ public class OutboxEvent {
     @Column(name = "publish_at")
     private LocalDateTime publishAt;
 
+    // Messages the saga passed through before this one; see MessageTrace.
+    @Column(name = "hop_count")
+    private Integer hopCount;
+
+    // Set when the relay gave up on the row; failed rows are never claimed.
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+
+    @PrePersist
+    void assignHopCount() {
+        if (hopCount == null) {
+            hopCount = MessageTrace.nextHopCount();
+        }
+    }
+
     public Integer getId() {
         return id;
     }
@@ -50,8 +75,9 @@ public class OutboxEvent {
         return aggregateType;
     }
 
+    // Stored in the registry's form, so the relay's aggregate_type IN (...) claim matches it exactly.
     public void setAggregateType(String aggregateType) {
-        this.aggregateType = aggregateType;
+        this.aggregateType = aggregateType != null ? OutboxRouteRegistry.normalise(aggregateType) : null;
     }
 
     public Integer getAggregateId() {
@@ -101,4 +127,20 @@ public class OutboxEvent {
     public void setPublishAt(LocalDateTime publishAt) {
         this.publishAt = publishAt;
     }
+
+    public Integer getHopCount() {
+        return hopCount;
+    }
+
+    public void setHopCount(Integer hopCount) {
+        this.hopCount = hopCount;
+    }
+
+    public LocalDateTime getFailedAt() {
+        return failedAt;
+    }
+
+    public void setFailedAt(LocalDateTime failedAt) {
+        this.failedAt = failedAt;
+    }
 }
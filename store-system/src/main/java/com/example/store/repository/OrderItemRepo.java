@@ -3,10 +3,16 @@ package com.example.store.repository;
 import com.example.store.model.OrderItem;
 import com.example.store.model.OrderItemId;
 import com.example.store.model.CustomerOrder;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface OrderItemRepo extends JpaRepository<OrderItem, OrderItemId> {
 
     List<OrderItem> findByOrder(CustomerOrder order);
+
+    @Query("select oi from OrderItem oi join fetch oi.product where oi.order in :orders")
+    List<OrderItem> findByOrderInWithProduct(@Param("orders") Collection<CustomerOrder> orders);
 }
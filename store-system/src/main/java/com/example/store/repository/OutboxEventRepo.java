@@ -1,14 +1,169 @@
 package com.example.store.repository;
 
+import com.example.store.messaging.OutboxEventSaved;
 import com.example.store.model.OutboxEvent;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface OutboxEventRepo extends JpaRepository<OutboxEvent, Integer> {
 
-    List<OutboxEvent> findByPublishAtIsNullOrPublishAtLessThanEqual(LocalDateTime publishAt);
+    /**
+     * Claims up to {@code limit} due events for the given aggregate types, except those of the
+     * excluded event types (must not be empty) and rows marked failed. Rows are locked until the
+     * surrounding transaction ends and rows already locked by another relay worker are skipped, so
+     * concurrent workers (or replicas) never block on or publish the same event.
+     */
+    @Query(
+            value = "SELECT * FROM outbox "
+                    + "WHERE aggregate_type IN (:aggregateTypes) "
+                    + "AND (publish_at IS NULL OR publish_at <= :now) "
+                    + "AND failed_at IS NULL "
+                    + "AND (aggregate_type <> :heldAggregateType OR created_at <= :holdCutoff) "
+                    + "AND event_type NOT IN (:excludedEventTypes) "
+                    + "ORDER BY event_id "
+                    + "LIMIT :limit "
+                    + "FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> claimDueBatch(
+            @Param("aggregateTypes") Collection<String> aggregateTypes,
+            @Param("now") LocalDateTime now,
+            @Param("heldAggregateType") String heldAggregateType,
+            @Param("holdCutoff") LocalDateTime holdCutoff,
+            @Param("excludedEventTypes") Collection<String> excludedEventTypes,
+            @Param("limit") int limit);
+
+    /**
+     * Takes the transaction-scoped advisory lock for relay lane {@code lane}; returns {@code false}
+     * if another transaction already holds it.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('outbox_lane'), :lane)", nativeQuery = true)
+    boolean tryLockLane(@Param("lane") int lane);
+
+    /**
+     * The relay lanes, out of {@code lanes}, that the given events belong to.
+     */
+    @Query(
+            value = "SELECT DISTINCT CAST(mod(abs(hashtext(correlation_id)::bigint), :lanes) AS INT) FROM outbox "
+                    + "WHERE event_id IN (:eventIds)",
+            nativeQuery = true)
+    List<Integer> findLanes(@Param("eventIds") Collection<Integer> eventIds, @Param("lanes") int lanes);
+
+    /**
+     * Claims up to {@code limit} due events of lane {@code lane} out of {@code lanes}, oldest first.
+     * A row's lane is derived from its correlation id, so all events of one order share a lane. The
+     * claim stops before the lane's oldest due row of a throttled event type (must not be empty), so
+     * nothing behind it overtakes it and no row is claimed that cannot be sent yet.
+     */
+    @Query(
+            value = "SELECT * FROM outbox o "
+                    + "WHERE o.aggregate_type IN (:aggregateTypes) "
+                    + "AND (o.publish_at IS NULL OR o.publish_at <= :now) "
+                    + "AND o.failed_at IS NULL "
+                    + "AND (o.aggregate_type <> :heldAggregateType OR o.created_at <= :holdCutoff) "
+                    + "AND mod(abs(hashtext(o.correlation_id)::bigint), :lanes) = :lane "
+                    + "AND NOT EXISTS (SELECT 1 FROM outbox b "
+                    + "WHERE b.event_id < o.event_id "
+                    + "AND b.event_type IN (:throttledEventTypes) "
+                    + "AND b.aggregate_type IN (:aggregateTypes) "
+                    + "AND (b.publish_at IS NULL OR b.publish_at <= :now) "
+                    + "AND b.failed_at IS NULL "
+                    + "AND (b.aggregate_type <> :heldAggregateType OR b.created_at <= :holdCutoff) "
+                    + "AND mod(abs(hashtext(b.correlation_id)::bigint), :lanes) = :lane) "
+                    + "AND o.event_type NOT IN (:throttledEventTypes) "
+                    + "ORDER BY o.event_id "
+                    + "LIMIT :limit "
+                    + "FOR UPDATE OF o",
+            nativeQuery = true)
+    List<OutboxEvent> claimDueLaneBatch(
+            @Param("aggregateTypes") Collection<String> aggregateTypes,
+            @Param("now") LocalDateTime now,
+            @Param("heldAggregateType") String heldAggregateType,
+            @Param("holdCutoff") LocalDateTime holdCutoff,
+            @Param("throttledEventTypes") Collection<String> throttledEventTypes,
+            @Param("lanes") int lanes,
+            @Param("lane") int lane,
+            @Param("limit") int limit);
+
+    /**
+     * Claims the given events if they are due and not already locked by another worker.
+     */
+    @Query(
+            value = "SELECT * FROM outbox "
+                    + "WHERE event_id IN (:eventIds) "
+                    + "AND (publish_at IS NULL OR publish_at <= :now) "
+                    + "AND failed_at IS NULL "
+                    + "AND (aggregate_type <> :heldAggregateType OR created_at <= :holdCutoff) "
+                    + "ORDER BY event_id "
+                    + "FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> claimDueByIds(
+            @Param("eventIds") Collection<Integer> eventIds,
+            @Param("now") LocalDateTime now,
+            @Param("heldAggregateType") String heldAggregateType,
+            @Param("holdCutoff") LocalDateTime holdCutoff);
+
+    /**
+     * Claims the other due events of the given aggregate type and ids, whatever their age, so
+     * {@link com.example.store.messaging.NotificationCoalescer} can merge them into one digest.
+     */
+    @Query(
+            value = "SELECT * FROM outbox "
+                    + "WHERE aggregate_type = :aggregateType "
+                    + "AND aggregate_id IN (:aggregateIds) "
+                    + "AND event_id NOT IN (:claimedEventIds) "
+                    + "AND (publish_at IS NULL OR publish_at <= :now) "
+                    + "AND failed_at IS NULL "
+                    + "ORDER BY event_id "
+                    + "FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> claimDueSiblings(
+            @Param("aggregateType") String aggregateType,
+            @Param("aggregateIds") Collection<Integer> aggregateIds,
+            @Param("claimedEventIds") Collection<Integer> claimedEventIds,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Marks events the relay can never publish (no payload, no route) as failed, so the claims skip
+     * them instead of returning them at the head of every page. Clearing {@code failed_at} retries them.
+     */
+    @Modifying
+    @Query(value = "UPDATE outbox SET failed_at = :failedAt WHERE event_id IN (:eventIds)", nativeQuery = true)
+    int markFailed(@Param("eventIds") Collection<Integer> eventIds, @Param("failedAt") LocalDateTime failedAt);
+
+    /**
+     * Moves the given (published) events to {@code outbox_archive} in one statement, stamped with
+     * {@code publishedAt}. Returns the number of rows moved.
+     */
+    @Modifying
+    @Query(
+            value = "WITH moved AS (DELETE FROM outbox WHERE event_id IN (:eventIds) RETURNING *) "
+                    + "INSERT INTO outbox_archive (event_id, aggregate_type, aggregate_id, event_type, payload, "
+                    + "correlation_id, created_at, publish_at, hop_count, published_at) "
+                    + "SELECT event_id, aggregate_type, aggregate_id, event_type, payload, "
+                    + "correlation_id, created_at, publish_at, hop_count, :publishedAt FROM moved",
+            nativeQuery = true)
+    int archiveAllById(
+            @Param("eventIds") Collection<Integer> eventIds, @Param("publishedAt") LocalDateTime publishedAt);
+
+    /**
+     * Events scheduled for later, or still held back by notification coalescing, used to rebuild the
+     * delay scheduler's wheel.
+     */
+    @Query("SELECT new com.example.store.messaging.OutboxEventSaved(e.id, e.aggregateType, e.createdAt, e.publishAt) "
+            + "FROM OutboxEvent e "
+            + "WHERE e.aggregateType IN :aggregateTypes AND e.failedAt IS NULL "
+            + "AND (e.publishAt > :now OR (e.aggregateType = :heldAggregateType AND e.createdAt > :holdCutoff))")
+    List<OutboxEventSaved> findDelayed(
+            @Param("aggregateTypes") Collection<String> aggregateTypes,
+            @Param("now") LocalDateTime now,
+            @Param("heldAggregateType") String heldAggregateType,
+            @Param("holdCutoff") LocalDateTime holdCutoff);
 
     Optional<OutboxEvent> findFirstByAggregateTypeAndAggregateIdAndEventTypeOrderByCreatedAtDesc(
             String aggregateType, Integer aggregateId, String eventType);
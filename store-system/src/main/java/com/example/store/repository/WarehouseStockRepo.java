@@ -2,6 +2,7 @@ package com.example.store.repository;
 
 import com.example.store.model.WarehouseStock;
 import com.example.store.model.WarehouseStockId;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import jakarta.persistence.LockModeType;
@@ -20,4 +21,11 @@ public interface WarehouseStockRepo extends JpaRepository<WarehouseStock, Wareho
             @Param("warehouseId") Integer warehouseId, @Param("productId") Integer productId);
 
     List<WarehouseStock> findByIdProductId(Integer productId);
+
+    /** Locks every stock row of {@code productIds} in (warehouse, product) order, so batches cannot deadlock. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(
+            "select ws from WarehouseStock ws where ws.id.productId in :productIds "
+                    + "order by ws.id.warehouseId, ws.id.productId")
+    List<WarehouseStock> lockRowsForProducts(@Param("productIds") Collection<Integer> productIds);
 }
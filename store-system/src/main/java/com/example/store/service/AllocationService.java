@@ -13,13 +13,20 @@ import com.example.store.repository.FulfillmentItemRepo;
 import com.example.store.repository.FulfillmentRepo;
 import com.example.store.repository.StockLedgerRepo;
 import com.example.store.repository.WarehouseStockRepo;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,26 +35,33 @@ import org.springframework.web.server.ResponseStatusException;
 @Service
 public class AllocationService {
 
+    private static final Comparator<AllocationPlan.AllocationLine> LOCK_ORDER = Comparator
+            .<AllocationPlan.AllocationLine, Integer>comparing(line -> line.warehouse().getId())
+            .thenComparing(line -> line.product().getId());
+
     private final WarehouseStockRepo warehouseStockRepo;
     private final FulfillmentRepo fulfillmentRepo;
     private final FulfillmentItemRepo fulfillmentItemRepo;
     private final StockLedgerRepo stockLedgerRepo;
+    private final JdbcTemplate jdbcTemplate;
 
     public AllocationService(
             WarehouseStockRepo warehouseStockRepo,
             FulfillmentRepo fulfillmentRepo,
             FulfillmentItemRepo fulfillmentItemRepo,
-            StockLedgerRepo stockLedgerRepo) {
+            StockLedgerRepo stockLedgerRepo,
+            JdbcTemplate jdbcTemplate) {
         this.warehouseStockRepo = warehouseStockRepo;
         this.fulfillmentRepo = fulfillmentRepo;
         this.fulfillmentItemRepo = fulfillmentItemRepo;
         this.stockLedgerRepo = stockLedgerRepo;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     @Transactional(readOnly = true)
     public AllocationPlan planAllocation(List<OrderItem> orderItems) {
         if (orderItems.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Order has no items to allocate.");
+            throw noItems();
         }
 
         List<AllocationPlan.AllocationLine> allocations = new ArrayList<>();
@@ -67,9 +81,7 @@ public class AllocationService {
                         return onHand - reserved >= item.getQuantity();
                     })
                     .findFirst()
-                    .orElseThrow(() -> new ResponseStatusException(
-                            HttpStatus.CONFLICT,
-                            "Insufficient stock to allocate product " + product.getSku()));
+                    .orElseThrow(() -> insufficientStock(product.getSku()));
 
             allocations.add(new AllocationPlan.AllocationLine(chosenStock.getWarehouse(), product, item.getQuantity()));
         }
@@ -85,8 +97,13 @@ public class AllocationService {
         List<FulfillmentItem> fulfillmentItems = new ArrayList<>();
         List<StockLedger> ledgerEntries = new ArrayList<>();
 
-        for (AllocationPlan.AllocationLine line : plan.lines()) {
-            Warehouse warehouse = ensureWarehouse(line.warehouse());
+        // Rows are locked in the same (warehouse, product) order as reserveStockBatch, so the two cannot deadlock.
+        List<AllocationPlan.AllocationLine> lines = new ArrayList<>(plan.lines());
+        lines.forEach(line -> ensureWarehouse(line.warehouse()));
+        lines.sort(LOCK_ORDER);
+
+        for (AllocationPlan.AllocationLine line : lines) {
+            Warehouse warehouse = line.warehouse();
             Integer warehouseId = warehouse.getId();
             Integer productId = line.product().getId();
 
@@ -154,6 +171,78 @@ public class AllocationService {
         }
     }
 
+    /**
+     * Allocates a batch of orders in memory against one locked snapshot of their stock. All stock rows
+     * of the products ordered are locked in a single query, in (warehouse, product) order; each order
+     * then takes, per item, the first warehouse with enough available stock, in the order given. An
+     * order that cannot be allocated in full is left out and added to {@code rejected} with the error
+     * {@link #planAllocation} would have raised for it, and its earlier reservations in the batch are
+     * undone. Fulfillments, their items and the ledger entries are written with JDBC
+     * batches rather than one entity insert each, so {@link CustomerOrder#getFulfillments()} of the
+     * returned orders is not updated in this persistence context.
+     *
+     * @return the orders that were allocated, in the order given
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<CustomerOrder> reserveStockBatch(
+            List<CustomerOrder> orders,
+            Map<Integer, List<OrderItem>> itemsByOrder,
+            Map<Integer, ResponseStatusException> rejected) {
+        Set<Integer> productIds = new LinkedHashSet<>();
+        itemsByOrder.values().forEach(items -> items.forEach(item -> productIds.add(item.getProduct().getId())));
+        if (productIds.isEmpty()) {
+            orders.forEach(order -> rejected.put(order.getId(), noItems()));
+            return List.of();
+        }
+
+        Map<Integer, List<WarehouseStock>> stocksByProduct = new HashMap<>();
+        for (WarehouseStock stock : warehouseStockRepo.lockRowsForProducts(productIds)) {
+            stocksByProduct.computeIfAbsent(stock.getId().getProductId(), id -> new ArrayList<>()).add(stock);
+        }
+
+        List<CustomerOrder> allocated = new ArrayList<>(orders.size());
+        List<BatchLine> lines = new ArrayList<>();
+        for (CustomerOrder order : orders) {
+            List<OrderItem> items = itemsByOrder.getOrDefault(order.getId(), List.of());
+            if (items.isEmpty()) {
+                rejected.put(order.getId(), noItems());
+                continue;
+            }
+            List<BatchLine> orderLines = new ArrayList<>(items.size());
+            String shortfall = null;
+            for (OrderItem item : items) {
+                WarehouseStock chosen = null;
+                for (WarehouseStock stock : stocksByProduct.getOrDefault(item.getProduct().getId(), List.of())) {
+                    if (available(stock) >= item.getQuantity()) {
+                        chosen = stock;
+                        break;
+                    }
+                }
+                if (chosen == null) {
+                    shortfall = item.getProduct().getSku();
+                    break;
+                }
+                chosen.setQtyReserved(Objects.requireNonNullElse(chosen.getQtyReserved(), 0) + item.getQuantity());
+                orderLines.add(new BatchLine(order.getId(), chosen, item.getQuantity()));
+            }
+            if (shortfall != null) {
+                for (BatchLine line : orderLines) {
+                    line.stock().setQtyReserved(line.stock().getQtyReserved() - line.quantity());
+                }
+                rejected.put(order.getId(), insufficientStock(shortfall));
+                continue;
+            }
+            allocated.add(order);
+            lines.addAll(orderLines);
+        }
+
+        // The reserved quantities are flushed with the stock entities; the rows below bypass the persistence context.
+        if (!lines.isEmpty()) {
+            writeAllocations(lines, LocalDateTime.now());
+        }
+        return allocated;
+    }
+
     @Transactional(propagation = Propagation.MANDATORY)
     public void releaseStock(CustomerOrder order) {
         if (order.getFulfillments().isEmpty()) {
@@ -164,36 +253,40 @@ public class AllocationService {
         List<Fulfillment> fulfillments = new ArrayList<>(order.getFulfillments());
         List<StockLedger> ledgerEntries = new ArrayList<>();
 
+        // Rows are locked in the same (warehouse, product) order as the allocation paths, so a cancel
+        // cannot deadlock with them.
+        List<AllocationPlan.AllocationLine> lines = new ArrayList<>();
         for (Fulfillment fulfillment : fulfillments) {
             Warehouse warehouse = ensureWarehouse(fulfillment.getWarehouse());
-
-            for (FulfillmentItem item : new ArrayList<>(fulfillment.getItems())) {
-                Integer productId = item.getProduct().getId();
+            for (FulfillmentItem item : fulfillment.getItems()) {
                 Integer quantity = Objects.requireNonNullElse(item.getQuantityPicked(), 0);
-                if (quantity <= 0) {
-                    continue;
+                if (quantity > 0) {
+                    lines.add(new AllocationPlan.AllocationLine(warehouse, item.getProduct(), quantity));
                 }
-
-                WarehouseStock stock = warehouseStockRepo
-                        .lockRow(warehouse.getId(), productId)
-                        .orElseThrow(() -> new ResponseStatusException(
-                                HttpStatus.INTERNAL_SERVER_ERROR,
-                                "Unable to locate warehouse stock during release."));
-
-                Integer reserved = Objects.requireNonNullElse(stock.getQtyReserved(), 0);
-                stock.setQtyReserved(Math.max(0, reserved - quantity));
-                warehouseStockRepo.save(stock);
-
-                StockLedger ledger = new StockLedger();
-                ledger.setWarehouse(warehouse);
-                ledger.setProduct(item.getProduct());
-                ledger.setOrder(order);
-                ledger.setReason("CANCEL");
-                ledger.setQuantityDelta(quantity);
-                ledger.setCreatedAt(now);
-                ledgerEntries.add(ledger);
             }
         }
+        lines.sort(LOCK_ORDER);
+
+        for (AllocationPlan.AllocationLine line : lines) {
+            WarehouseStock stock = warehouseStockRepo
+                    .lockRow(line.warehouse().getId(), line.product().getId())
+                    .orElseThrow(() -> new ResponseStatusException(
+                            HttpStatus.INTERNAL_SERVER_ERROR,
+                            "Unable to locate warehouse stock during release."));
+
+            Integer reserved = Objects.requireNonNullElse(stock.getQtyReserved(), 0);
+            stock.setQtyReserved(Math.max(0, reserved - line.quantity()));
+            warehouseStockRepo.save(stock);
+
+            StockLedger ledger = new StockLedger();
+            ledger.setWarehouse(line.warehouse());
+            ledger.setProduct(line.product());
+            ledger.setOrder(order);
+            ledger.setReason("CANCEL");
+            ledger.setQuantityDelta(line.quantity());
+            ledger.setCreatedAt(now);
+            ledgerEntries.add(ledger);
+        }
 
         if (!ledgerEntries.isEmpty()) {
             stockLedgerRepo.saveAll(ledgerEntries);
@@ -203,10 +296,80 @@ public class AllocationService {
         order.getFulfillments().clear();
     }
 
+    private void writeAllocations(List<BatchLine> lines, LocalDateTime now) {
+        Timestamp allocatedAt = Timestamp.valueOf(now);
+        Map<List<Integer>, Integer> fulfillments = new LinkedHashMap<>();
+        for (BatchLine line : lines) {
+            fulfillments.put(List.of(line.orderId(), line.warehouseId()), null);
+        }
+        List<Integer> orderIds = new ArrayList<>(fulfillments.size());
+        List<Integer> warehouseIds = new ArrayList<>(fulfillments.size());
+        fulfillments.keySet().forEach(key -> {
+            orderIds.add(key.get(0));
+            warehouseIds.add(key.get(1));
+        });
+        // One fulfillment per (order, warehouse) in a single statement; RETURNING maps the generated ids back.
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO fulfillment (order_id, warehouse_id, status, allocated_at) "
+                            + "SELECT o, w, 'ALLOCATED', ? FROM unnest(?, ?) AS t(o, w) "
+                            + "RETURNING order_id, warehouse_id, fulfillment_id");
+            statement.setTimestamp(1, allocatedAt);
+            statement.setArray(2, connection.createArrayOf("integer", orderIds.toArray()));
+            statement.setArray(3, connection.createArrayOf("integer", warehouseIds.toArray()));
+            return statement;
+        }, rs -> {
+            fulfillments.put(List.of(rs.getInt(1), rs.getInt(2)), rs.getInt(3));
+        });
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO fulfillment_item (fulfillment_id, product_id, qty_picked) VALUES (?, ?, ?)",
+                lines, lines.size(), (statement, line) -> {
+                    statement.setInt(1, fulfillments.get(List.of(line.orderId(), line.warehouseId())));
+                    statement.setInt(2, line.productId());
+                    statement.setInt(3, line.quantity());
+                });
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO stock_ledger (warehouse_id, product_id, reason, qty_delta, order_id, created_at) "
+                        + "VALUES (?, ?, 'ALLOCATE', ?, ?, ?)",
+                lines, lines.size(), (statement, line) -> {
+                    statement.setInt(1, line.warehouseId());
+                    statement.setInt(2, line.productId());
+                    statement.setInt(3, -line.quantity());
+                    statement.setInt(4, line.orderId());
+                    statement.setTimestamp(5, allocatedAt);
+                });
+    }
+
+    private static ResponseStatusException noItems() {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Order has no items to allocate.");
+    }
+
+    private static ResponseStatusException insufficientStock(String sku) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Insufficient stock to allocate product " + sku);
+    }
+
+    private static int available(WarehouseStock stock) {
+        Integer onHand = Objects.requireNonNullElse(stock.getQtyOnHand(), 0);
+        Integer reserved = Objects.requireNonNullElse(stock.getQtyReserved(), 0);
+        return onHand - reserved;
+    }
+
     private Warehouse ensureWarehouse(Warehouse warehouse) {
         if (warehouse == null || warehouse.getId() == null) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Allocation missing warehouse.");
         }
         return warehouse;
     }
+
+    private record BatchLine(Integer orderId, WarehouseStock stock, int quantity) {
+
+        Integer warehouseId() {
+            return stock.getId().getWarehouseId();
+        }
+
+        Integer productId() {
+            return stock.getId().getProductId();
+        }
+    }
 }
@@ -0,0 +1,94 @@
+package com.example.store.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Reruns a saga transaction that lost an optimistic-lock race on a versioned {@code CustomerOrder} or
+ * {@code Delivery} row. Each attempt is a fresh transaction that re-reads the rows, so the state
+ * machine sees the winner's status. Attempts are spaced by full jitter on an exponential backoff
+ * ({@code random(0, min(max-delay, base-delay * 2^attempt))}) so racing handlers for the same order
+ * do not collide again in lockstep. When attempts run out the exception propagates to the caller:
+ * the listener retry tiers for messages, a 409 for REST calls.
+ *
+ * <p>Must be called outside any transaction; retrying inside one would reuse the stale persistence
+ * context.
+ */
+@Component
+public class OptimisticRetryExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimisticRetryExecutor.class);
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public OptimisticRetryExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${store.saga.optimistic-retry.max-attempts:5}") int maxAttempts,
+            @Value("${store.saga.optimistic-retry.base-delay-ms:10}") long baseDelayMs,
+            @Value("${store.saga.optimistic-retry.max-delay-ms:200}") long maxDelayMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = Math.max(1, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        this.retries = Counter.builder("store.saga.optimistic.retries")
+                .description("Saga transactions rerun after an optimistic-lock conflict")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("store.saga.optimistic.exhausted")
+                .description("Saga transactions that still conflicted after the last attempt")
+                .register(meterRegistry);
+    }
+
+    public void run(String operation, Object key, Runnable action) {
+        call(operation, key, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T call(String operation, Object key, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Optimistic retry of " + operation + " started inside a transaction");
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    log.warn("{} for {} still conflicting after {} attempts", operation, key, attempt);
+                    throw ex;
+                }
+                retries.increment();
+                long delayMs = backoff(attempt);
+                log.debug("{} for {} lost an optimistic-lock race (attempt {}); retrying in {} ms",
+                        operation, key, attempt, delayMs);
+                sleep(delayMs, ex);
+            }
+        }
+    }
+
+    private long backoff(int attempt) {
+        long cap = baseDelayMs << Math.min(attempt, 20);
+        return ThreadLocalRandom.current().nextLong(Math.min(maxDelayMs, cap) + 1);
+    }
+
+    private static void sleep(long delayMs, OptimisticLockingFailureException cause) {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.store.service;
+
+/** Events that move a {@link com.example.store.model.CustomerOrder} through {@link OrderStateMachine}. */
+public enum OrderEvent {
+
+    ALLOCATE("Order not in NEW status for allocation."),
+    REQUEST_PAYMENT("Order not in ALLOCATED status for payment."),
+    PAYMENT_SUCCEEDED("Order is not awaiting payment."),
+    PAYMENT_FAILED("Order is not awaiting payment."),
+    BYPASS_PAYMENT("Order not in a state that can bypass payment processing."),
+    CANCEL("Order cannot be cancelled."),
+    DELIVERY_ACKNOWLEDGED("Order has not been sent to delivery."),
+    PICKED_UP("Order has not been sent to delivery."),
+    IN_TRANSIT("Order has not been sent to delivery."),
+    DELIVERED("Order has not been sent to delivery."),
+    ITEM_LOST("Order has not been sent to delivery.");
+
+    private final String rejection;
+
+    OrderEvent(String rejection) {
+        this.rejection = rejection;
+    }
+
+    /** Reason given when the event arrives in a status that has no more specific rule for it. */
+    String rejection() {
+        return rejection;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.store.service;
+
+import com.example.contracts.tracing.MessageTrace;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serialises saga commands per order inside this node. Each order id hashes to one of
+ * {@code store.saga.mailbox.stripes} single-thread executors, so at most one command for an order
+ * runs at a time and commands for an order run in the order they were submitted, while orders on
+ * other stripes run in parallel. Concurrent events for one order therefore queue here instead of
+ * waiting on each other's row locks or losing optimistic-lock races.
+ *
+ * <p>Callers block until their command has run and get its result or exception, so listeners
+ * still ack only after the work is done. Commands must not submit to the mailbox themselves. A
+ * stripe count of 0 runs commands on the caller's thread. Batch listeners do not use the mailbox:
+ * a batch spans many orders and is applied in one transaction, so it relies on the optimistic-lock
+ * retries instead.
+ */
+@Component
+public class OrderMailbox {
+
+    private final ExecutorService[] stripes;
+
+    public OrderMailbox(@Value("${store.saga.mailbox.stripes:16}") int stripes) {
+        this.stripes = new ExecutorService[Math.max(0, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = Executors.newSingleThreadExecutor(
+                    new CustomizableThreadFactory("order-mailbox-" + i + "-"));
+        }
+    }
+
+    public void run(Integer orderId, Runnable command) {
+        call(orderId, () -> {
+            command.run();
+            return null;
+        });
+    }
+
+    public <T> T call(Integer orderId, Supplier<T> command) {
+        if (stripes.length == 0) {
+            return command.get();
+        }
+        return await(stripeOf(orderId).submit(MessageTrace.propagate(command)::get));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+
+    private ExecutorService stripeOf(Integer orderId) {
+        // Orders without an id are rejected by the saga; any stripe will do.
+        int hash = orderId == null ? 0 : Integer.hashCode(orderId) * 0x9E3779B9;
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for order mailbox", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
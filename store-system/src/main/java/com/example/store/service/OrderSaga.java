@@ -1,20 +1,23 @@
 package com.example.store.service;
 
+import com.example.contracts.messaging.DeliveryAcknowledgementMessage;
+import com.example.contracts.messaging.DeliveryDeliveredEmailMessage;
+import com.example.contracts.messaging.DeliveryDeliveredMessage;
+import com.example.contracts.messaging.DeliveryInTransitEmailMessage;
+import com.example.contracts.messaging.DeliveryInTransitMessage;
+import com.example.contracts.messaging.DeliveryItemLostMessage;
+import com.example.contracts.messaging.DeliveryLostEmailMessage;
+import com.example.contracts.messaging.DeliveryPickupEmailMessage;
+import com.example.contracts.messaging.DeliveryPickupMessage;
+import com.example.contracts.messaging.OrderAllocatedMessage;
+import com.example.contracts.messaging.OrderPlacedMessage;
+import com.example.contracts.messaging.OrderReadyForPickupMessage;
+import com.example.contracts.messaging.PaymentResultEmailMessage;
+import com.example.contracts.messaging.PaymentResultMessage;
 import com.example.store.api.dto.CancelOrderResponse;
 import com.example.store.api.dto.RequestPaymentResponse;
 import com.example.store.api.dto.ReserveStockResponse;
-import com.example.store.messaging.DeliveryAcknowledgementMessage;
-import com.example.store.messaging.DeliveryDeliveredEmailMessage;
-import com.example.store.messaging.DeliveryDeliveredMessage;
-import com.example.store.messaging.DeliveryInTransitEmailMessage;
-import com.example.store.messaging.DeliveryInTransitMessage;
-import com.example.store.messaging.DeliveryLostEmailMessage;
-import com.example.store.messaging.DeliveryItemLostMessage;
-import com.example.store.messaging.DeliveryPickupEmailMessage;
-import com.example.store.messaging.DeliveryPickupMessage;
-import com.example.store.messaging.OrderReadyForPickupMessage;
-import com.example.store.messaging.PaymentResultEmailMessage;
-import com.example.store.messaging.PaymentResultMessage;
+import com.example.store.messaging.OutboxEventSaved;
 import com.example.store.model.CustomerOrder;
 import com.example.store.model.Delivery;
 import com.example.store.model.Fulfillment;
@@ -22,23 +25,28 @@ import com.example.store.model.FulfillmentItem;
 import com.example.store.model.OrderItem;
 import com.example.store.model.OutboxEvent;
 import com.example.store.model.Payment;
-import com.example.store.model.Refund;
 import com.example.store.model.Product;
+import com.example.store.model.Refund;
 import com.example.store.repository.DeliveryRepo;
 import com.example.store.repository.OrderItemRepo;
 import com.example.store.repository.OrderRepo;
 import com.example.store.repository.OutboxEventRepo;
 import com.example.store.repository.PaymentRepo;
 import com.example.store.repository.ProductRepo;
+import com.example.store.service.OrderStateMachine.Transition;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -59,6 +67,8 @@ public class OrderSaga {
     private final RefundService refundService;
     private final ObjectMapper objectMapper;
     private final ProductRepo productRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderStateMachine stateMachine;
 
     public OrderSaga(
             OrderRepo orderRepo,
@@ -70,7 +80,9 @@ public class OrderSaga {
             OutboxEventRepo outboxEventRepo,
             RefundService refundService,
             ObjectMapper objectMapper,
-            ProductRepo productRepo) {
+            ProductRepo productRepo,
+            ApplicationEventPublisher eventPublisher,
+            OrderStateMachine stateMachine) {
         this.orderRepo = orderRepo;
         this.orderItemRepo = orderItemRepo;
         this.allocationService = allocationService;
@@ -81,6 +93,8 @@ public class OrderSaga {
         this.refundService = refundService;
         this.objectMapper = objectMapper;
         this.productRepo = productRepo;
+        this.eventPublisher = eventPublisher;
+        this.stateMachine = stateMachine;
     }
 
     @Transactional
@@ -89,48 +103,93 @@ public class OrderSaga {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
 
         // If order is already allocated or processed, return success (idempotency)
-        if ("ALLOCATED".equalsIgnoreCase(order.getStatus()) ||
-                "FULFILLED".equalsIgnoreCase(order.getStatus()) ||
-                "PAYMENT_REQUESTED".equalsIgnoreCase(order.getStatus())) {
+        Transition transition = stateMachine.check(order, OrderEvent.ALLOCATE);
+        if (transition.ignored()) {
             log.info("Order {} already processed with status {}. Skipping allocation.", orderId, order.getStatus());
             return new ReserveStockResponse(orderId, "Order already processed");
         }
 
-        if (!"NEW".equalsIgnoreCase(order.getStatus())) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order not in NEW status for allocation.");
-        }
-
         List<OrderItem> orderItems = orderItemRepo.findByOrder(order);
         AllocationPlan plan = allocationService.planAllocation(orderItems);
         allocationService.reserveStock(order, plan);
 
         LocalDateTime now = LocalDateTime.now();
-        order.setStatus("ALLOCATED");
-        order.setUpdatedAt(now);
+        stateMachine.apply(order, transition, now);
         orderRepo.save(order);
 
         persistOrderAllocatedEvent(order, now);
 
-        return new ReserveStockResponse(order.getId(), order.getStatus());
+        return new ReserveStockResponse(order.getId(), order.getStatus().name());
     }
 
+    /**
+     * Batch counterpart of {@link #reserveStock} for a drained set of placed orders, in one
+     * transaction: orders and their items are loaded with one query each and allocated together by
+     * {@link AllocationService#reserveStockBatch}. An order that is missing, rejected by the state
+     * machine or short of stock is left as it is rather than failing the batch.
+     *
+     * @return the error {@link #reserveStock} would have raised for each order left out, by order id
+     */
     @Transactional
-    public CancelOrderResponse cancelOrder(Integer orderId) {
-        CustomerOrder order = orderRepo.findByIdWithCustomer(orderId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
-
-        if ("CANCELLED".equalsIgnoreCase(order.getStatus())) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order already cancelled.");
+    public Map<Integer, ResponseStatusException> reserveStockBatch(List<OrderPlacedMessage> messages) {
+        List<Integer> orderIds = messages.stream()
+                .map(OrderPlacedMessage::orderId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<Integer, CustomerOrder> ordersById = new HashMap<>();
+        orderRepo.findAllById(orderIds).forEach(order -> ordersById.put(order.getId(), order));
+
+        Map<Integer, ResponseStatusException> rejected = new HashMap<>();
+        List<CustomerOrder> pending = new ArrayList<>(orderIds.size());
+        Map<Integer, Transition> transitions = new HashMap<>();
+        for (Integer orderId : orderIds) {
+            CustomerOrder order = ordersById.get(orderId);
+            if (order == null) {
+                rejected.put(orderId, new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
+                continue;
+            }
+            try {
+                Transition transition = stateMachine.check(order, OrderEvent.ALLOCATE);
+                if (transition.ignored()) {
+                    log.info("Order {} already processed with status {}. Skipping allocation.",
+                            orderId, order.getStatus());
+                    continue;
+                }
+                transitions.put(orderId, transition);
+                pending.add(order);
+            } catch (ResponseStatusException ex) {
+                rejected.put(orderId, ex);
+            }
+        }
+        if (pending.isEmpty()) {
+            return rejected;
         }
 
-        if (deliveryRequestAlreadySent(order)) {
-            throw new ResponseStatusException(
-                    HttpStatus.CONFLICT, "Order already sent to delivery and cannot be cancelled.");
+        Map<Integer, List<OrderItem>> itemsByOrder = new HashMap<>();
+        for (OrderItem item : orderItemRepo.findByOrderInWithProduct(pending)) {
+            itemsByOrder.computeIfAbsent(item.getId().getOrderId(), id -> new ArrayList<>()).add(item);
         }
+        List<CustomerOrder> allocated = allocationService.reserveStockBatch(pending, itemsByOrder, rejected);
 
         LocalDateTime now = LocalDateTime.now();
+        for (CustomerOrder order : allocated) {
+            stateMachine.apply(order, transitions.get(order.getId()), now);
+            persistOrderAllocatedEvent(order, now);
+        }
+        orderRepo.saveAll(allocated);
+        log.info("Allocated {} of {} placed orders in one batch", allocated.size(), orderIds.size());
+        return rejected;
+    }
+
+    @Transactional
+    public CancelOrderResponse cancelOrder(Integer orderId) {
+        CustomerOrder order = orderRepo.findByIdWithCustomer(orderId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
 
-        allocationService.releaseStock(order);
+        Transition transition = stateMachine.check(order, OrderEvent.CANCEL);
+
+        LocalDateTime now = LocalDateTime.now();
 
         // Delete any pending delivery outbox events to prevent delivery
         Optional<OutboxEvent> deliveryEvent = outboxEventRepo
@@ -145,8 +204,8 @@ public class OrderSaga {
             }
         }
 
-        order.setStatus("CANCELLED");
-        order.setUpdatedAt(now);
+        // Releases the order's stock if it holds any.
+        stateMachine.apply(order, transition, now);
         orderRepo.save(order);
 
         // Also delete any delivery records that might have been created
@@ -167,7 +226,7 @@ public class OrderSaga {
         Integer refundId = refund != null ? refund.getId() : null;
         String refundStatus = refund != null ? refund.getStatus() : null;
 
-        return new CancelOrderResponse(order.getId(), order.getStatus(), refundId, refundStatus);
+        return new CancelOrderResponse(order.getId(), order.getStatus().name(), refundId, refundStatus);
     }
 
     @Transactional
@@ -175,14 +234,11 @@ public class OrderSaga {
         CustomerOrder order = orderRepo.findByIdWithCustomer(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
 
-        if (!"ALLOCATED".equalsIgnoreCase(order.getStatus())) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order not in ALLOCATED status for payment.");
-        }
+        Transition transition = stateMachine.check(order, OrderEvent.REQUEST_PAYMENT);
 
         Payment payment = paymentService.requestPayment(order);
 
-        order.setStatus("PAYMENT_PENDING");
-        order.setUpdatedAt(LocalDateTime.now());
+        stateMachine.apply(order, transition, LocalDateTime.now());
         orderRepo.save(order);
 
         return new RequestPaymentResponse(
@@ -190,7 +246,7 @@ public class OrderSaga {
                 payment.getId(),
                 payment.getAmount(),
                 payment.getStatus(),
-                order.getStatus(),
+                order.getStatus().name(),
                 payment.getBankTransactionReference());
     }
 
@@ -214,10 +270,13 @@ public class OrderSaga {
             if ("CONFIRMED".equalsIgnoreCase(payment.getStatus())) {
                 return;
             }
+            Transition transition = stateMachine.check(order, OrderEvent.PAYMENT_SUCCEEDED);
+            if (transition.ignored()) {
+                return;
+            }
 
             paymentService.recordPaymentSuccess(payment, message.bankTransactionReference(), now);
-            order.setStatus("PAID");
-            order.setUpdatedAt(now);
+            stateMachine.apply(order, transition, now);
             orderRepo.save(order);
             persistOrderReadyForPickupEvent(order, payment, now);
             persistPaymentResultEmailEvent(order, payment, message, now);
@@ -225,11 +284,14 @@ public class OrderSaga {
             if ("FAILED".equalsIgnoreCase(payment.getStatus())) {
                 return;
             }
+            Transition transition = stateMachine.check(order, OrderEvent.PAYMENT_FAILED);
+            if (transition.ignored()) {
+                return;
+            }
 
             paymentService.recordPaymentFailure(payment, message.bankTransactionReference());
-            allocationService.releaseStock(order);
-            order.setStatus("PAYMENT_FAILED");
-            order.setUpdatedAt(now);
+            // Releases the order's stock.
+            stateMachine.apply(order, transition, now);
             orderRepo.save(order);
             persistPaymentResultEmailEvent(order, payment, message, now);
         } else {
@@ -242,13 +304,7 @@ public class OrderSaga {
         CustomerOrder order = orderRepo.findById(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
 
-        String currentStatus = order.getStatus();
-        if (!"ALLOCATED".equalsIgnoreCase(currentStatus)
-                && !"PAYMENT_PENDING".equalsIgnoreCase(currentStatus)
-                && !"PAID".equalsIgnoreCase(currentStatus)) {
-            throw new ResponseStatusException(
-                    HttpStatus.CONFLICT, "Order not in a state that can bypass payment processing.");
-        }
+        Transition transition = stateMachine.check(order, OrderEvent.BYPASS_PAYMENT);
 
         LocalDateTime now = LocalDateTime.now();
 
@@ -275,8 +331,7 @@ public class OrderSaga {
         payment = paymentRepo.save(payment);
         order.setPayment(payment);
 
-        order.setStatus("PAID");
-        order.setUpdatedAt(now);
+        stateMachine.apply(order, transition, now);
         orderRepo.save(order);
 
         persistOrderReadyForPickupEvent(order, payment, now);
@@ -295,11 +350,8 @@ public class OrderSaga {
         CustomerOrder order = orderRepo.findById(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
 
-        if ("CANCELLED".equalsIgnoreCase(order.getStatus())) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Cancelled orders cannot be acknowledged.");
-        }
-
-        if ("DELIVERY_CONFIRMED".equalsIgnoreCase(order.getStatus())) {
+        Transition transition = stateMachine.check(order, OrderEvent.DELIVERY_ACKNOWLEDGED);
+        if (transition.ignored()) {
             return;
         }
 
@@ -333,25 +385,46 @@ public class OrderSaga {
         order.setDelivery(delivery);
         deliveryRepo.save(delivery);
 
-        order.setStatus("DELIVERY_CONFIRMED");
-        order.setUpdatedAt(acknowledgementTime);
+        stateMachine.apply(order, transition, acknowledgementTime);
         orderRepo.save(order);
     }
 
     @Transactional
     public void handleDeliveryPickup(DeliveryPickupMessage message) {
-        Integer orderId = message.orderId();
-        if (orderId == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Delivery pickup missing order id.");
+        DeliveryUpdate update = checkDeliveryUpdate(
+                message.orderId(), OrderEvent.PICKED_UP, "Delivery pickup missing order id.", "pickup");
+        if (update != null) {
+            applyDeliveryPickup(update, message);
         }
+    }
 
-        CustomerOrder order = orderRepo.findById(orderId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
-
-        if ("CANCELLED".equalsIgnoreCase(order.getStatus())) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Cancelled orders cannot be picked up.");
+    /**
+     * Applies a batch of pickups in one transaction. Each message is checked before anything is
+     * written for it; one the checks reject is left out and its error returned, keyed by its
+     * position in {@code messages}. Any other failure rolls back the whole batch.
+     */
+    @Transactional
+    public Map<Integer, ResponseStatusException> handleDeliveryPickups(List<DeliveryPickupMessage> messages) {
+        Map<Integer, ResponseStatusException> rejected = new HashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            DeliveryPickupMessage message = messages.get(i);
+            DeliveryUpdate update;
+            try {
+                update = checkDeliveryUpdate(
+                        message.orderId(), OrderEvent.PICKED_UP, "Delivery pickup missing order id.", "pickup");
+            } catch (ResponseStatusException ex) {
+                rejected.put(i, ex);
+                continue;
+            }
+            if (update != null) {
+                applyDeliveryPickup(update, message);
+            }
         }
+        return rejected;
+    }
 
+    private void applyDeliveryPickup(DeliveryUpdate update, DeliveryPickupMessage message) {
+        CustomerOrder order = update.order();
         LocalDateTime pickupTime = message.pickedUpAt() != null ? message.pickedUpAt() : LocalDateTime.now();
 
         Delivery delivery = order.getDelivery();
@@ -375,26 +448,44 @@ public class OrderSaga {
         delivery.setStatus("PICKED_UP");
         order.setDelivery(delivery);
         deliveryRepo.save(delivery);
-        order.setStatus("OUT_FOR_DELIVERY");
-        order.setUpdatedAt(pickupTime);
+        stateMachine.apply(order, update.transition(), pickupTime);
         orderRepo.save(order);
-        persistDeliveryPickupEmailEvent(order, delivery, message, pickupTime);
+        persistDeliveryPickupEmailEvent(order, delivery, message, update.customerEmail(), pickupTime);
     }
 
     @Transactional
     public void handleDeliveryInTransit(DeliveryInTransitMessage message) {
-        Integer orderId = message.orderId();
-        if (orderId == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Delivery in-transit update missing order id.");
+        DeliveryUpdate update = checkDeliveryUpdate(message.orderId(), OrderEvent.IN_TRANSIT,
+                "Delivery in-transit update missing order id.", "in-transit update");
+        if (update != null) {
+            applyDeliveryInTransit(update, message);
         }
+    }
 
-        CustomerOrder order = orderRepo.findById(orderId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
-
-        if ("CANCELLED".equalsIgnoreCase(order.getStatus())) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Cancelled orders cannot be in transit.");
+    /** Batch counterpart of {@link #handleDeliveryInTransit}, see {@link #handleDeliveryPickups}. */
+    @Transactional
+    public Map<Integer, ResponseStatusException> handleDeliveryInTransitUpdates(
+            List<DeliveryInTransitMessage> messages) {
+        Map<Integer, ResponseStatusException> rejected = new HashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            DeliveryInTransitMessage message = messages.get(i);
+            DeliveryUpdate update;
+            try {
+                update = checkDeliveryUpdate(message.orderId(), OrderEvent.IN_TRANSIT,
+                        "Delivery in-transit update missing order id.", "in-transit update");
+            } catch (ResponseStatusException ex) {
+                rejected.put(i, ex);
+                continue;
+            }
+            if (update != null) {
+                applyDeliveryInTransit(update, message);
+            }
         }
+        return rejected;
+    }
 
+    private void applyDeliveryInTransit(DeliveryUpdate update, DeliveryInTransitMessage message) {
+        CustomerOrder order = update.order();
         LocalDateTime updateTime = message.updatedAt() != null ? message.updatedAt() : LocalDateTime.now();
 
         Delivery delivery = order.getDelivery();
@@ -419,11 +510,32 @@ public class OrderSaga {
         order.setDelivery(delivery);
         deliveryRepo.save(delivery);
 
-        order.setStatus("IN_TRANSIT");
-        order.setUpdatedAt(updateTime);
+        stateMachine.apply(order, update.transition(), updateTime);
         orderRepo.save(order);
 
-        persistDeliveryInTransitEmailEvent(order, delivery, message, updateTime);
+        persistDeliveryInTransitEmailEvent(order, delivery, message, update.customerEmail(), updateTime);
+    }
+
+    /**
+     * Loads the order a delivery update is for and checks {@code event} against it, without writing
+     * anything. Returns null when the state machine ignores the event; throws for a message that
+     * cannot be applied, including an order without a customer email to notify.
+     */
+    private DeliveryUpdate checkDeliveryUpdate(
+            Integer orderId, OrderEvent event, String missingOrderIdReason, String description) {
+        if (orderId == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, missingOrderIdReason);
+        }
+
+        CustomerOrder order = orderRepo.findById(orderId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
+
+        Transition transition = stateMachine.check(order, event);
+        if (transition.ignored()) {
+            log.info("Ignoring {} for order {} already {}", description, orderId, order.getStatus());
+            return null;
+        }
+        return new DeliveryUpdate(order, transition, customerEmail(order));
     }
 
     @Transactional
@@ -436,11 +548,8 @@ public class OrderSaga {
         CustomerOrder order = orderRepo.findById(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
 
-        if ("CANCELLED".equalsIgnoreCase(order.getStatus())) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Cancelled orders cannot be delivered.");
-        }
-
-        if ("DELIVERED".equalsIgnoreCase(order.getStatus())) {
+        Transition transition = stateMachine.check(order, OrderEvent.DELIVERED);
+        if (transition.ignored()) {
             return;
         }
 
@@ -469,8 +578,7 @@ public class OrderSaga {
         order.setDelivery(delivery);
         deliveryRepo.save(delivery);
 
-        order.setStatus("DELIVERED");
-        order.setUpdatedAt(deliveredAt);
+        stateMachine.apply(order, transition, deliveredAt);
         orderRepo.save(order);
 
         persistDeliveryDeliveredEmailEvent(order, delivery, message, deliveredAt);
@@ -486,6 +594,8 @@ public class OrderSaga {
         CustomerOrder order = orderRepo.findByIdWithCustomer(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
 
+        stateMachine.check(order, OrderEvent.ITEM_LOST);
+
         Payment payment = order.getPayment();
         if (payment == null) {
             throw new ResponseStatusException(
@@ -530,18 +640,15 @@ public class OrderSaga {
         event.setCorrelationId(correlationId);
         event.setCreatedAt(timestamp);
         event.setPublishAt(timestamp);
-        event.setPayload(String.format(
-                "{\"orderId\":%d,\"status\":\"%s\",\"correlationId\":\"%s\"}",
-                order.getId(),
-                order.getStatus(),
-                correlationId));
-        outboxEventRepo.save(event);
+        event.setPayload(writePayload(
+                new OrderAllocatedMessage(order.getId(), order.getStatus().name(), correlationId)));
+        saveOutboxEvent(event);
     }
 
     private void persistOrderReadyForPickupEvent(CustomerOrder order, Payment payment, LocalDateTime timestamp) {
         OrderReadyForPickupMessage payload = new OrderReadyForPickupMessage(
                 order.getId(),
-                order.getStatus(),
+                order.getStatus().name(),
                 payment.getId(),
                 payment.getStatus(),
                 orderCorrelation(order),
@@ -559,7 +666,7 @@ public class OrderSaga {
         // event.setPublishAt(timestamp.plusSeconds(1));
         event.setPublishAt(timestamp.plusMinutes(3));
         event.setPayload(writePayload(payload));
-        outboxEventRepo.save(event);
+        saveOutboxEvent(event);
     }
 
     private void persistPaymentResultEmailEvent(
@@ -582,19 +689,23 @@ public class OrderSaga {
         event.setCreatedAt(timestamp);
         event.setPublishAt(timestamp);
         event.setPayload(writePayload(payload));
-        outboxEventRepo.save(event);
+        saveOutboxEvent(event);
     }
 
     private void persistDeliveryPickupEmailEvent(
-            CustomerOrder order, Delivery delivery, DeliveryPickupMessage message, LocalDateTime timestamp) {
+            CustomerOrder order,
+            Delivery delivery,
+            DeliveryPickupMessage message,
+            String customerEmail,
+            LocalDateTime timestamp) {
         String correlationId = orderCorrelation(order);
         DeliveryPickupEmailMessage payload = new DeliveryPickupEmailMessage(
                 order.getId(),
-                customerEmail(order),
+                customerEmail,
                 delivery != null ? delivery.getCarrier() : null,
                 delivery != null ? delivery.getTrackingCode() : null,
                 message.pickedUpAt() != null ? message.pickedUpAt() : timestamp,
-                order.getStatus(),
+                order.getStatus().name(),
                 correlationId);
 
         OutboxEvent event = new OutboxEvent();
@@ -605,19 +716,23 @@ public class OrderSaga {
         event.setCreatedAt(timestamp);
         event.setPublishAt(timestamp);
         event.setPayload(writePayload(payload));
-        outboxEventRepo.save(event);
+        saveOutboxEvent(event);
     }
 
     private void persistDeliveryInTransitEmailEvent(
-            CustomerOrder order, Delivery delivery, DeliveryInTransitMessage message, LocalDateTime timestamp) {
+            CustomerOrder order,
+            Delivery delivery,
+            DeliveryInTransitMessage message,
+            String customerEmail,
+            LocalDateTime timestamp) {
         String correlationId = orderCorrelation(order);
         DeliveryInTransitEmailMessage payload = new DeliveryInTransitEmailMessage(
                 order.getId(),
-                customerEmail(order),
+                customerEmail,
                 delivery != null ? delivery.getCarrier() : null,
                 delivery != null ? delivery.getTrackingCode() : null,
                 message.eta(),
-                order.getStatus(),
+                order.getStatus().name(),
                 timestamp,
                 correlationId);
 
@@ -629,7 +744,7 @@ public class OrderSaga {
         event.setCreatedAt(timestamp);
         event.setPublishAt(timestamp);
         event.setPayload(writePayload(payload));
-        outboxEventRepo.save(event);
+        saveOutboxEvent(event);
     }
 
     private void persistDeliveryDeliveredEmailEvent(
@@ -641,7 +756,7 @@ public class OrderSaga {
                 delivery != null ? delivery.getCarrier() : null,
                 delivery != null ? delivery.getTrackingCode() : null,
                 message.deliveredAt() != null ? message.deliveredAt() : timestamp,
-                order.getStatus(),
+                order.getStatus().name(),
                 correlationId);
 
         OutboxEvent event = new OutboxEvent();
@@ -652,7 +767,7 @@ public class OrderSaga {
         event.setCreatedAt(timestamp);
         event.setPublishAt(timestamp);
         event.setPayload(writePayload(payload));
-        outboxEventRepo.save(event);
+        saveOutboxEvent(event);
     }
 
     private void persistDeliveryLostEmailEvent(
@@ -675,6 +790,7 @@ public class OrderSaga {
                 customerEmail(order),
                 carrier,
                 trackingCode,
+                message.warehouseId(),
                 message.productId(),
                 message.quantityLost(),
                 timestamp,
@@ -688,7 +804,12 @@ public class OrderSaga {
         event.setCreatedAt(timestamp);
         event.setPublishAt(timestamp);
         event.setPayload(writePayload(payload));
+        saveOutboxEvent(event);
+    }
+
+    private void saveOutboxEvent(OutboxEvent event) {
         outboxEventRepo.save(event);
+        eventPublisher.publishEvent(OutboxEventSaved.from(event));
     }
 
     private List<OrderReadyForPickupMessage.WarehouseAssignment> buildWarehouseAssignments(CustomerOrder order) {
@@ -727,22 +848,6 @@ public class OrderSaga {
         return order.getCustomer().getEmail();
     }
 
-    private boolean deliveryRequestAlreadySent(CustomerOrder order) {
-        String status = order.getStatus() != null ? order.getStatus().toUpperCase() : "";
-        if ("DELIVERY_CONFIRMED".equals(status)
-                || "OUT_FOR_DELIVERY".equals(status)
-                || "IN_TRANSIT".equals(status)
-                || "DELIVERED".equals(status)) {
-            return true;
-        }
-
-        return outboxEventRepo
-                .findFirstByAggregateTypeAndAggregateIdAndEventTypeOrderByCreatedAtDesc(
-                        "ORDER", order.getId(), "OrderReadyForPickup")
-                .map(event -> {
-                    LocalDateTime publishAt = event.getPublishAt();
-                    return publishAt == null || !publishAt.isAfter(LocalDateTime.now());
-                })
-                .orElse(false);
+    private record DeliveryUpdate(CustomerOrder order, Transition transition, String customerEmail) {
     }
 }
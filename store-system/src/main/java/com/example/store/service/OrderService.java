@@ -1,5 +1,6 @@
 package com.example.store.service;
 
+import com.example.contracts.messaging.OrderPlacedMessage;
 import com.example.store.api.dto.AddOrderItemRequest;
 import com.example.store.api.dto.AddOrderItemResponse;
 import com.example.store.api.dto.CreateOrderItemRequest;
@@ -9,10 +10,12 @@ import com.example.store.api.dto.CustomerOrderItemResponse;
 import com.example.store.api.dto.CustomerOrderResponse;
 import com.example.store.api.dto.ReduceOrderItemRequest;
 import com.example.store.api.dto.ReduceOrderItemResponse;
+import com.example.store.messaging.OutboxEventSaved;
 import com.example.store.model.Customer;
 import com.example.store.model.CustomerOrder;
 import com.example.store.model.OrderItem;
 import com.example.store.model.OrderItemId;
+import com.example.store.model.OrderStatus;
 import com.example.store.model.OutboxEvent;
 import com.example.store.model.Product;
 import com.example.store.repository.CustomerRepo;
@@ -20,6 +23,8 @@ import com.example.store.repository.OrderItemRepo;
 import com.example.store.repository.OrderRepo;
 import com.example.store.repository.OutboxEventRepo;
 import com.example.store.repository.ProductRepo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -31,6 +36,7 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -46,18 +52,24 @@ public class OrderService {
     private final OutboxEventRepo outboxEventRepo;
     private final CustomerRepo customerRepo;
     private final ProductRepo productRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
 
     public OrderService(
             OrderRepo orderRepo,
             OrderItemRepo orderItemRepo,
             OutboxEventRepo outboxEventRepo,
             CustomerRepo customerRepo,
-            ProductRepo productRepo) {
+            ProductRepo productRepo,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper) {
         this.orderRepo = orderRepo;
         this.orderItemRepo = orderItemRepo;
         this.outboxEventRepo = outboxEventRepo;
         this.customerRepo = customerRepo;
         this.productRepo = productRepo;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
     }
 
     @Transactional
@@ -189,7 +201,7 @@ public class OrderService {
                 itemRequests.size(),
                 correlationId);
 
-        return new CreateOrderResponse(order.getId(), order.getStatus(), correlationId);
+        return new CreateOrderResponse(order.getId(), order.getStatus().name(), correlationId);
     }
 
     private void ensureUniqueProducts(List<CreateOrderItemRequest> itemRequests) {
@@ -226,7 +238,7 @@ public class OrderService {
             LocalDateTime now) {
         CustomerOrder order = new CustomerOrder();
         order.setCustomer(customer);
-        order.setStatus("NEW");
+        order.setStatus(OrderStatus.NEW);
         order.setCreatedAt(now);
         order.setUpdatedAt(now);
         order.setOrderTotal(calculateOrderTotal(itemRequests, productsById));
@@ -278,12 +290,17 @@ public class OrderService {
         event.setPublishAt(timestamp);
         event.setPayload(buildOrderPlacedPayload(order, correlationId));
         outboxEventRepo.save(event);
+        eventPublisher.publishEvent(OutboxEventSaved.from(event));
     }
 
     private String buildOrderPlacedPayload(CustomerOrder order, String correlationId) {
-        return String.format(
-                "{\"orderId\":%d,\"status\":\"%s\",\"correlationId\":\"%s\"}",
-                order.getId(), order.getStatus(), correlationId);
+        try {
+            return objectMapper.writeValueAsString(
+                    new OrderPlacedMessage(order.getId(), order.getStatus().name(), correlationId));
+        } catch (JsonProcessingException ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to serialise outbox payload.",
+                    ex);
+        }
     }
 
     private CustomerOrderResponse toCustomerOrderResponse(CustomerOrder order) {
@@ -293,7 +310,7 @@ public class OrderService {
         return new CustomerOrderResponse(
                 order.getId(),
                 order.getOrderTotal(),
-                order.getStatus(),
+                order.getStatus().name(),
                 order.getCreatedAt(),
                 order.getUpdatedAt(),
                 items);
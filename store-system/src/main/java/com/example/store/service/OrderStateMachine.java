@@ -0,0 +1,206 @@
+package com.example.store.service;
+
+import static com.example.store.model.OrderStatus.ALLOCATED;
+import static com.example.store.model.OrderStatus.CANCELLED;
+import static com.example.store.model.OrderStatus.DELIVERED;
+import static com.example.store.model.OrderStatus.DELIVERY_CONFIRMED;
+import static com.example.store.model.OrderStatus.IN_TRANSIT;
+import static com.example.store.model.OrderStatus.NEW;
+import static com.example.store.model.OrderStatus.OUT_FOR_DELIVERY;
+import static com.example.store.model.OrderStatus.PAID;
+import static com.example.store.model.OrderStatus.PAYMENT_FAILED;
+import static com.example.store.model.OrderStatus.PAYMENT_PENDING;
+
+import com.example.store.model.CustomerOrder;
+import com.example.store.model.OrderStatus;
+import com.example.store.repository.OutboxEventRepo;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The order lifecycle as a table of {@link OrderStatus} x {@link OrderEvent}, compiled once at
+ * startup. Each cell either applies a transition, ignores the event (a duplicate, or one overtaken by
+ * a later event, e.g. a pickup arriving after an in-transit update) or rejects it with CONFLICT.
+ * Guards can still veto an applied transition based on data outside the order row, and actions run
+ * on every status change.
+ *
+ * <p>Handlers call {@link #check} before writing anything, then {@link #apply} where they change the
+ * status.
+ */
+@Component
+public class OrderStateMachine {
+
+    public enum Outcome { APPLY, IGNORE, REJECT }
+
+    public record Transition(OrderStatus from, OrderEvent event, Outcome outcome, OrderStatus to, String reason) {
+
+        public boolean ignored() {
+            return outcome == Outcome.IGNORE;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void onTransition(CustomerOrder order, OrderStatus from, OrderStatus to);
+    }
+
+    private record Guard(Predicate<CustomerOrder> allows, String reason) {}
+
+    private static final OrderStatus[] DELIVERY_STATES = {DELIVERY_CONFIRMED, OUT_FOR_DELIVERY, IN_TRANSIT, DELIVERED};
+
+    private static final Transition[][] TABLE = compile();
+
+    private final Map<OrderEvent, List<Guard>> guards = new EnumMap<>(OrderEvent.class);
+    private final List<Action> actions = new ArrayList<>();
+
+    public OrderStateMachine(AllocationService allocationService, OutboxEventRepo outboxEventRepo) {
+        guard(OrderEvent.CANCEL,
+                order -> !pickupRequestPublished(outboxEventRepo, order),
+                "Order already sent to delivery and cannot be cancelled.");
+        onTransition((order, from, to) -> {
+            if (from.holdsStock() && !to.holdsStock()) {
+                allocationService.releaseStock(order);
+            }
+        });
+    }
+
+    public void guard(OrderEvent event, Predicate<CustomerOrder> allows, String reason) {
+        guards.computeIfAbsent(event, key -> new ArrayList<>()).add(new Guard(allows, reason));
+    }
+
+    public void onTransition(Action action) {
+        actions.add(action);
+    }
+
+    /**
+     * Looks up what {@code event} does to {@code order} in its current status.
+     *
+     * @throws ResponseStatusException CONFLICT if the table or a guard rejects the event
+     */
+    public Transition check(CustomerOrder order, OrderEvent event) {
+        Transition transition = TABLE[order.getStatus().ordinal()][event.ordinal()];
+        if (transition.outcome() == Outcome.REJECT) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, transition.reason());
+        }
+        if (transition.outcome() == Outcome.APPLY) {
+            for (Guard guard : guards.getOrDefault(event, List.of())) {
+                if (!guard.allows().test(order)) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, guard.reason());
+                }
+            }
+        }
+        return transition;
+    }
+
+    /** Moves {@code order} to the transition's target status and runs the actions. */
+    public void apply(CustomerOrder order, Transition transition, LocalDateTime at) {
+        if (transition.outcome() != Outcome.APPLY || order.getStatus() != transition.from()) {
+            throw new IllegalStateException("Transition " + transition + " does not apply to order " + order.getId()
+                    + " in status " + order.getStatus());
+        }
+        order.setStatus(transition.to());
+        order.setUpdatedAt(at);
+        for (Action action : actions) {
+            action.onTransition(order, transition.from(), transition.to());
+        }
+    }
+
+    /** {@link #check} and {@link #apply} in one step; returns the transition, which may be ignored. */
+    public Transition fire(CustomerOrder order, OrderEvent event, LocalDateTime at) {
+        Transition transition = check(order, event);
+        if (transition.outcome() == Outcome.APPLY) {
+            apply(order, transition, at);
+        }
+        return transition;
+    }
+
+    private static Transition[][] compile() {
+        Transition[][] table = new Transition[OrderStatus.values().length][OrderEvent.values().length];
+        for (OrderStatus from : OrderStatus.values()) {
+            for (OrderEvent event : OrderEvent.values()) {
+                table[from.ordinal()][event.ordinal()] =
+                        new Transition(from, event, Outcome.REJECT, from, event.rejection());
+            }
+        }
+
+        apply(table, OrderEvent.ALLOCATE, ALLOCATED, NEW);
+        ignore(table, OrderEvent.ALLOCATE, ALLOCATED, PAYMENT_PENDING, PAID);
+        ignore(table, OrderEvent.ALLOCATE, DELIVERY_STATES);
+
+        apply(table, OrderEvent.REQUEST_PAYMENT, PAYMENT_PENDING, ALLOCATED);
+
+        apply(table, OrderEvent.PAYMENT_SUCCEEDED, PAID, PAYMENT_PENDING);
+        ignore(table, OrderEvent.PAYMENT_SUCCEEDED, PAID);
+        ignore(table, OrderEvent.PAYMENT_SUCCEEDED, DELIVERY_STATES);
+
+        apply(table, OrderEvent.PAYMENT_FAILED, PAYMENT_FAILED, PAYMENT_PENDING);
+        ignore(table, OrderEvent.PAYMENT_FAILED, PAYMENT_FAILED, CANCELLED);
+
+        apply(table, OrderEvent.BYPASS_PAYMENT, PAID, ALLOCATED, PAYMENT_PENDING, PAID);
+
+        apply(table, OrderEvent.CANCEL, CANCELLED, NEW, ALLOCATED, PAYMENT_PENDING, PAID, PAYMENT_FAILED);
+        reject(table, OrderEvent.CANCEL, "Order already cancelled.", CANCELLED);
+        reject(table, OrderEvent.CANCEL, "Order already sent to delivery and cannot be cancelled.", DELIVERY_STATES);
+
+        // Delivery updates can overtake each other: a later stage wins and earlier ones are ignored.
+        apply(table, OrderEvent.DELIVERY_ACKNOWLEDGED, DELIVERY_CONFIRMED, PAID);
+        ignore(table, OrderEvent.DELIVERY_ACKNOWLEDGED, DELIVERY_STATES);
+        reject(table, OrderEvent.DELIVERY_ACKNOWLEDGED, "Cancelled orders cannot be acknowledged.", CANCELLED);
+
+        apply(table, OrderEvent.PICKED_UP, OUT_FOR_DELIVERY, PAID, DELIVERY_CONFIRMED);
+        ignore(table, OrderEvent.PICKED_UP, OUT_FOR_DELIVERY, IN_TRANSIT, DELIVERED);
+        reject(table, OrderEvent.PICKED_UP, "Cancelled orders cannot be picked up.", CANCELLED);
+
+        apply(table, OrderEvent.IN_TRANSIT, IN_TRANSIT, PAID, DELIVERY_CONFIRMED, OUT_FOR_DELIVERY, IN_TRANSIT);
+        ignore(table, OrderEvent.IN_TRANSIT, DELIVERED);
+        reject(table, OrderEvent.IN_TRANSIT, "Cancelled orders cannot be in transit.", CANCELLED);
+
+        apply(table, OrderEvent.DELIVERED, DELIVERED, PAID, DELIVERY_CONFIRMED, OUT_FOR_DELIVERY, IN_TRANSIT);
+        ignore(table, OrderEvent.DELIVERED, DELIVERED);
+        reject(table, OrderEvent.DELIVERED, "Cancelled orders cannot be delivered.", CANCELLED);
+
+        // A lost item is refunded without changing the order status.
+        stay(table, OrderEvent.ITEM_LOST, PAID);
+        stay(table, OrderEvent.ITEM_LOST, DELIVERY_STATES);
+        return table;
+    }
+
+    private static void apply(Transition[][] table, OrderEvent event, OrderStatus to, OrderStatus... from) {
+        for (OrderStatus status : from) {
+            table[status.ordinal()][event.ordinal()] = new Transition(status, event, Outcome.APPLY, to, null);
+        }
+    }
+
+    private static void stay(Transition[][] table, OrderEvent event, OrderStatus... statuses) {
+        for (OrderStatus status : statuses) {
+            table[status.ordinal()][event.ordinal()] = new Transition(status, event, Outcome.APPLY, status, null);
+        }
+    }
+
+    private static void ignore(Transition[][] table, OrderEvent event, OrderStatus... statuses) {
+        for (OrderStatus status : statuses) {
+            table[status.ordinal()][event.ordinal()] = new Transition(status, event, Outcome.IGNORE, status, null);
+        }
+    }
+
+    private static void reject(Transition[][] table, OrderEvent event, String reason, OrderStatus... statuses) {
+        for (OrderStatus status : statuses) {
+            table[status.ordinal()][event.ordinal()] = new Transition(status, event, Outcome.REJECT, status, reason);
+        }
+    }
+
+    private static boolean pickupRequestPublished(OutboxEventRepo outboxEventRepo, CustomerOrder order) {
+        return outboxEventRepo
+                .findFirstByAggregateTypeAndAggregateIdAndEventTypeOrderByCreatedAtDesc(
+                        "ORDER", order.getId(), "OrderReadyForPickup")
+                .map(event -> event.getPublishAt() == null || !event.getPublishAt().isAfter(LocalDateTime.now()))
+                .orElse(false);
+    }
+}
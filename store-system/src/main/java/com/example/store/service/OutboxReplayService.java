@@ -0,0 +1,290 @@
+package com.example.store.service;
+
+import com.example.contracts.outbox.ConfirmWindow;
+import com.example.contracts.outbox.OutboxRoute;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.store.api.dto.OutboxReplayRequest;
+import com.example.store.api.dto.OutboxReplayResponse;
+import com.example.store.api.dto.OutboxReplayStatus;
+import com.example.store.messaging.OutboxRelay;
+import com.example.store.messaging.RateLimiter;
+import com.example.store.model.OutboxEvent;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Re-publishes archived outbox events ({@code outbox_archive}, see
+ * {@link com.example.contracts.outbox.OutboxArchiveMaintenance}) to the queues their routes point to,
+ * e.g. after a downstream service lost state. Replays run one at a time in the background, read the
+ * archive in keyset pages, publish through a {@link ConfirmWindow} and are paced by a
+ * {@link RateLimiter} so live outbox traffic keeps its share of the broker. Replayed messages carry
+ * an {@code x-outbox-replay} header with the replay id and message id
+ * {@code store-outbox-<eventId>-replay-<replayId>}, so consumers that deduplicate on the id handle a
+ * replay once instead of skipping it as a copy of the original publish.
+ *
+ * <p>Finished jobs stay queryable for {@code store.outbox.replay.retention-minutes}; at most
+ * {@code store.outbox.replay.max-jobs} are kept, the oldest finished ones making room first, and a
+ * new replay is refused while that many are still queued or running.
+ */
+@Service
+public class OutboxReplayService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxReplayService.class);
+
+    public static final String REPLAY_HEADER = "x-outbox-replay";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final OutboxRouteRegistry routeRegistry;
+    private final int defaultMaxPerSecond;
+    private final int maxPerSecondLimit;
+    private final int pageSize;
+    private final int maxInFlight;
+    private final long confirmTimeoutMs;
+    private final Duration retention;
+    private final int maxJobs;
+    private final Map<String, ReplayJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("outbox-replay-"));
+
+    public OutboxReplayService(
+            JdbcTemplate jdbcTemplate,
+            RabbitTemplate rabbitTemplate,
+            OutboxRouteRegistry routeRegistry,
+            @Value("${store.outbox.replay.max-per-second:500}") int defaultMaxPerSecond,
+            @Value("${store.outbox.replay.max-per-second-limit:2000}") int maxPerSecondLimit,
+            @Value("${store.outbox.replay.page-size:1000}") int pageSize,
+            @Value("${store.outbox.confirm.max-in-flight:256}") int maxInFlight,
+            @Value("${store.outbox.confirm.timeout-ms:5000}") long confirmTimeoutMs,
+            @Value("${store.outbox.replay.retention-minutes:60}") long retentionMinutes,
+            @Value("${store.outbox.replay.max-jobs:100}") int maxJobs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.routeRegistry = routeRegistry;
+        this.defaultMaxPerSecond = Math.max(1, defaultMaxPerSecond);
+        this.maxPerSecondLimit = Math.max(1, maxPerSecondLimit);
+        this.pageSize = Math.max(1, pageSize);
+        this.maxInFlight = maxInFlight;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.retention = Duration.ofMinutes(Math.max(0, retentionMinutes));
+        this.maxJobs = Math.max(1, maxJobs);
+    }
+
+    public OutboxReplayResponse startReplay(OutboxReplayRequest request) {
+        if (!request.from().isBefore(request.to())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'.");
+        }
+        int maxPerSecond = request.maxPerSecond() != null ? request.maxPerSecond() : defaultMaxPerSecond;
+        if (maxPerSecond > maxPerSecondLimit) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "maxPerSecond must not exceed " + maxPerSecondLimit + ".");
+        }
+
+        ReplayJob job = new ReplayJob(UUID.randomUUID().toString(), request, maxPerSecond);
+        register(job);
+        executor.execute(() -> run(job));
+        log.info("Queued outbox replay {} for {} to {} (eventType={}, correlationId={}, {}/s)",
+                job.id,
+                request.from(),
+                request.to(),
+                request.eventType(),
+                request.correlationId(),
+                maxPerSecond);
+        return job.toResponse();
+    }
+
+    public OutboxReplayResponse getReplay(String replayId) {
+        evictExpiredJobs();
+        ReplayJob job = jobs.get(replayId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Replay not found");
+        }
+        return job.toResponse();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private synchronized void register(ReplayJob job) {
+        evictExpiredJobs();
+        if (jobs.size() >= maxJobs) {
+            ReplayJob oldest = jobs.values().stream()
+                    .filter(ReplayJob::isFinished)
+                    .min(Comparator.comparing(candidate -> candidate.finishedAt))
+                    .orElseThrow(() -> new ResponseStatusException(
+                            HttpStatus.TOO_MANY_REQUESTS, maxJobs + " replays are already queued or running."));
+            jobs.remove(oldest.id);
+        }
+        jobs.put(job.id, job);
+    }
+
+    private void evictExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.finishedAt.isBefore(cutoff));
+    }
+
+    private void run(ReplayJob job) {
+        job.status = OutboxReplayStatus.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        RateLimiter rateLimiter = new RateLimiter(job.maxPerSecond);
+        try {
+            LocalDateTime afterPublishedAt = null;
+            int afterEventId = 0;
+            List<ArchivedEvent> page;
+            do {
+                page = readPage(job.request, afterPublishedAt, afterEventId);
+                if (page.isEmpty()) {
+                    break;
+                }
+                publishPage(job, page, rateLimiter);
+                ArchivedEvent last = page.get(page.size() - 1);
+                afterPublishedAt = last.publishedAt();
+                afterEventId = last.event().getId();
+            } while (page.size() == pageSize && !Thread.currentThread().isInterrupted());
+            job.status = Thread.currentThread().isInterrupted()
+                    ? OutboxReplayStatus.CANCELLED
+                    : OutboxReplayStatus.COMPLETED;
+        } catch (RuntimeException ex) {
+            log.error("Outbox replay {} failed: {}", job.id, ex.getMessage(), ex);
+            job.status = OutboxReplayStatus.FAILED;
+            job.error = ex.getMessage();
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            log.info("Outbox replay {} {}: {} published, {} failed", job.id, job.status, job.published, job.failed);
+        }
+    }
+
+    private void publishPage(ReplayJob job, List<ArchivedEvent> page, RateLimiter rateLimiter) {
+        int[] sent = {0};
+        List<Integer> confirmed = rabbitTemplate.invoke(operations -> {
+            ConfirmWindow window = new ConfirmWindow(
+                    rabbitTemplate, OutboxRelay.MESSAGE_ID_PREFIX, maxInFlight, confirmTimeoutMs);
+            for (ArchivedEvent archived : page) {
+                OutboxEvent event = archived.event();
+                OutboxRoute route = routeRegistry.find(event.getAggregateType(), event.getEventType());
+                if (route == null || event.getPayload() == null) {
+                    job.failed++;
+                    continue;
+                }
+                rateLimiter.acquire();
+                window.send(event, route.withEnricher((e, message) -> {
+                    message = route.enricher().enrich(e, message);
+                    message.getMessageProperties().setMessageId(
+                            OutboxRelay.MESSAGE_ID_PREFIX + e.getId() + "-replay-" + job.id);
+                    message.getMessageProperties().setHeader(REPLAY_HEADER, job.id);
+                    return message;
+                }));
+                sent[0]++;
+            }
+            return window.awaitConfirmed();
+        });
+        job.published += confirmed.size();
+        job.failed += sent[0] - confirmed.size();
+    }
+
+    private List<ArchivedEvent> readPage(
+            OutboxReplayRequest request, LocalDateTime afterPublishedAt, int afterEventId) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT event_id, aggregate_type, aggregate_id, event_type, payload, correlation_id, created_at, "
+                        + "publish_at, hop_count, published_at FROM outbox_archive "
+                        + "WHERE published_at >= ? AND published_at < ?");
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(request.from()));
+        args.add(Timestamp.valueOf(request.to()));
+        if (request.eventType() != null && !request.eventType().isBlank()) {
+            sql.append(" AND event_type = ?");
+            args.add(request.eventType());
+        }
+        if (request.correlationId() != null && !request.correlationId().isBlank()) {
+            sql.append(" AND correlation_id = ?");
+            args.add(request.correlationId());
+        }
+        if (afterPublishedAt != null) {
+            sql.append(" AND (published_at, event_id) > (?, ?)");
+            args.add(Timestamp.valueOf(afterPublishedAt));
+            args.add(afterEventId);
+        }
+        sql.append(" ORDER BY published_at, event_id LIMIT ?");
+        args.add(pageSize);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            OutboxEvent event = new OutboxEvent();
+            event.setId(rs.getInt("event_id"));
+            event.setAggregateType(rs.getString("aggregate_type"));
+            event.setAggregateId(rs.getInt("aggregate_id"));
+            event.setEventType(rs.getString("event_type"));
+            event.setPayload(rs.getString("payload"));
+            event.setCorrelationId(rs.getString("correlation_id"));
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            event.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+            Timestamp publishAt = rs.getTimestamp("publish_at");
+            event.setPublishAt(publishAt != null ? publishAt.toLocalDateTime() : null);
+            event.setHopCount(rs.getObject("hop_count", Integer.class));
+            return new ArchivedEvent(event, rs.getTimestamp("published_at").toLocalDateTime());
+        }, args.toArray());
+    }
+
+    private record ArchivedEvent(OutboxEvent event, LocalDateTime publishedAt) {
+    }
+
+    private static final class ReplayJob {
+
+        private final String id;
+        private final OutboxReplayRequest request;
+        private final int maxPerSecond;
+        private volatile OutboxReplayStatus status = OutboxReplayStatus.QUEUED;
+        private volatile long published;
+        private volatile long failed;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private ReplayJob(String id, OutboxReplayRequest request, int maxPerSecond) {
+            this.id = id;
+            this.request = request;
+            this.maxPerSecond = maxPerSecond;
+        }
+
+        // finishedAt is set last, once the status is final.
+        private boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        private OutboxReplayResponse toResponse() {
+            return new OutboxReplayResponse(
+                    id,
+                    status,
+                    request.from(),
+                    request.to(),
+                    request.eventType(),
+                    request.correlationId(),
+                    maxPerSecond,
+                    published,
+                    failed,
+                    startedAt,
+                    finishedAt,
+                    error);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.ParkingLotRedriveResponse;
+import com.example.store.api.dto.ParkingLotResponse;
+import com.example.store.messaging.ListenerRetryPolicy;
+import com.rabbitmq.client.GetResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Inspects and re-drives the parking-lot queues filled by the listener retry advice. A re-driven
+ * message goes back onto its source queue with its retry headers cleared.
+ */
+@Service
+public class ParkingLotService {
+
+    private static final Logger log = LoggerFactory.getLogger(ParkingLotService.class);
+
+    private final ListenerRetryPolicy retryPolicy;
+    private final RabbitTemplate rabbitTemplate;
+    private final AmqpAdmin amqpAdmin;
+    private final int maxRedriveLimit;
+    private final long confirmTimeoutMs;
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+
+    public ParkingLotService(
+            ListenerRetryPolicy retryPolicy,
+            RabbitTemplate rabbitTemplate,
+            AmqpAdmin amqpAdmin,
+            @Value("${store.listener.parking-lot.max-redrive:1000}") int maxRedriveLimit,
+            @Value("${store.listener.retry.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.retryPolicy = retryPolicy;
+        this.rabbitTemplate = rabbitTemplate;
+        this.amqpAdmin = amqpAdmin;
+        this.maxRedriveLimit = maxRedriveLimit;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    public List<ParkingLotResponse> listParkingLots() {
+        return retryPolicy.listenerQueues().stream()
+                .map(queue -> new ParkingLotResponse(
+                        queue, retryPolicy.parkingLotQueue(queue), depth(retryPolicy.parkingLotQueue(queue))))
+                .toList();
+    }
+
+    public ParkingLotRedriveResponse redrive(String queue, Integer limit) {
+        if (!retryPolicy.isListenerQueue(queue)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Queue not found");
+        }
+        int max = limit == null ? maxRedriveLimit : limit;
+        if (max < 1 || max > maxRedriveLimit) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxRedriveLimit + ".");
+        }
+
+        String parkingLot = retryPolicy.parkingLotQueue(queue);
+        // Get, publish and ack on one confirm-mode channel: the parking-lot copies are only acked once
+        // the broker has confirmed every republish. If it does not, the channel is closed and the
+        // unacked copies go back to the parking lot (the inbox drops any that did get through).
+        Integer redriven = rabbitTemplate.execute(channel -> {
+            channel.confirmSelect();
+            int moved = 0;
+            long lastDeliveryTag = -1;
+            while (moved < max) {
+                GetResponse response = channel.basicGet(parkingLot, false);
+                if (response == null) {
+                    break;
+                }
+                MessageProperties properties = propertiesConverter.toMessageProperties(
+                        response.getProps(), response.getEnvelope(), StandardCharsets.UTF_8.name());
+                retryPolicy.clearRetryHeaders(properties.getHeaders());
+                channel.basicPublish("", queue, false,
+                        propertiesConverter.fromMessageProperties(properties, StandardCharsets.UTF_8.name()),
+                        response.getBody());
+                lastDeliveryTag = response.getEnvelope().getDeliveryTag();
+                moved++;
+            }
+            if (moved > 0) {
+                channel.waitForConfirmsOrDie(confirmTimeoutMs);
+                channel.basicAck(lastDeliveryTag, true);
+            }
+            return moved;
+        });
+        log.info("Re-drove {} messages from {} to {}", redriven, parkingLot, queue);
+        return new ParkingLotRedriveResponse(queue, parkingLot, redriven == null ? 0 : redriven, depth(parkingLot));
+    }
+
+    private long depth(String queue) {
+        QueueInformation info = amqpAdmin.getQueueInfo(queue);
+        return info == null ? 0 : info.getMessageCount();
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.store.service;
 
+import com.example.store.messaging.OutboxEventSaved;
 import com.example.store.model.CustomerOrder;
 import com.example.store.model.OutboxEvent;
 import com.example.store.model.Payment;
 import com.example.store.repository.OutboxEventRepo;
 import com.example.store.repository.PaymentRepo;
 import java.time.LocalDateTime;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -17,10 +19,13 @@ public class PaymentService {
 
     private final PaymentRepo paymentRepo;
     private final OutboxEventRepo outboxEventRepo;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public PaymentService(PaymentRepo paymentRepo, OutboxEventRepo outboxEventRepo) {
+    public PaymentService(
+            PaymentRepo paymentRepo, OutboxEventRepo outboxEventRepo, ApplicationEventPublisher eventPublisher) {
         this.paymentRepo = paymentRepo;
         this.outboxEventRepo = outboxEventRepo;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(propagation = Propagation.MANDATORY)
@@ -55,6 +60,7 @@ public class PaymentService {
         event.setPayload(payload);
         
         outboxEventRepo.save(event);
+        eventPublisher.publishEvent(OutboxEventSaved.from(event));
 
         return payment;
     }
@@ -1,8 +1,9 @@
 package com.example.store.service;
 
-import com.example.store.messaging.PaymentRefundMessage;
-import com.example.store.messaging.PaymentRefundResultMessage;
-import com.example.store.messaging.RefundStatusEmailMessage;
+import com.example.contracts.messaging.PaymentRefundMessage;
+import com.example.contracts.messaging.PaymentRefundResultMessage;
+import com.example.contracts.messaging.RefundStatusEmailMessage;
+import com.example.store.messaging.OutboxEventSaved;
 import com.example.store.model.CustomerOrder;
 import com.example.store.model.OutboxEvent;
 import com.example.store.model.Payment;
@@ -15,6 +16,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -29,11 +31,17 @@ public class RefundService {
     private final RefundRepo refundRepo;
     private final OutboxEventRepo outboxEventRepo;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public RefundService(RefundRepo refundRepo, OutboxEventRepo outboxEventRepo, ObjectMapper objectMapper) {
+    public RefundService(
+            RefundRepo refundRepo,
+            OutboxEventRepo outboxEventRepo,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher) {
         this.refundRepo = refundRepo;
         this.outboxEventRepo = outboxEventRepo;
         this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(propagation = Propagation.MANDATORY)
@@ -149,6 +157,7 @@ public class RefundService {
         event.setPublishAt(timestamp);
         event.setPayload(writePayload(payload));
         outboxEventRepo.save(event);
+        eventPublisher.publishEvent(OutboxEventSaved.from(event));
     }
 
     private String writePayload(Object payload) {
@@ -0,0 +1,164 @@
+package com.example.store.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+class ListenerRetryAdviceTest {
+
+    private static final String QUEUE = "payment-result";
+
+    private RabbitTemplate rabbitTemplate;
+    private ListenerRetryPolicy policy;
+    private ListenerRetryAdvice advice;
+    private boolean ackRepublish;
+
+    @BeforeEach
+    void setUp() {
+        rabbitTemplate = mock(RabbitTemplate.class);
+        policy = new ListenerRetryPolicy(new OrderPartitioning(0, 1, 0), "order-placed", "order-allocated",
+                QUEUE, "payment-refund-result", "delivery-ack", "delivery-picked", "delivery-in-transit",
+                "delivery-delivered", "delivery-lost", 4, 1000, 4.0, 10_000);
+        advice = new ListenerRetryAdvice(policy, rabbitTemplate, 100);
+        ackRepublish = true;
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(ackRepublish, ackRepublish ? null : "nack"));
+            return null;
+        }).when(rabbitTemplate).send(eq(""), any(String.class), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void retriesServerErrorOnFirstTier() {
+        Message message = message(null);
+
+        advice.recover(QUEUE, message, new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "down"));
+
+        assertEquals("payment-result.retry.1000ms", sentTo());
+        assertEquals(1, message.getMessageProperties().getHeaders().get(ListenerRetryPolicy.ATTEMPTS_HEADER));
+        assertEquals("ResponseStatusException: down",
+                message.getMessageProperties().getHeaders().get(ListenerRetryPolicy.ERROR_HEADER));
+    }
+
+    @Test
+    void backsOffOnLaterTiers() {
+        advice.recover(QUEUE, message(1), new IllegalStateException("still down"));
+
+        assertEquals("payment-result.retry.4000ms", sentTo());
+    }
+
+    @Test
+    void parksClientErrorWithoutRetrying() {
+        Message message = message(null);
+
+        advice.recover(QUEUE, message, new ListenerExecutionFailedException("listener failed",
+                new ResponseStatusException(HttpStatus.CONFLICT, "Order already cancelled.")));
+
+        assertEquals("payment-result.parking-lot", sentTo());
+        assertEquals("ResponseStatusException: Order already cancelled.",
+                message.getMessageProperties().getHeaders().get(ListenerRetryPolicy.ERROR_HEADER));
+    }
+
+    @Test
+    void parksConversionFailure() {
+        advice.recover(QUEUE, message(null), new MessageConversionException("bad payload"));
+
+        assertEquals("payment-result.parking-lot", sentTo());
+    }
+
+    @Test
+    void parksMessageOutOfAttempts() {
+        Message message = message(3);
+
+        advice.recover(QUEUE, message, new IllegalStateException("still down"));
+
+        assertEquals("payment-result.parking-lot", sentTo());
+        assertEquals(4, message.getMessageProperties().getHeaders().get(ListenerRetryPolicy.ATTEMPTS_HEADER));
+    }
+
+    @Test
+    void requeuesWhenTheRepublishIsNacked() {
+        ackRepublish = false;
+
+        assertThrows(ImmediateRequeueAmqpException.class,
+                () -> advice.recover(QUEUE, message(null), new IllegalStateException("down")));
+    }
+
+    @Test
+    void adviceAcksFailedDeliveryOnceRepublished() throws Throwable {
+        Message message = message(null);
+        MethodInvocation invocation = failingInvocation(message, new IllegalStateException("down"));
+
+        assertNull(advice.invoke(invocation));
+
+        assertEquals("payment-result.retry.1000ms", sentTo());
+    }
+
+    @Test
+    void adviceRetriesEveryMessageOfAFailedBatch() throws Throwable {
+        MethodInvocation invocation = failingInvocation(List.of(message(null), message(1)),
+                new IllegalStateException("down"));
+
+        advice.invoke(invocation);
+
+        ArgumentCaptor<String> targets = ArgumentCaptor.forClass(String.class);
+        verify(rabbitTemplate, times(2))
+                .send(eq(""), targets.capture(), any(Message.class), any(CorrelationData.class));
+        assertEquals(List.of("payment-result.retry.1000ms", "payment-result.retry.4000ms"), targets.getAllValues());
+    }
+
+    @Test
+    void adviceRethrowsForQueuesWithoutRetryTiers() throws Throwable {
+        Message message = message(null);
+        message.getMessageProperties().setConsumerQueue("delivery-status");
+        IllegalStateException failure = new IllegalStateException("down");
+
+        assertEquals(failure, assertThrows(IllegalStateException.class,
+                () -> advice.invoke(failingInvocation(message, failure))));
+    }
+
+    private MethodInvocation failingInvocation(Object data, Throwable failure) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getArguments()).thenReturn(new Object[] {null, data});
+        when(invocation.proceed()).thenThrow(failure);
+        return invocation;
+    }
+
+    private String sentTo() {
+        ArgumentCaptor<String> target = ArgumentCaptor.forClass(String.class);
+        verify(rabbitTemplate).send(eq(""), target.capture(), any(Message.class), any(CorrelationData.class));
+        return target.getValue();
+    }
+
+    private static Message message(Integer attempts) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(QUEUE);
+        if (attempts != null) {
+            properties.setHeader(ListenerRetryPolicy.ATTEMPTS_HEADER, attempts);
+        }
+        return new Message("{}".getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.store.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ListenerRetryPolicyTest {
+
+    @Test
+    void growsDelayByMultiplierUpToTheCap() {
+        ListenerRetryPolicy policy = policy(0, 5, 10_000);
+
+        assertEquals(4, policy.retryTiers());
+        assertEquals(1000, policy.delayMs(1));
+        assertEquals(4000, policy.delayMs(2));
+        assertEquals(10_000, policy.delayMs(3));
+        assertEquals(10_000, policy.delayMs(4));
+    }
+
+    @Test
+    void namesRetryQueuesByTheirDelay() {
+        ListenerRetryPolicy policy = policy(0, 5, 10_000);
+
+        assertEquals("payment-result.retry.1000ms", policy.retryQueue("payment-result", 1));
+        assertEquals("payment-result.retry.10000ms", policy.retryQueue("payment-result", 3));
+        assertEquals(policy.retryQueue("payment-result", 3), policy.retryQueue("payment-result", 4));
+        assertEquals("payment-result.retry.60000ms", policy(0, 5, 60_000).retryQueue("payment-result", 4));
+        assertEquals("payment-result.parking-lot", policy.parkingLotQueue("payment-result"));
+    }
+
+    @Test
+    void givesPartitionQueuesTheirOwnRetryPath() {
+        ListenerRetryPolicy policy = policy(2, 4, 60_000);
+
+        assertTrue(policy.isListenerQueue("order-placed"));
+        assertTrue(policy.isListenerQueue("order-placed.1"));
+        assertTrue(policy.isListenerQueue("payment-result.0"));
+        assertFalse(policy.isListenerQueue("order-placed.2"));
+        assertFalse(policy.isListenerQueue("delivery-status"));
+        assertFalse(policy.isListenerQueue(null));
+    }
+
+    @Test
+    void clearsRetryBookkeepingForRedrive() {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(ListenerRetryPolicy.ATTEMPTS_HEADER, 4);
+        headers.put(ListenerRetryPolicy.ERROR_HEADER, "boom");
+        headers.put("x-death", "death");
+        headers.put("x-first-death-queue", "payment-result.retry.1000ms");
+        headers.put("__TypeId__", "PaymentResultMessage");
+
+        policy(0, 4, 60_000).clearRetryHeaders(headers);
+
+        assertEquals(Map.of("__TypeId__", "PaymentResultMessage"), headers);
+    }
+
+    private static ListenerRetryPolicy policy(int partitions, int maxAttempts, long maxDelayMs) {
+        return new ListenerRetryPolicy(new OrderPartitioning(partitions, 1, 0), "order-placed", "order-allocated",
+                "payment-result", "payment-refund-result", "delivery-ack", "delivery-picked", "delivery-in-transit",
+                "delivery-delivered", "delivery-lost", maxAttempts, 1000, 4.0, maxDelayMs);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.store.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+class MessageInboxTest {
+
+    private static final String CONSUMER = "delivery-picked";
+
+    private JdbcTemplate jdbcTemplate;
+    private MessageInbox inbox;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        inbox = new MessageInbox(jdbcTemplate, new NoOpTransactionManager(), new SimpleMeterRegistry(), 100, 7);
+    }
+
+    @Test
+    void handlesNewMessageOnceItsIdIsClaimed() {
+        when(jdbcTemplate.update(anyString(), eq(CONSUMER), eq("m-1"), any())).thenReturn(1);
+        List<String> handled = new ArrayList<>();
+
+        inbox.process(CONSUMER, "m-1", () -> handled.add("m-1"));
+
+        assertEquals(List.of("m-1"), handled);
+    }
+
+    @Test
+    void skipsMessageAnotherConsumerInstanceAlreadyClaimed() {
+        when(jdbcTemplate.update(anyString(), eq(CONSUMER), eq("m-1"), any())).thenReturn(0);
+        List<String> handled = new ArrayList<>();
+
+        inbox.process(CONSUMER, "m-1", () -> handled.add("m-1"));
+
+        assertEquals(List.of(), handled);
+    }
+
+    @Test
+    void skipsRecentDuplicateWithoutTouchingTheDatabase() {
+        when(jdbcTemplate.update(anyString(), eq(CONSUMER), eq("m-1"), any())).thenReturn(1);
+        inbox.process(CONSUMER, "m-1", () -> { });
+        List<String> handled = new ArrayList<>();
+
+        inbox.process(CONSUMER, "m-1", () -> handled.add("again"));
+
+        assertEquals(List.of(), handled);
+        verify(jdbcTemplate).update(anyString(), eq(CONSUMER), eq("m-1"), any());
+    }
+
+    @Test
+    void forgetsClaimThatWasRolledBack() {
+        when(jdbcTemplate.update(anyString(), eq(CONSUMER), eq("m-1"), any())).thenReturn(1);
+        IllegalStateException failure = new IllegalStateException("down");
+
+        assertSame(failure, assertThrows(IllegalStateException.class,
+                () -> inbox.process(CONSUMER, "m-1", () -> {
+                    throw failure;
+                })));
+        List<String> handled = new ArrayList<>();
+        inbox.process(CONSUMER, "m-1", () -> handled.add("retry"));
+
+        assertEquals(List.of("retry"), handled);
+    }
+
+    @Test
+    void handlesMessageWithoutIdWithoutDeduplication() {
+        List<String> handled = new ArrayList<>();
+
+        inbox.process(CONSUMER, null, () -> handled.add("first"));
+        inbox.process(CONSUMER, null, () -> handled.add("second"));
+
+        assertEquals(List.of("first", "second"), handled);
+        verify(jdbcTemplate, never()).update(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void batchPassesOnlyNewlyClaimedPayloadsInOrder() {
+        claimInBatch("m-1", "m-3");
+        List<String> handled = new ArrayList<>();
+
+        inbox.processBatch(CONSUMER, List.of(message("a", "m-1"), message("b", "m-2"), message("c", "m-3")),
+                handled::addAll);
+
+        assertEquals(List.of("a", "c"), handled);
+    }
+
+    @Test
+    void batchRejectsByPositionEvenWhenPayloadsAreEqual() {
+        claimInBatch("m-1", "m-2");
+        Message<String> first = message("same", "m-1");
+        Message<String> second = message("same", "m-2");
+        ResponseStatusException reason = new ResponseStatusException(HttpStatus.CONFLICT, "Order already cancelled.");
+
+        List<MessageInbox.Rejected<String>> rejected = inbox.processBatchRejecting(
+                CONSUMER, List.of(first, second), payloads -> Map.of(1, reason));
+
+        assertEquals(1, rejected.size());
+        assertSame(second, rejected.get(0).message());
+        assertSame(reason, rejected.get(0).reason());
+        ArgumentCaptor<List<Object[]>> released = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq("DELETE FROM inbox WHERE consumer = ? AND message_id = ?"),
+                released.capture());
+        assertEquals(1, released.getValue().size());
+        assertEquals("m-2", released.getValue().get(0)[1]);
+    }
+
+    @Test
+    void batchRemembersAcceptedMessagesButNotRejectedOnes() {
+        claimInBatch("m-1", "m-2");
+        inbox.processBatchRejecting(CONSUMER, List.of(message("a", "m-1"), message("b", "m-2")),
+                payloads -> Map.of(1, new IllegalStateException("rejected")));
+        when(jdbcTemplate.update(anyString(), eq(CONSUMER), eq("m-2"), any())).thenReturn(1);
+        List<String> handled = new ArrayList<>();
+
+        inbox.process(CONSUMER, "m-1", () -> handled.add("m-1"));
+        inbox.process(CONSUMER, "m-2", () -> handled.add("m-2"));
+
+        assertEquals(List.of("m-2"), handled);
+    }
+
+    private void claimInBatch(String... messageIds) {
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), ArgumentMatchers.<RowMapper<String>>any()))
+                .thenReturn(List.of(messageIds));
+    }
+
+    private static Message<String> message(String payload, String messageId) {
+        return MessageBuilder.withPayload(payload).setHeader(AmqpHeaders.MESSAGE_ID, messageId).build();
+    }
+
+    /** Runs transaction callbacks with synchronisation but no resources. */
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.store.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.example.store.model.OutboxEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class NotificationCoalescerTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NotificationCoalescer coalescer = new NotificationCoalescer(objectMapper, true, 5000);
+
+    @Test
+    void mergesAnOrdersEmailsIntoOneDigestTaggedWithEachEventType() throws Exception {
+        OutboxEvent payment = email(1, 42, "PaymentResultNotification", "{\"paymentId\":7}");
+        OutboxEvent pickup = email(3, 42, "DeliveryPickupNotification", "{\"carrier\":\"DHL\"}");
+        Map<Integer, List<Integer>> members = new HashMap<>();
+
+        List<OutboxEvent> result = coalescer.coalesce(List.of(payment, pickup), members);
+
+        assertEquals(1, result.size());
+        OutboxEvent digest = result.get(0);
+        assertEquals(1, digest.getId());
+        assertEquals(NotificationCoalescer.DIGEST_EVENT_TYPE, digest.getEventType());
+        assertEquals(Map.of(1, List.of(1, 3)), members);
+        JsonNode payload = objectMapper.readTree(digest.getPayload());
+        assertEquals(42, payload.get("orderId").asInt());
+        assertEquals("PaymentResultNotification", payload.get("notifications").get(0).get("type").asText());
+        assertEquals(7, payload.get("notifications").get(0).get("payload").get("paymentId").asInt());
+        assertEquals("DHL", payload.get("notifications").get(1).get("payload").get("carrier").asText());
+    }
+
+    @Test
+    void leavesSingleEmailsAndOtherAggregatesAlone() {
+        OutboxEvent order = email(1, 42, "OrderPlaced", "{}");
+        order.setAggregateType("ORDER");
+        OutboxEvent first = email(2, 42, "PaymentResultNotification", "{}");
+        OutboxEvent other = email(3, 43, "PaymentResultNotification", "{}");
+        Map<Integer, List<Integer>> members = new HashMap<>();
+
+        List<OutboxEvent> result = coalescer.coalesce(List.of(order, first, other), members);
+
+        assertEquals(List.of(order, first, other), result);
+        assertEquals(Map.of(), members);
+    }
+
+    @Test
+    void holdsEmailsBackForTheWindowOnlyWhenEnabled() {
+        OutboxEventSaved email = new OutboxEventSaved(1, NotificationCoalescer.AGGREGATE_TYPE, CREATED, null);
+        OutboxEventSaved order = new OutboxEventSaved(2, "ORDER", CREATED, null);
+        NotificationCoalescer disabled = new NotificationCoalescer(objectMapper, false, 5000);
+
+        assertEquals(CREATED.plusSeconds(5), coalescer.dueAt(email));
+        assertNull(coalescer.dueAt(order));
+        assertNull(disabled.dueAt(email));
+        assertEquals(NotificationCoalescer.AGGREGATE_TYPE, coalescer.heldAggregateType());
+        assertEquals("", disabled.heldAggregateType());
+    }
+
+    @Test
+    void keepsALaterScheduledPublishTime() {
+        LocalDateTime publishAt = CREATED.plusMinutes(1);
+
+        assertEquals(publishAt, coalescer.dueAt(
+                new OutboxEventSaved(1, NotificationCoalescer.AGGREGATE_TYPE, CREATED, publishAt)));
+    }
+
+    private static OutboxEvent email(int id, int orderId, String eventType, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setAggregateType(NotificationCoalescer.AGGREGATE_TYPE);
+        event.setAggregateId(orderId);
+        event.setEventType(eventType);
+        event.setPayload(payload);
+        event.setCorrelationId("ORDER-" + orderId);
+        event.setCreatedAt(CREATED);
+        return event;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.store.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.contracts.outbox.OutboxRoute;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.store.model.OutboxEvent;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class OrderPartitioningTest {
+
+    @Test
+    void everyEventOfAnOrderLandsInTheSamePartition() {
+        assertEquals(2, OrderPartitioning.partitionOf(42, 4));
+        assertEquals(2, OrderPartitioning.partitionOf(-2, 4));
+        assertEquals("order-placed.2", OrderPartitioning.partitionQueue("order-placed", 2));
+    }
+
+    @Test
+    void nodesSplitThePartitionsBetweenThem() {
+        OrderPartitioning node0 = new OrderPartitioning(4, 2, 0);
+        OrderPartitioning node1 = new OrderPartitioning(4, 2, 1);
+
+        assertArrayEquals(new String[] {"order-placed", "order-placed.0", "order-placed.2"},
+                node0.ownedQueues("order-placed"));
+        assertArrayEquals(new String[] {"order-placed.1", "order-placed.3"}, node0.standbyQueues("order-placed"));
+        assertArrayEquals(new String[] {"order-placed.1", "order-placed.3"}, node1.ownedQueues("order-placed"));
+        assertArrayEquals(new String[] {"order-placed.0", "order-placed.2"}, node1.standbyQueues("order-placed"));
+    }
+
+    @Test
+    void keepsThePlainQueueWhenDisabled() {
+        OrderPartitioning partitioning = new OrderPartitioning(0, 1, 0);
+
+        assertArrayEquals(new String[] {"order-placed"}, partitioning.ownedQueues("order-placed"));
+        assertArrayEquals(new String[0], partitioning.standbyQueues("order-placed"));
+        assertEquals(List.of(), partitioning.partitionQueues("order-placed"));
+    }
+
+    @Test
+    void mapsPartitionQueuesBackToTheirBaseQueue() {
+        OrderPartitioning partitioning = new OrderPartitioning(4, 1, 0);
+
+        assertEquals("payment-result", partitioning.baseQueue("payment-result.3"));
+        assertEquals("payment-result", partitioning.baseQueue("payment-result"));
+        assertEquals("payment-result.parking-lot", partitioning.baseQueue("payment-result.parking-lot"));
+    }
+
+    @Test
+    void outboxRoutesPublishToThePartitionTheListenerConsumes() {
+        OutboxRoute route = new OutboxRouteRegistry()
+                .register("ORDER", "OrderPlaced", OutboxRoute.toPartitionedQueue("order-placed", Object.class, 4))
+                .find("ORDER", "OrderPlaced");
+        OutboxEvent event = new OutboxEvent();
+        event.setAggregateId(42);
+
+        assertEquals(OrderPartitioning.partitionQueue("order-placed", OrderPartitioning.partitionOf(42, 4)),
+                route.routingKey(event));
+    }
+
+    @Test
+    void rejectsANodeIndexOutsideTheCluster() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderPartitioning(4, 2, 2));
+    }
+}
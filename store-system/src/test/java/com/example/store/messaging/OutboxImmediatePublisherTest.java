@@ -0,0 +1,87 @@
+package com.example.store.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OutboxImmediatePublisherTest {
+
+    private OutboxRelay outboxRelay;
+    private OutboxImmediatePublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = mock(OutboxRelay.class);
+        publisher = new OutboxImmediatePublisher(outboxRelay,
+                new NotificationCoalescer(new ObjectMapper(), true, 5000), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdown();
+    }
+
+    @Test
+    void drainsEventsCommittedWhileAPublishIsRunningInBatches() throws InterruptedException {
+        CountDownLatch firstPublish = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<List<Integer>> published = new ArrayList<>();
+        doAnswer(invocation -> {
+            published.add(List.copyOf(invocation.<List<Integer>>getArgument(0)));
+            firstPublish.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(outboxRelay).publishEvents(anyList());
+
+        publisher.onOutboxEventSaved(saved(1, "ORDER", null));
+        assertTrue(firstPublish.await(5, TimeUnit.SECONDS));
+        publisher.onOutboxEventSaved(saved(2, "ORDER", null));
+        publisher.onOutboxEventSaved(saved(3, "ORDER", null));
+        publisher.onOutboxEventSaved(saved(4, "ORDER", null));
+        release.countDown();
+
+        verify(outboxRelay, timeout(5000).times(3)).publishEvents(anyList());
+        assertEquals(List.of(List.of(1), List.of(2, 3), List.of(4)), published);
+    }
+
+    @Test
+    void leavesEventsThatAreNotDueYetToThePoller() throws InterruptedException {
+        publisher.onOutboxEventSaved(saved(1, "ORDER", LocalDateTime.now().plusMinutes(5)));
+        publisher.onOutboxEventSaved(saved(2, NotificationCoalescer.AGGREGATE_TYPE, null));
+
+        Thread.sleep(200);
+        verify(outboxRelay, never()).publishEvents(anyList());
+    }
+
+    @Test
+    void keepsPublishingAfterAFailedAttempt() {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("broker down");
+        }).doNothing().when(outboxRelay).publishEvents(anyList());
+
+        publisher.onOutboxEventSaved(saved(1, "ORDER", null));
+        verify(outboxRelay, timeout(5000)).publishEvents(List.of(1));
+        publisher.onOutboxEventSaved(saved(2, "ORDER", null));
+
+        verify(outboxRelay, timeout(5000)).publishEvents(List.of(2));
+    }
+
+    private static OutboxEventSaved saved(int eventId, String aggregateType, LocalDateTime publishAt) {
+        return new OutboxEventSaved(eventId, aggregateType, LocalDateTime.now(), publishAt);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.store.messaging;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.contracts.outbox.OutboxRoute;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.store.model.OutboxEvent;
+import com.example.store.repository.OutboxEventRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class OutboxRelayTest {
+
+    private static final int LANES = 4;
+
+    private OutboxEventRepo outboxEventRepo;
+    private RabbitTemplate rabbitTemplate;
+    private OutboxRelay relay;
+    private Set<String> nackedMessageIds;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepo = mock(OutboxEventRepo.class);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        QueueBackpressure backpressure = mock(QueueBackpressure.class);
+        when(backpressure.claimBatchSize()).thenReturn(100);
+        when(backpressure.exhaustedEventTypes()).thenReturn(List.of());
+        when(backpressure.tryAcquire(anyString())).thenReturn(true);
+        OutboxRouteRegistry routes = new OutboxRouteRegistry()
+                .register("ORDER", "OrderPlaced", OutboxRoute.toQueue("order-placed", Object.class));
+        relay = new OutboxRelay(outboxEventRepo, rabbitTemplate, routes,
+                new NotificationCoalescer(new ObjectMapper(), false, 5000), backpressure,
+                mock(PlatformTransactionManager.class), 1, LANES, false, 256, 100);
+
+        when(outboxEventRepo.tryLockLane(anyInt())).thenReturn(true);
+        when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class))).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitTemplate));
+        nackedMessageIds = Set.of();
+        doAnswer(invocation -> {
+            Message message = invocation.getArgument(2);
+            boolean ack = !nackedMessageIds.contains(message.getMessageProperties().getMessageId());
+            invocation.<CorrelationData>getArgument(3).getFuture()
+                    .complete(new CorrelationData.Confirm(ack, ack ? null : "internal error"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void immediatePublishDrainsOnlyTheLanesOfTheCommittedEvents() {
+        when(outboxEventRepo.findLanes(List.of(5, 6), LANES)).thenReturn(List.of(2));
+        lane(2, events(5, 6));
+
+        relay.publishEvents(List.of(5, 6));
+
+        verify(outboxEventRepo).tryLockLane(2);
+        verify(outboxEventRepo, times(1)).tryLockLane(anyInt());
+        verify(outboxEventRepo).deleteAllByIdInBatch(List.of(5, 6));
+    }
+
+    @Test
+    void pollerDrainsEveryLane() {
+        relay.publishOutboxEvents();
+
+        for (int lane = 0; lane < LANES; lane++) {
+            verify(outboxEventRepo).tryLockLane(lane);
+        }
+    }
+
+    @Test
+    void laneStopsSendingAtItsFirstUnconfirmedRow() {
+        nackedMessageIds = Set.of(OutboxRelay.MESSAGE_ID_PREFIX + 1);
+        when(outboxEventRepo.findLanes(List.of(1), LANES)).thenReturn(List.of(0));
+        lane(0, events(1, 2, 3));
+
+        relay.publishEvents(List.of(1));
+
+        verify(rabbitTemplate, times(1)).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        verify(outboxEventRepo, never()).deleteAllByIdInBatch(anyCollection());
+    }
+
+    @Test
+    void rowsBeforeTheUnconfirmedOneAreStillRemoved() {
+        nackedMessageIds = Set.of(OutboxRelay.MESSAGE_ID_PREFIX + 2);
+        when(outboxEventRepo.findLanes(List.of(1), LANES)).thenReturn(List.of(0));
+        lane(0, events(1, 2, 3));
+
+        relay.publishEvents(List.of(1));
+
+        verify(rabbitTemplate, times(2)).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        verify(outboxEventRepo).deleteAllByIdInBatch(List.of(1));
+    }
+
+    private void lane(int lane, List<OutboxEvent> events) {
+        when(outboxEventRepo.claimDueLaneBatch(
+                anyCollection(), any(), anyString(), any(), anyCollection(), eq(LANES), eq(lane), anyInt()))
+                .thenReturn(events, List.of());
+    }
+
+    private static List<OutboxEvent> events(int... ids) {
+        return IntStream.of(ids).mapToObj(id -> {
+            OutboxEvent event = new OutboxEvent();
+            event.setId(id);
+            event.setAggregateType("ORDER");
+            event.setAggregateId(id);
+            event.setEventType("OrderPlaced");
+            event.setPayload("{}");
+            event.setCorrelationId("ORDER-" + id);
+            return event;
+        }).toList();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.store.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.contracts.outbox.OutboxRoute;
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+
+class QueueBackpressureTest {
+
+    private AmqpAdmin amqpAdmin;
+    private SimpleMeterRegistry meterRegistry;
+    private QueueBackpressure backpressure;
+
+    @BeforeEach
+    void setUp() {
+        amqpAdmin = mock(AmqpAdmin.class);
+        meterRegistry = new SimpleMeterRegistry();
+        OutboxRouteRegistry routes = new OutboxRouteRegistry()
+                .register("ORDER", "OrderPlaced", OutboxRoute.toPartitionedQueue("order-placed", Object.class, 2))
+                .register("PAYMENT", "PaymentRequested", OutboxRoute.toQueue("payment-requested", Object.class));
+        // A frozen ticker, so no permit comes back while a test drains a limiter.
+        backpressure = new QueueBackpressure(amqpAdmin, routes, meterRegistry, true, 10, 1000, 100, 250, 100, 10, () -> 0L);
+        depth("order-placed.0", 0);
+        depth("order-placed.1", 0);
+        depth("payment-requested", 0);
+    }
+
+    @Test
+    void throttlesEveryPartitionQueueOfARoute() {
+        assertEquals(1000, rate("order-placed.0"));
+        assertEquals(1000, rate("order-placed.1"));
+        assertEquals(1000, rate("payment-requested"));
+    }
+
+    @Test
+    void halvesTheRateOfABackedUpQueueOnly() {
+        depth("payment-requested", 500);
+
+        backpressure.sample();
+
+        assertEquals(500, rate("payment-requested"));
+        assertEquals(1000, rate("order-placed.0"));
+    }
+
+    @Test
+    void dividesDepthByConsumers() {
+        when(amqpAdmin.getQueueInfo("payment-requested")).thenReturn(new QueueInformation("payment-requested", 500, 5));
+
+        backpressure.sample();
+
+        assertEquals(1000, rate("payment-requested"));
+    }
+
+    @Test
+    void shrinksTheClaimPageWhileAQueueBacksUpAndGrowsItBackOnceDrained() {
+        depth("payment-requested", 500);
+        backpressure.sample();
+        assertEquals(50, backpressure.claimBatchSize());
+        for (int i = 0; i < 5; i++) {
+            backpressure.sample();
+        }
+        assertEquals(10, backpressure.claimBatchSize());
+
+        depth("payment-requested", 0);
+        backpressure.sample();
+        assertEquals(20, backpressure.claimBatchSize());
+        for (int i = 0; i < 20; i++) {
+            backpressure.sample();
+        }
+        assertEquals(100, backpressure.claimBatchSize());
+    }
+
+    @Test
+    void throttlesAQueueThatConfirmedSlowlySinceTheLastSample() {
+        backpressure.recordConfirmLatency("payment-requested", TimeUnit.MILLISECONDS.toNanos(100));
+        backpressure.recordConfirmLatency("payment-requested", TimeUnit.MILLISECONDS.toNanos(700));
+
+        backpressure.sample();
+
+        assertEquals(500, rate("payment-requested"));
+        assertEquals(50, backpressure.claimBatchSize());
+    }
+
+    @Test
+    void forgetsASlowBurstOnceTheQueueGoesQuiet() {
+        backpressure.recordConfirmLatency("payment-requested", TimeUnit.SECONDS.toNanos(2));
+        backpressure.sample();
+        assertEquals(500, rate("payment-requested"));
+
+        backpressure.sample();
+
+        assertEquals(600, rate("payment-requested"));
+        assertEquals(60, backpressure.claimBatchSize());
+    }
+
+    @Test
+    void reportsEventTypesOfThrottledQueuesWithoutPermits() {
+        depth("payment-requested", 500);
+        backpressure.sample();
+
+        while (backpressure.tryAcquire("payment-requested")) {
+            // use up the permits
+        }
+
+        assertEquals(Set.of("PaymentRequested"), Set.copyOf(backpressure.exhaustedEventTypes()));
+        assertTrue(backpressure.tryAcquire("order-placed.0"));
+    }
+
+    @Test
+    void doesNothingWhenDisabled() {
+        QueueBackpressure disabled = new QueueBackpressure(amqpAdmin, new OutboxRouteRegistry()
+                .register("PAYMENT", "PaymentRequested", OutboxRoute.toQueue("payment-requested", Object.class)),
+                new SimpleMeterRegistry(), false, 10, 1000, 100, 250, 100, 10);
+        depth("payment-requested", 500);
+
+        disabled.sample();
+
+        assertEquals(100, disabled.claimBatchSize());
+        assertTrue(disabled.exhaustedEventTypes().isEmpty());
+        assertTrue(disabled.tryAcquire("payment-requested"));
+    }
+
+    @Test
+    void leavesQueuesItCannotSampleAlone() {
+        when(amqpAdmin.getQueueInfo("payment-requested")).thenThrow(new IllegalStateException("channel closed"));
+
+        backpressure.sample();
+
+        assertEquals(1000, rate("payment-requested"));
+        assertFalse(backpressure.claimBatchSize() < 100);
+    }
+
+    private void depth(String queue, int messages) {
+        when(amqpAdmin.getQueueInfo(queue)).thenReturn(new QueueInformation(queue, messages, 1));
+    }
+
+    private double rate(String queue) {
+        return meterRegistry.get("outbox.publish.rate").tag("queue", queue).gauge().value();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.store.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+    @Test
+    void grantsOnePermitThenMakesTheNextCallerWait() {
+        RateLimiter limiter = new RateLimiter(1);
+
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertFalse(limiter.hasPermit());
+    }
+
+    @Test
+    void hasPermitDoesNotTakeIt() {
+        RateLimiter limiter = new RateLimiter(1);
+
+        assertTrue(limiter.hasPermit());
+        assertTrue(limiter.hasPermit());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void banksAtMostOneSecondOfPermitsWhileIdle() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(50);
+        // Idle for 1.5 s: without rebasing, 75 permits would be available at once.
+        Thread.sleep(1_500);
+
+        int granted = 0;
+        while (limiter.tryAcquire()) {
+            granted++;
+        }
+
+        assertTrue(granted >= 50 && granted <= 55, granted + " permits granted after idling");
+    }
+
+    @Test
+    void readsTimeFromTheTicker() {
+        AtomicLong now = new AtomicLong();
+        RateLimiter limiter = new RateLimiter(10, now::get);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.hasPermit());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void acquireWaitsForTheNextSlot() {
+        RateLimiter limiter = new RateLimiter(20);
+        limiter.acquire();
+
+        long start = System.nanoTime();
+        limiter.acquire();
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMs >= 40, "waited " + waitedMs + " ms");
+    }
+
+    @Test
+    void setRateChangesTheSpacing() {
+        RateLimiter limiter = new RateLimiter(10);
+        assertEquals(10, limiter.getRate(), 0.001);
+
+        limiter.setRate(250);
+
+        assertEquals(250, limiter.getRate(), 0.001);
+    }
+
+    @Test
+    void clampsNonPositiveRate() {
+        RateLimiter limiter = new RateLimiter(0);
+
+        assertEquals(0.001, limiter.getRate(), 1e-9);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.store.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Uses 10 ms ticks and 4 buckets per level, so level 0 spans 40 ms, level 1 160 ms and level 2
+ * 640 ms from the start.
+ */
+class TimingWheelTest {
+
+    private TimingWheel<String> wheel;
+    private List<String> expired;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new TimingWheel<>(10, 4, 0);
+        expired = new ArrayList<>();
+    }
+
+    @Test
+    void firesEntryAtItsTickAndNotBefore() {
+        assertTrue(wheel.add("a", 30));
+
+        wheel.advance(29, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(30, expired::add);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void roundsDeadlineUpToTheNextTick() {
+        wheel.add("a", 21);
+
+        wheel.advance(29, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(30, expired::add);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void refusesDeadlineAlreadyReached() {
+        wheel.advance(50, expired::add);
+
+        assertFalse(wheel.add("now", 50));
+        assertFalse(wheel.add("past", 10));
+        assertTrue(wheel.add("next", 51));
+    }
+
+    @Test
+    void lastTickOfLevelZeroStaysOnLevelZero() {
+        wheel.add("a", 39);
+
+        wheel.advance(39, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(40, expired::add);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void cascadesFromFirstOverflowLevelExactlyAtDeadline() {
+        wheel.add("boundary", 40);
+        wheel.add("later", 50);
+
+        wheel.advance(39, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(40, expired::add);
+        assertEquals(List.of("boundary"), expired);
+
+        wheel.advance(49, expired::add);
+        assertEquals(List.of("boundary"), expired);
+
+        wheel.advance(50, expired::add);
+        assertEquals(List.of("boundary", "later"), expired);
+    }
+
+    @Test
+    void cascadesThroughTwoOverflowLevels() {
+        wheel.add("level1-end", 159);
+        wheel.add("level2", 160);
+        wheel.add("level2-later", 170);
+
+        wheel.advance(159, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(160, expired::add);
+        assertEquals(List.of("level1-end", "level2"), expired);
+
+        wheel.advance(169, expired::add);
+        assertEquals(List.of("level1-end", "level2"), expired);
+
+        wheel.advance(170, expired::add);
+        assertEquals(List.of("level1-end", "level2", "level2-later"), expired);
+    }
+
+    @Test
+    void entriesAddedAfterTheWheelMovedUseTheCurrentPosition() {
+        wheel.advance(35, expired::add);
+        wheel.add("a", 75);
+
+        wheel.advance(79, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(80, expired::add);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void largeAdvanceFiresEverythingDueInDeadlineOrder() {
+        wheel.add("d", 700);
+        wheel.add("b", 45);
+        wheel.add("a", 20);
+        wheel.add("c", 170);
+        wheel.add("e", 5000);
+
+        wheel.advance(1000, expired::add);
+
+        assertEquals(List.of("a", "b", "c", "d"), expired);
+    }
+}
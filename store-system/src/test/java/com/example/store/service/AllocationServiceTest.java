@@ -0,0 +1,190 @@
+package com.example.store.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.store.model.CustomerOrder;
+import com.example.store.model.Fulfillment;
+import com.example.store.model.FulfillmentItem;
+import com.example.store.model.OrderItem;
+import com.example.store.model.Product;
+import com.example.store.model.Warehouse;
+import com.example.store.model.WarehouseStock;
+import com.example.store.repository.FulfillmentItemRepo;
+import com.example.store.repository.FulfillmentRepo;
+import com.example.store.repository.StockLedgerRepo;
+import com.example.store.repository.WarehouseStockRepo;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.web.server.ResponseStatusException;
+
+class AllocationServiceTest {
+
+    private static final Product WIDGET = product(1, "WIDGET");
+    private static final Product GADGET = product(2, "GADGET");
+
+    private WarehouseStockRepo warehouseStockRepo;
+    private JdbcTemplate jdbcTemplate;
+    private AllocationService service;
+    private Map<Integer, ResponseStatusException> rejected;
+
+    @BeforeEach
+    void setUp() {
+        warehouseStockRepo = mock(WarehouseStockRepo.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        service = new AllocationService(warehouseStockRepo, mock(FulfillmentRepo.class),
+                mock(FulfillmentItemRepo.class), mock(StockLedgerRepo.class), jdbcTemplate);
+        rejected = new HashMap<>();
+    }
+
+    @Test
+    void laterOrdersSeeTheStockEarlierOrdersInTheBatchReserved() {
+        WarehouseStock first = stock(10, WIDGET, 5);
+        WarehouseStock second = stock(20, WIDGET, 5);
+        when(warehouseStockRepo.lockRowsForProducts(anyCollection())).thenReturn(List.of(first, second));
+        List<CustomerOrder> orders = List.of(order(1), order(2), order(3));
+
+        List<CustomerOrder> allocated = service.reserveStockBatch(orders, Map.of(
+                1, List.of(item(WIDGET, 4)),
+                2, List.of(item(WIDGET, 4)),
+                3, List.of(item(WIDGET, 4))), rejected);
+
+        assertEquals(orders.subList(0, 2), allocated);
+        assertEquals(4, first.getQtyReserved());
+        assertEquals(4, second.getQtyReserved());
+        assertEquals(HttpStatus.CONFLICT, rejected.get(3).getStatusCode());
+        verify(warehouseStockRepo, times(1)).lockRowsForProducts(anyCollection());
+    }
+
+    @Test
+    void undoesTheReservationsOfAnOrderThatCannotBeAllocatedInFull() {
+        WarehouseStock widgets = stock(10, WIDGET, 5);
+        WarehouseStock gadgets = stock(10, GADGET, 1);
+        when(warehouseStockRepo.lockRowsForProducts(anyCollection())).thenReturn(List.of(widgets, gadgets));
+
+        List<CustomerOrder> allocated = service.reserveStockBatch(List.of(order(1)),
+                Map.of(1, List.of(item(WIDGET, 2), item(GADGET, 3))), rejected);
+
+        assertEquals(List.of(), allocated);
+        assertEquals(0, widgets.getQtyReserved());
+        assertEquals(HttpStatus.CONFLICT, rejected.get(1).getStatusCode());
+        verify(jdbcTemplate, never()).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void rejectsOrdersWithoutItems() {
+        WarehouseStock widgets = stock(10, WIDGET, 5);
+        when(warehouseStockRepo.lockRowsForProducts(anyCollection())).thenReturn(List.of(widgets));
+
+        List<CustomerOrder> allocated = service.reserveStockBatch(List.of(order(1), order(2)),
+                Map.of(2, List.of(item(WIDGET, 1))), rejected);
+
+        assertEquals(1, allocated.size());
+        assertEquals(HttpStatus.BAD_REQUEST, rejected.get(1).getStatusCode());
+    }
+
+    @Test
+    void writesTheAllocatedLinesInBatches() {
+        when(warehouseStockRepo.lockRowsForProducts(anyCollection()))
+                .thenReturn(List.of(stock(10, WIDGET, 5), stock(10, GADGET, 5)));
+
+        service.reserveStockBatch(List.of(order(1), order(2)), Map.of(
+                1, List.of(item(WIDGET, 1), item(GADGET, 1)),
+                2, List.of(item(WIDGET, 1))), rejected);
+
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void releasesStockInTheSameLockOrderAsTheAllocationPaths() {
+        WarehouseStock widgetsAt10 = stock(10, WIDGET, 5);
+        WarehouseStock gadgetsAt10 = stock(10, GADGET, 5);
+        WarehouseStock widgetsAt20 = stock(20, WIDGET, 5);
+        List.of(widgetsAt10, gadgetsAt10, widgetsAt20).forEach(stock -> {
+            stock.setQtyReserved(3);
+            when(warehouseStockRepo.lockRow(stock.getId().getWarehouseId(), stock.getId().getProductId()))
+                    .thenReturn(Optional.of(stock));
+        });
+        CustomerOrder order = order(1);
+        order.getFulfillments().add(fulfillment(20, item(WIDGET, 1)));
+        order.getFulfillments().add(fulfillment(10, item(GADGET, 2), item(WIDGET, 3)));
+
+        service.releaseStock(order);
+
+        InOrder locks = inOrder(warehouseStockRepo);
+        locks.verify(warehouseStockRepo).lockRow(10, 1);
+        locks.verify(warehouseStockRepo).lockRow(10, 2);
+        locks.verify(warehouseStockRepo).lockRow(20, 1);
+        assertEquals(0, widgetsAt10.getQtyReserved());
+        assertEquals(1, gadgetsAt10.getQtyReserved());
+        assertEquals(2, widgetsAt20.getQtyReserved());
+        assertEquals(List.of(), order.getFulfillments());
+    }
+
+    private static Product product(int id, String sku) {
+        Product product = new Product();
+        product.setId(id);
+        product.setSku(sku);
+        return product;
+    }
+
+    private static WarehouseStock stock(int warehouseId, Product product, int onHand) {
+        WarehouseStock stock = new WarehouseStock();
+        stock.getId().setWarehouseId(warehouseId);
+        stock.getId().setProductId(product.getId());
+        stock.setProduct(product);
+        stock.setQtyOnHand(onHand);
+        stock.setQtyReserved(0);
+        return stock;
+    }
+
+    private static CustomerOrder order(int id) {
+        CustomerOrder order = new CustomerOrder();
+        order.setId(id);
+        return order;
+    }
+
+    private static Fulfillment fulfillment(int warehouseId, OrderItem... picked) {
+        Warehouse warehouse = new Warehouse();
+        warehouse.setId(warehouseId);
+        Fulfillment fulfillment = new Fulfillment();
+        fulfillment.setWarehouse(warehouse);
+        for (OrderItem line : picked) {
+            FulfillmentItem item = new FulfillmentItem();
+            item.setFulfillment(fulfillment);
+            item.setProduct(line.getProduct());
+            item.setQuantityPicked(line.getQuantity());
+            fulfillment.getItems().add(item);
+        }
+        return fulfillment;
+    }
+
+    private static OrderItem item(Product product, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
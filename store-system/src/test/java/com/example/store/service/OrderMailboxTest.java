@@ -0,0 +1,131 @@
+package com.example.store.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+class OrderMailboxTest {
+
+    private OrderMailbox mailbox;
+
+    @AfterEach
+    void tearDown() {
+        if (mailbox != null) {
+            mailbox.shutdown();
+        }
+    }
+
+    @Test
+    void returnsTheCommandsResult() {
+        mailbox = new OrderMailbox(4);
+
+        assertEquals("done", mailbox.call(7, () -> "done"));
+    }
+
+    @Test
+    void rethrowsTheCommandsExceptionUnchanged() {
+        mailbox = new OrderMailbox(4);
+        ResponseStatusException conflict = new ResponseStatusException(HttpStatus.CONFLICT, "Order already cancelled.");
+
+        assertSame(conflict, assertThrows(ResponseStatusException.class, () -> mailbox.run(7, () -> {
+            throw conflict;
+        })));
+    }
+
+    @Test
+    void runsOneCommandPerOrderAtATime() throws Exception {
+        mailbox = new OrderMailbox(4);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Void>> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(CompletableFuture.runAsync(() -> mailbox.run(7, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(10);
+                running.decrementAndGet();
+            })));
+        }
+
+        CompletableFuture.allOf(callers.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void runsCommandsForOneOrderInSubmissionOrder() {
+        mailbox = new OrderMailbox(4);
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < 20; i++) {
+            int step = i;
+            mailbox.run(7, () -> ran.add(step));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, ran.get(i));
+        }
+    }
+
+    @Test
+    void runsOtherOrdersInParallel() throws Exception {
+        // Orders 1 and 2 hash to different stripes of 16; on one stripe this would wait forever.
+        mailbox = new OrderMailbox(16);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(
+                () -> mailbox.call(1, () -> await(secondStarted)));
+        mailbox.run(2, secondStarted::countDown);
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void runsOnTheCallersThreadWithoutStripes() {
+        mailbox = new OrderMailbox(0);
+
+        Thread ranOn = mailbox.call(7, Thread::currentThread);
+
+        assertSame(Thread.currentThread(), ranOn);
+    }
+
+    @Test
+    void runsOnAStripeThreadOtherwise() {
+        mailbox = new OrderMailbox(4);
+
+        Thread ranOn = mailbox.call(7, Thread::currentThread);
+
+        assertNotEquals(Thread.currentThread(), ranOn);
+        assertTrue(ranOn.getName().startsWith("order-mailbox-"), ranOn.getName());
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
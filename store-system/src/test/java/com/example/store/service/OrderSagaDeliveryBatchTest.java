@@ -0,0 +1,153 @@
+package com.example.store.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.contracts.messaging.DeliveryInTransitMessage;
+import com.example.contracts.messaging.DeliveryPickupMessage;
+import com.example.store.model.Customer;
+import com.example.store.model.CustomerOrder;
+import com.example.store.model.Delivery;
+import com.example.store.model.OrderStatus;
+import com.example.store.model.OutboxEvent;
+import com.example.store.repository.DeliveryRepo;
+import com.example.store.repository.OrderItemRepo;
+import com.example.store.repository.OrderRepo;
+import com.example.store.repository.OutboxEventRepo;
+import com.example.store.repository.PaymentRepo;
+import com.example.store.repository.ProductRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+class OrderSagaDeliveryBatchTest {
+
+    private static final LocalDateTime PICKED_UP_AT = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private OrderRepo orderRepo;
+    private DeliveryRepo deliveryRepo;
+    private OutboxEventRepo outboxEventRepo;
+    private OrderSaga orderSaga;
+
+    @BeforeEach
+    void setUp() {
+        orderRepo = mock(OrderRepo.class);
+        deliveryRepo = mock(DeliveryRepo.class);
+        outboxEventRepo = mock(OutboxEventRepo.class);
+        AllocationService allocationService = mock(AllocationService.class);
+        orderSaga = new OrderSaga(orderRepo, mock(OrderItemRepo.class), allocationService, mock(PaymentService.class),
+                mock(PaymentRepo.class), deliveryRepo, outboxEventRepo, mock(RefundService.class),
+                new ObjectMapper().findAndRegisterModules(), mock(ProductRepo.class),
+                mock(ApplicationEventPublisher.class), new OrderStateMachine(allocationService, outboxEventRepo));
+    }
+
+    @Test
+    void appliesEveryPickupOfTheBatch() {
+        CustomerOrder first = order(1, OrderStatus.PAID, "a@example.com");
+        CustomerOrder second = order(2, OrderStatus.DELIVERY_CONFIRMED, "b@example.com");
+
+        Map<Integer, ResponseStatusException> rejected =
+                orderSaga.handleDeliveryPickups(List.of(pickup(1), pickup(2)));
+
+        assertEquals(Map.of(), rejected);
+        assertEquals(OrderStatus.OUT_FOR_DELIVERY, first.getStatus());
+        assertEquals(OrderStatus.OUT_FOR_DELIVERY, second.getStatus());
+        assertEquals("PICKED_UP", first.getDelivery().getStatus());
+        verify(outboxEventRepo, times(2)).save(any(OutboxEvent.class));
+    }
+
+    @Test
+    void leavesOutOrderWithoutCustomerEmailBeforeWritingAnything() {
+        order(1, OrderStatus.PAID, "a@example.com");
+        CustomerOrder withoutEmail = order(2, OrderStatus.PAID, null);
+
+        Map<Integer, ResponseStatusException> rejected =
+                orderSaga.handleDeliveryPickups(List.of(pickup(1), pickup(2)));
+
+        assertEquals(1, rejected.size());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, rejected.get(1).getStatusCode());
+        assertEquals(OrderStatus.PAID, withoutEmail.getStatus());
+        assertNull(withoutEmail.getDelivery());
+        assertNull(withoutEmail.getUpdatedAt());
+        verify(orderRepo, never()).save(withoutEmail);
+        ArgumentCaptor<Delivery> saved = ArgumentCaptor.forClass(Delivery.class);
+        verify(deliveryRepo).save(saved.capture());
+        assertEquals(1, saved.getValue().getOrder().getId());
+        verify(outboxEventRepo).save(any(OutboxEvent.class));
+    }
+
+    @Test
+    void keysRejectionsByPositionInTheBatch() {
+        order(1, OrderStatus.CANCELLED, "a@example.com");
+        order(2, OrderStatus.PAID, "b@example.com");
+
+        Map<Integer, ResponseStatusException> rejected = orderSaga.handleDeliveryPickups(
+                List.of(pickup(2), pickup(1), pickup(3), new DeliveryPickupMessage(null, null, null, PICKED_UP_AT)));
+
+        assertEquals(3, rejected.size());
+        assertEquals(HttpStatus.CONFLICT, rejected.get(1).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, rejected.get(2).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, rejected.get(3).getStatusCode());
+        verify(outboxEventRepo).save(any(OutboxEvent.class));
+    }
+
+    @Test
+    void ignoresDuplicatePickupWithinTheBatch() {
+        CustomerOrder order = order(1, OrderStatus.PAID, "a@example.com");
+
+        Map<Integer, ResponseStatusException> rejected =
+                orderSaga.handleDeliveryPickups(List.of(pickup(1), pickup(1)));
+
+        assertEquals(Map.of(), rejected);
+        assertEquals(OrderStatus.OUT_FOR_DELIVERY, order.getStatus());
+        verify(outboxEventRepo).save(any(OutboxEvent.class));
+    }
+
+    @Test
+    void leavesOutInTransitUpdateForOrderWithoutCustomerEmail() {
+        CustomerOrder shipped = order(1, OrderStatus.OUT_FOR_DELIVERY, "a@example.com");
+        CustomerOrder withoutEmail = order(2, OrderStatus.OUT_FOR_DELIVERY, null);
+
+        Map<Integer, ResponseStatusException> rejected =
+                orderSaga.handleDeliveryInTransitUpdates(List.of(inTransit(1), inTransit(2)));
+
+        assertEquals(List.of(1), List.copyOf(rejected.keySet()));
+        assertEquals(OrderStatus.IN_TRANSIT, shipped.getStatus());
+        assertEquals(OrderStatus.OUT_FOR_DELIVERY, withoutEmail.getStatus());
+        assertNull(withoutEmail.getDelivery());
+        verify(outboxEventRepo).save(any(OutboxEvent.class));
+    }
+
+    private CustomerOrder order(int id, OrderStatus status, String email) {
+        Customer customer = new Customer();
+        customer.setEmail(email);
+        CustomerOrder order = new CustomerOrder();
+        order.setId(id);
+        order.setCustomer(customer);
+        order.setStatus(status);
+        when(orderRepo.findById(id)).thenReturn(Optional.of(order));
+        return order;
+    }
+
+    private static DeliveryPickupMessage pickup(int orderId) {
+        return new DeliveryPickupMessage(orderId, "Carrier", "TRACK-" + orderId, PICKED_UP_AT);
+    }
+
+    private static DeliveryInTransitMessage inTransit(int orderId) {
+        return new DeliveryInTransitMessage(orderId, "Carrier", "TRACK-" + orderId, "tomorrow", PICKED_UP_AT);
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.store.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.store.model.CustomerOrder;
+import com.example.store.model.OrderStatus;
+import com.example.store.model.OutboxEvent;
+import com.example.store.repository.OutboxEventRepo;
+import com.example.store.service.OrderStateMachine.Outcome;
+import com.example.store.service.OrderStateMachine.Transition;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+class OrderStateMachineTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private AllocationService allocationService;
+    private OutboxEventRepo outboxEventRepo;
+    private OrderStateMachine stateMachine;
+
+    @BeforeEach
+    void setUp() {
+        allocationService = mock(AllocationService.class);
+        outboxEventRepo = mock(OutboxEventRepo.class);
+        stateMachine = new OrderStateMachine(allocationService, outboxEventRepo);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "NEW, ALLOCATE, ALLOCATED",
+        "ALLOCATED, REQUEST_PAYMENT, PAYMENT_PENDING",
+        "PAYMENT_PENDING, PAYMENT_SUCCEEDED, PAID",
+        "PAYMENT_PENDING, PAYMENT_FAILED, PAYMENT_FAILED",
+        "ALLOCATED, BYPASS_PAYMENT, PAID",
+        "PAYMENT_PENDING, BYPASS_PAYMENT, PAID",
+        "PAID, BYPASS_PAYMENT, PAID",
+        "NEW, CANCEL, CANCELLED",
+        "ALLOCATED, CANCEL, CANCELLED",
+        "PAYMENT_PENDING, CANCEL, CANCELLED",
+        "PAID, CANCEL, CANCELLED",
+        "PAYMENT_FAILED, CANCEL, CANCELLED",
+        "PAID, DELIVERY_ACKNOWLEDGED, DELIVERY_CONFIRMED",
+        "PAID, PICKED_UP, OUT_FOR_DELIVERY",
+        "DELIVERY_CONFIRMED, PICKED_UP, OUT_FOR_DELIVERY",
+        "PAID, IN_TRANSIT, IN_TRANSIT",
+        "DELIVERY_CONFIRMED, IN_TRANSIT, IN_TRANSIT",
+        "OUT_FOR_DELIVERY, IN_TRANSIT, IN_TRANSIT",
+        "IN_TRANSIT, IN_TRANSIT, IN_TRANSIT",
+        "PAID, DELIVERED, DELIVERED",
+        "DELIVERY_CONFIRMED, DELIVERED, DELIVERED",
+        "OUT_FOR_DELIVERY, DELIVERED, DELIVERED",
+        "IN_TRANSIT, DELIVERED, DELIVERED",
+        "PAID, ITEM_LOST, PAID",
+        "DELIVERY_CONFIRMED, ITEM_LOST, DELIVERY_CONFIRMED",
+        "OUT_FOR_DELIVERY, ITEM_LOST, OUT_FOR_DELIVERY",
+        "IN_TRANSIT, ITEM_LOST, IN_TRANSIT",
+        "DELIVERED, ITEM_LOST, DELIVERED"
+    })
+    void appliesTransition(OrderStatus from, OrderEvent event, OrderStatus to) {
+        CustomerOrder order = order(from);
+
+        Transition transition = stateMachine.fire(order, event, NOW);
+
+        assertEquals(Outcome.APPLY, transition.outcome());
+        assertEquals(to, transition.to());
+        assertEquals(to, order.getStatus());
+        assertEquals(NOW, order.getUpdatedAt());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "ALLOCATED, ALLOCATE",
+        "PAYMENT_PENDING, ALLOCATE",
+        "PAID, ALLOCATE",
+        "DELIVERY_CONFIRMED, ALLOCATE",
+        "OUT_FOR_DELIVERY, ALLOCATE",
+        "IN_TRANSIT, ALLOCATE",
+        "DELIVERED, ALLOCATE",
+        "PAID, PAYMENT_SUCCEEDED",
+        "DELIVERY_CONFIRMED, PAYMENT_SUCCEEDED",
+        "OUT_FOR_DELIVERY, PAYMENT_SUCCEEDED",
+        "IN_TRANSIT, PAYMENT_SUCCEEDED",
+        "DELIVERED, PAYMENT_SUCCEEDED",
+        "PAYMENT_FAILED, PAYMENT_FAILED",
+        "CANCELLED, PAYMENT_FAILED",
+        "DELIVERY_CONFIRMED, DELIVERY_ACKNOWLEDGED",
+        "OUT_FOR_DELIVERY, DELIVERY_ACKNOWLEDGED",
+        "IN_TRANSIT, DELIVERY_ACKNOWLEDGED",
+        "DELIVERED, DELIVERY_ACKNOWLEDGED",
+        "OUT_FOR_DELIVERY, PICKED_UP",
+        "IN_TRANSIT, PICKED_UP",
+        "DELIVERED, PICKED_UP",
+        "DELIVERED, IN_TRANSIT",
+        "DELIVERED, DELIVERED"
+    })
+    void ignoresDuplicateOrOvertakenEvent(OrderStatus from, OrderEvent event) {
+        CustomerOrder order = order(from);
+
+        Transition transition = stateMachine.fire(order, event, NOW);
+
+        assertTrue(transition.ignored());
+        assertEquals(from, order.getStatus());
+        assertNull(order.getUpdatedAt());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "CANCELLED | ALLOCATE | Order not in NEW status for allocation.",
+        "PAYMENT_FAILED | ALLOCATE | Order not in NEW status for allocation.",
+        "NEW | REQUEST_PAYMENT | Order not in ALLOCATED status for payment.",
+        "PAID | REQUEST_PAYMENT | Order not in ALLOCATED status for payment.",
+        "ALLOCATED | PAYMENT_SUCCEEDED | Order is not awaiting payment.",
+        "PAID | PAYMENT_FAILED | Order is not awaiting payment.",
+        "NEW | BYPASS_PAYMENT | Order not in a state that can bypass payment processing.",
+        "CANCELLED | CANCEL | Order already cancelled.",
+        "DELIVERY_CONFIRMED | CANCEL | Order already sent to delivery and cannot be cancelled.",
+        "OUT_FOR_DELIVERY | CANCEL | Order already sent to delivery and cannot be cancelled.",
+        "IN_TRANSIT | CANCEL | Order already sent to delivery and cannot be cancelled.",
+        "DELIVERED | CANCEL | Order already sent to delivery and cannot be cancelled.",
+        "CANCELLED | DELIVERY_ACKNOWLEDGED | Cancelled orders cannot be acknowledged.",
+        "ALLOCATED | DELIVERY_ACKNOWLEDGED | Order has not been sent to delivery.",
+        "CANCELLED | PICKED_UP | Cancelled orders cannot be picked up.",
+        "NEW | PICKED_UP | Order has not been sent to delivery.",
+        "CANCELLED | IN_TRANSIT | Cancelled orders cannot be in transit.",
+        "PAYMENT_PENDING | IN_TRANSIT | Order has not been sent to delivery.",
+        "CANCELLED | DELIVERED | Cancelled orders cannot be delivered.",
+        "ALLOCATED | DELIVERED | Order has not been sent to delivery.",
+        "NEW | ITEM_LOST | Order has not been sent to delivery.",
+        "CANCELLED | ITEM_LOST | Order has not been sent to delivery."
+    })
+    void rejectsEventWithConflict(OrderStatus from, OrderEvent event, String reason) {
+        CustomerOrder order = order(from);
+
+        ResponseStatusException ex =
+                assertThrows(ResponseStatusException.class, () -> stateMachine.check(order, event));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        assertEquals(reason, ex.getReason());
+        assertEquals(from, order.getStatus());
+    }
+
+    @Test
+    void cancelGuardRejectsOrderWhosePickupRequestWasPublished() {
+        OutboxEvent pickupRequest = new OutboxEvent();
+        pickupRequest.setPublishAt(NOW.minusMinutes(1));
+        when(outboxEventRepo.findFirstByAggregateTypeAndAggregateIdAndEventTypeOrderByCreatedAtDesc(
+                        "ORDER", 7, "OrderReadyForPickup"))
+                .thenReturn(Optional.of(pickupRequest));
+        CustomerOrder order = order(OrderStatus.PAID);
+
+        ResponseStatusException ex = assertThrows(
+                ResponseStatusException.class, () -> stateMachine.check(order, OrderEvent.CANCEL));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        assertEquals("Order already sent to delivery and cannot be cancelled.", ex.getReason());
+    }
+
+    @Test
+    void cancelGuardAllowsOrderWhosePickupRequestIsStillScheduled() {
+        OutboxEvent pickupRequest = new OutboxEvent();
+        pickupRequest.setPublishAt(LocalDateTime.now().plusHours(1));
+        when(outboxEventRepo.findFirstByAggregateTypeAndAggregateIdAndEventTypeOrderByCreatedAtDesc(
+                        anyString(), any(), anyString()))
+                .thenReturn(Optional.of(pickupRequest));
+        CustomerOrder order = order(OrderStatus.PAID);
+
+        stateMachine.fire(order, OrderEvent.CANCEL, NOW);
+
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+    }
+
+    @Test
+    void guardsDoNotRunForIgnoredOrRejectedCells() {
+        stateMachine.guard(OrderEvent.ALLOCATE, order -> false, "vetoed");
+
+        assertTrue(stateMachine.check(order(OrderStatus.PAID), OrderEvent.ALLOCATE).ignored());
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> stateMachine.check(order(OrderStatus.CANCELLED), OrderEvent.ALLOCATE));
+        assertEquals("Order not in NEW status for allocation.", ex.getReason());
+        ex = assertThrows(ResponseStatusException.class,
+                () -> stateMachine.check(order(OrderStatus.NEW), OrderEvent.ALLOCATE));
+        assertEquals("vetoed", ex.getReason());
+    }
+
+    @Test
+    void releasesStockOnlyWhenLeavingAStockHoldingStatus() {
+        CustomerOrder allocated = order(OrderStatus.ALLOCATED);
+        stateMachine.fire(allocated, OrderEvent.CANCEL, NOW);
+        verify(allocationService).releaseStock(allocated);
+
+        CustomerOrder fresh = order(OrderStatus.NEW);
+        stateMachine.fire(fresh, OrderEvent.ALLOCATE, NOW);
+        stateMachine.fire(fresh, OrderEvent.REQUEST_PAYMENT, NOW);
+        stateMachine.fire(fresh, OrderEvent.PAYMENT_FAILED, NOW);
+        verify(allocationService).releaseStock(fresh);
+
+        CustomerOrder unallocated = order(OrderStatus.NEW);
+        stateMachine.fire(unallocated, OrderEvent.CANCEL, NOW);
+        verify(allocationService, never()).releaseStock(unallocated);
+    }
+
+    @Test
+    void applyRefusesTransitionCheckedAgainstAnotherStatus() {
+        CustomerOrder order = order(OrderStatus.NEW);
+        Transition transition = stateMachine.check(order, OrderEvent.ALLOCATE);
+        order.setStatus(OrderStatus.CANCELLED);
+
+        assertThrows(IllegalStateException.class, () -> stateMachine.apply(order, transition, NOW));
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+    }
+
+    @Test
+    void applyRefusesIgnoredTransition() {
+        CustomerOrder order = order(OrderStatus.PAID);
+        Transition transition = stateMachine.check(order, OrderEvent.ALLOCATE);
+
+        assertThrows(IllegalStateException.class, () -> stateMachine.apply(order, transition, NOW));
+    }
+
+    private static CustomerOrder order(OrderStatus status) {
+        CustomerOrder order = new CustomerOrder();
+        order.setId(7);
+        order.setStatus(status);
+        return order;
+    }
+}
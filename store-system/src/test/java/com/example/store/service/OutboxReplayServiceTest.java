@@ -0,0 +1,129 @@
+package com.example.store.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.contracts.outbox.OutboxRouteRegistry;
+import com.example.store.api.dto.OutboxReplayRequest;
+import com.example.store.api.dto.OutboxReplayStatus;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.web.server.ResponseStatusException;
+
+class OutboxReplayServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private OutboxReplayService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void reportsACompletedReplay() throws InterruptedException {
+        service = service(60, 10);
+
+        String replayId = service.startReplay(request()).replayId();
+
+        assertEquals(OutboxReplayStatus.COMPLETED, awaitFinished(replayId));
+    }
+
+    @Test
+    void forgetsFinishedReplaysAfterTheRetention() throws InterruptedException {
+        service = service(0, 10);
+        String replayId = service.startReplay(request()).replayId();
+
+        // Kept while queued or running, gone once finished
+        ResponseStatusException ex = null;
+        for (int i = 0; i < 500 && ex == null; i++) {
+            try {
+                service.getReplay(replayId);
+                Thread.sleep(10);
+            } catch (ResponseStatusException notFound) {
+                ex = notFound;
+            }
+        }
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+    }
+
+    @Test
+    void evictsTheOldestFinishedReplayToMakeRoom() throws InterruptedException {
+        service = service(60, 2);
+        String first = service.startReplay(request()).replayId();
+        awaitFinished(first);
+        String second = service.startReplay(request()).replayId();
+        awaitFinished(second);
+
+        String third = service.startReplay(request()).replayId();
+
+        assertThrows(ResponseStatusException.class, () -> service.getReplay(first));
+        assertEquals(OutboxReplayStatus.COMPLETED, service.getReplay(second).status());
+        assertEquals(OutboxReplayStatus.COMPLETED, awaitFinished(third));
+    }
+
+    @Test
+    void refusesANewReplayWhileTheLimitIsStillRunning() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                // shutdown() interrupts the worker; a real query would not throw this
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        });
+        service = service(60, 1);
+        service.startReplay(request());
+
+        try {
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                    () -> service.startReplay(request()));
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS, ex.getStatusCode());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private OutboxReplayService service(long retentionMinutes, int maxJobs) {
+        return new OutboxReplayService(jdbcTemplate, mock(RabbitTemplate.class), new OutboxRouteRegistry(),
+                500, 2000, 1000, 256, 5000, retentionMinutes, maxJobs);
+    }
+
+    private OutboxReplayStatus awaitFinished(String replayId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            if (service.getReplay(replayId).finishedAt() != null) {
+                return service.getReplay(replayId).status();
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Replay " + replayId + " did not finish");
+    }
+
+    private static OutboxReplayRequest request() {
+        return new OutboxReplayRequest(FROM, FROM.plusDays(1), null, null, null);
+    }
+}
@@ -70,9 +70,10 @@ CREATE TABLE orders (
     order_id    SERIAL PRIMARY KEY,
     customer_id INT REFERENCES customer(customer_id),
     order_total DECIMAL(10,2) NOT NULL,
-    status      VARCHAR(20) DEFAULT 'NEW',
+    status      SMALLINT NOT NULL DEFAULT 0, -- OrderStatus code, 0 = NEW
     created_at  TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at  TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    updated_at  TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version     BIGINT NOT NULL DEFAULT 0 -- optimistic lock
 );
 
 CREATE TABLE order_item (
@@ -132,7 +133,8 @@ CREATE TABLE delivery (
     carrier       VARCHAR(50),
     tracking_code VARCHAR(100),
     status        VARCHAR(30) DEFAULT 'RECEIVED',
-    created_at    TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at    TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version       BIGINT NOT NULL DEFAULT 0 -- optimistic lock
 );
 
 CREATE TABLE delivery_event (
@@ -167,5 +169,105 @@ CREATE TABLE outbox (
     payload        TEXT,
     correlation_id VARCHAR(100) NOT NULL,
     created_at     TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    publish_at     TIMESTAMP
+    publish_at     TIMESTAMP,
+    hop_count      INT,
+    failed_at      TIMESTAMP -- set when the relay cannot publish the row (no payload or route); never claimed
 );
+
+-- store-system relay: the claim (unfailed rows of the relay's aggregate types in id order, aggregate
+-- types stored in upper case), the delayed-row lookup, and the saga's latest-event lookups
+CREATE INDEX idx_outbox_claim ON outbox (aggregate_type, event_id) WHERE failed_at IS NULL;
+CREATE INDEX idx_outbox_publish_at ON outbox (publish_at);
+CREATE INDEX idx_outbox_aggregate ON outbox (aggregate_id, event_type);
+
+-- ----------------------------
+-- 10. DELIVERY OUTBOX (owned by deliveryco-service)
+-- ----------------------------
+CREATE TABLE delivery_outbox (
+    event_id       SERIAL PRIMARY KEY,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id   INT NOT NULL,
+    event_type     VARCHAR(50) NOT NULL,
+    payload        TEXT,
+    correlation_id VARCHAR(100) NOT NULL,
+    created_at     TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    hop_count      INT,
+    failed_at      TIMESTAMP -- set when the relay cannot publish the row (no payload or route); never claimed
+);
+
+CREATE INDEX idx_delivery_outbox_created_at ON delivery_outbox (created_at);
+CREATE INDEX idx_delivery_outbox_claim ON delivery_outbox (created_at, event_id) WHERE failed_at IS NULL;
+
+-- Both outbox tables churn constantly; vacuum them well before the default 20% dead-tuple threshold.
+ALTER TABLE outbox SET (autovacuum_vacuum_scale_factor = 0.01, autovacuum_vacuum_threshold = 1000);
+ALTER TABLE delivery_outbox SET (autovacuum_vacuum_scale_factor = 0.01, autovacuum_vacuum_threshold = 1000);
+
+-- ----------------------------
+-- 11. OUTBOX ARCHIVE (store.outbox.archive.enabled)
+-- Published rows, partitioned by day; the services create upcoming partitions and drop expired ones.
+-- ----------------------------
+CREATE TABLE outbox_archive (
+    event_id       INT NOT NULL,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id   INT NOT NULL,
+    event_type     VARCHAR(50) NOT NULL,
+    payload        TEXT,
+    correlation_id VARCHAR(100) NOT NULL,
+    created_at     TIMESTAMP,
+    publish_at     TIMESTAMP,
+    hop_count      INT,
+    published_at   TIMESTAMP NOT NULL
+) PARTITION BY RANGE (published_at);
+
+CREATE TABLE outbox_archive_default PARTITION OF outbox_archive DEFAULT;
+
+-- replay lookups by order and by type (see OutboxReplayService)
+CREATE INDEX idx_outbox_archive_published ON outbox_archive (published_at, event_id);
+CREATE INDEX idx_outbox_archive_correlation ON outbox_archive (correlation_id);
+
+CREATE TABLE delivery_outbox_archive (
+    event_id       INT NOT NULL,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id   INT NOT NULL,
+    event_type     VARCHAR(50) NOT NULL,
+    payload        TEXT,
+    correlation_id VARCHAR(100) NOT NULL,
+    created_at     TIMESTAMP,
+    hop_count      INT,
+    published_at   TIMESTAMP NOT NULL
+) PARTITION BY RANGE (published_at);
+
+CREATE TABLE delivery_outbox_archive_default PARTITION OF delivery_outbox_archive DEFAULT;
+
+-- Wake the outbox relays (LISTEN outbox) when a row is due right away;
+-- delayed rows are picked up by the relays' own schedulers.
+CREATE OR REPLACE FUNCTION notify_outbox() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('outbox', NEW.aggregate_type);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER outbox_notify
+    AFTER INSERT ON outbox
+    FOR EACH ROW
+    WHEN (NEW.publish_at IS NULL OR NEW.publish_at <= CURRENT_TIMESTAMP)
+    EXECUTE FUNCTION notify_outbox();
+
+CREATE TRIGGER delivery_outbox_notify
+    AFTER INSERT ON delivery_outbox
+    FOR EACH ROW
+    EXECUTE FUNCTION notify_outbox();
+
+-- ----------------------------
+-- 12. INBOX
+-- Message ids each store-system consumer has handled (see MessageInbox); purged after store.inbox.retention-days.
+-- ----------------------------
+CREATE TABLE inbox (
+    consumer    VARCHAR(100) NOT NULL,
+    message_id  VARCHAR(200) NOT NULL,
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (consumer, message_id)
+);
+
+CREATE INDEX idx_inbox_received_at ON inbox (received_at);
@@ -0,0 +1,150 @@
+-- Upgrade for databases created from an earlier version1.sql.
+BEGIN;
+
+-- Wake the outbox relays (LISTEN outbox) when a row is due right away.
+CREATE OR REPLACE FUNCTION notify_outbox() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('outbox', NEW.aggregate_type);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS outbox_notify ON outbox;
+CREATE TRIGGER outbox_notify
+    AFTER INSERT ON outbox
+    FOR EACH ROW
+    WHEN (NEW.publish_at IS NULL OR NEW.publish_at <= CURRENT_TIMESTAMP)
+    EXECUTE FUNCTION notify_outbox();
+
+-- Move deliveryco-service's rows out of the shared outbox table.
+CREATE TABLE IF NOT EXISTS delivery_outbox (
+    event_id       SERIAL PRIMARY KEY,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id   INT NOT NULL,
+    event_type     VARCHAR(50) NOT NULL,
+    payload        TEXT,
+    correlation_id VARCHAR(100) NOT NULL,
+    created_at     TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_delivery_outbox_created_at ON delivery_outbox (created_at);
+
+WITH moved AS (
+    DELETE FROM outbox
+    WHERE aggregate_type = 'DELIVERY'
+    RETURNING aggregate_type, aggregate_id, event_type, payload, correlation_id, created_at
+)
+INSERT INTO delivery_outbox (aggregate_type, aggregate_id, event_type, payload, correlation_id, created_at)
+SELECT aggregate_type, aggregate_id, event_type, payload, correlation_id, created_at
+FROM moved
+ORDER BY created_at;
+
+-- store-system relay: due rows in id order, and the saga's latest-event lookups
+CREATE INDEX IF NOT EXISTS idx_outbox_publish_at ON outbox (publish_at);
+CREATE INDEX IF NOT EXISTS idx_outbox_aggregate ON outbox (aggregate_id, event_type);
+
+DROP TRIGGER IF EXISTS delivery_outbox_notify ON delivery_outbox;
+CREATE TRIGGER delivery_outbox_notify
+    AFTER INSERT ON delivery_outbox
+    FOR EACH ROW
+    EXECUTE FUNCTION notify_outbox();
+
+COMMIT;
+
+-- Hop counts sent with outbox messages (x-hop-count); rows written before this are sent without one.
+ALTER TABLE outbox ADD COLUMN IF NOT EXISTS hop_count INT;
+ALTER TABLE delivery_outbox ADD COLUMN IF NOT EXISTS hop_count INT;
+
+-- Order status stored as an OrderStatus code instead of its name. Legacy FULFILLED and
+-- PAYMENT_REQUESTED rows map to ALLOCATED and PAYMENT_PENDING; any other value (or NULL) aborts the
+-- migration rather than turning the order back into NEW. Skipped once the column is converted.
+DO $$
+DECLARE
+    unknown_statuses TEXT;
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'orders' AND column_name = 'status') = 'character varying' THEN
+        SELECT string_agg(DISTINCT COALESCE(status, 'NULL'), ', ') INTO unknown_statuses
+        FROM orders
+        WHERE status IS NULL OR UPPER(status) NOT IN ('NEW', 'ALLOCATED', 'FULFILLED', 'PAYMENT_PENDING',
+            'PAYMENT_REQUESTED', 'PAID', 'PAYMENT_FAILED', 'DELIVERY_CONFIRMED', 'OUT_FOR_DELIVERY',
+            'IN_TRANSIT', 'DELIVERED', 'CANCELLED');
+        IF unknown_statuses IS NOT NULL THEN
+            RAISE EXCEPTION 'Cannot convert orders.status: unknown values %', unknown_statuses;
+        END IF;
+        ALTER TABLE orders ALTER COLUMN status DROP DEFAULT;
+        ALTER TABLE orders ALTER COLUMN status TYPE SMALLINT USING CASE UPPER(status)
+            WHEN 'NEW' THEN 0
+            WHEN 'ALLOCATED' THEN 1
+            WHEN 'FULFILLED' THEN 1
+            WHEN 'PAYMENT_PENDING' THEN 2
+            WHEN 'PAYMENT_REQUESTED' THEN 2
+            WHEN 'PAID' THEN 3
+            WHEN 'PAYMENT_FAILED' THEN 4
+            WHEN 'DELIVERY_CONFIRMED' THEN 5
+            WHEN 'OUT_FOR_DELIVERY' THEN 6
+            WHEN 'IN_TRANSIT' THEN 7
+            WHEN 'DELIVERED' THEN 8
+            WHEN 'CANCELLED' THEN 9
+        END;
+        ALTER TABLE orders ALTER COLUMN status SET DEFAULT 0;
+        ALTER TABLE orders ALTER COLUMN status SET NOT NULL;
+    END IF;
+END $$;
+
+-- Optimistic-lock versions for concurrent saga handlers; existing rows start at 0.
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE delivery ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Idempotent consumer inbox.
+CREATE TABLE IF NOT EXISTS inbox (
+    consumer    VARCHAR(100) NOT NULL,
+    message_id  VARCHAR(200) NOT NULL,
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (consumer, message_id)
+);
+CREATE INDEX IF NOT EXISTS idx_inbox_received_at ON inbox (received_at);
+
+-- Outbox rows the store relay cannot publish are marked failed instead of blocking the claim.
+ALTER TABLE outbox ADD COLUMN IF NOT EXISTS failed_at TIMESTAMP;
+
+-- Claim index for the store relay; aggregate types are matched exactly, in upper case.
+UPDATE outbox SET aggregate_type = UPPER(aggregate_type) WHERE aggregate_type <> UPPER(aggregate_type);
+CREATE INDEX IF NOT EXISTS idx_outbox_claim ON outbox (aggregate_type, event_id) WHERE failed_at IS NULL;
+
+-- Delivery outbox rows the deliveryco relay cannot publish are marked failed the same way.
+ALTER TABLE delivery_outbox ADD COLUMN IF NOT EXISTS failed_at TIMESTAMP;
+CREATE INDEX IF NOT EXISTS idx_delivery_outbox_claim ON delivery_outbox (created_at, event_id) WHERE failed_at IS NULL;
+
+-- Day-partitioned outbox archives (store.outbox.archive.enabled); the services only add and drop partitions.
+CREATE TABLE IF NOT EXISTS outbox_archive (
+    event_id       INT NOT NULL,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id   INT NOT NULL,
+    event_type     VARCHAR(50) NOT NULL,
+    payload        TEXT,
+    correlation_id VARCHAR(100) NOT NULL,
+    created_at     TIMESTAMP,
+    publish_at     TIMESTAMP,
+    hop_count      INT,
+    published_at   TIMESTAMP NOT NULL
+) PARTITION BY RANGE (published_at);
+CREATE TABLE IF NOT EXISTS outbox_archive_default PARTITION OF outbox_archive DEFAULT;
+CREATE INDEX IF NOT EXISTS idx_outbox_archive_published ON outbox_archive (published_at, event_id);
+CREATE INDEX IF NOT EXISTS idx_outbox_archive_correlation ON outbox_archive (correlation_id);
+
+CREATE TABLE IF NOT EXISTS delivery_outbox_archive (
+    event_id       INT NOT NULL,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id   INT NOT NULL,
+    event_type     VARCHAR(50) NOT NULL,
+    payload        TEXT,
+    correlation_id VARCHAR(100) NOT NULL,
+    created_at     TIMESTAMP,
+    hop_count      INT,
+    published_at   TIMESTAMP NOT NULL
+) PARTITION BY RANGE (published_at);
+CREATE TABLE IF NOT EXISTS delivery_outbox_archive_default PARTITION OF delivery_outbox_archive DEFAULT;
+-- Archives created before hop counts were archived with their rows.
+ALTER TABLE outbox_archive ADD COLUMN IF NOT EXISTS hop_count INT;
+ALTER TABLE delivery_outbox_archive ADD COLUMN IF NOT EXISTS hop_count INT;